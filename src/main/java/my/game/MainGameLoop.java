@@ -1,53 +1,122 @@
 package my.game;
 
+import my.game.init.StartupTaskGraph;
 import my.game.init.vulkan.VulkanInstance;
 import my.game.init.vulkan.VulkanInstanceWithDebug;
 import my.game.init.vulkan.VulkanInstanceWithoutDebug;
-import my.game.init.vulkan.command.CommandPool;
+import my.game.init.vulkan.command.CommandBufferManager;
 import my.game.init.vulkan.devices.logical.ImmutableLogicalDevice;
 import my.game.init.vulkan.devices.logical.LogicalDevice;
 import my.game.init.vulkan.devices.physical.PhysicalDeviceRetriever;
+import my.game.init.vulkan.drawing.memory.allocation.BufferAllocator;
+import my.game.init.vulkan.drawing.memory.allocation.SubAllocatingBufferAllocator;
+import my.game.init.vulkan.drawing.memory.allocation.VmaBufferAllocator;
+import my.game.init.vulkan.pipeline.PipelineCache;
 import my.game.init.vulkan.pipeline.shaders.ShaderCompiler;
+import my.game.init.vulkan.pipeline.shaders.ShaderHotReloader;
+import my.game.init.vulkan.pipeline.shaders.ShaderPack;
 import my.game.init.window.WindowHandle;
 import my.game.init.window.WindowSurface;
 import my.game.render.GraphicsRenderer;
+import my.game.render.TransformPath;
+import my.game.simulation.Simulation;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.vulkan.VK10;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public class MainGameLoop {
     private final WindowHandle windowHandle;
     private final VulkanInstance vulkanInstance;
     private final LogicalDevice logicalDevice;
     private final PhysicalDeviceRetriever chosenPhysicalDevice;
     private final WindowSurface windowSurface;
-    private final CommandPool graphicsCommandPool;
-    private final CommandPool transferCommandPool;
+    private final CommandBufferManager commandBufferManager;
+    private final BufferAllocator bufferAllocator;
+    private final PipelineCache pipelineCache;
     private final GraphicsRenderer graphicsRenderer;
+    private final ShaderHotReloader shaderHotReloader;
+    private final Simulation simulation;
+    private final CompletableFuture<Void> firstFrame = new CompletableFuture<>();
     private volatile boolean RUNNING = true;
 
     public MainGameLoop() {
+        this(VulkanProject.TRANSFORM_PATH, VulkanProject.DRAW_COUNT);
+    }
+
+    public MainGameLoop(TransformPath transformPath, int drawCount) {
+        StartupTaskGraph startup = new StartupTaskGraph();
+        simulation = new Simulation(VulkanProject.SIMULATION_TICK_RATE);
+        //Nothing in shader compilation touches glfw or vulkan, so it runs while the window and device are created.
         ShaderCompiler shaderCompiler = new ShaderCompiler();
-        shaderCompiler.compileShaders();
-        windowHandle = new WindowHandle();
-        if (VulkanProject.VULKAN_DEBUG) {
-            vulkanInstance = new VulkanInstanceWithDebug();
+        StartupTaskGraph.Task<ShaderPack> shaders = startup.inBackground("shader compilation", () -> {
+            shaderCompiler.compileShaders();
+            return shaderCompiler.getShaderPack();
+        });
+        windowHandle = startup.onMainThread("window", WindowHandle::new).join();
+        vulkanInstance = startup.onMainThread("vulkan instance", () -> VulkanProject.VULKAN_DEBUG
+                ? new VulkanInstanceWithDebug() : new VulkanInstanceWithoutDebug()).join();
+        windowSurface = startup.onMainThread("window surface", () -> new WindowSurface(vulkanInstance.getHandle(), windowHandle)).join();
+        chosenPhysicalDevice = startup.onMainThread("physical device",
+                () -> new PhysicalDeviceRetriever(vulkanInstance.getHandle(), windowSurface)).join();
+        StartupTaskGraph.Task<LogicalDevice> device = startup.onMainThread("logical device",
+                () -> ImmutableLogicalDevice.builder().physicalDevice(chosenPhysicalDevice).build());
+        logicalDevice = device.join();
+        //Reading the cache from disk does not need the main thread.
+        StartupTaskGraph.Task<PipelineCache> pipelineCacheTask = startup.inBackground("pipeline cache",
+                () -> new PipelineCache(logicalDevice.vkDevice(), chosenPhysicalDevice.physicalDeviceInformation().deviceIdentity(),
+                        Path.of(VulkanProject.PIPELINE_CACHE_PATH)), device);
+        commandBufferManager = startup.onMainThread("command buffers", () -> new CommandBufferManager(logicalDevice.vkDevice())).join();
+        bufferAllocator = startup.onMainThread("buffer allocator", () -> VulkanProject.USE_VMA
+                ? new VmaBufferAllocator(vulkanInstance.getHandle(), logicalDevice.vkDevice())
+                : new SubAllocatingBufferAllocator(logicalDevice.vkDevice(), chosenPhysicalDevice.physicalDeviceInformation().memoryTypeTable())).join();
+        pipelineCache = pipelineCacheTask.join();
+        //The renderer only queues its pipelines, they are built on the pipeline compiler threads while the first frames just clear.
+        StartupTaskGraph.Task<GraphicsRenderer> renderer = startup.onMainThread("renderer",
+                () -> new GraphicsRenderer(logicalDevice, commandBufferManager, bufferAllocator, chosenPhysicalDevice.physicalDeviceInformation(),
+                        shaders.join(), pipelineCache, windowHandle, windowSurface, simulation.createInterpolatedState(),
+                        transformPath, drawCount), shaders, pipelineCacheTask);
+        graphicsRenderer = renderer.join();
+        List<StartupTaskGraph.Task<?>> sceneDependencies = new ArrayList<>();
+        graphicsRenderer.getPrecompiledPipelines().forEach((state, pipeline) -> sceneDependencies.add(
+                startup.track(String.format("pipeline %s + %s", state.vertexShader(), state.fragmentShader()), pipeline, renderer)));
+        //Startup only ends once a frame drew with the pipelines, the frames before that just clear the screen.
+        StartupTaskGraph.Task<Void> firstFrameTask = startup.track("first frame", firstFrame, renderer);
+        sceneDependencies.add(firstFrameTask);
+        StartupTaskGraph.Task<Void> firstSceneFrameTask = startup.track("first frame with pipeline", graphicsRenderer.getFirstSceneFrame(),
+                sceneDependencies.toArray(new StartupTaskGraph.Task<?>[0]));
+        String pipelineCacheState = pipelineCache.isWarm() ? "warm" : "cold";
+        //Not on the render thread, which is the one completing the last tasks.
+        startup.whenAllDone().whenCompleteAsync((ignored, error) -> {
+            if (error == null) {
+                System.out.printf("Startup took %.2f ms until the first frame and %.2f ms until the first frame with pipeline (%s pipeline cache)%n",
+                        firstFrameTask.getEndMillis(), firstSceneFrameTask.getEndMillis(), pipelineCacheState);
+            }
+            startup.printTrace();
+            startup.free();
+        });
+        if (VulkanProject.SHADER_HOT_RELOAD) {
+            shaderHotReloader = new ShaderHotReloader(shaderCompiler, graphicsRenderer::reloadShaders);
         } else {
-            vulkanInstance = new VulkanInstanceWithoutDebug();
+            shaderHotReloader = null;
         }
-        windowSurface = new WindowSurface(vulkanInstance.getHandle(), windowHandle);
-        chosenPhysicalDevice = new PhysicalDeviceRetriever(vulkanInstance.getHandle(), windowSurface);
-        logicalDevice = ImmutableLogicalDevice.builder().physicalDevice(chosenPhysicalDevice).build();
-        graphicsCommandPool = new CommandPool(logicalDevice.vkDevice(), logicalDevice.graphicsQueue());
-        transferCommandPool = new CommandPool(logicalDevice.vkDevice(), logicalDevice.transferVulkanQueue());
-        graphicsRenderer = new GraphicsRenderer(logicalDevice, graphicsCommandPool, transferCommandPool, chosenPhysicalDevice.physicalDeviceInformation(), windowHandle, windowSurface);
     }
 
     public void start() {
         if (RUNNING) {
             GLFW.glfwShowWindow(windowHandle.getWindowHandlePointer());
+            //glfw has to be polled from the main thread, which also draws. The game itself advances on the simulation thread.
+            simulation.start();
             while (!GLFW.glfwWindowShouldClose(windowHandle.getWindowHandlePointer()) && RUNNING) {
                 GLFW.glfwPollEvents();
                 graphicsRenderer.drawFrame();
+                if (!firstFrame.isDone()) {
+                    firstFrame.complete(null);
+                }
             }
             destroy();
         } else {
@@ -55,15 +124,47 @@ public class MainGameLoop {
         }
     }
 
+    //Draws frameCount frames, or fewer if the window gets closed, and shuts everything down like start does.
+    // Returns how long each drawFrame call took in nanoseconds, which is what TransformPathBenchmark compares.
+    public long[] drawFrames(int frameCount) {
+        if (!RUNNING) {
+            throw new IllegalStateException("Game loop has already been stopped. Cannot start again");
+        }
+        GLFW.glfwShowWindow(windowHandle.getWindowHandlePointer());
+        simulation.start();
+        long[] frameNanos = new long[frameCount];
+        int frames = 0;
+        while (frames < frameCount && !GLFW.glfwWindowShouldClose(windowHandle.getWindowHandlePointer()) && RUNNING) {
+            GLFW.glfwPollEvents();
+            long frameStart = System.nanoTime();
+            graphicsRenderer.drawFrame();
+            frameNanos[frames++] = System.nanoTime() - frameStart;
+            if (!firstFrame.isDone()) {
+                firstFrame.complete(null);
+            }
+        }
+        destroy();
+        return Arrays.copyOf(frameNanos, frames);
+    }
+
     public void stop() {
         RUNNING = false;
     }
 
     private void destroy() {
+        RUNNING = false;
+        simulation.free();
+        if (shaderHotReloader != null) {
+            shaderHotReloader.free();
+        }
         VK10.vkDeviceWaitIdle(logicalDevice.vkDevice());
         graphicsRenderer.free();
-        transferCommandPool.free();
-        graphicsCommandPool.free();
+        System.out.printf("Buffer allocator [%s]: %s%n", bufferAllocator.getName(), bufferAllocator.getStatistics());
+        bufferAllocator.free();
+        System.out.printf("Command buffers allocated: %d%n", commandBufferManager.getAllocationCount());
+        commandBufferManager.free();
+        pipelineCache.save();
+        pipelineCache.free();
         logicalDevice.free();
         chosenPhysicalDevice.free();
         windowSurface.free();
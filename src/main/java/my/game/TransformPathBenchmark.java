@@ -0,0 +1,54 @@
+package my.game;
+
+import my.game.render.TransformPath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Draws the same number of quads with every TransformPath, one fresh game loop per path, and prints how long drawFrame
+// took with each. The first frames are left out since they only clear while the pipelines compile and the jit warms up.
+//Set myGameBenchmarkFrames and myGameBenchmarkWarmUpFrames to change how many frames are measured and skipped.
+// Every other myGame property works like it does for VulkanProject.
+public class TransformPathBenchmark {
+
+    public static void main(String[] args) {
+        //Has to happen before VulkanProject reads its properties. Vsync would hide the cpu time we want to compare.
+        setDefault("myGamePresentMode", "immediate");
+        setDefault("myGameDrawCount", "1000");
+        int warmUpFrames = Integer.parseInt(System.getProperty("myGameBenchmarkWarmUpFrames", "600"));
+        int measuredFrames = Integer.parseInt(System.getProperty("myGameBenchmarkFrames", "3000"));
+        int drawCount = VulkanProject.DRAW_COUNT;
+        List<String> results = new ArrayList<>();
+        for (TransformPath transformPath : TransformPath.values()) {
+            long[] frameNanos = new MainGameLoop(transformPath, drawCount).drawFrames(warmUpFrames + measuredFrames);
+            if (frameNanos.length <= warmUpFrames) {
+                System.out.printf("Window was closed during the %s run. Stopping the benchmark%n", transformPath);
+                break;
+            }
+            results.add(summarize(transformPath, drawCount, Arrays.copyOfRange(frameNanos, warmUpFrames, frameNanos.length)));
+        }
+        results.forEach(System.out::println);
+    }
+
+    private static String summarize(TransformPath transformPath, int drawCount, long[] frameNanos) {
+        Arrays.sort(frameNanos);
+        long totalNanos = 0;
+        for (long nanos : frameNanos) {
+            totalNanos += nanos;
+        }
+        return String.format("[%s] %d draws, %d frames: mean %.3f ms, median %.3f ms, p99 %.3f ms", transformPath, drawCount,
+                frameNanos.length, totalNanos / (double) frameNanos.length / 1_000_000.0,
+                millis(frameNanos[frameNanos.length / 2]), millis(frameNanos[(int) (frameNanos.length * 0.99)]));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package my.game;
 
+import my.game.render.FramePacingPolicy;
+import my.game.render.TransformPath;
 import org.lwjgl.Version;
 import org.lwjgl.system.Configuration;
 
@@ -13,9 +15,48 @@ public class VulkanProject {
 
     private final static Thread mainThread = Thread.currentThread();
     public static boolean VULKAN_DEBUG;
+    //Set myGameAllocator=vma to allocate buffers through the Vulkan Memory Allocator instead of our own sub-allocator.
+    public static boolean USE_VMA;
+    //Set myGameTransformPath=push|dynamic|static to pick how per draw transforms reach the vertex shader.
+    public static TransformPath TRANSFORM_PATH;
+    //Set myGameDrawCount to draw the quad that many times a frame. Run TransformPathBenchmark to compare the transform paths.
+    public static int DRAW_COUNT;
+    //Set myGamePipelineCache to change where the pipeline cache is stored between runs.
+    public static String PIPELINE_CACHE_PATH;
+    //Set myGameShaderHotReload=true to recompile shaders and rebuild pipelines whenever a shader source changes.
+    public static boolean SHADER_HOT_RELOAD;
+    //Set myGameShaderSource to compile shaders from a directory outside the classpath, like src/main/resources/shaders/source
+    // so hot reload picks up edits without a rebuild.
+    public static String SHADER_SOURCE_PATH;
+    //Set myGameShaderPack to change where the compiled shaders are packed.
+    public static String SHADER_PACK_PATH;
+    //Set myGameFramesInFlight (1-3), myGamePresentMode=immediate|fifo_relaxed|mailbox|fifo and myGameSwapChainImages
+    // to trade latency against throughput.
+    public static FramePacingPolicy FRAME_PACING;
+    //Set myGameGrayscale=true to draw with the grayscale variant of the fragment shader.
+    public static boolean GRAYSCALE;
+    //Set myGameTimelineSemaphores=false to synchronize frames and uploads with fences even when the device has timeline semaphores.
+    public static boolean TIMELINE_SEMAPHORES;
+    //Set myGameDynamicRendering=false to draw through a render pass and framebuffers even when the device has VK_KHR_dynamic_rendering.
+    public static boolean DYNAMIC_RENDERING;
+    //Set myGameTickRate to change how many times a second the simulation thread advances the game.
+    public static int SIMULATION_TICK_RATE;
 
     static {
         VULKAN_DEBUG = Boolean.parseBoolean(System.getProperty("myGameVulkanDebug"));
+        USE_VMA = "vma".equalsIgnoreCase(System.getProperty("myGameAllocator"));
+        TRANSFORM_PATH = TransformPath.fromProperty(System.getProperty("myGameTransformPath"));
+        DRAW_COUNT = Integer.parseInt(System.getProperty("myGameDrawCount", "1"));
+        PIPELINE_CACHE_PATH = System.getProperty("myGamePipelineCache", "cache/pipeline_cache.bin");
+        SHADER_HOT_RELOAD = Boolean.parseBoolean(System.getProperty("myGameShaderHotReload"));
+        SHADER_SOURCE_PATH = System.getProperty("myGameShaderSource");
+        SHADER_PACK_PATH = System.getProperty("myGameShaderPack", "cache/shaders.pack");
+        FRAME_PACING = FramePacingPolicy.fromProperties(System.getProperty("myGameFramesInFlight"),
+                System.getProperty("myGamePresentMode"), System.getProperty("myGameSwapChainImages"));
+        GRAYSCALE = Boolean.parseBoolean(System.getProperty("myGameGrayscale"));
+        TIMELINE_SEMAPHORES = Boolean.parseBoolean(System.getProperty("myGameTimelineSemaphores", "true"));
+        DYNAMIC_RENDERING = Boolean.parseBoolean(System.getProperty("myGameDynamicRendering", "true"));
+        SIMULATION_TICK_RATE = Integer.parseInt(System.getProperty("myGameTickRate", "60"));
         if (VULKAN_DEBUG) {
             Configuration.DEBUG_MEMORY_ALLOCATOR.set(true);
             Configuration.DEBUG_STACK.set(true);
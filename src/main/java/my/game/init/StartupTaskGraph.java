@@ -0,0 +1,169 @@
+package my.game.init;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Runs startup as a graph of tasks instead of one long sequence, so work that does not depend on each other overlaps.
+// Main thread tasks run right away in the order they are added, since glfw insists on its main thread, after waiting for
+// their dependencies. Background tasks start on a worker as soon as their dependencies are done. Work that runs on some
+// other executor can be added with track to show up in the trace.
+// Once everything is done printTrace shows when each task ran and the chain of tasks that decided how long startup took.
+public class StartupTaskGraph {
+    private final long startNanos = System.nanoTime();
+    private final List<Task<?>> tasks = Collections.synchronizedList(new ArrayList<>());
+    private final ExecutorService executor;
+    private Task<?> lastMainTask;
+
+    public StartupTaskGraph() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "startup-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> Task<T> onMainThread(String name, Callable<T> work, Task<?>... dependencies) {
+        Task<T> task = new Task<>(name, dependencies, lastMainTask);
+        for (Task<?> dependency : dependencies) {
+            dependency.join();
+        }
+        task.run(work);
+        lastMainTask = task;
+        //Nothing after this can run if a main thread task failed.
+        task.join();
+        return task;
+    }
+
+    public <T> Task<T> inBackground(String name, Callable<T> work, Task<?>... dependencies) {
+        Task<T> task = new Task<>(name, dependencies, null);
+        CompletableFuture.allOf(Arrays.stream(dependencies).map(dependency -> dependency.future).toArray(CompletableFuture[]::new))
+                .thenRunAsync(() -> task.run(work), executor)
+                .exceptionally(error -> {
+                    task.future.completeExceptionally(error);
+                    return null;
+                });
+        return task;
+    }
+
+    //Work that was started elsewhere. It counts as starting once its dependencies are done, which includes any time it
+    // spent queued on its own executor.
+    public <T> Task<T> track(String name, CompletableFuture<T> work, Task<?>... dependencies) {
+        Task<T> task = new Task<>(name, dependencies, null);
+        CompletableFuture.allOf(Arrays.stream(dependencies).map(dependency -> dependency.future).toArray(CompletableFuture[]::new))
+                .thenRun(() -> task.startNanos = System.nanoTime())
+                .thenCompose(ignored -> work)
+                .whenComplete((result, error) -> {
+                    task.thread = "own executor";
+                    task.endNanos = System.nanoTime();
+                    if (error != null) {
+                        task.future.completeExceptionally(error);
+                    } else {
+                        task.future.complete(result);
+                    }
+                });
+        return task;
+    }
+
+    public CompletableFuture<Void> whenAllDone() {
+        CompletableFuture<?>[] futures;
+        synchronized (tasks) {
+            futures = tasks.stream().map(task -> task.future).toArray(CompletableFuture[]::new);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    public void printTrace() {
+        List<Task<?>> finished;
+        synchronized (tasks) {
+            finished = tasks.stream().filter(task -> task.future.isDone() && !task.future.isCompletedExceptionally())
+                    .sorted(Comparator.comparingLong(task -> task.startNanos)).toList();
+        }
+        if (finished.isEmpty()) {
+            return;
+        }
+        System.out.println("Startup trace (ms since start):");
+        for (Task<?> task : finished) {
+            System.out.printf("  %8.2f - %8.2f %8.2f ms  %-28s %s%n", millis(task.startNanos - startNanos), millis(task.endNanos - startNanos),
+                    millis(task.endNanos - task.startNanos), task.name, task.thread);
+        }
+        //Walk back from whatever finished last, always through the dependency that finished last. Anything off this
+        // path could have taken longer without startup taking longer.
+        List<String> criticalPath = new ArrayList<>();
+        Task<?> current = finished.stream().max(Comparator.comparingLong(task -> task.endNanos)).get();
+        long criticalEnd = current.endNanos;
+        while (current != null) {
+            criticalPath.add(String.format("%s (%.2f)", current.name, millis(current.endNanos - current.startNanos)));
+            current = current.dependencies.stream().max(Comparator.comparingLong(task -> task.endNanos)).orElse(null);
+        }
+        Collections.reverse(criticalPath);
+        System.out.printf("Critical path, %.2f ms: %s%n", millis(criticalEnd - startNanos), String.join(" -> ", criticalPath));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public void free() {
+        executor.shutdown();
+    }
+
+    public class Task<T> {
+        private final String name;
+        //Main thread tasks also wait for the main thread task before them.
+        private final List<Task<?>> dependencies;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile String thread;
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        private Task(String name, Task<?>[] dependencies, Task<?> previousMainTask) {
+            this.name = name;
+            List<Task<?>> allDependencies = new ArrayList<>(Arrays.asList(dependencies));
+            if (previousMainTask != null) {
+                allDependencies.add(previousMainTask);
+            }
+            this.dependencies = allDependencies;
+            tasks.add(this);
+        }
+
+        private void run(Callable<T> work) {
+            thread = Thread.currentThread().getName();
+            startNanos = System.nanoTime();
+            try {
+                T result = work.call();
+                endNanos = System.nanoTime();
+                future.complete(result);
+            } catch (Exception e) {
+                endNanos = System.nanoTime();
+                future.completeExceptionally(e);
+            }
+        }
+
+        //When the task finished, in ms since startup began.
+        public double getEndMillis() {
+            return millis(endNanos - StartupTaskGraph.this.startNanos);
+        }
+
+        //Rethrows what the task failed with.
+        public T join() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package my.game.init.vulkan.command;
 
+import my.game.init.vulkan.pipeline.ComputePipeline;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.VK10;
 import org.lwjgl.vulkan.VkCommandBuffer;
 import org.lwjgl.vulkan.VkCommandBufferBeginInfo;
+import org.lwjgl.vulkan.VkMemoryBarrier;
 
 public class CommandBuffer {
     private final VkCommandBuffer vkCommandBuffer;
@@ -23,25 +25,72 @@ public class CommandBuffer {
     }
 
     public void runCommand(final int commandBufferBeginInfoFlags, final CommandBufferAction commandBufferAction) {
-        beginCommandBuffer(commandBufferBeginInfoFlags);
+        begin(commandBufferBeginInfoFlags);
         commandBufferAction.run(vkCommandBuffer);
-        int result = VK10.vkEndCommandBuffer(vkCommandBuffer);
-        if (result != VK10.VK_SUCCESS) {
-            throw new IllegalStateException(String.format("Failed to record command buffer. Error code: %d", result));
-        }
+        end();
     }
 
-    private void beginCommandBuffer(final int commandBufferBeginInfoFlags) {
+    public void begin(final int commandBufferBeginInfoFlags) {
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
             VkCommandBufferBeginInfo commandBufferBeginInfo = VkCommandBufferBeginInfo.calloc(memoryStack);
             commandBufferBeginInfo
                     .sType(VK10.VK_STRUCTURE_TYPE_COMMAND_BUFFER_BEGIN_INFO)
                     .flags(commandBufferBeginInfoFlags)
                     .pInheritanceInfo(null);
-            int result = VK10.vkBeginCommandBuffer(vkCommandBuffer, commandBufferBeginInfo);
-            if (result != VK10.VK_SUCCESS) {
-                throw new IllegalStateException(String.format("Failed to begin to record command buffer. Error code: %d", result));
-            }
+            begin(commandBufferBeginInfo);
+        }
+    }
+
+    //For recording every frame. Takes begin info the caller keeps around, and unlike runCommand needs no lambda
+    // capturing the frame's state.
+    public void begin(final VkCommandBufferBeginInfo commandBufferBeginInfo) {
+        int result = VK10.vkBeginCommandBuffer(vkCommandBuffer, commandBufferBeginInfo);
+        if (result != VK10.VK_SUCCESS) {
+            throw new IllegalStateException(String.format("Failed to begin to record command buffer. Error code: %d", result));
+        }
+    }
+
+    public void end() {
+        int result = VK10.vkEndCommandBuffer(vkCommandBuffer);
+        if (result != VK10.VK_SUCCESS) {
+            throw new IllegalStateException(String.format("Failed to record command buffer. Error code: %d", result));
+        }
+    }
+
+    //Dispatch helpers, for use while recording inside runCommand.
+
+    public void bindComputePipeline(final ComputePipeline computePipeline) {
+        VK10.vkCmdBindPipeline(vkCommandBuffer, VK10.VK_PIPELINE_BIND_POINT_COMPUTE, computePipeline.getComputePipelinePointer());
+    }
+
+    //Sets with dynamic uniform buffers need their offsets, bind those through vkCmdBindDescriptorSets directly.
+    public void bindComputeDescriptorSet(final ComputePipeline computePipeline, final int set, final long descriptorSet) {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VK10.vkCmdBindDescriptorSets(vkCommandBuffer, VK10.VK_PIPELINE_BIND_POINT_COMPUTE,
+                    computePipeline.getPipelineLayout().getHandle(), set, memoryStack.longs(descriptorSet), null);
+        }
+    }
+
+    public void dispatch(final int groupCountX, final int groupCountY, final int groupCountZ) {
+        VK10.vkCmdDispatch(vkCommandBuffer, groupCountX, groupCountY, groupCountZ);
+    }
+
+    //Enough workgroups to run the shader at least once for every element. The shader has to skip the extra invocations.
+    public void dispatchInvocations(final ComputePipeline computePipeline, final int x, final int y, final int z) {
+        dispatch(computePipeline.groupCountX(x), computePipeline.groupCountY(y), computePipeline.groupCountZ(z));
+    }
+
+    //Makes what a dispatch wrote visible to later commands on this queue, like a draw reading it as vertices
+    // (VK_PIPELINE_STAGE_VERTEX_INPUT_BIT, VK_ACCESS_VERTEX_ATTRIBUTE_READ_BIT) or the next dispatch.
+    public void computeWriteBarrier(final int dstStageMask, final int dstAccessMask) {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkMemoryBarrier.Buffer memoryBarrier = VkMemoryBarrier.calloc(1, memoryStack);
+            memoryBarrier
+                    .sType(VK10.VK_STRUCTURE_TYPE_MEMORY_BARRIER)
+                    .srcAccessMask(VK10.VK_ACCESS_SHADER_WRITE_BIT)
+                    .dstAccessMask(dstAccessMask);
+            VK10.vkCmdPipelineBarrier(vkCommandBuffer, VK10.VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT, dstStageMask, 0,
+                    memoryBarrier, null, null);
         }
     }
 }
@@ -0,0 +1,87 @@
+package my.game.init.vulkan.command;
+
+import my.game.init.vulkan.devices.logical.queue.VulkanQueue;
+import my.game.init.vulkan.sync.GpuTimeline;
+import org.lwjgl.vulkan.VkDevice;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Hands out command buffers without allocating in steady state. Command pools must only be used from one thread at a time,
+// so one shot work gets a transient pool per thread and per queue family. Per frame work uses FrameCommandPools that are
+// reset as a whole.
+public class CommandBufferManager {
+    private final VkDevice vkDevice;
+    private final ThreadLocal<Map<Integer, RecyclingCommandPool>> threadPools = ThreadLocal.withInitial(HashMap::new);
+    private final List<RecyclingCommandPool> recyclingCommandPools = new ArrayList<>();
+    private final List<FrameCommandPool> frameCommandPools = new ArrayList<>();
+
+    public CommandBufferManager(VkDevice vkDevice) {
+        this.vkDevice = vkDevice;
+    }
+
+    //A one-shot command buffer for the given queue from the calling thread's pool.
+    // Hand it back with release() from the same thread once it is submitted.
+    public CommandBuffer acquire(VulkanQueue vulkanQueue) {
+        return threadPool(vulkanQueue).acquire();
+    }
+
+    public void release(VulkanQueue vulkanQueue, CommandBuffer commandBuffer, GpuTimeline timeline, long timelineValue) {
+        threadPool(vulkanQueue).release(commandBuffer, timeline, timelineValue);
+    }
+
+    private RecyclingCommandPool threadPool(VulkanQueue vulkanQueue) {
+        Map<Integer, RecyclingCommandPool> pools = threadPools.get();
+        RecyclingCommandPool pool = pools.get(vulkanQueue.getQueueIndex());
+        if (pool == null) {
+            pool = new RecyclingCommandPool(vkDevice, vulkanQueue);
+            pools.put(vulkanQueue.getQueueIndex(), pool);
+            synchronized (recyclingCommandPools) {
+                recyclingCommandPools.add(pool);
+            }
+        }
+        return pool;
+    }
+
+    public FrameCommandPool createFramePool(VulkanQueue vulkanQueue) {
+        FrameCommandPool frameCommandPool = new FrameCommandPool(vkDevice, vulkanQueue);
+        synchronized (frameCommandPools) {
+            frameCommandPools.add(frameCommandPool);
+        }
+        return frameCommandPool;
+    }
+
+    //Total number of vkAllocateCommandBuffers calls so far. Stops growing once every pool has warmed up.
+    public long getAllocationCount() {
+        long allocationCount = 0;
+        synchronized (recyclingCommandPools) {
+            for (RecyclingCommandPool pool : recyclingCommandPools) {
+                allocationCount += pool.getAllocationCount();
+            }
+        }
+        synchronized (frameCommandPools) {
+            for (FrameCommandPool pool : frameCommandPools) {
+                allocationCount += pool.getAllocationCount();
+            }
+        }
+        return allocationCount;
+    }
+
+    //All pools are destroyed here, including the ones belonging to other threads. Wait for the device to be idle first.
+    public void free() {
+        synchronized (recyclingCommandPools) {
+            for (RecyclingCommandPool pool : recyclingCommandPools) {
+                pool.free();
+            }
+            recyclingCommandPools.clear();
+        }
+        synchronized (frameCommandPools) {
+            for (FrameCommandPool pool : frameCommandPools) {
+                pool.free();
+            }
+            frameCommandPools.clear();
+        }
+    }
+}
@@ -14,12 +14,16 @@ public class CommandPool {
     private final VkDevice vkDevice;
 
     public CommandPool(VkDevice vkDevice, VulkanQueue vulkanQueue) {
+        this(vkDevice, vulkanQueue, VK10.VK_COMMAND_POOL_CREATE_RESET_COMMAND_BUFFER_BIT);
+    }
+
+    public CommandPool(VkDevice vkDevice, VulkanQueue vulkanQueue, int commandPoolCreateFlags) {
         this.vkDevice = vkDevice;
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
             VkCommandPoolCreateInfo vkCommandPoolCreateInfo = VkCommandPoolCreateInfo.calloc(memoryStack);
             vkCommandPoolCreateInfo
                     .sType(VK10.VK_STRUCTURE_TYPE_COMMAND_POOL_CREATE_INFO)
-                    .flags(VK10.VK_COMMAND_POOL_CREATE_RESET_COMMAND_BUFFER_BIT)
+                    .flags(commandPoolCreateFlags)
                     .queueFamilyIndex(vulkanQueue.getQueueIndex());
             LongBuffer commandPoolPointerBuffer = memoryStack.mallocLong(1);
             int result = VK10.vkCreateCommandPool(vkDevice, vkCommandPoolCreateInfo, null, commandPoolPointerBuffer);
@@ -38,6 +42,15 @@ public class CommandPool {
         return vkDevice;
     }
 
+    //Puts every command buffer allocated from this pool back into the initial state in one call.
+    // None of them may still be executing on the gpu.
+    public void reset() {
+        int result = VK10.vkResetCommandPool(vkDevice, commandPoolHandle, 0);
+        if (result != VK10.VK_SUCCESS) {
+            throw new IllegalStateException(String.format("Failed to reset command pool. Error code: %d", result));
+        }
+    }
+
     public void free() {
         VK10.vkDestroyCommandPool(vkDevice, commandPoolHandle, null);
     }
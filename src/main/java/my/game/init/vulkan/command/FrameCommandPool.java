@@ -0,0 +1,45 @@
+package my.game.init.vulkan.command;
+
+import my.game.init.vulkan.devices.logical.queue.VulkanQueue;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkDevice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//One pool per frame in flight. Instead of resetting every command buffer on its own the whole pool is reset once
+// the gpu has finished the frame's previous use of the pool, and the command buffers it already allocated are handed out again in order.
+public class FrameCommandPool {
+    private final CommandPool commandPool;
+    private final List<CommandBuffer> commandBuffers = new ArrayList<>();
+    private int nextCommandBuffer = 0;
+    private long allocationCount = 0;
+
+    FrameCommandPool(VkDevice vkDevice, VulkanQueue vulkanQueue) {
+        this.commandPool = new CommandPool(vkDevice, vulkanQueue, VK10.VK_COMMAND_POOL_CREATE_TRANSIENT_BIT);
+    }
+
+    //Only call after the gpu has finished the previous use of this frame.
+    public void reset() {
+        if (nextCommandBuffer > 0) {
+            commandPool.reset();
+        }
+        nextCommandBuffer = 0;
+    }
+
+    public CommandBuffer next() {
+        if (nextCommandBuffer == commandBuffers.size()) {
+            ++allocationCount;
+            commandBuffers.add(CommandBufferFactory.createCommandBuffers(commandPool, 1).getFirst());
+        }
+        return commandBuffers.get(nextCommandBuffer++);
+    }
+
+    long getAllocationCount() {
+        return allocationCount;
+    }
+
+    void free() {
+        commandPool.free();
+    }
+}
@@ -0,0 +1,68 @@
+package my.game.init.vulkan.command;
+
+import my.game.init.vulkan.devices.logical.queue.VulkanQueue;
+import my.game.init.vulkan.sync.GpuTimeline;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkDevice;
+
+import java.util.ArrayDeque;
+
+//A transient pool owned by a single thread for one-shot command buffers. Submitted command buffers are kept until the
+// timeline value of their submission is reached and then handed out again instead of allocating a new one.
+// The pool is created with RESET_COMMAND_BUFFER_BIT so vkBeginCommandBuffer implicitly resets a recycled buffer.
+class RecyclingCommandPool {
+    private final CommandPool commandPool;
+    private final Thread owner;
+    private final ArrayDeque<CommandBuffer> freeCommandBuffers = new ArrayDeque<>();
+    private final ArrayDeque<InFlightCommandBuffer> inFlightCommandBuffers = new ArrayDeque<>();
+    private long allocationCount = 0;
+
+    RecyclingCommandPool(VkDevice vkDevice, VulkanQueue vulkanQueue) {
+        this.commandPool = new CommandPool(vkDevice, vulkanQueue,
+                VK10.VK_COMMAND_POOL_CREATE_TRANSIENT_BIT | VK10.VK_COMMAND_POOL_CREATE_RESET_COMMAND_BUFFER_BIT);
+        this.owner = Thread.currentThread();
+    }
+
+    CommandBuffer acquire() {
+        checkOwner();
+        while (!inFlightCommandBuffers.isEmpty()) {
+            InFlightCommandBuffer oldest = inFlightCommandBuffers.peek();
+            if (oldest.timeline().completedValue() < oldest.timelineValue()) {
+                break;
+            }
+            freeCommandBuffers.add(inFlightCommandBuffers.poll().commandBuffer());
+        }
+        if (!freeCommandBuffers.isEmpty()) {
+            return freeCommandBuffers.poll();
+        }
+        ++allocationCount;
+        return CommandBufferFactory.createCommandBuffers(commandPool, 1).getFirst();
+    }
+
+    //Buffers that were recorded but never submitted can be released with a timeline value of 0.
+    void release(CommandBuffer commandBuffer, GpuTimeline timeline, long timelineValue) {
+        checkOwner();
+        if (commandBuffer.getCommandPoolHandle() != commandPool.getCommandPoolHandle().longValue()) {
+            throw new IllegalStateException("Command buffer was not acquired from this thread's pool");
+        }
+        inFlightCommandBuffers.add(new InFlightCommandBuffer(commandBuffer, timeline, timelineValue));
+    }
+
+    private void checkOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException(String.format("Command pool belongs to thread %s", owner.getName()));
+        }
+    }
+
+    long getAllocationCount() {
+        return allocationCount;
+    }
+
+    //Command buffers are freed together with the pool.
+    void free() {
+        commandPool.free();
+    }
+
+    private record InFlightCommandBuffer(CommandBuffer commandBuffer, GpuTimeline timeline, long timelineValue) {
+    }
+}
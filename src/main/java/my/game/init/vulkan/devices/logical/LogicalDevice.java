@@ -1,9 +1,15 @@
 package my.game.init.vulkan.devices.logical;
 
+import my.game.VulkanProject;
+import my.game.init.vulkan.devices.logical.queue.ComputeQueue;
 import my.game.init.vulkan.devices.logical.queue.GraphicsQueue;
 import my.game.init.vulkan.devices.logical.queue.PresentationQueue;
+import my.game.init.vulkan.devices.logical.queue.QueueLocks;
 import my.game.init.vulkan.devices.logical.queue.TransferVulkanQueue;
 import my.game.init.vulkan.devices.physical.PhysicalDeviceRetriever;
+import my.game.init.vulkan.sync.FenceTimeline;
+import my.game.init.vulkan.sync.GpuTimeline;
+import my.game.init.vulkan.sync.TimelineSemaphore;
 import org.immutables.value.Value;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
@@ -67,19 +73,45 @@ public abstract class LogicalDevice {
         }
     }
 
+    //Shared by all the queues below, see QueueLocks.
+    @Value.Derived
+    QueueLocks queueLocks() {
+        return new QueueLocks();
+    }
+
     @Value.Derived
     public GraphicsQueue graphicsQueue() {
-        return new GraphicsQueue(physicalDevice().physicalDeviceInformation().graphicsQueueIndex(), vkDevice());
+        return new GraphicsQueue(physicalDevice().physicalDeviceInformation().graphicsQueueIndex(), vkDevice(), queueLocks());
     }
 
     @Value.Derived
     public PresentationQueue presentationQueue() {
-        return new PresentationQueue(physicalDevice().physicalDeviceInformation().presentationQueueIndex(), vkDevice());
+        return new PresentationQueue(physicalDevice().physicalDeviceInformation().presentationQueueIndex(), vkDevice(), queueLocks());
     }
 
     @Value.Derived
     public TransferVulkanQueue transferVulkanQueue() {
-        return new TransferVulkanQueue(physicalDevice().physicalDeviceInformation().transferQueueIndex(), vkDevice());
+        return new TransferVulkanQueue(physicalDevice().physicalDeviceInformation().transferQueueIndex(), vkDevice(), queueLocks());
+    }
+
+    @Value.Derived
+    public ComputeQueue computeQueue() {
+        return new ComputeQueue(physicalDevice().physicalDeviceInformation().computeQueueIndex(), vkDevice(), queueLocks());
+    }
+
+    @Value.Derived
+    public boolean usesTimelineSemaphores() {
+        return VulkanProject.TIMELINE_SEMAPHORES && physicalDevice().physicalDeviceInformation().supportsTimelineSemaphores();
+    }
+
+    @Value.Derived
+    public boolean usesDynamicRendering() {
+        return VulkanProject.DYNAMIC_RENDERING && physicalDevice().physicalDeviceInformation().supportsDynamicRendering();
+    }
+
+    //A timeline semaphore when we use them, otherwise the fence based emulation.
+    public GpuTimeline createTimeline() {
+        return usesTimelineSemaphores() ? new TimelineSemaphore(vkDevice()) : new FenceTimeline(vkDevice());
     }
 
     public void free() {
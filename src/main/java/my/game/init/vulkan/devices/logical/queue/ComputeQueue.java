@@ -0,0 +1,14 @@
+package my.game.init.vulkan.devices.logical.queue;
+
+import org.lwjgl.vulkan.VkDevice;
+
+//The graphics queue itself when the device has no async compute family. Without a transfer only family the transfer
+// queue uses the async compute family too, so compute and uploads can end up on the same VkQueue. submit takes the
+// lock QueueLocks keeps for that VkQueue, so both can be used from different threads.
+//Buffers shared with the graphics queue need a queue family ownership transfer when the families differ, or
+// VK_SHARING_MODE_CONCURRENT.
+public class ComputeQueue extends VulkanQueue {
+    public ComputeQueue(Integer queueIndex, VkDevice vkDevice, QueueLocks queueLocks) {
+        super(queueIndex, vkDevice, queueLocks);
+    }
+}
@@ -4,7 +4,7 @@ import org.lwjgl.vulkan.VkDevice;
 
 public class GraphicsQueue extends VulkanQueue {
     //VkQueue is implicitly freed when the vkDevice is freed. We do not need to free ourselves.
-    public GraphicsQueue(final Integer index, final VkDevice vkDevice) {
-        super(index, vkDevice);
+    public GraphicsQueue(final Integer index, final VkDevice vkDevice, final QueueLocks queueLocks) {
+        super(index, vkDevice, queueLocks);
     }
 }
@@ -4,7 +4,7 @@ import org.lwjgl.vulkan.VkDevice;
 
 public class PresentationQueue extends VulkanQueue {
     //VkQueue is implicitly freed when the vkDevice is freed. We do not need to free ourselves.
-    public PresentationQueue(Integer index, VkDevice vkDevice) {
-        super(index, vkDevice);
+    public PresentationQueue(Integer index, VkDevice vkDevice, QueueLocks queueLocks) {
+        super(index, vkDevice, queueLocks);
     }
 }
@@ -0,0 +1,15 @@
+package my.game.init.vulkan.devices.logical.queue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//Vulkan requires every submission and present on a VkQueue to be externally synchronized. We always take queue 0 of a
+// family, so whenever two roles share a family, like transfer and graphics on a device without a transfer only family,
+// they are the same VkQueue. The lock therefore belongs to the VkQueue and not to the VulkanQueue wrapping it.
+public class QueueLocks {
+    private final Map<Long, Object> locks = new HashMap<>();
+
+    synchronized Object forQueue(long vkQueue) {
+        return locks.computeIfAbsent(vkQueue, ignored -> new Object());
+    }
+}
@@ -3,7 +3,7 @@ package my.game.init.vulkan.devices.logical.queue;
 import org.lwjgl.vulkan.VkDevice;
 
 public class TransferVulkanQueue extends VulkanQueue {
-    public TransferVulkanQueue(Integer queueIndex, VkDevice vkDevice) {
-        super(queueIndex, vkDevice);
+    public TransferVulkanQueue(Integer queueIndex, VkDevice vkDevice, QueueLocks queueLocks) {
+        super(queueIndex, vkDevice, queueLocks);
     }
 }
@@ -2,16 +2,22 @@ package my.game.init.vulkan.devices.logical.queue;
 
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.KHRSwapchain;
 import org.lwjgl.vulkan.VK10;
 import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkPresentInfoKHR;
 import org.lwjgl.vulkan.VkQueue;
+import org.lwjgl.vulkan.VkSubmitInfo;
 
+//Submit and present through here, never with the raw VkQueue. Roles that share a family share the VkQueue, and the
+// lock from QueueLocks is what keeps threads submitting for different roles from using it at the same time.
 public abstract class VulkanQueue {
     private final VkQueue vkQueue;
     private final Integer queueIndex;
+    private final Object submitLock;
 
     //VkQueue is implicitly freed when the vkDevice is freed. We do not need to free ourselves.
-    protected VulkanQueue(Integer queueIndex, VkDevice vkDevice) {
+    protected VulkanQueue(Integer queueIndex, VkDevice vkDevice, QueueLocks queueLocks) {
         this.queueIndex = queueIndex;
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
             PointerBuffer vulkanQueue = memoryStack.mallocPointer(1);
@@ -19,10 +25,21 @@ public abstract class VulkanQueue {
                     queueIndex, 0, vulkanQueue);
             vkQueue = new VkQueue(vulkanQueue.get(0), vkDevice);
         }
+        submitLock = queueLocks.forQueue(vkQueue.address());
     }
 
-    public VkQueue getVkQueue() {
-        return vkQueue;
+    //Returns the result of vkQueueSubmit.
+    public int submit(VkSubmitInfo submitInfo, long fence) {
+        synchronized (submitLock) {
+            return VK10.vkQueueSubmit(vkQueue, submitInfo, fence);
+        }
+    }
+
+    //Returns the result of vkQueuePresentKHR.
+    public int present(VkPresentInfoKHR presentInfo) {
+        synchronized (submitLock) {
+            return KHRSwapchain.vkQueuePresentKHR(vkQueue, presentInfo);
+        }
     }
 
     public Integer getQueueIndex() {
@@ -0,0 +1,55 @@
+package my.game.init.vulkan.devices.physical;
+
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkPhysicalDevice;
+import org.lwjgl.vulkan.VkPhysicalDeviceProperties;
+
+import java.util.Arrays;
+
+//Identifies the exact driver and device data produced by it belongs to. A pipeline cache header stores the same values,
+// data from a different gpu or driver version must not be fed back to the driver.
+public class DeviceIdentity {
+    private final int vendorId;
+    private final int deviceId;
+    private final int driverVersion;
+    private final String deviceName;
+    private final byte[] pipelineCacheUuid;
+
+    public DeviceIdentity(VkPhysicalDevice physicalDevice) {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkPhysicalDeviceProperties physicalDeviceProperties = VkPhysicalDeviceProperties.calloc(memoryStack);
+            VK10.vkGetPhysicalDeviceProperties(physicalDevice, physicalDeviceProperties);
+            vendorId = physicalDeviceProperties.vendorID();
+            deviceId = physicalDeviceProperties.deviceID();
+            driverVersion = physicalDeviceProperties.driverVersion();
+            deviceName = physicalDeviceProperties.deviceNameString();
+            pipelineCacheUuid = new byte[VK10.VK_UUID_SIZE];
+            physicalDeviceProperties.pipelineCacheUUID().get(pipelineCacheUuid);
+        }
+    }
+
+    public int getVendorId() {
+        return vendorId;
+    }
+
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    public int getDriverVersion() {
+        return driverVersion;
+    }
+
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public byte[] getPipelineCacheUuid() {
+        return Arrays.copyOf(pipelineCacheUuid, pipelineCacheUuid.length);
+    }
+
+    public boolean matchesPipelineCacheUuid(byte[] uuid) {
+        return Arrays.equals(pipelineCacheUuid, uuid);
+    }
+}
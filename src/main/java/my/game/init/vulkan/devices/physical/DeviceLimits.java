@@ -0,0 +1,39 @@
+package my.game.init.vulkan.devices.physical;
+
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkPhysicalDevice;
+import org.lwjgl.vulkan.VkPhysicalDeviceLimits;
+import org.lwjgl.vulkan.VkPhysicalDeviceProperties;
+
+//The limits we care about copied out of VkPhysicalDeviceProperties once, so they can be read without touching native memory.
+public class DeviceLimits {
+    private final long minUniformBufferOffsetAlignment;
+    private final int maxUniformBufferRange;
+    private final int maxPushConstantsSize;
+
+    public DeviceLimits(VkPhysicalDevice physicalDevice) {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkPhysicalDeviceProperties physicalDeviceProperties = VkPhysicalDeviceProperties.calloc(memoryStack);
+            VK10.vkGetPhysicalDeviceProperties(physicalDevice, physicalDeviceProperties);
+            VkPhysicalDeviceLimits limits = physicalDeviceProperties.limits();
+            minUniformBufferOffsetAlignment = limits.minUniformBufferOffsetAlignment();
+            maxUniformBufferRange = limits.maxUniformBufferRange();
+            maxPushConstantsSize = limits.maxPushConstantsSize();
+        }
+    }
+
+    //Every dynamic offset into a uniform buffer has to be a multiple of this.
+    public long getMinUniformBufferOffsetAlignment() {
+        return minUniformBufferOffsetAlignment;
+    }
+
+    public int getMaxUniformBufferRange() {
+        return maxUniformBufferRange;
+    }
+
+    //Guaranteed to be at least 128 bytes.
+    public int getMaxPushConstantsSize() {
+        return maxPushConstantsSize;
+    }
+}
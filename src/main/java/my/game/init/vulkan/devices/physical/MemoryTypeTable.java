@@ -0,0 +1,59 @@
+package my.game.init.vulkan.devices.physical;
+
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkPhysicalDevice;
+import org.lwjgl.vulkan.VkPhysicalDeviceMemoryProperties;
+
+//The memory types of a physical device never change, so we query them once and keep them in plain java arrays
+// instead of calling vkGetPhysicalDeviceMemoryProperties for every buffer we create.
+public class MemoryTypeTable {
+    private final int[] propertyFlags;
+    private final int[] heapIndexes;
+    private final long[] heapSizes;
+
+    public MemoryTypeTable(VkPhysicalDevice physicalDevice) {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkPhysicalDeviceMemoryProperties physicalDeviceMemoryProperties = VkPhysicalDeviceMemoryProperties.calloc(memoryStack);
+            VK10.vkGetPhysicalDeviceMemoryProperties(physicalDevice, physicalDeviceMemoryProperties);
+            propertyFlags = new int[physicalDeviceMemoryProperties.memoryTypeCount()];
+            heapIndexes = new int[physicalDeviceMemoryProperties.memoryTypeCount()];
+            for (int i = 0; i < propertyFlags.length; ++i) {
+                propertyFlags[i] = physicalDeviceMemoryProperties.memoryTypes(i).propertyFlags();
+                heapIndexes[i] = physicalDeviceMemoryProperties.memoryTypes(i).heapIndex();
+            }
+            heapSizes = new long[physicalDeviceMemoryProperties.memoryHeapCount()];
+            for (int i = 0; i < heapSizes.length; ++i) {
+                heapSizes[i] = physicalDeviceMemoryProperties.memoryHeaps(i).size();
+            }
+        }
+    }
+
+    //Picks the memory type allowed by typeFilter that has all the required flags and the most of the preferred flags.
+    public int findMemoryType(int typeFilter, int requiredPropertyFlags, int preferredPropertyFlags) {
+        int bestIndex = -1;
+        int bestScore = -1;
+        for (int i = 0; i < propertyFlags.length; ++i) {
+            if ((typeFilter & (1 << i)) == 0 || (propertyFlags[i] & requiredPropertyFlags) != requiredPropertyFlags) {
+                continue;
+            }
+            int score = Integer.bitCount(propertyFlags[i] & preferredPropertyFlags);
+            if (score > bestScore) {
+                bestIndex = i;
+                bestScore = score;
+            }
+        }
+        if (bestIndex == -1) {
+            throw new IllegalStateException(String.format("Failed to find memory type that supports typeFilter: %d and memoryPropertyFlags: %d", typeFilter, requiredPropertyFlags));
+        }
+        return bestIndex;
+    }
+
+    public int getPropertyFlags(int memoryTypeIndex) {
+        return propertyFlags[memoryTypeIndex];
+    }
+
+    public long getHeapSize(int memoryTypeIndex) {
+        return heapSizes[heapIndexes[memoryTypeIndex]];
+    }
+}
@@ -7,6 +7,8 @@ import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.VK10;
 import org.lwjgl.vulkan.VkExtensionProperties;
 import org.lwjgl.vulkan.VkPhysicalDevice;
+import org.lwjgl.vulkan.VkPhysicalDeviceDynamicRenderingFeaturesKHR;
+import org.lwjgl.vulkan.VkPhysicalDeviceTimelineSemaphoreFeatures;
 import org.lwjgl.vulkan.VkPhysicalDeviceUniformBufferStandardLayoutFeatures;
 
 import java.nio.IntBuffer;
@@ -22,6 +24,24 @@ public abstract class PhysicalDeviceInformation implements Comparable<PhysicalDe
 
     public abstract VkPhysicalDeviceUniformBufferStandardLayoutFeatures uniformBufferStandardLayoutFeatures();
 
+    //Chained behind uniformBufferStandardLayoutFeatures.
+    public abstract VkPhysicalDeviceTimelineSemaphoreFeatures timelineSemaphoreFeatures();
+
+    //Optional. Without it every timeline is emulated with fences.
+    @Value.Derived
+    public boolean supportsTimelineSemaphores() {
+        return timelineSemaphoreFeatures().timelineSemaphore();
+    }
+
+    //Chained behind timelineSemaphoreFeatures, but only when the device has VK_KHR_dynamic_rendering.
+    public abstract VkPhysicalDeviceDynamicRenderingFeaturesKHR dynamicRenderingFeatures();
+
+    //Optional. Without it pipelines are created against a render pass and every swap chain image needs a framebuffer.
+    @Value.Derived
+    public boolean supportsDynamicRendering() {
+        return dynamicRenderingFeatures().dynamicRendering();
+    }
+
     @Value.Default
     public int graphicsQueueIndex() {
         return -1;
@@ -39,6 +59,18 @@ public abstract class PhysicalDeviceInformation implements Comparable<PhysicalDe
         return graphicsQueueIndex();
     }
 
+    @Value.Default
+    public int computeQueueIndex() {
+        //The graphics family always supports compute too, so without an async compute family compute work shares the graphics queue.
+        //Roles with the same index share one VkQueue, VulkanQueue.submit keeps them from submitting at the same time.
+        return graphicsQueueIndex();
+    }
+
+    @Value.Derived
+    public boolean hasAsyncCompute() {
+        return computeQueueIndex() != graphicsQueueIndex();
+    }
+
     public abstract WindowSurface windowSurface();
 
     @Value.Derived
@@ -76,6 +108,21 @@ public abstract class PhysicalDeviceInformation implements Comparable<PhysicalDe
         return allFound;
     }
 
+    @Value.Derived
+    public MemoryTypeTable memoryTypeTable() {
+        return new MemoryTypeTable(physicalDevice());
+    }
+
+    @Value.Derived
+    public DeviceLimits deviceLimits() {
+        return new DeviceLimits(physicalDevice());
+    }
+
+    @Value.Derived
+    public DeviceIdentity deviceIdentity() {
+        return new DeviceIdentity(physicalDevice());
+    }
+
     @Value.Derived
     public SwapChainSupportDetails swapChainSupportDetails() {
         return new SwapChainSupportDetails(physicalDevice(), windowSurface());
@@ -99,7 +146,7 @@ public abstract class PhysicalDeviceInformation implements Comparable<PhysicalDe
     @Value.Derived
     public Set<Integer> uniqueQueueIndexes() {
         if (isValid()) {
-            return ImmutableSet.of(graphicsQueueIndex(), presentationQueueIndex(), transferQueueIndex());
+            return ImmutableSet.of(graphicsQueueIndex(), presentationQueueIndex(), transferQueueIndex(), computeQueueIndex());
         } else {
             return Collections.emptySet();
         }
@@ -113,5 +160,7 @@ public abstract class PhysicalDeviceInformation implements Comparable<PhysicalDe
     public void free() {
         swapChainSupportDetails().free();
         uniformBufferStandardLayoutFeatures().free();
+        timelineSemaphoreFeatures().free();
+        dynamicRenderingFeatures().free();
     }
 }
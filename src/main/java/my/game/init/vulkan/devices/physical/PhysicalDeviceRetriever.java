@@ -4,16 +4,20 @@ import com.google.common.collect.ImmutableList;
 import my.game.init.window.WindowSurface;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.KHRDynamicRendering;
 import org.lwjgl.vulkan.KHRSurface;
 import org.lwjgl.vulkan.KHRSwapchain;
 import org.lwjgl.vulkan.VK10;
 import org.lwjgl.vulkan.VK11;
 import org.lwjgl.vulkan.VK12;
+import org.lwjgl.vulkan.VkExtensionProperties;
 import org.lwjgl.vulkan.VkInstance;
 import org.lwjgl.vulkan.VkPhysicalDevice;
+import org.lwjgl.vulkan.VkPhysicalDeviceDynamicRenderingFeaturesKHR;
 import org.lwjgl.vulkan.VkPhysicalDeviceFeatures;
 import org.lwjgl.vulkan.VkPhysicalDeviceFeatures2;
 import org.lwjgl.vulkan.VkPhysicalDeviceProperties;
+import org.lwjgl.vulkan.VkPhysicalDeviceTimelineSemaphoreFeatures;
 import org.lwjgl.vulkan.VkPhysicalDeviceUniformBufferStandardLayoutFeatures;
 import org.lwjgl.vulkan.VkQueueFamilyProperties;
 
@@ -29,8 +33,10 @@ public class PhysicalDeviceRetriever {
             KHRSwapchain.VK_KHR_SWAPCHAIN_EXTENSION_NAME
     );
     //We only include these extensions if they are available. In the case of VK_KHR_portability_subset if it is available then it is required.
+    //VK_KHR_dynamic_rendering is core in 1.3, the instance asks for 1.2 so we go through the extension.
     public static List<String> OPTIONAL_DEVICE_EXTENSIONS = ImmutableList.of(
-            "VK_KHR_portability_subset"
+            "VK_KHR_portability_subset",
+            KHRDynamicRendering.VK_KHR_DYNAMIC_RENDERING_EXTENSION_NAME
     );
     private PhysicalDeviceInformation physicalDeviceInformation;
 
@@ -92,12 +98,25 @@ public class PhysicalDeviceRetriever {
     private PhysicalDeviceInformation determineDeviceSuitability(VkPhysicalDevice vkPhysicalDevice, WindowSurface windowSurface) {
         int score = 0;
         VkPhysicalDeviceUniformBufferStandardLayoutFeatures uniformBufferStandardLayoutFeatures = VkPhysicalDeviceUniformBufferStandardLayoutFeatures.calloc();
+        VkPhysicalDeviceTimelineSemaphoreFeatures timelineSemaphoreFeatures = VkPhysicalDeviceTimelineSemaphoreFeatures.calloc();
+        VkPhysicalDeviceDynamicRenderingFeaturesKHR dynamicRenderingFeatures = VkPhysicalDeviceDynamicRenderingFeaturesKHR.calloc();
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
             VkPhysicalDeviceProperties vkPhysicalDeviceProperties = VkPhysicalDeviceProperties.calloc(memoryStack);
             VkPhysicalDeviceFeatures2 vkPhysicalDeviceFeatures = VkPhysicalDeviceFeatures2.calloc(memoryStack);
             vkPhysicalDeviceFeatures.sType(VK11.VK_STRUCTURE_TYPE_PHYSICAL_DEVICE_FEATURES_2);
             uniformBufferStandardLayoutFeatures
                     .sType(VK12.VK_STRUCTURE_TYPE_PHYSICAL_DEVICE_UNIFORM_BUFFER_STANDARD_LAYOUT_FEATURES);
+            //The logical device is created with this same chain, so every feature found here is also enabled.
+            timelineSemaphoreFeatures
+                    .sType(VK12.VK_STRUCTURE_TYPE_PHYSICAL_DEVICE_TIMELINE_SEMAPHORE_FEATURES);
+            uniformBufferStandardLayoutFeatures.pNext(timelineSemaphoreFeatures.address());
+            //Chaining an extension's features without enabling the extension is invalid when creating the device, so this
+            // one is only asked for when the device has it. Otherwise it stays all false.
+            dynamicRenderingFeatures
+                    .sType(KHRDynamicRendering.VK_STRUCTURE_TYPE_PHYSICAL_DEVICE_DYNAMIC_RENDERING_FEATURES_KHR);
+            if (extensionSupported(memoryStack, vkPhysicalDevice, KHRDynamicRendering.VK_KHR_DYNAMIC_RENDERING_EXTENSION_NAME)) {
+                timelineSemaphoreFeatures.pNext(dynamicRenderingFeatures.address());
+            }
             vkPhysicalDeviceFeatures.pNext(uniformBufferStandardLayoutFeatures);
             VK10.vkGetPhysicalDeviceProperties(vkPhysicalDevice, vkPhysicalDeviceProperties);
             VK11.vkGetPhysicalDeviceFeatures2(vkPhysicalDevice, vkPhysicalDeviceFeatures);
@@ -112,11 +131,32 @@ public class PhysicalDeviceRetriever {
         builder.physicalDevice(vkPhysicalDevice)
                 .score(score)
                 .uniformBufferStandardLayoutFeatures(uniformBufferStandardLayoutFeatures)
+                .timelineSemaphoreFeatures(timelineSemaphoreFeatures)
+                .dynamicRenderingFeatures(dynamicRenderingFeatures)
                 .windowSurface(windowSurface);
         getFamilyIndexes(vkPhysicalDevice, windowSurface, builder);
         return builder.build();
     }
 
+    private boolean extensionSupported(MemoryStack memoryStack, VkPhysicalDevice vkPhysicalDevice, String extensionName) {
+        IntBuffer extensionCount = memoryStack.mallocInt(1);
+        int result = VK10.vkEnumerateDeviceExtensionProperties(vkPhysicalDevice, (String) null, extensionCount, null);
+        if (result != VK10.VK_SUCCESS) {
+            throw new IllegalStateException(String.format("Failed to enumerate device extension properties. Error code: %d", result));
+        }
+        VkExtensionProperties.Buffer extensionProperties = VkExtensionProperties.malloc(extensionCount.get(0), memoryStack);
+        int result2 = VK10.vkEnumerateDeviceExtensionProperties(vkPhysicalDevice, (String) null, extensionCount, extensionProperties);
+        if (result2 != VK10.VK_SUCCESS) {
+            throw new IllegalStateException(String.format("Failed to enumerate device extension properties. Error code: %d", result2));
+        }
+        for (int i = 0; i < extensionProperties.capacity(); ++i) {
+            if (extensionName.equals(extensionProperties.get(i).extensionNameString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void getFamilyIndexes(VkPhysicalDevice physicalDevice, WindowSurface windowSurface, ImmutablePhysicalDeviceInformation.Builder builder) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             IntBuffer queueFamilyCount = stack.mallocInt(1);
@@ -125,16 +165,25 @@ public class PhysicalDeviceRetriever {
             VK10.vkGetPhysicalDeviceQueueFamilyProperties(physicalDevice, queueFamilyCount, queueFamilyProperties);
             boolean foundSharedPresentationGraphicsQueue = false;
             boolean foundDedicatedTransferQueue = false;
+            boolean foundTransferOnlyQueue = false;
+            boolean foundDedicatedComputeQueue = false;
             for (int i = 0; i < queueFamilyProperties.capacity(); ++i) {
                 if (!foundSharedPresentationGraphicsQueue) {
                     foundSharedPresentationGraphicsQueue = queueSupportsGraphics(queueFamilyProperties, i, builder)
                             && queueSupportsPresentation(stack, physicalDevice, i, windowSurface, builder);
                 }
-                if (!foundDedicatedTransferQueue) {
-                    foundDedicatedTransferQueue = queueIsDedicatedForTransfer(queueFamilyProperties, i, builder);
+                //A family that can only transfer is the copy engine, prefer it over an async compute family that can also transfer.
+                // Falling back to the async compute family means the transfer and compute queues are the same VkQueue.
+                if (!foundTransferOnlyQueue && queueIsDedicatedForTransfer(queueFamilyProperties, i)) {
+                    boolean transferOnly = (queueFamilyProperties.get(i).queueFlags() & VK10.VK_QUEUE_COMPUTE_BIT) == 0;
+                    if (transferOnly || !foundDedicatedTransferQueue) {
+                        builder.transferQueueIndex(i);
+                        foundDedicatedTransferQueue = true;
+                        foundTransferOnlyQueue = transferOnly;
+                    }
                 }
-                if (foundSharedPresentationGraphicsQueue && foundDedicatedTransferQueue) {
-                    break;
+                if (!foundDedicatedComputeQueue) {
+                    foundDedicatedComputeQueue = queueIsDedicatedForCompute(queueFamilyProperties, i, builder);
                 }
             }
         }
@@ -161,10 +210,16 @@ public class PhysicalDeviceRetriever {
         return false;
     }
 
-    private boolean queueIsDedicatedForTransfer(VkQueueFamilyProperties.Buffer queueFamilyProperties, int index, ImmutablePhysicalDeviceInformation.Builder builder) {
+    private boolean queueIsDedicatedForTransfer(VkQueueFamilyProperties.Buffer queueFamilyProperties, int index) {
+        return ((queueFamilyProperties.get(index).queueFlags() & VK10.VK_QUEUE_GRAPHICS_BIT) != VK10.VK_QUEUE_GRAPHICS_BIT) &&
+                ((queueFamilyProperties.get(index).queueFlags() & VK10.VK_QUEUE_TRANSFER_BIT) == VK10.VK_QUEUE_TRANSFER_BIT);
+    }
+
+    //A compute family without graphics runs alongside the graphics queue instead of taking turns with it.
+    private boolean queueIsDedicatedForCompute(VkQueueFamilyProperties.Buffer queueFamilyProperties, int index, ImmutablePhysicalDeviceInformation.Builder builder) {
         if (((queueFamilyProperties.get(index).queueFlags() & VK10.VK_QUEUE_GRAPHICS_BIT) != VK10.VK_QUEUE_GRAPHICS_BIT) &&
-                ((queueFamilyProperties.get(index).queueFlags() & VK10.VK_QUEUE_TRANSFER_BIT) == VK10.VK_QUEUE_TRANSFER_BIT)) {
-            builder.transferQueueIndex(index);
+                ((queueFamilyProperties.get(index).queueFlags() & VK10.VK_QUEUE_COMPUTE_BIT) == VK10.VK_QUEUE_COMPUTE_BIT)) {
+            builder.computeQueueIndex(index);
             return true;
         }
         return false;
@@ -1,6 +1,5 @@
 package my.game.init.vulkan.drawing;
 
-import com.google.common.collect.ImmutableList;
 import my.game.init.vulkan.pipeline.RenderPass;
 import my.game.init.vulkan.swapchain.SwapChain;
 import my.game.init.vulkan.swapchain.SwapChainImages;
@@ -10,19 +9,18 @@ import org.lwjgl.vulkan.VkDevice;
 import org.lwjgl.vulkan.VkFramebufferCreateInfo;
 
 import java.nio.LongBuffer;
-import java.util.List;
 
 public class FrameBuffers {
 
-    private final List<Long> swapChainFrameBuffers;
+    private final long[] swapChainFrameBuffers;
     private final VkDevice device;
 
     public FrameBuffers(VkDevice device, RenderPass renderPass, SwapChainImages swapChainImages, SwapChain swapChain) {
         this.device = device;
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
-            ImmutableList.Builder<Long> swapChainFrameBuffersBuilder = ImmutableList.builder();
+            swapChainFrameBuffers = new long[swapChainImages.getSwapChainImageViewPointers().size()];
             LongBuffer swapChainFrameBuffersBuffer = memoryStack.mallocLong(1);
-            for (int i = 0; i < swapChainImages.getSwapChainImageViewPointers().size(); ++i) {
+            for (int i = 0; i < swapChainFrameBuffers.length; ++i) {
                 VkFramebufferCreateInfo framebufferCreateInfo = VkFramebufferCreateInfo.calloc(memoryStack);
                 framebufferCreateInfo
                         .sType(VK10.VK_STRUCTURE_TYPE_FRAMEBUFFER_CREATE_INFO)
@@ -38,18 +36,17 @@ public class FrameBuffers {
                 if (result != VK10.VK_SUCCESS) {
                     throw new IllegalStateException(String.format("Failed to create framebuffer. Error code %d", result));
                 }
-                swapChainFrameBuffersBuilder.add(swapChainFrameBuffersBuffer.get(0));
+                swapChainFrameBuffers[i] = swapChainFrameBuffersBuffer.get(0);
             }
-            swapChainFrameBuffers = swapChainFrameBuffersBuilder.build();
         }
     }
 
-    public List<Long> getSwapChainFrameBuffers() {
-        return swapChainFrameBuffers;
+    public long getSwapChainFrameBuffer(int imageIndex) {
+        return swapChainFrameBuffers[imageIndex];
     }
 
     public void free() {
-        for (Long x : swapChainFrameBuffers) {
+        for (long x : swapChainFrameBuffers) {
             VK10.vkDestroyFramebuffer(
                     device,
                     x, null);
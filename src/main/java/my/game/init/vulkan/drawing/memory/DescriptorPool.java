@@ -1,6 +1,6 @@
 package my.game.init.vulkan.drawing.memory;
 
-import my.game.render.GraphicsRenderer;
+import my.game.init.vulkan.drawing.transformation.DescriptorSetLayout;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.VK10;
 import org.lwjgl.vulkan.VkDescriptorPoolCreateInfo;
@@ -8,23 +8,33 @@ import org.lwjgl.vulkan.VkDescriptorPoolSize;
 import org.lwjgl.vulkan.VkDevice;
 
 import java.nio.LongBuffer;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class DescriptorPool {
     private final long descriptorPoolHandle;
     private final VkDevice device;
 
-    public DescriptorPool(VkDevice device) {
+    //Sized to hold setCount sets of the given layout, so it follows whatever the shaders declare.
+    public DescriptorPool(VkDevice device, DescriptorSetLayout descriptorSetLayout, int setCount) {
         this.device = device;
+        Map<Integer, Integer> descriptorCounts = new TreeMap<>();
+        for (DescriptorSetLayout.Binding binding : descriptorSetLayout.getBindings()) {
+            descriptorCounts.merge(binding.descriptorType(), binding.descriptorCount() * setCount, Integer::sum);
+        }
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
-            VkDescriptorPoolSize.Buffer descriptorPoolSize = VkDescriptorPoolSize.calloc(1, memoryStack);
-            descriptorPoolSize
-                    .type(VK10.VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER)
-                    .descriptorCount(GraphicsRenderer.MAX_FRAMES_IN_FLIGHT);
+            VkDescriptorPoolSize.Buffer descriptorPoolSize = VkDescriptorPoolSize.calloc(descriptorCounts.size(), memoryStack);
+            for (Map.Entry<Integer, Integer> descriptorCount : descriptorCounts.entrySet()) {
+                descriptorPoolSize.get()
+                        .type(descriptorCount.getKey())
+                        .descriptorCount(descriptorCount.getValue());
+            }
+            descriptorPoolSize.flip();
             VkDescriptorPoolCreateInfo descriptorPoolCreateInfo = VkDescriptorPoolCreateInfo.calloc(memoryStack);
             descriptorPoolCreateInfo
                     .sType(VK10.VK_STRUCTURE_TYPE_DESCRIPTOR_POOL_CREATE_INFO)
                     .pPoolSizes(descriptorPoolSize)
-                    .maxSets(GraphicsRenderer.MAX_FRAMES_IN_FLIGHT);
+                    .maxSets(setCount);
             LongBuffer descriptorPoolBuffer = memoryStack.mallocLong(1);
             int result = VK10.vkCreateDescriptorPool(device, descriptorPoolCreateInfo, null, descriptorPoolBuffer);
             if (result != VK10.VK_SUCCESS) {
@@ -1,8 +1,7 @@
 package my.game.init.vulkan.drawing.memory;
 
-import my.game.init.vulkan.drawing.memory.buffer.UniformBuffer;
+import my.game.init.vulkan.drawing.memory.buffer.UniformArena;
 import my.game.init.vulkan.drawing.transformation.DescriptorSetLayout;
-import my.game.render.GraphicsRenderer;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.VK10;
 import org.lwjgl.vulkan.VkDescriptorBufferInfo;
@@ -11,16 +10,15 @@ import org.lwjgl.vulkan.VkDevice;
 import org.lwjgl.vulkan.VkWriteDescriptorSet;
 
 import java.nio.LongBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
 public class DescriptorSets {
-    private final List<Long> descriptorSetHandles;
+    private final long[] descriptorSetHandles;
 
-    public DescriptorSets(VkDevice device, DescriptorPool descriptorPool, DescriptorSetLayout descriptorSetLayout, List<UniformBuffer> uniformBuffers) {
+    public DescriptorSets(VkDevice device, DescriptorPool descriptorPool, DescriptorSetLayout descriptorSetLayout,
+                          UniformArena uniformArena, int bindingRange, int framesInFlight) {
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
             VkDescriptorSetAllocateInfo descriptorSetAllocateInfo = VkDescriptorSetAllocateInfo.calloc(memoryStack);
-            LongBuffer layouts = memoryStack.mallocLong(GraphicsRenderer.MAX_FRAMES_IN_FLIGHT);
+            LongBuffer layouts = memoryStack.mallocLong(framesInFlight);
             for (int i = 0; i < layouts.capacity(); ++i) {
                 layouts.put(descriptorSetLayout.getHandle());
             }
@@ -31,38 +29,38 @@ public class DescriptorSets {
                     .sType(VK10.VK_STRUCTURE_TYPE_DESCRIPTOR_SET_ALLOCATE_INFO)
                     .descriptorPool(descriptorPool.getDescriptorPoolHandle())
                     .pSetLayouts(layouts);
-            LongBuffer descriptorSetsBuffer = memoryStack.mallocLong(GraphicsRenderer.MAX_FRAMES_IN_FLIGHT);
+            LongBuffer descriptorSetsBuffer = memoryStack.mallocLong(framesInFlight);
             int result = VK10.vkAllocateDescriptorSets(device, descriptorSetAllocateInfo, descriptorSetsBuffer);
             if (result != VK10.VK_SUCCESS) {
                 throw new IllegalStateException(String.format("Failed to allocate descriptor sets. Error code: %d", result));
             }
-            for (int i = 0; i < GraphicsRenderer.MAX_FRAMES_IN_FLIGHT; ++i) {
+            for (int i = 0; i < framesInFlight; ++i) {
+                //Each frame's set points at the start of that frame's region of the arena. The range is what a single draw sees,
+                // the dynamic offset passed when binding moves it to the draw's slice.
                 VkDescriptorBufferInfo.Buffer vkDescriptorBufferInfo = VkDescriptorBufferInfo.calloc(1, memoryStack);
                 vkDescriptorBufferInfo
-                        .buffer(uniformBuffers.get(i).getVulkanBuffer().getVulkanBufferHandle())
-                        .offset(0)
-                        .range(VK10.VK_WHOLE_SIZE);
+                        .buffer(uniformArena.getVulkanBuffer().getVulkanBufferHandle())
+                        .offset(uniformArena.getFrameOffset(i))
+                        .range(bindingRange);
                 VkWriteDescriptorSet.Buffer vkWriteDescriptorSet = VkWriteDescriptorSet.calloc(1, memoryStack);
                 vkWriteDescriptorSet
                         .sType(VK10.VK_STRUCTURE_TYPE_WRITE_DESCRIPTOR_SET)
                         .dstSet(descriptorSetsBuffer.get(i))
                         .dstBinding(0)
                         .dstArrayElement(0)
-                        .descriptorType(VK10.VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER)
+                        .descriptorType(VK10.VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER_DYNAMIC)
                         .descriptorCount(1)
                         .pBufferInfo(vkDescriptorBufferInfo)
                         .pImageInfo(null)
                         .pTexelBufferView(null);
                 VK10.vkUpdateDescriptorSets(device, vkWriteDescriptorSet, null);
             }
-            descriptorSetHandles = new ArrayList<>();
-            for (int i = 0; i < descriptorSetsBuffer.capacity(); ++i) {
-                descriptorSetHandles.add(descriptorSetsBuffer.get(i));
-            }
+            descriptorSetHandles = new long[framesInFlight];
+            descriptorSetsBuffer.get(descriptorSetHandles);
         }
     }
 
-    public List<Long> getDescriptorSetHandles() {
-        return descriptorSetHandles;
+    public long getDescriptorSetHandle(int frameIndex) {
+        return descriptorSetHandles[frameIndex];
     }
 }
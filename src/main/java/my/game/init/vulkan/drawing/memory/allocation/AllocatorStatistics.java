@@ -0,0 +1,32 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+public record AllocatorStatistics(int blockCount,
+                                  int allocationCount,
+                                  long blockBytes,
+                                  long allocationBytes,
+                                  long totalFreeBytes,
+                                  long largestFreeRange,
+                                  long allocateCalls,
+                                  long allocateNanos) {
+
+    //0 means all free memory is in one contiguous range, values approaching 1 mean the free memory is split into many small holes.
+    public double fragmentation() {
+        if (totalFreeBytes == 0) {
+            return 0;
+        }
+        return 1.0 - (double) largestFreeRange / totalFreeBytes;
+    }
+
+    public double averageAllocateNanos() {
+        if (allocateCalls == 0) {
+            return 0;
+        }
+        return (double) allocateNanos / allocateCalls;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("blocks: %d, allocations: %d, block bytes: %d, allocated bytes: %d, fragmentation: %.3f, allocate calls: %d, average allocate time: %.1f ns",
+                blockCount, allocationCount, blockBytes, allocationBytes, fragmentation(), allocateCalls, averageAllocateNanos());
+    }
+}
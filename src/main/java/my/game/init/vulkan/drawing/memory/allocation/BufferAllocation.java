@@ -0,0 +1,11 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+//A VkBuffer together with the memory backing it, as handed out by a BufferAllocator.
+public interface BufferAllocation {
+    long getBufferHandle();
+
+    long getSize();
+
+    //Host visible allocations stay mapped for their whole lifetime. Throws for allocations that are not host visible.
+    long getMappedAddress();
+}
@@ -0,0 +1,18 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+//Every buffer in the game is created through one of these, so the hand rolled sub-allocator and VMA can be swapped
+// with the myGameAllocator system property and compared on throughput and memory overhead.
+public interface BufferAllocator {
+    BufferAllocation createBuffer(long size, int bufferUsageFlags, MemoryUsage memoryUsage);
+
+    void destroyBuffer(BufferAllocation bufferAllocation);
+
+    //Makes cpu writes visible to the gpu. Does nothing for host coherent memory.
+    void flush(BufferAllocation bufferAllocation, long offset, long size);
+
+    AllocatorStatistics getStatistics();
+
+    String getName();
+
+    void free();
+}
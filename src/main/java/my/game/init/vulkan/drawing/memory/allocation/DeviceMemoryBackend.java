@@ -0,0 +1,14 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+//The only part of the allocator that talks to the driver. Keeping it behind an interface lets the block bookkeeping
+// in MemoryAllocator run against a fake backend without a gpu.
+public interface DeviceMemoryBackend {
+    long allocateMemory(long size, int memoryTypeIndex);
+
+    void freeMemory(long memoryHandle);
+
+    //Returns the host address the whole allocation is mapped to.
+    long mapMemory(long memoryHandle, long size);
+
+    void unmapMemory(long memoryHandle);
+}
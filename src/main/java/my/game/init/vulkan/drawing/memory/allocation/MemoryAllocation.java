@@ -0,0 +1,44 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+import org.lwjgl.vulkan.VK10;
+
+//A (block, offset) pair handed out by the MemoryAllocator. Bind with vkBindBufferMemory(device, buffer, getMemoryHandle(), getOffset()).
+public class MemoryAllocation {
+    private final MemoryBlock block;
+    private final long offset;
+    private final long size;
+
+    MemoryAllocation(MemoryBlock block, long offset, long size) {
+        this.block = block;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    MemoryBlock getBlock() {
+        return block;
+    }
+
+    public long getMemoryHandle() {
+        return block.getMemoryHandle();
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public boolean isMapped() {
+        return block.getMappedAddress() != VK10.VK_NULL_HANDLE;
+    }
+
+    //Host visible blocks are mapped once for their whole lifetime, so this is simply the block address plus our offset.
+    public long getMappedAddress() {
+        if (!isMapped()) {
+            throw new IllegalStateException("Allocation does not live in host visible memory and cannot be mapped");
+        }
+        return block.getMappedAddress() + offset;
+    }
+}
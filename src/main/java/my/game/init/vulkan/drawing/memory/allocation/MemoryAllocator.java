@@ -0,0 +1,131 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+import org.lwjgl.vulkan.VK10;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Sub-allocates buffers out of large per memory type blocks instead of calling vkAllocateMemory for every buffer.
+// The maximum number of simultaneous memory allocations is limited by the maxMemoryAllocationCount physical device limit,
+// which may be as low as 4096 even on high end hardware, so we only ever go to the driver when a block is full.
+//
+//We only place buffers in these blocks. Once images are added they either need their own blocks or we have to respect
+// bufferImageGranularity between neighbouring linear and optimal resources.
+public class MemoryAllocator {
+    public static final long DEFAULT_BLOCK_SIZE = 64L * 1024 * 1024;
+
+    private final DeviceMemoryBackend backend;
+    private final long blockSize;
+    private final Map<Integer, List<MemoryBlock>> blocksByMemoryType = new HashMap<>();
+    private long allocateCalls = 0;
+    private long allocateNanos = 0;
+
+    public MemoryAllocator(DeviceMemoryBackend backend) {
+        this(backend, DEFAULT_BLOCK_SIZE);
+    }
+
+    public MemoryAllocator(DeviceMemoryBackend backend, long blockSize) {
+        this.backend = backend;
+        this.blockSize = blockSize;
+    }
+
+    public synchronized MemoryAllocation allocate(long size, long alignment, int memoryTypeIndex, boolean hostVisible) {
+        long start = System.nanoTime();
+        try {
+            //Anything bigger than half a block would waste most of a shared block, so it gets a block of its own.
+            if (size > blockSize / 2) {
+                MemoryBlock dedicatedBlock = createBlock(size, memoryTypeIndex, hostVisible, true);
+                return new MemoryAllocation(dedicatedBlock, dedicatedBlock.allocate(size, alignment), size);
+            }
+            List<MemoryBlock> blocks = blocksByMemoryType.computeIfAbsent(memoryTypeIndex, (ignored) -> new ArrayList<>());
+            for (MemoryBlock block : blocks) {
+                if (block.isDedicated() || (block.getMappedAddress() != VK10.VK_NULL_HANDLE) != hostVisible) {
+                    continue;
+                }
+                long offset = block.allocate(size, alignment);
+                if (offset != -1) {
+                    return new MemoryAllocation(block, offset, size);
+                }
+            }
+            MemoryBlock block = createBlock(blockSize, memoryTypeIndex, hostVisible, false);
+            return new MemoryAllocation(block, block.allocate(size, alignment), size);
+        } finally {
+            ++allocateCalls;
+            allocateNanos += System.nanoTime() - start;
+        }
+    }
+
+    public synchronized void free(MemoryAllocation allocation) {
+        MemoryBlock block = allocation.getBlock();
+        block.free(allocation.getOffset(), allocation.getSize());
+        if (!block.isEmpty()) {
+            return;
+        }
+        List<MemoryBlock> blocks = blocksByMemoryType.get(block.getMemoryTypeIndex());
+        //Keep one empty shared block around per memory type so that freeing and recreating a buffer does not thrash vkAllocateMemory.
+        if (block.isDedicated() || countSharedBlocks(blocks) > 1) {
+            blocks.remove(block);
+            destroyBlock(block);
+        }
+    }
+
+    public synchronized AllocatorStatistics getStatistics() {
+        int blockCount = 0;
+        int allocationCount = 0;
+        long blockBytes = 0;
+        long allocationBytes = 0;
+        long totalFreeBytes = 0;
+        long largestFreeRange = 0;
+        for (List<MemoryBlock> blocks : blocksByMemoryType.values()) {
+            for (MemoryBlock block : blocks) {
+                ++blockCount;
+                allocationCount += block.getAllocationCount();
+                blockBytes += block.getSize();
+                allocationBytes += block.getUsedBytes();
+                totalFreeBytes += block.freeBytes();
+                largestFreeRange = Math.max(largestFreeRange, block.largestFreeRange());
+            }
+        }
+        return new AllocatorStatistics(blockCount, allocationCount, blockBytes, allocationBytes, totalFreeBytes,
+                largestFreeRange, allocateCalls, allocateNanos);
+    }
+
+    private MemoryBlock createBlock(long size, int memoryTypeIndex, boolean hostVisible, boolean dedicated) {
+        long memoryHandle = backend.allocateMemory(size, memoryTypeIndex);
+        long mappedAddress = VK10.VK_NULL_HANDLE;
+        if (hostVisible) {
+            mappedAddress = backend.mapMemory(memoryHandle, size);
+        }
+        MemoryBlock block = new MemoryBlock(memoryHandle, size, memoryTypeIndex, mappedAddress, dedicated);
+        blocksByMemoryType.computeIfAbsent(memoryTypeIndex, (ignored) -> new ArrayList<>()).add(block);
+        return block;
+    }
+
+    private void destroyBlock(MemoryBlock block) {
+        if (block.getMappedAddress() != VK10.VK_NULL_HANDLE) {
+            backend.unmapMemory(block.getMemoryHandle());
+        }
+        backend.freeMemory(block.getMemoryHandle());
+    }
+
+    private int countSharedBlocks(List<MemoryBlock> blocks) {
+        int count = 0;
+        for (MemoryBlock block : blocks) {
+            if (!block.isDedicated()) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    public synchronized void free() {
+        for (List<MemoryBlock> blocks : blocksByMemoryType.values()) {
+            for (MemoryBlock block : blocks) {
+                destroyBlock(block);
+            }
+        }
+        blocksByMemoryType.clear();
+    }
+}
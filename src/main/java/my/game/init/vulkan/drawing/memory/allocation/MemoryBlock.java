@@ -0,0 +1,121 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+//A single vkAllocateMemory allocation that buffers are carved out of. Free space is kept as a sorted map of
+// offset -> size so neighbouring ranges can be merged back together when allocations are returned.
+class MemoryBlock {
+    private final long memoryHandle;
+    private final long size;
+    private final int memoryTypeIndex;
+    private final long mappedAddress;
+    private final boolean dedicated;
+    private final TreeMap<Long, Long> freeRanges = new TreeMap<>();
+    private long usedBytes = 0;
+    private int allocationCount = 0;
+
+    MemoryBlock(long memoryHandle, long size, int memoryTypeIndex, long mappedAddress, boolean dedicated) {
+        this.memoryHandle = memoryHandle;
+        this.size = size;
+        this.memoryTypeIndex = memoryTypeIndex;
+        this.mappedAddress = mappedAddress;
+        this.dedicated = dedicated;
+        freeRanges.put(0L, size);
+    }
+
+    //First fit. Returns -1 if no free range can hold the request once its offset is aligned.
+    long allocate(long allocationSize, long alignment) {
+        for (Map.Entry<Long, Long> range : freeRanges.entrySet()) {
+            long rangeOffset = range.getKey();
+            long rangeSize = range.getValue();
+            long alignedOffset = alignUp(rangeOffset, alignment);
+            long padding = alignedOffset - rangeOffset;
+            if (padding + allocationSize > rangeSize) {
+                continue;
+            }
+            freeRanges.remove(rangeOffset);
+            if (padding > 0) {
+                freeRanges.put(rangeOffset, padding);
+            }
+            long remaining = rangeSize - padding - allocationSize;
+            if (remaining > 0) {
+                freeRanges.put(alignedOffset + allocationSize, remaining);
+            }
+            usedBytes += allocationSize;
+            ++allocationCount;
+            return alignedOffset;
+        }
+        return -1;
+    }
+
+    void free(long offset, long allocationSize) {
+        long mergedOffset = offset;
+        long mergedSize = allocationSize;
+        Map.Entry<Long, Long> previous = freeRanges.floorEntry(offset);
+        if (previous != null && previous.getKey() + previous.getValue() == offset) {
+            freeRanges.remove(previous.getKey());
+            mergedOffset = previous.getKey();
+            mergedSize += previous.getValue();
+        }
+        Long next = freeRanges.get(offset + allocationSize);
+        if (next != null) {
+            freeRanges.remove(offset + allocationSize);
+            mergedSize += next;
+        }
+        freeRanges.put(mergedOffset, mergedSize);
+        usedBytes -= allocationSize;
+        --allocationCount;
+    }
+
+    long largestFreeRange() {
+        long largest = 0;
+        for (long rangeSize : freeRanges.values()) {
+            largest = Math.max(largest, rangeSize);
+        }
+        return largest;
+    }
+
+    long freeBytes() {
+        return size - usedBytes;
+    }
+
+    boolean isEmpty() {
+        return allocationCount == 0;
+    }
+
+    int getAllocationCount() {
+        return allocationCount;
+    }
+
+    long getUsedBytes() {
+        return usedBytes;
+    }
+
+    long getMemoryHandle() {
+        return memoryHandle;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    int getMemoryTypeIndex() {
+        return memoryTypeIndex;
+    }
+
+    long getMappedAddress() {
+        return mappedAddress;
+    }
+
+    boolean isDedicated() {
+        return dedicated;
+    }
+
+    static long alignUp(long value, long alignment) {
+        if (alignment <= 1) {
+            return value;
+        }
+        return (value + alignment - 1) / alignment * alignment;
+    }
+}
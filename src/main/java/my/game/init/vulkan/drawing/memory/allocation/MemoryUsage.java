@@ -0,0 +1,34 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+import org.lwjgl.vulkan.VK10;
+
+//Describes how a buffer is going to be used instead of which memory property flags it needs. Each BufferAllocator
+// turns this into a memory type in its own way.
+public enum MemoryUsage {
+    //Only ever read and written by the gpu. Filled through a staging buffer.
+    GPU_ONLY(VK10.VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT, 0),
+    //Written by the cpu every frame and read by the gpu. Device local host visible memory is preferred when the device has it.
+    CPU_TO_GPU(VK10.VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK10.VK_MEMORY_PROPERTY_HOST_COHERENT_BIT, VK10.VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT),
+    //Written once by the cpu and copied from by the gpu.
+    STAGING(VK10.VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK10.VK_MEMORY_PROPERTY_HOST_COHERENT_BIT, 0);
+
+    private final int requiredPropertyFlags;
+    private final int preferredPropertyFlags;
+
+    MemoryUsage(int requiredPropertyFlags, int preferredPropertyFlags) {
+        this.requiredPropertyFlags = requiredPropertyFlags;
+        this.preferredPropertyFlags = preferredPropertyFlags;
+    }
+
+    public int getRequiredPropertyFlags() {
+        return requiredPropertyFlags;
+    }
+
+    public int getPreferredPropertyFlags() {
+        return preferredPropertyFlags;
+    }
+
+    public boolean isHostVisible() {
+        return (requiredPropertyFlags & VK10.VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT) != 0;
+    }
+}
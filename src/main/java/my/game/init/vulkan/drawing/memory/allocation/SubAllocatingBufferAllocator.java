@@ -0,0 +1,106 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+import my.game.init.vulkan.devices.physical.MemoryTypeTable;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkBufferCreateInfo;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkMemoryRequirements;
+
+import java.nio.LongBuffer;
+
+public class SubAllocatingBufferAllocator implements BufferAllocator {
+    private final VkDevice device;
+    private final MemoryTypeTable memoryTypeTable;
+    private final MemoryAllocator memoryAllocator;
+    private long allocateCalls = 0;
+    private long allocateNanos = 0;
+
+    public SubAllocatingBufferAllocator(VkDevice device, MemoryTypeTable memoryTypeTable) {
+        this.device = device;
+        this.memoryTypeTable = memoryTypeTable;
+        this.memoryAllocator = new MemoryAllocator(new VulkanDeviceMemoryBackend(device));
+    }
+
+    @Override
+    public synchronized BufferAllocation createBuffer(long size, int bufferUsageFlags, MemoryUsage memoryUsage) {
+        long start = System.nanoTime();
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkBufferCreateInfo bufferCreateInfo = VkBufferCreateInfo.calloc(memoryStack);
+            bufferCreateInfo
+                    .sType(VK10.VK_STRUCTURE_TYPE_BUFFER_CREATE_INFO)
+                    .size(size)
+                    .usage(bufferUsageFlags)
+                    .sharingMode(VK10.VK_SHARING_MODE_EXCLUSIVE);
+            LongBuffer bufferHandle = memoryStack.mallocLong(1);
+            int result = VK10.vkCreateBuffer(device, bufferCreateInfo, null, bufferHandle);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to create buffer. Error code: %d", result));
+            }
+
+            VkMemoryRequirements memoryRequirements = VkMemoryRequirements.calloc(memoryStack);
+            VK10.vkGetBufferMemoryRequirements(device, bufferHandle.get(0), memoryRequirements);
+
+            int memoryTypeIndex = memoryTypeTable.findMemoryType(memoryRequirements.memoryTypeBits(),
+                    memoryUsage.getRequiredPropertyFlags(), memoryUsage.getPreferredPropertyFlags());
+            MemoryAllocation memoryAllocation = memoryAllocator.allocate(memoryRequirements.size(), memoryRequirements.alignment(),
+                    memoryTypeIndex, memoryUsage.isHostVisible());
+            int result2 = VK10.vkBindBufferMemory(device, bufferHandle.get(0), memoryAllocation.getMemoryHandle(), memoryAllocation.getOffset());
+            if (result2 != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to bind memory to buffer. Error code: %d", result2));
+            }
+            return new SubAllocatedBuffer(bufferHandle.get(0), size, memoryAllocation);
+        } finally {
+            ++allocateCalls;
+            allocateNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public synchronized void destroyBuffer(BufferAllocation bufferAllocation) {
+        SubAllocatedBuffer subAllocatedBuffer = (SubAllocatedBuffer) bufferAllocation;
+        VK10.vkDestroyBuffer(device, subAllocatedBuffer.getBufferHandle(), null);
+        memoryAllocator.free(subAllocatedBuffer.memoryAllocation());
+    }
+
+    //We only ever pick host coherent memory for host visible buffers, so there is nothing to flush.
+    @Override
+    public void flush(BufferAllocation bufferAllocation, long offset, long size) {
+    }
+
+    @Override
+    public synchronized AllocatorStatistics getStatistics() {
+        //Report the time for the whole buffer creation, not just the block bookkeeping, so it is comparable with VMA.
+        AllocatorStatistics blockStatistics = memoryAllocator.getStatistics();
+        return new AllocatorStatistics(blockStatistics.blockCount(), blockStatistics.allocationCount(),
+                blockStatistics.blockBytes(), blockStatistics.allocationBytes(), blockStatistics.totalFreeBytes(),
+                blockStatistics.largestFreeRange(), allocateCalls, allocateNanos);
+    }
+
+    @Override
+    public String getName() {
+        return "sub-allocator";
+    }
+
+    @Override
+    public void free() {
+        memoryAllocator.free();
+    }
+
+    private record SubAllocatedBuffer(long bufferHandle, long size, MemoryAllocation memoryAllocation) implements BufferAllocation {
+        @Override
+        public long getBufferHandle() {
+            return bufferHandle;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public long getMappedAddress() {
+            return memoryAllocation.getMappedAddress();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.util.vma.Vma;
+import org.lwjgl.util.vma.VmaAllocationCreateInfo;
+import org.lwjgl.util.vma.VmaAllocationInfo;
+import org.lwjgl.util.vma.VmaAllocatorCreateInfo;
+import org.lwjgl.util.vma.VmaDetailedStatistics;
+import org.lwjgl.util.vma.VmaPoolCreateInfo;
+import org.lwjgl.util.vma.VmaTotalStatistics;
+import org.lwjgl.util.vma.VmaVulkanFunctions;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VK12;
+import org.lwjgl.vulkan.VkBufferCreateInfo;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkInstance;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+public class VmaBufferAllocator implements BufferAllocator {
+    //Same threshold as the hand rolled allocator so both sides of the comparison make the same dedicated allocation decisions.
+    private static final long DEDICATED_ALLOCATION_THRESHOLD = MemoryAllocator.DEFAULT_BLOCK_SIZE / 2;
+
+    private final long allocatorHandle;
+    //One custom pool per memory type, so small buffers share blocks of a size we control.
+    private final Map<Integer, Long> poolsByMemoryType = new HashMap<>();
+    private long allocateCalls = 0;
+    private long allocateNanos = 0;
+
+    public VmaBufferAllocator(VkInstance vkInstance, VkDevice device) {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VmaVulkanFunctions vulkanFunctions = VmaVulkanFunctions.calloc(memoryStack);
+            vulkanFunctions.set(vkInstance, device);
+            VmaAllocatorCreateInfo allocatorCreateInfo = VmaAllocatorCreateInfo.calloc(memoryStack);
+            allocatorCreateInfo
+                    .instance(vkInstance)
+                    .physicalDevice(device.getPhysicalDevice())
+                    .device(device)
+                    .pVulkanFunctions(vulkanFunctions)
+                    .vulkanApiVersion(VK12.VK_API_VERSION_1_2);
+            PointerBuffer allocatorPointer = memoryStack.mallocPointer(1);
+            int result = Vma.vmaCreateAllocator(allocatorCreateInfo, allocatorPointer);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to create VMA allocator. Error code: %d", result));
+            }
+            allocatorHandle = allocatorPointer.get(0);
+        }
+    }
+
+    @Override
+    public synchronized BufferAllocation createBuffer(long size, int bufferUsageFlags, MemoryUsage memoryUsage) {
+        long start = System.nanoTime();
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkBufferCreateInfo bufferCreateInfo = VkBufferCreateInfo.calloc(memoryStack);
+            bufferCreateInfo
+                    .sType(VK10.VK_STRUCTURE_TYPE_BUFFER_CREATE_INFO)
+                    .size(size)
+                    .usage(bufferUsageFlags)
+                    .sharingMode(VK10.VK_SHARING_MODE_EXCLUSIVE);
+            VmaAllocationCreateInfo allocationCreateInfo = VmaAllocationCreateInfo.calloc(memoryStack);
+            allocationCreateInfo
+                    .usage(vmaMemoryUsage(memoryUsage))
+                    .flags(vmaAllocationFlags(memoryUsage));
+            if (size >= DEDICATED_ALLOCATION_THRESHOLD) {
+                allocationCreateInfo.flags(allocationCreateInfo.flags() | Vma.VMA_ALLOCATION_CREATE_DEDICATED_MEMORY_BIT);
+            } else {
+                allocationCreateInfo.pool(findPool(bufferCreateInfo, allocationCreateInfo, memoryStack));
+            }
+            LongBuffer bufferHandle = memoryStack.mallocLong(1);
+            PointerBuffer allocationHandle = memoryStack.mallocPointer(1);
+            VmaAllocationInfo allocationInfo = VmaAllocationInfo.calloc(memoryStack);
+            int result = Vma.vmaCreateBuffer(allocatorHandle, bufferCreateInfo, allocationCreateInfo, bufferHandle, allocationHandle, allocationInfo);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to create buffer through VMA. Error code: %d", result));
+            }
+            return new VmaBuffer(bufferHandle.get(0), size, allocationHandle.get(0), allocationInfo.pMappedData());
+        } finally {
+            ++allocateCalls;
+            allocateNanos += System.nanoTime() - start;
+        }
+    }
+
+    private long findPool(VkBufferCreateInfo bufferCreateInfo, VmaAllocationCreateInfo allocationCreateInfo, MemoryStack memoryStack) {
+        IntBuffer memoryTypeIndex = memoryStack.mallocInt(1);
+        int result = Vma.vmaFindMemoryTypeIndexForBufferInfo(allocatorHandle, bufferCreateInfo, allocationCreateInfo, memoryTypeIndex);
+        if (result != VK10.VK_SUCCESS) {
+            throw new IllegalStateException(String.format("Failed to find memory type for buffer. Error code: %d", result));
+        }
+        Long pool = poolsByMemoryType.get(memoryTypeIndex.get(0));
+        if (pool != null) {
+            return pool;
+        }
+        VmaPoolCreateInfo poolCreateInfo = VmaPoolCreateInfo.calloc(memoryStack);
+        poolCreateInfo
+                .memoryTypeIndex(memoryTypeIndex.get(0))
+                .blockSize(MemoryAllocator.DEFAULT_BLOCK_SIZE);
+        PointerBuffer poolPointer = memoryStack.mallocPointer(1);
+        int result2 = Vma.vmaCreatePool(allocatorHandle, poolCreateInfo, poolPointer);
+        if (result2 != VK10.VK_SUCCESS) {
+            throw new IllegalStateException(String.format("Failed to create VMA pool. Error code: %d", result2));
+        }
+        poolsByMemoryType.put(memoryTypeIndex.get(0), poolPointer.get(0));
+        return poolPointer.get(0);
+    }
+
+    private int vmaMemoryUsage(MemoryUsage memoryUsage) {
+        return switch (memoryUsage) {
+            case GPU_ONLY -> Vma.VMA_MEMORY_USAGE_AUTO_PREFER_DEVICE;
+            case CPU_TO_GPU -> Vma.VMA_MEMORY_USAGE_AUTO;
+            case STAGING -> Vma.VMA_MEMORY_USAGE_AUTO_PREFER_HOST;
+        };
+    }
+
+    //Host visible allocations are always persistently mapped to match the hand rolled allocator.
+    private int vmaAllocationFlags(MemoryUsage memoryUsage) {
+        if (memoryUsage.isHostVisible()) {
+            return Vma.VMA_ALLOCATION_CREATE_HOST_ACCESS_SEQUENTIAL_WRITE_BIT | Vma.VMA_ALLOCATION_CREATE_MAPPED_BIT;
+        }
+        return 0;
+    }
+
+    @Override
+    public synchronized void destroyBuffer(BufferAllocation bufferAllocation) {
+        VmaBuffer vmaBuffer = (VmaBuffer) bufferAllocation;
+        Vma.vmaDestroyBuffer(allocatorHandle, vmaBuffer.getBufferHandle(), vmaBuffer.allocationHandle());
+    }
+
+    //VMA may pick host visible memory that is not coherent, in which case writes have to be flushed. This is a no-op otherwise.
+    @Override
+    public void flush(BufferAllocation bufferAllocation, long offset, long size) {
+        Vma.vmaFlushAllocation(allocatorHandle, ((VmaBuffer) bufferAllocation).allocationHandle(), offset, size);
+    }
+
+    @Override
+    public synchronized AllocatorStatistics getStatistics() {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VmaTotalStatistics totalStatistics = VmaTotalStatistics.calloc(memoryStack);
+            Vma.vmaCalculateStatistics(allocatorHandle, totalStatistics);
+            VmaDetailedStatistics total = totalStatistics.total();
+            long blockBytes = total.statistics().blockBytes();
+            long allocationBytes = total.statistics().allocationBytes();
+            return new AllocatorStatistics(total.statistics().blockCount(), total.statistics().allocationCount(),
+                    blockBytes, allocationBytes, blockBytes - allocationBytes, total.unusedRangeSizeMax(),
+                    allocateCalls, allocateNanos);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "VMA";
+    }
+
+    @Override
+    public synchronized void free() {
+        for (long pool : poolsByMemoryType.values()) {
+            Vma.vmaDestroyPool(allocatorHandle, pool);
+        }
+        poolsByMemoryType.clear();
+        Vma.vmaDestroyAllocator(allocatorHandle);
+    }
+
+    private record VmaBuffer(long bufferHandle, long size, long allocationHandle, long mappedAddress) implements BufferAllocation {
+        @Override
+        public long getBufferHandle() {
+            return bufferHandle;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public long getMappedAddress() {
+            if (mappedAddress == VK10.VK_NULL_HANDLE) {
+                throw new IllegalStateException("Allocation does not live in host visible memory and cannot be mapped");
+            }
+            return mappedAddress;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkMemoryAllocateInfo;
+
+import java.nio.LongBuffer;
+
+public class VulkanDeviceMemoryBackend implements DeviceMemoryBackend {
+    private final VkDevice device;
+
+    public VulkanDeviceMemoryBackend(VkDevice device) {
+        this.device = device;
+    }
+
+    @Override
+    public long allocateMemory(long size, int memoryTypeIndex) {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkMemoryAllocateInfo memoryAllocateInfo = VkMemoryAllocateInfo.calloc(memoryStack);
+            memoryAllocateInfo
+                    .sType(VK10.VK_STRUCTURE_TYPE_MEMORY_ALLOCATE_INFO)
+                    .allocationSize(size)
+                    .memoryTypeIndex(memoryTypeIndex);
+            LongBuffer allocatedMemoryHandleBuffer = memoryStack.mallocLong(1);
+            int result = VK10.vkAllocateMemory(device, memoryAllocateInfo, null, allocatedMemoryHandleBuffer);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to allocate device memory block of %d bytes. Error code: %d", size, result));
+            }
+            return allocatedMemoryHandleBuffer.get(0);
+        }
+    }
+
+    @Override
+    public void freeMemory(long memoryHandle) {
+        VK10.vkFreeMemory(device, memoryHandle, null);
+    }
+
+    @Override
+    public long mapMemory(long memoryHandle, long size) {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            PointerBuffer data = memoryStack.callocPointer(1);
+            int result = VK10.vkMapMemory(device, memoryHandle, 0, size, 0, data);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to map memory. Error code: %d", result));
+            }
+            return data.get(0);
+        }
+    }
+
+    @Override
+    public void unmapMemory(long memoryHandle) {
+        VK10.vkUnmapMemory(device, memoryHandle);
+    }
+}
@@ -1,22 +1,35 @@
 package my.game.init.vulkan.drawing.memory.buffer;
 
-import my.game.init.vulkan.command.CommandPool;
-import my.game.init.vulkan.devices.logical.LogicalDevice;
+import my.game.init.vulkan.drawing.memory.allocation.BufferAllocator;
+import my.game.init.vulkan.drawing.mesh.MeshBuilder;
+import my.game.init.vulkan.drawing.memory.upload.UploadBatch;
 import my.game.init.vulkan.struct.Index;
+import my.game.init.vulkan.struct.IndexLayout;
+import org.lwjgl.system.MemoryUtil;
 import org.lwjgl.vulkan.VK10;
 
 import java.util.List;
 
 public class IndexBuffer extends StagingBufferUser {
+    private final int indexType;
 
-    public IndexBuffer(LogicalDevice logicalDevice, List<Index> indexList, CommandPool commandPool) {
-        super(indexList, logicalDevice, VK10.VK_BUFFER_USAGE_TRANSFER_DST_BIT | VK10.VK_BUFFER_USAGE_INDEX_BUFFER_BIT,
-                commandPool,
-                (stagingDataByteBuffer) -> {
-                    for (Index curr : indexList) {
-                        stagingDataByteBuffer.putShort(curr.value());
-                    }
-                    stagingDataByteBuffer.flip();
-                });
+    public IndexBuffer(BufferAllocator bufferAllocator, List<Index> indexList, UploadBatch uploadBatch) {
+        super(indexList, bufferAllocator, VK10.VK_BUFFER_USAGE_TRANSFER_DST_BIT | VK10.VK_BUFFER_USAGE_INDEX_BUFFER_BIT,
+                uploadBatch, VK10.VK_PIPELINE_STAGE_VERTEX_INPUT_BIT, VK10.VK_ACCESS_INDEX_READ_BIT,
+                (stagingDataByteBuffer) -> IndexLayout.writeAll(indexList, MemoryUtil.memAddress(stagingDataByteBuffer)));
+        this.indexType = VK10.VK_INDEX_TYPE_UINT16;
+    }
+
+    //The mesh is copied into the staging ring when the batch is submitted, free it only after that.
+    public IndexBuffer(BufferAllocator bufferAllocator, MeshBuilder meshBuilder, UploadBatch uploadBatch) {
+        super(meshBuilder.getIndexBytes(), meshBuilder.getIndexCount(), bufferAllocator,
+                VK10.VK_BUFFER_USAGE_TRANSFER_DST_BIT | VK10.VK_BUFFER_USAGE_INDEX_BUFFER_BIT,
+                uploadBatch, VK10.VK_PIPELINE_STAGE_VERTEX_INPUT_BIT, VK10.VK_ACCESS_INDEX_READ_BIT,
+                meshBuilder::writeIndices);
+        this.indexType = meshBuilder.getIndexType();
+    }
+
+    public int getIndexType() {
+        return indexType;
     }
 }
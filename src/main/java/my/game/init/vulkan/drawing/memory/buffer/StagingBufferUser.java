@@ -1,72 +1,43 @@
 package my.game.init.vulkan.drawing.memory.buffer;
 
-import my.game.init.vulkan.command.CommandBuffer;
-import my.game.init.vulkan.command.CommandBufferFactory;
-import my.game.init.vulkan.command.CommandPool;
-import my.game.init.vulkan.devices.logical.LogicalDevice;
-import my.game.init.vulkan.devices.logical.queue.TransferVulkanQueue;
+import my.game.init.vulkan.drawing.memory.allocation.BufferAllocator;
+import my.game.init.vulkan.drawing.memory.allocation.MemoryUsage;
+import my.game.init.vulkan.drawing.memory.upload.UploadBatch;
 import my.game.init.vulkan.struct.Struct;
-import org.lwjgl.PointerBuffer;
-import org.lwjgl.system.MemoryStack;
-import org.lwjgl.vulkan.VK10;
-import org.lwjgl.vulkan.VkBufferCopy;
-import org.lwjgl.vulkan.VkSubmitInfo;
 
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+//The data is added to an upload batch which copies it on the transfer queue in the background once the batch is submitted.
+// Check isReady() before recording draws that read from the destination buffer.
 public class StagingBufferUser {
-    protected final VulkanBuffer stagingBuffer;
     protected final VulkanBuffer destinationBuffer;
     private final int structEntriesCount;
+    private final CompletableFuture<VulkanBuffer> uploadFuture;
 
-    protected StagingBufferUser(final List<? extends Struct> structList, final LogicalDevice logicalDevice,
-                                final int destinationBufferUsageFlags, CommandPool commandPool, VulkanBuffer.MemoryMapActon memoryMapActon) {
-        int size = 0;
-        for (Struct struct : structList) {
-            size += struct.getSize();
-        }
-        structEntriesCount = structList.size();
-        stagingBuffer = new VulkanBuffer(size, logicalDevice.vkDevice(), VK10.VK_BUFFER_USAGE_TRANSFER_SRC_BIT,
-                VK10.VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK10.VK_MEMORY_PROPERTY_HOST_COHERENT_BIT);
-        destinationBuffer = new VulkanBuffer(size, logicalDevice.vkDevice(),
-                destinationBufferUsageFlags,
-                VK10.VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT);
-        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
-            stagingBuffer.mapMemoryWithAction(memoryStack, memoryMapActon);
-            copyBuffer(commandPool, memoryStack, logicalDevice.transferVulkanQueue());
-            stagingBuffer.free();
-        }
+    protected StagingBufferUser(final List<? extends Struct> structList, final BufferAllocator bufferAllocator,
+                                final int destinationBufferUsageFlags, final UploadBatch uploadBatch,
+                                final int dstStageMask, final int dstAccessMask, VulkanBuffer.MemoryMapActon memoryMapActon) {
+        this(sizeOf(structList), structList.size(), bufferAllocator, destinationBufferUsageFlags, uploadBatch,
+                dstStageMask, dstAccessMask, memoryMapActon);
     }
 
-    //TODO You may wish to create a separate command pool for these kinds of short-lived buffers,
-    // because the implementation may be able to apply memory allocation optimizations.
-    // You should use the VK_COMMAND_POOL_CREATE_TRANSIENT_BIT flag during command pool generation in that case.
-    private void copyBuffer(CommandPool commandPool, MemoryStack memoryStack, TransferVulkanQueue transferVulkanQueue) {
-        CommandBuffer commandBuffer = CommandBufferFactory.createCommandBuffers(commandPool, 1).getFirst();
-        commandBuffer.runCommand(VK10.VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT,
-                (vkCommandBuffer) -> {
-                    VkBufferCopy.Buffer vkBufferCopy = VkBufferCopy.calloc(1, memoryStack);
-                    vkBufferCopy
-                            .srcOffset(0)
-                            .dstOffset(0)
-                            .size(stagingBuffer.bufferSize);
-                    VK10.vkCmdCopyBuffer(vkCommandBuffer, stagingBuffer.getVulkanBufferHandle(), destinationBuffer.getVulkanBufferHandle(), vkBufferCopy);
-                });
-        PointerBuffer commandBuffersPointer = memoryStack.mallocPointer(1);
-        commandBuffersPointer.put(commandBuffer.getVkCommandBuffer());
-        commandBuffersPointer.flip();
-        VkSubmitInfo vkSubmitInfo = VkSubmitInfo.calloc(memoryStack);
-        vkSubmitInfo
-                .sType(VK10.VK_STRUCTURE_TYPE_SUBMIT_INFO)
-                .pCommandBuffers(commandBuffersPointer);
+    //For data that is already laid out in memory, like a MeshBuilder. The writer runs when the batch is submitted,
+    // so whatever it reads from has to stay alive until then.
+    protected StagingBufferUser(final int size, final int structEntriesCount, final BufferAllocator bufferAllocator,
+                                final int destinationBufferUsageFlags, final UploadBatch uploadBatch,
+                                final int dstStageMask, final int dstAccessMask, VulkanBuffer.MemoryMapActon memoryMapActon) {
+        this.structEntriesCount = structEntriesCount;
+        destinationBuffer = new VulkanBuffer(size, bufferAllocator, destinationBufferUsageFlags, MemoryUsage.GPU_ONLY);
+        uploadFuture = uploadBatch.add(destinationBuffer, size, memoryMapActon, dstStageMask, dstAccessMask);
+    }
 
-        int result = VK10.vkQueueSubmit(transferVulkanQueue.getVkQueue(), vkSubmitInfo, VK10.VK_NULL_HANDLE);
-        if (result != VK10.VK_SUCCESS) {
-            throw new IllegalStateException(String.format("Failed to submit draw command buffer. Error code: %d", result));
+    private static int sizeOf(List<? extends Struct> structList) {
+        int size = 0;
+        for (Struct struct : structList) {
+            size += struct.getSize();
         }
-        VK10.vkQueueWaitIdle(transferVulkanQueue.getVkQueue());
-        CommandBufferFactory.freeCommandBuffers(Collections.singletonList(commandBuffer), memoryStack, commandBuffer.getVkCommandBuffer().getDevice(), commandBuffer.getCommandPoolHandle());
+        return size;
     }
 
     //The number of vertices in what we are trying to draw basically. When using an index buffer it's the number of indexes
@@ -79,6 +50,14 @@ public class StagingBufferUser {
         return destinationBuffer;
     }
 
+    public boolean isReady() {
+        return uploadFuture.isDone();
+    }
+
+    public CompletableFuture<VulkanBuffer> getUploadFuture() {
+        return uploadFuture;
+    }
+
     public void free() {
         destinationBuffer.free();
     }
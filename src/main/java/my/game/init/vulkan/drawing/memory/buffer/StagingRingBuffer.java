@@ -0,0 +1,118 @@
+package my.game.init.vulkan.drawing.memory.buffer;
+
+import my.game.init.vulkan.drawing.memory.allocation.BufferAllocator;
+import my.game.init.vulkan.drawing.memory.allocation.MemoryUsage;
+import my.game.init.vulkan.sync.GpuTimeline;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.VK10;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+//One persistently mapped staging buffer that uploads are written into back to back. Positions only ever grow and are
+// wrapped into the buffer with a modulo, so head - tail is always the number of bytes the gpu may still be reading.
+// Space is handed back once the timeline value of the submission that read it has been reached.
+public class StagingRingBuffer {
+    public static final int DEFAULT_SIZE = 8 * 1024 * 1024;
+
+    private final VulkanBuffer vulkanBuffer;
+    private final GpuTimeline timeline;
+    private final long capacity;
+    private final long mappedAddress;
+    private final ArrayDeque<Retirement> retirements = new ArrayDeque<>();
+    private long head = 0;
+    private long tail = 0;
+    private long lastRetiredHead = 0;
+
+    public StagingRingBuffer(BufferAllocator bufferAllocator, GpuTimeline timeline, int size) {
+        this.vulkanBuffer = new VulkanBuffer(size, bufferAllocator, VK10.VK_BUFFER_USAGE_TRANSFER_SRC_BIT, MemoryUsage.STAGING);
+        this.timeline = timeline;
+        this.capacity = size;
+        this.mappedAddress = MemoryUtil.memAddress(vulkanBuffer.persistentMemoryMap());
+    }
+
+    //Returns the offset into the staging buffer, blocking on the oldest in flight upload until there is enough room.
+    // The wait happens outside the lock so reclaim() on the render thread never waits behind it.
+    public long allocate(long size, long alignment) {
+        if (size > capacity) {
+            throw new IllegalArgumentException(String.format("Staging allocation of %d bytes does not fit in a ring of %d bytes. Upload it in chunks", size, capacity));
+        }
+        while (true) {
+            long waitValue;
+            synchronized (this) {
+                reclaim();
+                long offset = claim(size, alignment);
+                if (offset != -1) {
+                    return offset;
+                }
+                if (retirements.isEmpty()) {
+                    throw new IllegalStateException("Staging ring is full of data that has not been submitted yet");
+                }
+                waitValue = retirements.peek().timelineValue();
+            }
+            timeline.waitForValue(waitValue);
+        }
+    }
+
+    //Same as allocate but returns -1 instead of waiting when the ring is full. Lets the caller submit what it has written so far
+    // before it has to wait, otherwise it could end up waiting on data that was never submitted.
+    public synchronized long tryAllocate(long size, long alignment) {
+        reclaim();
+        return claim(size, alignment);
+    }
+
+    private long claim(long size, long alignment) {
+        long start = (head + alignment - 1) / alignment * alignment;
+        //An allocation never wraps around the end of the buffer, we skip the leftover space instead.
+        if (start % capacity + size > capacity) {
+            start = (start / capacity + 1) * capacity;
+        }
+        if (start + size - tail > capacity) {
+            return -1;
+        }
+        head = start + size;
+        return start % capacity;
+    }
+
+    //Everything allocated since the last call is read by the submission that completes at timelineValue.
+    public synchronized void retireOn(long timelineValue) {
+        if (head != lastRetiredHead) {
+            retirements.add(new Retirement(timelineValue, head));
+            lastRetiredHead = head;
+        }
+    }
+
+    public synchronized void reclaim() {
+        long completedValue = timeline.completedValue();
+        while (!retirements.isEmpty() && retirements.peek().timelineValue() <= completedValue) {
+            tail = retirements.poll().end();
+        }
+    }
+
+    public ByteBuffer getMappedRange(long offset, int size) {
+        return MemoryUtil.memByteBuffer(mappedAddress + offset, size);
+    }
+
+    public void flush(long offset, long size) {
+        vulkanBuffer.flush(offset, size);
+    }
+
+    public GpuTimeline getTimeline() {
+        return timeline;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public VulkanBuffer getVulkanBuffer() {
+        return vulkanBuffer;
+    }
+
+    public void free() {
+        vulkanBuffer.free();
+    }
+
+    private record Retirement(long timelineValue, long end) {
+    }
+}
@@ -0,0 +1,79 @@
+package my.game.init.vulkan.drawing.memory.buffer;
+
+import my.game.init.vulkan.drawing.memory.allocation.BufferAllocator;
+import my.game.init.vulkan.drawing.memory.allocation.MemoryUsage;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.VK10;
+
+import java.nio.ByteBuffer;
+
+//One persistently mapped uniform buffer split into a region per frame in flight. Every frame the region is handed out
+// again front to back in slices aligned to minUniformBufferOffsetAlignment, and draws pick their slice with a dynamic offset.
+// That way any number of objects share a single buffer and a single descriptor set per frame.
+public class UniformArena {
+    public static final int DEFAULT_FRAME_SIZE = 1024 * 1024;
+
+    private final VulkanBuffer vulkanBuffer;
+    private final long frameSize;
+    private final long alignment;
+    private final ByteBuffer[] frameRegions;
+    private int currentFrame = 0;
+    private long cursor = 0;
+
+    public UniformArena(BufferAllocator bufferAllocator, int framesInFlight, int frameSize, long minUniformBufferOffsetAlignment) {
+        this.alignment = Math.max(minUniformBufferOffsetAlignment, 1);
+        //Frame regions have to start on an aligned offset too since the descriptor set of each frame points at its start.
+        this.frameSize = (frameSize + alignment - 1) / alignment * alignment;
+        this.vulkanBuffer = new VulkanBuffer(Math.toIntExact(this.frameSize * framesInFlight), bufferAllocator,
+                VK10.VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT, MemoryUsage.CPU_TO_GPU);
+        long mappedAddress = MemoryUtil.memAddress(vulkanBuffer.persistentMemoryMap());
+        this.frameRegions = new ByteBuffer[framesInFlight];
+        for (int i = 0; i < framesInFlight; ++i) {
+            frameRegions[i] = MemoryUtil.memByteBuffer(mappedAddress + i * this.frameSize, (int) this.frameSize);
+        }
+    }
+
+    //Only call once the gpu is done with the previous use of this frame, everything handed out for it gets overwritten.
+    public void beginFrame(int frameIndex) {
+        currentFrame = frameIndex;
+        cursor = 0;
+    }
+
+    //Returns the dynamic offset of the slice, relative to the start of the current frame's region.
+    public int allocate(int size) {
+        long offset = cursor;
+        if (offset + size > frameSize) {
+            throw new IllegalStateException(String.format("Uniform arena frame of %d bytes is full. Tried to allocate %d bytes at offset %d", frameSize, size, offset));
+        }
+        cursor = (offset + size + alignment - 1) / alignment * alignment;
+        return (int) offset;
+    }
+
+    //The mapped memory of the current frame, write a slice at the offset returned by allocate.
+    public ByteBuffer getFrameMemory() {
+        return frameRegions[currentFrame];
+    }
+
+    //Makes everything written this frame visible to the gpu when the memory is not host coherent.
+    public void endFrame() {
+        if (cursor > 0) {
+            vulkanBuffer.flush(getFrameOffset(currentFrame), cursor);
+        }
+    }
+
+    public long getFrameOffset(int frameIndex) {
+        return frameIndex * frameSize;
+    }
+
+    public long getUsedBytes() {
+        return cursor;
+    }
+
+    public VulkanBuffer getVulkanBuffer() {
+        return vulkanBuffer;
+    }
+
+    public void free() {
+        vulkanBuffer.free();
+    }
+}
@@ -0,0 +1,70 @@
+package my.game.init.vulkan.drawing.memory.upload;
+
+import my.game.init.vulkan.drawing.memory.buffer.VulkanBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+//Collects copies and hands them to the upload service in one go. All regions are written into the staging ring,
+// grouped per destination and recorded into as few command buffers as the ring allows, usually one.
+// A batch is not thread safe, each thread should fill its own.
+public class UploadBatch {
+    private final UploadService uploadService;
+    private final List<UploadRegion> regions = new ArrayList<>();
+    private boolean submitted = false;
+
+    UploadBatch(UploadService uploadService) {
+        this.uploadService = uploadService;
+    }
+
+    public CompletableFuture<VulkanBuffer> add(VulkanBuffer destination, int size, VulkanBuffer.MemoryMapActon memoryMapActon,
+                                               int dstStageMask, int dstAccessMask) {
+        return add(destination, 0, size, memoryMapActon, dstStageMask, dstAccessMask);
+    }
+
+    //The whole region is written in one go, so it has to fit in the staging ring. Use addChunked for anything bigger.
+    public CompletableFuture<VulkanBuffer> add(VulkanBuffer destination, long destinationOffset, int size,
+                                               VulkanBuffer.MemoryMapActon memoryMapActon, int dstStageMask, int dstAccessMask) {
+        if (size > uploadService.getStagingCapacity()) {
+            throw new IllegalArgumentException(String.format("Upload of %d bytes does not fit in the %d byte staging ring. Use addChunked",
+                    size, uploadService.getStagingCapacity()));
+        }
+        return addChunked(destination, destinationOffset, size, (stagingChunk, uploadOffset) -> memoryMapActon.mapMemory(stagingChunk),
+                dstStageMask, dstAccessMask);
+    }
+
+    public CompletableFuture<VulkanBuffer> addChunked(VulkanBuffer destination, int size, VulkanBuffer.ChunkedMemoryMapActon memoryMapActon,
+                                                      int dstStageMask, int dstAccessMask) {
+        return addChunked(destination, 0, size, memoryMapActon, dstStageMask, dstAccessMask);
+    }
+
+    //Regions bigger than the staging ring are written and copied a chunk at a time.
+    public CompletableFuture<VulkanBuffer> addChunked(VulkanBuffer destination, long destinationOffset, int size,
+                                                      VulkanBuffer.ChunkedMemoryMapActon memoryMapActon, int dstStageMask, int dstAccessMask) {
+        if (submitted) {
+            throw new IllegalStateException("Upload batch was already submitted");
+        }
+        CompletableFuture<VulkanBuffer> future = new CompletableFuture<>();
+        regions.add(new UploadRegion(destination, destinationOffset, size, memoryMapActon, dstStageMask, dstAccessMask, future));
+        return future;
+    }
+
+    public int getRegionCount() {
+        return regions.size();
+    }
+
+    public void submit() {
+        if (submitted) {
+            throw new IllegalStateException("Upload batch was already submitted");
+        }
+        submitted = true;
+        if (!regions.isEmpty()) {
+            uploadService.submitBatch(regions);
+        }
+    }
+
+    record UploadRegion(VulkanBuffer destination, long destinationOffset, int size, VulkanBuffer.ChunkedMemoryMapActon memoryMapActon,
+                        int dstStageMask, int dstAccessMask, CompletableFuture<VulkanBuffer> future) {
+    }
+}
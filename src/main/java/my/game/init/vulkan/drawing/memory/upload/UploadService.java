@@ -0,0 +1,227 @@
+package my.game.init.vulkan.drawing.memory.upload;
+
+import my.game.init.vulkan.command.CommandBufferManager;
+import my.game.init.vulkan.devices.logical.LogicalDevice;
+import my.game.init.vulkan.drawing.memory.allocation.BufferAllocator;
+import my.game.init.vulkan.drawing.memory.buffer.StagingRingBuffer;
+import my.game.init.vulkan.drawing.memory.buffer.VulkanBuffer;
+import my.game.init.vulkan.sync.GpuTimeline;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+//Copies data into device local buffers on the dedicated transfer queue without making the caller wait for the gpu.
+// upload() can be called from any thread and only blocks when the staging ring is full. Its submissions go through the
+// queue's shared lock, so they are safe even when the transfer queue is the same VkQueue the render thread submits frames to. poll() must be called from the
+// render thread once per frame: it retires finished copies and, when the transfer queue belongs to a different queue
+// family than the graphics queue, submits the acquire half of the queue family ownership transfer on the graphics queue.
+// Futures complete once the buffer is safe to use from the graphics queue.
+//Writing into the ring, waiting for room in it and submitting copies all happen under batchLock, which poll() never
+// takes. The two sides only meet in pendingTransfers, so a batch stuck on a full ring does not hold up the frame.
+public class UploadService {
+    //vkCmdCopyBuffer only requires 4 byte aligned offsets for buffers, 16 keeps every struct we upload naturally aligned.
+    private static final long STAGING_ALIGNMENT = 16;
+
+    private final UploadSubmitter uploadSubmitter;
+    private final GpuTimeline transferTimeline;
+    private final GpuTimeline acquireTimeline;
+    private final StagingRingBuffer stagingRingBuffer;
+    private final boolean ownershipTransferRequired;
+    //Batches are written one at a time, the ring retires everything allocated so far with the next submission.
+    private final Object batchLock = new Object();
+    //Added to in submission order under batchLock and drained by poll().
+    private final ConcurrentLinkedQueue<PendingTransfer> pendingTransfers = new ConcurrentLinkedQueue<>();
+    //Only used by poll().
+    private final ArrayDeque<PendingAcquire> pendingAcquires = new ArrayDeque<>();
+    private final List<UploadTarget> readyForAcquire = new ArrayList<>();
+    private volatile long lastTransferValue = 0;
+    private volatile long lastAcquireValue = 0;
+
+    public UploadService(LogicalDevice logicalDevice, CommandBufferManager commandBufferManager, BufferAllocator bufferAllocator) {
+        this(new VulkanUploadSubmitter(logicalDevice, commandBufferManager), logicalDevice.createTimeline(), logicalDevice.createTimeline(),
+                bufferAllocator, StagingRingBuffer.DEFAULT_SIZE);
+    }
+
+    UploadService(UploadSubmitter uploadSubmitter, GpuTimeline transferTimeline, GpuTimeline acquireTimeline,
+                  BufferAllocator bufferAllocator, int stagingSize) {
+        this.uploadSubmitter = uploadSubmitter;
+        this.transferTimeline = transferTimeline;
+        this.acquireTimeline = acquireTimeline;
+        this.stagingRingBuffer = new StagingRingBuffer(bufferAllocator, transferTimeline, stagingSize);
+        this.ownershipTransferRequired = uploadSubmitter.isOwnershipTransferRequired();
+    }
+
+    public UploadBatch beginBatch() {
+        return new UploadBatch(this);
+    }
+
+    //dstStageMask and dstAccessMask describe how the graphics queue is going to read the buffer,
+    // for example VK_PIPELINE_STAGE_VERTEX_INPUT_BIT and VK_ACCESS_VERTEX_ATTRIBUTE_READ_BIT for a vertex buffer.
+    // Uploading many buffers this way costs a submission each, use a batch for that.
+    public CompletableFuture<VulkanBuffer> upload(VulkanBuffer destination, int size, VulkanBuffer.MemoryMapActon memoryMapActon,
+                                                  int dstStageMask, int dstAccessMask) {
+        UploadBatch uploadBatch = beginBatch();
+        CompletableFuture<VulkanBuffer> future = uploadBatch.add(destination, size, memoryMapActon, dstStageMask, dstAccessMask);
+        uploadBatch.submit();
+        return future;
+    }
+
+    //Writes every region into the ring and only submits when the ring runs out of room or the batch is done.
+    // The barriers for all destinations go into the last submission, a barrier covers everything submitted before it on the queue.
+    void submitBatch(List<UploadBatch.UploadRegion> regions) {
+        synchronized (batchLock) {
+            Map<VulkanBuffer, List<StagedCopy>> stagedCopies = new LinkedHashMap<>();
+            for (UploadBatch.UploadRegion region : regions) {
+                if (region.size() <= stagingRingBuffer.getCapacity()) {
+                    long stagingOffset = allocateStaging(region.size(), stagedCopies);
+                    region.memoryMapActon().mapMemory(stagingRingBuffer.getMappedRange(stagingOffset, region.size()), 0);
+                    stagingRingBuffer.flush(stagingOffset, region.size());
+                    stage(stagedCopies, region.destination(), stagingOffset, region.destinationOffset(), region.size());
+                } else {
+                    streamInChunks(region, stagedCopies);
+                }
+            }
+            submitCopies(stagedCopies, mergeTargets(regions));
+        }
+    }
+
+    //Uploads bigger than the ring go through it half a ring at a time, so the cpu can fill the next chunk while the gpu is
+    // still copying the previous one. Every chunk is written straight into the ring, the host never holds the whole upload.
+    private void streamInChunks(UploadBatch.UploadRegion region, Map<VulkanBuffer, List<StagedCopy>> stagedCopies) {
+        int chunkSize = (int) (stagingRingBuffer.getCapacity() / 2);
+        for (int chunkOffset = 0; chunkOffset < region.size(); chunkOffset += chunkSize) {
+            int currentChunkSize = Math.min(chunkSize, region.size() - chunkOffset);
+            long stagingOffset = allocateStaging(currentChunkSize, stagedCopies);
+            region.memoryMapActon().mapMemory(stagingRingBuffer.getMappedRange(stagingOffset, currentChunkSize), chunkOffset);
+            stagingRingBuffer.flush(stagingOffset, currentChunkSize);
+            stage(stagedCopies, region.destination(), stagingOffset, region.destinationOffset() + chunkOffset, currentChunkSize);
+        }
+    }
+
+    //If the ring is full we have to submit what is staged so far before waiting, the space we are waiting for might belong to it.
+    private long allocateStaging(long size, Map<VulkanBuffer, List<StagedCopy>> stagedCopies) {
+        long stagingOffset = stagingRingBuffer.tryAllocate(size, STAGING_ALIGNMENT);
+        if (stagingOffset != -1) {
+            return stagingOffset;
+        }
+        if (!stagedCopies.isEmpty()) {
+            submitCopies(stagedCopies, List.of());
+            stagedCopies.clear();
+        }
+        return stagingRingBuffer.allocate(size, STAGING_ALIGNMENT);
+    }
+
+    private static void stage(Map<VulkanBuffer, List<StagedCopy>> stagedCopies, VulkanBuffer destination,
+                              long stagingOffset, long destinationOffset, long size) {
+        stagedCopies.computeIfAbsent(destination, (key) -> new ArrayList<>())
+                .add(new StagedCopy(stagingOffset, destinationOffset, size));
+    }
+
+    //Ownership is transferred for the whole buffer, so every destination gets exactly one barrier no matter how many
+    // regions of it were in the batch.
+    private static List<UploadTarget> mergeTargets(List<UploadBatch.UploadRegion> regions) {
+        Map<VulkanBuffer, UploadTarget> targets = new LinkedHashMap<>();
+        for (UploadBatch.UploadRegion region : regions) {
+            UploadTarget existing = targets.get(region.destination());
+            if (existing == null) {
+                List<CompletableFuture<VulkanBuffer>> futures = new ArrayList<>();
+                futures.add(region.future());
+                targets.put(region.destination(), new UploadTarget(region.destination(), region.dstStageMask(), region.dstAccessMask(), futures));
+            } else {
+                existing.futures().add(region.future());
+                targets.put(region.destination(), new UploadTarget(region.destination(),
+                        existing.dstStageMask() | region.dstStageMask(), existing.dstAccessMask() | region.dstAccessMask(), existing.futures()));
+            }
+        }
+        return new ArrayList<>(targets.values());
+    }
+
+    private void submitCopies(Map<VulkanBuffer, List<StagedCopy>> stagedCopies, List<UploadTarget> targets) {
+        long timelineValue = uploadSubmitter.submitCopies(stagingRingBuffer, transferTimeline, stagedCopies, targets);
+        lastTransferValue = timelineValue;
+        stagingRingBuffer.retireOn(timelineValue);
+        pendingTransfers.add(new PendingTransfer(timelineValue, targets));
+    }
+
+    //Call once per frame from the thread that submits to the graphics queue. Never blocks, not even while another thread
+    // is waiting for room in the staging ring.
+    public synchronized void poll() {
+        stagingRingBuffer.reclaim();
+        long transferCompleted = transferTimeline.completedValue();
+        while (!pendingTransfers.isEmpty() && pendingTransfers.peek().timelineValue() <= transferCompleted) {
+            PendingTransfer pendingTransfer = pendingTransfers.poll();
+            if (ownershipTransferRequired) {
+                readyForAcquire.addAll(pendingTransfer.targets());
+            } else {
+                completeAll(pendingTransfer.targets());
+            }
+        }
+        if (!readyForAcquire.isEmpty()) {
+            submitAcquire();
+        }
+        long acquireCompleted = acquireTimeline.completedValue();
+        while (!pendingAcquires.isEmpty() && pendingAcquires.peek().timelineValue() <= acquireCompleted) {
+            completeAll(pendingAcquires.poll().targets());
+        }
+    }
+
+    //All buffers that became ready this frame are acquired with a single submission.
+    private void submitAcquire() {
+        List<UploadTarget> targets = new ArrayList<>(readyForAcquire);
+        readyForAcquire.clear();
+        long timelineValue = uploadSubmitter.submitAcquire(acquireTimeline, targets);
+        lastAcquireValue = timelineValue;
+        pendingAcquires.add(new PendingAcquire(timelineValue, targets));
+    }
+
+    private static void completeAll(List<UploadTarget> targets) {
+        for (UploadTarget target : targets) {
+            for (CompletableFuture<VulkanBuffer> future : target.futures()) {
+                future.complete(target.destination());
+            }
+        }
+    }
+
+    //Waits for everything that was submitted so far and completes the remaining futures. Used on shutdown.
+    public void waitIdle() {
+        synchronized (batchLock) {
+            transferTimeline.waitForValue(lastTransferValue);
+        }
+        poll();
+        acquireTimeline.waitForValue(lastAcquireValue);
+        poll();
+    }
+
+    long getStagingCapacity() {
+        return stagingRingBuffer.getCapacity();
+    }
+
+    public boolean isOwnershipTransferRequired() {
+        return ownershipTransferRequired;
+    }
+
+    public void free() {
+        waitIdle();
+        stagingRingBuffer.free();
+        transferTimeline.free();
+        acquireTimeline.free();
+    }
+
+    record StagedCopy(long stagingOffset, long destinationOffset, long size) {
+    }
+
+    record UploadTarget(VulkanBuffer destination, int dstStageMask, int dstAccessMask,
+                                List<CompletableFuture<VulkanBuffer>> futures) {
+    }
+
+    private record PendingTransfer(long timelineValue, List<UploadTarget> targets) {
+    }
+
+    private record PendingAcquire(long timelineValue, List<UploadTarget> targets) {
+    }
+}
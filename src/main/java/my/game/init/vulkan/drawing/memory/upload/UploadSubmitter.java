@@ -0,0 +1,23 @@
+package my.game.init.vulkan.drawing.memory.upload;
+
+import my.game.init.vulkan.drawing.memory.buffer.StagingRingBuffer;
+import my.game.init.vulkan.drawing.memory.buffer.VulkanBuffer;
+import my.game.init.vulkan.sync.GpuTimeline;
+
+import java.util.List;
+import java.util.Map;
+
+//Records and submits the command buffers for UploadService. The service only decides what goes into them and when,
+// so its bookkeeping can be tested without a device.
+interface UploadSubmitter {
+    //Copies the staged regions out of the ring on the transfer queue, followed by the release barriers for the targets.
+    // Returns the transfer timeline value the copies are done at.
+    long submitCopies(StagingRingBuffer stagingRingBuffer, GpuTimeline transferTimeline,
+                      Map<VulkanBuffer, List<UploadService.StagedCopy>> stagedCopies, List<UploadService.UploadTarget> targets);
+
+    //The acquire half of the queue family ownership transfer on the graphics queue. Returns the acquire timeline value it is done at.
+    long submitAcquire(GpuTimeline acquireTimeline, List<UploadService.UploadTarget> targets);
+
+    //True when the transfer queue belongs to a different queue family than the graphics queue.
+    boolean isOwnershipTransferRequired();
+}
@@ -0,0 +1,151 @@
+package my.game.init.vulkan.drawing.memory.upload;
+
+import my.game.init.vulkan.command.CommandBuffer;
+import my.game.init.vulkan.command.CommandBufferManager;
+import my.game.init.vulkan.devices.logical.LogicalDevice;
+import my.game.init.vulkan.devices.logical.queue.VulkanQueue;
+import my.game.init.vulkan.drawing.memory.buffer.StagingRingBuffer;
+import my.game.init.vulkan.drawing.memory.buffer.VulkanBuffer;
+import my.game.init.vulkan.sync.GpuTimeline;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkBufferCopy;
+import org.lwjgl.vulkan.VkBufferMemoryBarrier;
+import org.lwjgl.vulkan.VkCommandBuffer;
+import org.lwjgl.vulkan.VkSubmitInfo;
+
+import java.util.List;
+import java.util.Map;
+
+//Command buffers come from the calling thread's pool, so uploading threads and the render thread can both submit.
+class VulkanUploadSubmitter implements UploadSubmitter {
+    private final LogicalDevice logicalDevice;
+    private final CommandBufferManager commandBufferManager;
+    private final boolean ownershipTransferRequired;
+
+    VulkanUploadSubmitter(LogicalDevice logicalDevice, CommandBufferManager commandBufferManager) {
+        this.logicalDevice = logicalDevice;
+        this.commandBufferManager = commandBufferManager;
+        this.ownershipTransferRequired = !logicalDevice.transferVulkanQueue().getQueueIndex()
+                .equals(logicalDevice.graphicsQueue().getQueueIndex());
+    }
+
+    //One vkCmdCopyBuffer per destination with all of its regions. The region and barrier arrays can get large for a big
+    // batch so they are allocated on the heap instead of the stack.
+    @Override
+    public long submitCopies(StagingRingBuffer stagingRingBuffer, GpuTimeline transferTimeline,
+                             Map<VulkanBuffer, List<UploadService.StagedCopy>> stagedCopies, List<UploadService.UploadTarget> targets) {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            CommandBuffer commandBuffer = commandBufferManager.acquire(logicalDevice.transferVulkanQueue());
+            commandBuffer.runCommand(VK10.VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT,
+                    (vkCommandBuffer) -> {
+                        for (Map.Entry<VulkanBuffer, List<UploadService.StagedCopy>> entry : stagedCopies.entrySet()) {
+                            List<UploadService.StagedCopy> copies = entry.getValue();
+                            VkBufferCopy.Buffer vkBufferCopies = VkBufferCopy.calloc(copies.size());
+                            try {
+                                for (int i = 0; i < copies.size(); ++i) {
+                                    UploadService.StagedCopy copy = copies.get(i);
+                                    vkBufferCopies.get(i)
+                                            .srcOffset(copy.stagingOffset())
+                                            .dstOffset(copy.destinationOffset())
+                                            .size(copy.size());
+                                }
+                                VK10.vkCmdCopyBuffer(vkCommandBuffer, stagingRingBuffer.getVulkanBuffer().getVulkanBufferHandle(),
+                                        entry.getKey().getVulkanBufferHandle(), vkBufferCopies);
+                            } finally {
+                                vkBufferCopies.free();
+                            }
+                        }
+                        if (!targets.isEmpty()) {
+                            recordReleaseBarriers(vkCommandBuffer, targets);
+                        }
+                    });
+            long timelineValue = submit(logicalDevice.transferVulkanQueue(), transferTimeline, commandBuffer, memoryStack);
+            commandBufferManager.release(logicalDevice.transferVulkanQueue(), commandBuffer, transferTimeline, timelineValue);
+            return timelineValue;
+        }
+    }
+
+    //When both queues are from the same family a plain barrier is enough. Otherwise this is the release half of the
+    // ownership transfer, the dstAccessMask is ignored for a release so we leave it empty.
+    private void recordReleaseBarriers(VkCommandBuffer vkCommandBuffer, List<UploadService.UploadTarget> targets) {
+        VkBufferMemoryBarrier.Buffer barriers = VkBufferMemoryBarrier.calloc(targets.size());
+        try {
+            int dstStageMask = ownershipTransferRequired ? VK10.VK_PIPELINE_STAGE_BOTTOM_OF_PIPE_BIT : 0;
+            for (int i = 0; i < targets.size(); ++i) {
+                UploadService.UploadTarget target = targets.get(i);
+                VkBufferMemoryBarrier barrier = barriers.get(i);
+                barrier
+                        .sType(VK10.VK_STRUCTURE_TYPE_BUFFER_MEMORY_BARRIER)
+                        .srcAccessMask(VK10.VK_ACCESS_TRANSFER_WRITE_BIT)
+                        .buffer(target.destination().getVulkanBufferHandle())
+                        .offset(0)
+                        .size(VK10.VK_WHOLE_SIZE);
+                if (ownershipTransferRequired) {
+                    barrier
+                            .dstAccessMask(0)
+                            .srcQueueFamilyIndex(logicalDevice.transferVulkanQueue().getQueueIndex())
+                            .dstQueueFamilyIndex(logicalDevice.graphicsQueue().getQueueIndex());
+                } else {
+                    barrier
+                            .dstAccessMask(target.dstAccessMask())
+                            .srcQueueFamilyIndex(VK10.VK_QUEUE_FAMILY_IGNORED)
+                            .dstQueueFamilyIndex(VK10.VK_QUEUE_FAMILY_IGNORED);
+                    dstStageMask |= target.dstStageMask();
+                }
+            }
+            VK10.vkCmdPipelineBarrier(vkCommandBuffer, VK10.VK_PIPELINE_STAGE_TRANSFER_BIT, dstStageMask, 0,
+                    null, barriers, null);
+        } finally {
+            barriers.free();
+        }
+    }
+
+    //The release was already observed as finished on the host, so the acquire does not need a semaphore to be ordered after it.
+    @Override
+    public long submitAcquire(GpuTimeline acquireTimeline, List<UploadService.UploadTarget> targets) {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkBufferMemoryBarrier.Buffer barriers = VkBufferMemoryBarrier.calloc(targets.size());
+            int dstStageMask = 0;
+            for (int i = 0; i < targets.size(); ++i) {
+                UploadService.UploadTarget target = targets.get(i);
+                dstStageMask |= target.dstStageMask();
+                barriers.get(i)
+                        .sType(VK10.VK_STRUCTURE_TYPE_BUFFER_MEMORY_BARRIER)
+                        .srcAccessMask(0)
+                        .dstAccessMask(target.dstAccessMask())
+                        .srcQueueFamilyIndex(logicalDevice.transferVulkanQueue().getQueueIndex())
+                        .dstQueueFamilyIndex(logicalDevice.graphicsQueue().getQueueIndex())
+                        .buffer(target.destination().getVulkanBufferHandle())
+                        .offset(0)
+                        .size(VK10.VK_WHOLE_SIZE);
+            }
+            int acquireStageMask = dstStageMask;
+            CommandBuffer commandBuffer = commandBufferManager.acquire(logicalDevice.graphicsQueue());
+            commandBuffer.runCommand(VK10.VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT,
+                    (vkCommandBuffer) -> VK10.vkCmdPipelineBarrier(vkCommandBuffer, VK10.VK_PIPELINE_STAGE_TOP_OF_PIPE_BIT,
+                            acquireStageMask, 0, null, barriers, null));
+            barriers.free();
+            long timelineValue = submit(logicalDevice.graphicsQueue(), acquireTimeline, commandBuffer, memoryStack);
+            commandBufferManager.release(logicalDevice.graphicsQueue(), commandBuffer, acquireTimeline, timelineValue);
+            return timelineValue;
+        }
+    }
+
+    private long submit(VulkanQueue queue, GpuTimeline timeline, CommandBuffer commandBuffer, MemoryStack memoryStack) {
+        PointerBuffer commandBuffersPointer = memoryStack.mallocPointer(1);
+        commandBuffersPointer.put(commandBuffer.getVkCommandBuffer());
+        commandBuffersPointer.flip();
+        VkSubmitInfo vkSubmitInfo = VkSubmitInfo.calloc(memoryStack);
+        vkSubmitInfo
+                .sType(VK10.VK_STRUCTURE_TYPE_SUBMIT_INFO)
+                .pCommandBuffers(commandBuffersPointer);
+        return timeline.submit(queue, vkSubmitInfo);
+    }
+
+    @Override
+    public boolean isOwnershipTransferRequired() {
+        return ownershipTransferRequired;
+    }
+}
@@ -0,0 +1,188 @@
+package my.game.init.vulkan.drawing.mesh;
+
+import my.game.init.vulkan.struct.Vertex;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.VK10;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+//Builds a mesh straight into off heap memory in the interleaved layout of Vertex, without creating an object per vertex.
+// Vertices can be added one at a time or in bulk from interleaved float data. The finished data is copied into the staging
+// ring with a single memCopy. Indices are kept as ints and written as 16 bit when the mesh is small enough.
+// Remember to free() the builder, the memory is not garbage collected.
+public class MeshBuilder {
+    public static final int FLOATS_PER_VERTEX = Vertex.SIZE / Float.BYTES;
+    private static final int MAX_UINT16_VERTICES = 1 << 16;
+
+    private long vertexAddress;
+    private int vertexCapacity;
+    private int vertexCount = 0;
+    private long indexAddress;
+    private int indexCapacity;
+    private int indexCount = 0;
+
+    public MeshBuilder(int initialVertexCapacity, int initialIndexCapacity) {
+        this.vertexCapacity = Math.max(initialVertexCapacity, 1);
+        this.indexCapacity = Math.max(initialIndexCapacity, 1);
+        this.vertexAddress = MemoryUtil.nmemAllocChecked((long) vertexCapacity * Vertex.SIZE);
+        this.indexAddress = MemoryUtil.nmemAllocChecked((long) indexCapacity * Integer.BYTES);
+    }
+
+    public MeshBuilder vertex(float x, float y, float r, float g, float b) {
+        ensureVertexCapacity(vertexCount + 1);
+        long address = vertexAddress + (long) vertexCount * Vertex.SIZE;
+        MemoryUtil.memPutFloat(address + Vertex.POSITION_OFFSET, x);
+        MemoryUtil.memPutFloat(address + Vertex.POSITION_OFFSET + Float.BYTES, y);
+        MemoryUtil.memPutFloat(address + Vertex.COLOR_OFFSET, r);
+        MemoryUtil.memPutFloat(address + Vertex.COLOR_OFFSET + Float.BYTES, g);
+        MemoryUtil.memPutFloat(address + Vertex.COLOR_OFFSET + 2 * Float.BYTES, b);
+        ++vertexCount;
+        return this;
+    }
+
+    //Interleaved x, y, r, g, b per vertex. length has to be a multiple of FLOATS_PER_VERTEX.
+    public MeshBuilder putVertices(float[] interleaved, int offset, int length) {
+        int count = checkVertexFloats(length);
+        ensureVertexCapacity(vertexCount + count);
+        MemoryUtil.memFloatBuffer(vertexAddress + (long) vertexCount * Vertex.SIZE, length).put(interleaved, offset, length);
+        vertexCount += count;
+        return this;
+    }
+
+    public MeshBuilder putVertices(float[] interleaved) {
+        return putVertices(interleaved, 0, interleaved.length);
+    }
+
+    //Copies the remaining floats of the buffer without changing its position. Direct buffers are copied with a single
+    // memCopy, heap buffers like FloatBuffer.wrap have no address and go through a put instead.
+    public MeshBuilder putVertices(FloatBuffer interleaved) {
+        int length = interleaved.remaining();
+        int count = checkVertexFloats(length);
+        ensureVertexCapacity(vertexCount + count);
+        long destination = vertexAddress + (long) vertexCount * Vertex.SIZE;
+        if (interleaved.isDirect()) {
+            MemoryUtil.memCopy(MemoryUtil.memAddress(interleaved), destination, (long) length * Float.BYTES);
+        } else {
+            MemoryUtil.memFloatBuffer(destination, length).put(interleaved.duplicate());
+        }
+        vertexCount += count;
+        return this;
+    }
+
+    public MeshBuilder index(int index) {
+        ensureIndexCapacity(indexCount + 1);
+        MemoryUtil.memPutInt(indexAddress + (long) indexCount * Integer.BYTES, index);
+        ++indexCount;
+        return this;
+    }
+
+    public MeshBuilder triangle(int a, int b, int c) {
+        ensureIndexCapacity(indexCount + 3);
+        long address = indexAddress + (long) indexCount * Integer.BYTES;
+        MemoryUtil.memPutInt(address, a);
+        MemoryUtil.memPutInt(address + Integer.BYTES, b);
+        MemoryUtil.memPutInt(address + 2 * Integer.BYTES, c);
+        indexCount += 3;
+        return this;
+    }
+
+    public MeshBuilder putIndices(int[] indices, int offset, int length) {
+        ensureIndexCapacity(indexCount + length);
+        MemoryUtil.memIntBuffer(indexAddress + (long) indexCount * Integer.BYTES, length).put(indices, offset, length);
+        indexCount += length;
+        return this;
+    }
+
+    public MeshBuilder putIndices(int[] indices) {
+        return putIndices(indices, 0, indices.length);
+    }
+
+    //Copies the remaining ints of the buffer without changing its position. Same as putVertices for heap buffers.
+    public MeshBuilder putIndices(IntBuffer indices) {
+        int length = indices.remaining();
+        ensureIndexCapacity(indexCount + length);
+        long destination = indexAddress + (long) indexCount * Integer.BYTES;
+        if (indices.isDirect()) {
+            MemoryUtil.memCopy(MemoryUtil.memAddress(indices), destination, (long) length * Integer.BYTES);
+        } else {
+            MemoryUtil.memIntBuffer(destination, length).put(indices.duplicate());
+        }
+        indexCount += length;
+        return this;
+    }
+
+    private static int checkVertexFloats(int length) {
+        if (length % FLOATS_PER_VERTEX != 0) {
+            throw new IllegalArgumentException(String.format("%d floats is not a whole number of vertices of %d floats", length, FLOATS_PER_VERTEX));
+        }
+        return length / FLOATS_PER_VERTEX;
+    }
+
+    //Grows by doubling so adding vertices one at a time stays amortized constant.
+    private void ensureVertexCapacity(int required) {
+        if (required > vertexCapacity) {
+            vertexCapacity = Math.max(required, vertexCapacity * 2);
+            vertexAddress = MemoryUtil.nmemReallocChecked(vertexAddress, (long) vertexCapacity * Vertex.SIZE);
+        }
+    }
+
+    private void ensureIndexCapacity(int required) {
+        if (required > indexCapacity) {
+            indexCapacity = Math.max(required, indexCapacity * 2);
+            indexAddress = MemoryUtil.nmemReallocChecked(indexAddress, (long) indexCapacity * Integer.BYTES);
+        }
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public int getVertexBytes() {
+        return Math.multiplyExact(vertexCount, Vertex.SIZE);
+    }
+
+    //16 bit indices halve the index buffer, we only need 32 bit ones once a vertex can't be addressed with 16 bits anymore.
+    public int getIndexType() {
+        return vertexCount <= MAX_UINT16_VERTICES ? VK10.VK_INDEX_TYPE_UINT16 : VK10.VK_INDEX_TYPE_UINT32;
+    }
+
+    public int getIndexBytes() {
+        return Math.multiplyExact(indexCount, getIndexType() == VK10.VK_INDEX_TYPE_UINT16 ? Short.BYTES : Integer.BYTES);
+    }
+
+    //destination has to have at least getVertexBytes() remaining, it is written from its position.
+    public void writeVertices(ByteBuffer destination) {
+        MemoryUtil.memCopy(vertexAddress, MemoryUtil.memAddress(destination), getVertexBytes());
+    }
+
+    //Indices can be added before the vertices they point at, so they are only checked against the vertex count here.
+    // Otherwise an index past the end would be silently narrowed to 16 bits, or read garbage on the gpu.
+    public void writeIndices(ByteBuffer destination) {
+        for (int i = 0; i < indexCount; ++i) {
+            int index = MemoryUtil.memGetInt(indexAddress + (long) i * Integer.BYTES);
+            if (index < 0 || index >= vertexCount) {
+                throw new IllegalStateException(String.format("Index %d at position %d is out of range for a mesh of %d vertices", index, i, vertexCount));
+            }
+        }
+        long destinationAddress = MemoryUtil.memAddress(destination);
+        if (getIndexType() == VK10.VK_INDEX_TYPE_UINT32) {
+            MemoryUtil.memCopy(indexAddress, destinationAddress, getIndexBytes());
+            return;
+        }
+        for (int i = 0; i < indexCount; ++i) {
+            MemoryUtil.memPutShort(destinationAddress + (long) i * Short.BYTES,
+                    (short) MemoryUtil.memGetInt(indexAddress + (long) i * Integer.BYTES));
+        }
+    }
+
+    public void free() {
+        MemoryUtil.nmemFree(vertexAddress);
+        MemoryUtil.nmemFree(indexAddress);
+    }
+}
@@ -1,5 +1,6 @@
 package my.game.init.vulkan.drawing.transformation;
 
+import com.google.common.collect.ImmutableList;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.VK10;
 import org.lwjgl.vulkan.VkDescriptorSetLayoutBinding;
@@ -7,27 +8,35 @@ import org.lwjgl.vulkan.VkDescriptorSetLayoutCreateInfo;
 import org.lwjgl.vulkan.VkDevice;
 
 import java.nio.LongBuffer;
+import java.util.List;
 
+//Created from the bindings reflected out of the shaders. Get these from the LayoutCache so that every pipeline
+// declaring the same bindings shares one layout, which also keeps their descriptor sets interchangeable.
 public class DescriptorSetLayout {
 
-    private long handle;
-    private VkDevice device;
+    private final long handle;
+    private final VkDevice device;
+    private final List<Binding> bindings;
 
-    public DescriptorSetLayout(VkDevice device) {
+    public DescriptorSetLayout(VkDevice device, List<Binding> bindings) {
         this.device = device;
+        this.bindings = ImmutableList.copyOf(bindings);
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
-            VkDescriptorSetLayoutBinding.Buffer uniformBufferObjectLayoutBinding = VkDescriptorSetLayoutBinding.calloc(1, memoryStack);
-            uniformBufferObjectLayoutBinding.get(0)
-                    .binding(0)
-                    .descriptorType(VK10.VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER)
-                    .descriptorCount(1)
-                    .stageFlags(VK10.VK_SHADER_STAGE_VERTEX_BIT)
-                    .pImmutableSamplers(null);
+            VkDescriptorSetLayoutBinding.Buffer layoutBindings = VkDescriptorSetLayoutBinding.calloc(bindings.size(), memoryStack);
+            for (int i = 0; i < bindings.size(); ++i) {
+                Binding binding = bindings.get(i);
+                layoutBindings.get(i)
+                        .binding(binding.binding())
+                        .descriptorType(binding.descriptorType())
+                        .descriptorCount(binding.descriptorCount())
+                        .stageFlags(binding.stageFlags())
+                        .pImmutableSamplers(null);
+            }
 
             VkDescriptorSetLayoutCreateInfo descriptorSetLayoutCreateInfo = VkDescriptorSetLayoutCreateInfo.calloc(memoryStack);
             descriptorSetLayoutCreateInfo
                     .sType(VK10.VK_STRUCTURE_TYPE_DESCRIPTOR_SET_LAYOUT_CREATE_INFO)
-                    .pBindings(uniformBufferObjectLayoutBinding);
+                    .pBindings(layoutBindings);
 
             LongBuffer descriptorSetLayoutBuffer = memoryStack.mallocLong(1);
             int result = VK10.vkCreateDescriptorSetLayout(device, descriptorSetLayoutCreateInfo, null, descriptorSetLayoutBuffer);
@@ -42,7 +51,14 @@ public class DescriptorSetLayout {
         return handle;
     }
 
+    public List<Binding> getBindings() {
+        return bindings;
+    }
+
     public void free() {
         VK10.vkDestroyDescriptorSetLayout(device, handle, null);
     }
+
+    public record Binding(int binding, int descriptorType, int descriptorCount, int stageFlags) {
+    }
 }
@@ -0,0 +1,63 @@
+package my.game.init.vulkan.drawing.transformation;
+
+import com.google.common.collect.ImmutableList;
+import my.game.init.vulkan.devices.physical.DeviceLimits;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VkPushConstantRange;
+
+import java.util.List;
+
+//The push constant ranges a pipeline layout is created with. Lives next to the DescriptorSetLayout since together they
+// make up everything a shader can read besides its vertex input.
+public class PushConstantLayout {
+    public static final PushConstantLayout NONE = new PushConstantLayout(List.of());
+
+    private final List<Range> ranges;
+    private final int size;
+
+    public PushConstantLayout(List<Range> ranges) {
+        this.ranges = ImmutableList.copyOf(ranges);
+        int end = 0;
+        for (Range range : ranges) {
+            //Offsets and sizes of push constant ranges have to be multiples of 4.
+            if (range.offset() % 4 != 0 || range.size() % 4 != 0) {
+                throw new IllegalArgumentException(String.format("Push constant range at offset %d with size %d is not 4 byte aligned", range.offset(), range.size()));
+            }
+            end = Math.max(end, range.offset() + range.size());
+        }
+        this.size = end;
+    }
+
+    public void validate(DeviceLimits deviceLimits) {
+        if (size > deviceLimits.getMaxPushConstantsSize()) {
+            throw new IllegalStateException(String.format("Push constants need %d bytes but the device only supports %d", size, deviceLimits.getMaxPushConstantsSize()));
+        }
+    }
+
+    //Returns null when there are no ranges, which is what pPushConstantRanges expects in that case.
+    public VkPushConstantRange.Buffer toVkPushConstantRanges(MemoryStack memoryStack) {
+        if (ranges.isEmpty()) {
+            return null;
+        }
+        VkPushConstantRange.Buffer pushConstantRanges = VkPushConstantRange.calloc(ranges.size(), memoryStack);
+        for (int i = 0; i < ranges.size(); ++i) {
+            Range range = ranges.get(i);
+            pushConstantRanges.get(i)
+                    .stageFlags(range.stageFlags())
+                    .offset(range.offset())
+                    .size(range.size());
+        }
+        return pushConstantRanges;
+    }
+
+    public List<Range> getRanges() {
+        return ranges;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public record Range(int stageFlags, int offset, int size) {
+    }
+}
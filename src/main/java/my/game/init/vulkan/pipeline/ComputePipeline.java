@@ -0,0 +1,104 @@
+package my.game.init.vulkan.pipeline;
+
+import my.game.init.vulkan.pipeline.shaders.ShaderInterface;
+import my.game.init.vulkan.pipeline.shaders.ShaderModule;
+import my.game.init.vulkan.pipeline.shaders.ShaderPack;
+import my.game.init.vulkan.pipeline.shaders.ShaderReflection;
+import my.game.init.vulkan.pipeline.shaders.SpecializationConstants;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkComputePipelineCreateInfo;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkPipelineShaderStageCreateInfo;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+//A single compute shader. The layout is reflected from it like for graphics pipelines and comes from the same LayoutCache,
+// so a compute pipeline and a graphics pipeline that declare the same sets can share descriptor sets.
+// There is no render pass or fixed function state, so unlike graphics pipelines these never need to be rebuilt.
+public class ComputePipeline {
+    private final VkDevice device;
+    private final long computePipelinePointer;
+    private final String shaderName;
+    private final PipelineLayout pipelineLayout;
+    private final ShaderInterface shaderInterface;
+
+    public ComputePipeline(final VkDevice device, final LayoutCache layoutCache, final ShaderPack shaderPack, final String shaderName,
+                           final SpecializationConstants specializationConstants, final PipelineCache pipelineCache) {
+        this.device = device;
+        this.shaderName = shaderName;
+        ByteBuffer code = shaderPack.getCode(shaderName);
+        this.shaderInterface = ShaderReflection.reflect(shaderName, code);
+        if (shaderInterface.getStageFlags() != VK10.VK_SHADER_STAGE_COMPUTE_BIT) {
+            throw new IllegalStateException(String.format("Shader %s is not a compute shader", shaderName));
+        }
+        specializationConstants.validate(shaderInterface, shaderName);
+        this.pipelineLayout = layoutCache.getPipelineLayout(shaderInterface);
+        ShaderModule computeShader = new ShaderModule(device, shaderName, code);
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkPipelineShaderStageCreateInfo shaderStageCreateInfo = VkPipelineShaderStageCreateInfo.calloc(memoryStack);
+            shaderStageCreateInfo
+                    .sType(VK10.VK_STRUCTURE_TYPE_PIPELINE_SHADER_STAGE_CREATE_INFO)
+                    .stage(VK10.VK_SHADER_STAGE_COMPUTE_BIT)
+                    .module(computeShader.getShaderModulePointer())
+                    .pName(memoryStack.UTF8("main"))
+                    .pSpecializationInfo(specializationConstants.toSpecializationInfo(memoryStack));
+            VkComputePipelineCreateInfo.Buffer computePipelineCreateInfo = VkComputePipelineCreateInfo.calloc(1, memoryStack);
+            computePipelineCreateInfo
+                    .sType(VK10.VK_STRUCTURE_TYPE_COMPUTE_PIPELINE_CREATE_INFO)
+                    .stage(shaderStageCreateInfo)
+                    .layout(pipelineLayout.getHandle())
+                    .basePipelineHandle(VK10.VK_NULL_HANDLE)
+                    .basePipelineIndex(-1);
+            LongBuffer computePipelinePointerBuffer = memoryStack.mallocLong(1);
+            long createStart = System.nanoTime();
+            int result = VK10.vkCreateComputePipelines(device, pipelineCache.getPipelineCacheHandle(), computePipelineCreateInfo, null, computePipelinePointerBuffer);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to create compute pipeline for %s. Error code %d", shaderName, result));
+            }
+            System.out.printf("Created compute pipeline [%s] in %.2f ms (%s pipeline cache)%n", shaderName,
+                    (System.nanoTime() - createStart) / 1_000_000.0, pipelineCache.isWarm() ? "warm" : "cold");
+            computePipelinePointer = computePipelinePointerBuffer.get(0);
+        } finally {
+            computeShader.free();
+        }
+    }
+
+    //Number of workgroups needed to cover the given number of invocations in each dimension.
+    public int groupCountX(int invocations) {
+        return divideRoundingUp(invocations, shaderInterface.getWorkgroupSize().x());
+    }
+
+    public int groupCountY(int invocations) {
+        return divideRoundingUp(invocations, shaderInterface.getWorkgroupSize().y());
+    }
+
+    public int groupCountZ(int invocations) {
+        return divideRoundingUp(invocations, shaderInterface.getWorkgroupSize().z());
+    }
+
+    private static int divideRoundingUp(int invocations, int size) {
+        return (invocations + size - 1) / size;
+    }
+
+    public long getComputePipelinePointer() {
+        return computePipelinePointer;
+    }
+
+    public String getShaderName() {
+        return shaderName;
+    }
+
+    public PipelineLayout getPipelineLayout() {
+        return pipelineLayout;
+    }
+
+    public ShaderInterface getShaderInterface() {
+        return shaderInterface;
+    }
+
+    public void free() {
+        VK10.vkDestroyPipeline(device, computePipelinePointer, null);
+    }
+}
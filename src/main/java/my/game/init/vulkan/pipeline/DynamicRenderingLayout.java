@@ -0,0 +1,46 @@
+package my.game.init.vulkan.pipeline;
+
+import my.game.init.vulkan.swapchain.SwapChain;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.KHRDynamicRendering;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkGraphicsPipelineCreateInfo;
+import org.lwjgl.vulkan.VkPipelineRenderingCreateInfoKHR;
+
+//With VK_KHR_dynamic_rendering a pipeline only has to know the formats it renders into, there is no render pass object
+// and no framebuffers. Nothing here depends on the swap chain's size, so a resize never touches the pipelines.
+public record DynamicRenderingLayout(int colorFormat) implements RenderTargetLayout {
+
+    public DynamicRenderingLayout(SwapChain swapChain) {
+        this(swapChain.getSurfaceFormat().format());
+    }
+
+    @Override
+    public void configure(VkGraphicsPipelineCreateInfo graphicsPipelineCreateInfo, MemoryStack memoryStack) {
+        VkPipelineRenderingCreateInfoKHR pipelineRenderingCreateInfo = VkPipelineRenderingCreateInfoKHR.calloc(memoryStack);
+        pipelineRenderingCreateInfo
+                .sType(KHRDynamicRendering.VK_STRUCTURE_TYPE_PIPELINE_RENDERING_CREATE_INFO_KHR)
+                .pColorAttachmentFormats(memoryStack.ints(colorFormat))
+                //The formats are optional, so lwjgl leaves setting the count to us.
+                .colorAttachmentCount(1);
+        graphicsPipelineCreateInfo
+                .pNext(pipelineRenderingCreateInfo)
+                .renderPass(VK10.VK_NULL_HANDLE)
+                .subpass(0);
+    }
+
+    //Only a different surface format, like moving the window to a high dynamic range monitor, needs new pipelines.
+    @Override
+    public DynamicRenderingLayout validateSwapChain(SwapChain newSwapChain) {
+        if (colorFormat != newSwapChain.getSurfaceFormat().format()) {
+            return new DynamicRenderingLayout(newSwapChain);
+        } else {
+            return this;
+        }
+    }
+
+    //No vulkan object behind it.
+    @Override
+    public void free() {
+    }
+}
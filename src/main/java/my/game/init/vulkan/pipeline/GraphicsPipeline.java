@@ -1,10 +1,11 @@
 package my.game.init.vulkan.pipeline;
 
 import com.google.common.collect.ImmutableList;
-import my.game.init.vulkan.drawing.transformation.DescriptorSetLayout;
-import my.game.init.vulkan.pipeline.shaders.LoadedShader;
+import my.game.init.vulkan.pipeline.shaders.ShaderInterface;
 import my.game.init.vulkan.pipeline.shaders.ShaderModule;
-import my.game.init.vulkan.struct.Vertex;
+import my.game.init.vulkan.pipeline.shaders.ShaderPack;
+import my.game.init.vulkan.pipeline.shaders.ShaderReflection;
+import my.game.init.vulkan.struct.VertexLayout;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.VK10;
 import org.lwjgl.vulkan.VkDevice;
@@ -13,12 +14,12 @@ import org.lwjgl.vulkan.VkPipelineColorBlendAttachmentState;
 import org.lwjgl.vulkan.VkPipelineColorBlendStateCreateInfo;
 import org.lwjgl.vulkan.VkPipelineDynamicStateCreateInfo;
 import org.lwjgl.vulkan.VkPipelineInputAssemblyStateCreateInfo;
-import org.lwjgl.vulkan.VkPipelineLayoutCreateInfo;
 import org.lwjgl.vulkan.VkPipelineMultisampleStateCreateInfo;
 import org.lwjgl.vulkan.VkPipelineRasterizationStateCreateInfo;
 import org.lwjgl.vulkan.VkPipelineShaderStageCreateInfo;
 import org.lwjgl.vulkan.VkPipelineVertexInputStateCreateInfo;
 import org.lwjgl.vulkan.VkPipelineViewportStateCreateInfo;
+import org.lwjgl.vulkan.VkSpecializationInfo;
 import org.lwjgl.vulkan.VkVertexInputAttributeDescription;
 import org.lwjgl.vulkan.VkVertexInputBindingDescription;
 
@@ -26,41 +27,49 @@ import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.util.List;
 
+//Create these through the PipelineRegistry, which deduplicates them and can build them off the render thread.
 public class GraphicsPipeline {
     private final VkDevice device;
-    private final Long pipelineLayoutPointer;
     private final Long graphicsPipelinePointer;
-    private final RenderPass renderPass;
+    private final RenderTargetLayout renderTargetLayout;
+    private final PipelineLayout pipelineLayout;
+    private final ShaderInterface shaderInterface;
+    private final PipelineState state;
 
     List<Integer> dynamicStates = ImmutableList.of(
             VK10.VK_DYNAMIC_STATE_VIEWPORT,
             VK10.VK_DYNAMIC_STATE_SCISSOR
     );
 
-    public GraphicsPipeline(final VkDevice device, final RenderPass renderPass, final DescriptorSetLayout descriptorSetLayout) {
+    //Descriptor set layouts, push constant ranges and vertex input all come from reflecting the compiled shaders.
+    public GraphicsPipeline(final VkDevice device, final RenderTargetLayout renderTargetLayout, final LayoutCache layoutCache,
+                            final ShaderPack shaderPack, final PipelineState state, final PipelineCache pipelineCache) {
         this.device = device;
-        this.renderPass = renderPass;
-        LoadedShader loadedVertex = new LoadedShader("shaders/compiled/basic.vert.spv");
-        ShaderModule vertexShader = new ShaderModule(device, loadedVertex);
-        loadedVertex.free();
-        LoadedShader loadedFragment = new LoadedShader("shaders/compiled/basic.frag.spv");
-        ShaderModule fragmentShader = new ShaderModule(device, loadedFragment);
-        loadedFragment.free();
+        this.renderTargetLayout = renderTargetLayout;
+        this.state = state;
+        this.shaderInterface = reflect(shaderPack, state);
+        state.specializationConstants().validate(shaderInterface, state.toString());
+        ShaderModule vertexShader = new ShaderModule(device, state.vertexShader(), shaderPack.getCode(state.vertexShader()));
+        ShaderModule fragmentShader = new ShaderModule(device, state.fragmentShader(), shaderPack.getCode(state.fragmentShader()));
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            //Both stages get all the constants, ids a stage does not declare are ignored for it.
+            VkSpecializationInfo specializationInfo = state.specializationConstants().toSpecializationInfo(memoryStack);
             VkPipelineShaderStageCreateInfo.Buffer shaderStageCreateInfoBuffer = VkPipelineShaderStageCreateInfo.malloc(2, memoryStack);
             VkPipelineShaderStageCreateInfo vertexShaderStageInfo = VkPipelineShaderStageCreateInfo.calloc(memoryStack);
             vertexShaderStageInfo
                     .sType(VK10.VK_STRUCTURE_TYPE_PIPELINE_SHADER_STAGE_CREATE_INFO)
                     .stage(VK10.VK_SHADER_STAGE_VERTEX_BIT)
                     .module(vertexShader.getShaderModulePointer())
-                    .pName(memoryStack.UTF8("main"));
+                    .pName(memoryStack.UTF8("main"))
+                    .pSpecializationInfo(specializationInfo);
             shaderStageCreateInfoBuffer.put(vertexShaderStageInfo);
             VkPipelineShaderStageCreateInfo fragmentShaderStageInfo = VkPipelineShaderStageCreateInfo.calloc(memoryStack);
             fragmentShaderStageInfo
                     .sType(VK10.VK_STRUCTURE_TYPE_PIPELINE_SHADER_STAGE_CREATE_INFO)
                     .stage(VK10.VK_SHADER_STAGE_FRAGMENT_BIT)
                     .module(fragmentShader.getShaderModulePointer())
-                    .pName(memoryStack.UTF8("main"));
+                    .pName(memoryStack.UTF8("main"))
+                    .pSpecializationInfo(specializationInfo);
             shaderStageCreateInfoBuffer.put(fragmentShaderStageInfo);
             shaderStageCreateInfoBuffer.flip();
 
@@ -74,25 +83,10 @@ public class GraphicsPipeline {
                     .sType(VK10.VK_STRUCTURE_TYPE_PIPELINE_DYNAMIC_STATE_CREATE_INFO)
                     .pDynamicStates(pDynamicStates);
 
-            //TODO refactor graphics pipeline. Too much in one place. Also attribute and binding description rewrite immediately
+            //TODO refactor graphics pipeline. Too much in one place.
 
-            VkVertexInputBindingDescription.Buffer bindingDescriptions = VkVertexInputBindingDescription.calloc(1, memoryStack);
-            bindingDescriptions.get(0)
-                    .binding(0)
-                    .stride(Vertex.SIZE)
-                    .inputRate(VK10.VK_VERTEX_INPUT_RATE_VERTEX);
-
-            VkVertexInputAttributeDescription.Buffer attributeDescriptions = VkVertexInputAttributeDescription.calloc(2, memoryStack);
-            attributeDescriptions.get(0)
-                    .binding(0)
-                    .location(0)
-                    .format(VK10.VK_FORMAT_R32G32_SFLOAT)
-                    .offset(Vertex.POSITION_OFFSET);
-            attributeDescriptions.get(1)
-                    .binding(0)
-                    .location(1)
-                    .format(VK10.VK_FORMAT_R32G32B32_SFLOAT)
-                    .offset(Vertex.COLOR_OFFSET);
+            VkVertexInputAttributeDescription.Buffer attributeDescriptions = toAttributeDescriptions(shaderInterface.getVertexInputs(), memoryStack);
+            VkVertexInputBindingDescription.Buffer bindingDescriptions = VertexLayout.bindingDescriptions(0, memoryStack);
 
             VkPipelineVertexInputStateCreateInfo vertexInputStateCreateInfo = VkPipelineVertexInputStateCreateInfo.calloc(memoryStack);
             vertexInputStateCreateInfo
@@ -103,7 +97,7 @@ public class GraphicsPipeline {
             VkPipelineInputAssemblyStateCreateInfo inputAssemblyStateCreateInfo = VkPipelineInputAssemblyStateCreateInfo.calloc(memoryStack);
             inputAssemblyStateCreateInfo
                     .sType(VK10.VK_STRUCTURE_TYPE_PIPELINE_INPUT_ASSEMBLY_STATE_CREATE_INFO)
-                    .topology(VK10.VK_PRIMITIVE_TOPOLOGY_TRIANGLE_LIST)
+                    .topology(state.topology())
                     .primitiveRestartEnable(false);
 
             VkPipelineViewportStateCreateInfo viewportStateCreateInfo = VkPipelineViewportStateCreateInfo.calloc(memoryStack);
@@ -117,10 +111,10 @@ public class GraphicsPipeline {
                     .sType(VK10.VK_STRUCTURE_TYPE_PIPELINE_RASTERIZATION_STATE_CREATE_INFO)
                     .depthClampEnable(false)
                     .rasterizerDiscardEnable(false)
-                    .polygonMode(VK10.VK_POLYGON_MODE_FILL)
+                    .polygonMode(state.polygonMode())
                     .lineWidth(1.0f)
-                    .cullMode(VK10.VK_CULL_MODE_BACK_BIT)
-                    .frontFace(VK10.VK_FRONT_FACE_CLOCKWISE)
+                    .cullMode(state.cullMode())
+                    .frontFace(state.frontFace())
                     .depthBiasEnable(false)
                     .depthBiasConstantFactor(0.0f)
                     .depthBiasClamp(0.0f)
@@ -141,7 +135,16 @@ public class GraphicsPipeline {
             VkPipelineColorBlendAttachmentState colorBlendAttachment = VkPipelineColorBlendAttachmentState.calloc(memoryStack);
             colorBlendAttachment
                     .colorWriteMask(VK10.VK_COLOR_COMPONENT_R_BIT | VK10.VK_COLOR_COMPONENT_G_BIT | VK10.VK_COLOR_COMPONENT_B_BIT | VK10.VK_COLOR_COMPONENT_A_BIT)
-                    .blendEnable(false);
+                    .blendEnable(state.blendMode() != PipelineState.BlendMode.OPAQUE);
+            if (state.blendMode() == PipelineState.BlendMode.ALPHA) {
+                colorBlendAttachment
+                        .srcColorBlendFactor(VK10.VK_BLEND_FACTOR_SRC_ALPHA)
+                        .dstColorBlendFactor(VK10.VK_BLEND_FACTOR_ONE_MINUS_SRC_ALPHA)
+                        .colorBlendOp(VK10.VK_BLEND_OP_ADD)
+                        .srcAlphaBlendFactor(VK10.VK_BLEND_FACTOR_ONE)
+                        .dstAlphaBlendFactor(VK10.VK_BLEND_FACTOR_ZERO)
+                        .alphaBlendOp(VK10.VK_BLEND_OP_ADD);
+            }
             colorBlendAttachmentBuffer.put(colorBlendAttachment);
             colorBlendAttachmentBuffer.flip();
 
@@ -156,21 +159,7 @@ public class GraphicsPipeline {
                     .blendConstants(2, 0.0f)
                     .blendConstants(3, 0.0f);
 
-            LongBuffer pPipelineLayout = memoryStack.mallocLong(1);
-            VkPipelineLayoutCreateInfo pipelineLayoutInfo = VkPipelineLayoutCreateInfo.calloc(memoryStack);
-            LongBuffer layouts = memoryStack.mallocLong(1);
-            layouts.put(descriptorSetLayout.getHandle());
-            layouts.flip();
-            pipelineLayoutInfo
-                    .sType(VK10.VK_STRUCTURE_TYPE_PIPELINE_LAYOUT_CREATE_INFO)
-                    .pSetLayouts(layouts)
-                    .setLayoutCount(layouts.capacity())
-                    .pPushConstantRanges(null);
-            int result = VK10.vkCreatePipelineLayout(device, pipelineLayoutInfo, null, pPipelineLayout);
-            if (result != VK10.VK_SUCCESS) {
-                throw new IllegalStateException(String.format("Failed to create pipeline layout. Error code: %d", result));
-            }
-            pipelineLayoutPointer = pPipelineLayout.get(0);
+            pipelineLayout = layoutCache.getPipelineLayout(shaderInterface);
             VkGraphicsPipelineCreateInfo.Buffer graphicsPipelineCreateInfoBuffer = VkGraphicsPipelineCreateInfo.malloc(1, memoryStack);
             VkGraphicsPipelineCreateInfo graphicsPipelineCreateInfo = VkGraphicsPipelineCreateInfo.calloc(memoryStack);
             graphicsPipelineCreateInfo
@@ -184,18 +173,20 @@ public class GraphicsPipeline {
                     .pDepthStencilState(null)
                     .pColorBlendState(colorBlendStateCreateInfo)
                     .pDynamicState(dynamicStateCreateInfo)
-                    .layout(pipelineLayoutPointer)
-                    .renderPass(renderPass.getRenderPassPointer())
-                    .subpass(0)
+                    .layout(pipelineLayout.getHandle())
                     .basePipelineHandle(VK10.VK_NULL_HANDLE)
                     .basePipelineIndex(-1);
+            renderTargetLayout.configure(graphicsPipelineCreateInfo, memoryStack);
             graphicsPipelineCreateInfoBuffer.put(graphicsPipelineCreateInfo);
             graphicsPipelineCreateInfoBuffer.flip();
             LongBuffer graphicsPipelinePointerBuffer = memoryStack.mallocLong(1);
-            int graphicsPipelineResult = VK10.vkCreateGraphicsPipelines(device, VK10.VK_NULL_HANDLE, graphicsPipelineCreateInfoBuffer, null, graphicsPipelinePointerBuffer);
+            long createStart = System.nanoTime();
+            int graphicsPipelineResult = VK10.vkCreateGraphicsPipelines(device, pipelineCache.getPipelineCacheHandle(), graphicsPipelineCreateInfoBuffer, null, graphicsPipelinePointerBuffer);
             if (graphicsPipelineResult != VK10.VK_SUCCESS) {
                 throw new IllegalStateException(String.format("Failed to create graphics pipeline. Error code %d", graphicsPipelineResult));
             }
+            System.out.printf("Created graphics pipeline [%s + %s] in %.2f ms (%s pipeline cache)%n", state.vertexShader(), state.fragmentShader(),
+                    (System.nanoTime() - createStart) / 1_000_000.0, pipelineCache.isWarm() ? "warm" : "cold");
             graphicsPipelinePointer = graphicsPipelinePointerBuffer.get(0);
         } finally {
             vertexShader.free();
@@ -203,12 +194,46 @@ public class GraphicsPipeline {
         }
     }
 
-    public GraphicsPipeline validateRenderPass(final VkDevice device, final RenderPass renderPass, final DescriptorSetLayout descriptorSetLayout) {
-        if (renderPass != this.renderPass) {
-            free();
-            return new GraphicsPipeline(device, renderPass, descriptorSetLayout);
+    //The shader inputs are laid out back to back in location order, which is how the vertex structs are written.
+    // Checked against the Vertex layout so a shader and the vertex buffers can not silently drift apart.
+    private VkVertexInputAttributeDescription.Buffer toAttributeDescriptions(List<ShaderInterface.VertexInput> vertexInputs, MemoryStack memoryStack) {
+        VkVertexInputAttributeDescription.Buffer attributeDescriptions = VkVertexInputAttributeDescription.calloc(vertexInputs.size(), memoryStack);
+        VkVertexInputAttributeDescription.Buffer vertexLayout = VertexLayout.attributeDescriptions(0, 0, memoryStack);
+        int offset = 0;
+        for (int i = 0; i < vertexInputs.size(); ++i) {
+            ShaderInterface.VertexInput vertexInput = vertexInputs.get(i);
+            if (i >= vertexLayout.capacity() || vertexLayout.get(i).location() != vertexInput.location()
+                    || vertexLayout.get(i).format() != vertexInput.format() || vertexLayout.get(i).offset() != offset) {
+                throw new IllegalStateException(String.format("Vertex input %s at location %d of %s does not match the Vertex struct",
+                        vertexInput.name(), vertexInput.location(), state.vertexShader()));
+            }
+            attributeDescriptions.get(i)
+                    .binding(0)
+                    .location(vertexInput.location())
+                    .format(vertexInput.format())
+                    .offset(offset);
+            offset += formatSize(vertexInput.format());
         }
-        return this;
+        return attributeDescriptions;
+    }
+
+    private static int formatSize(int format) {
+        return switch (format) {
+            case VK10.VK_FORMAT_R32_SFLOAT, VK10.VK_FORMAT_R32_SINT, VK10.VK_FORMAT_R32_UINT -> 4;
+            case VK10.VK_FORMAT_R32G32_SFLOAT, VK10.VK_FORMAT_R32G32_SINT, VK10.VK_FORMAT_R32G32_UINT -> 8;
+            case VK10.VK_FORMAT_R32G32B32_SFLOAT, VK10.VK_FORMAT_R32G32B32_SINT, VK10.VK_FORMAT_R32G32B32_UINT -> 12;
+            default -> 16;
+        };
+    }
+
+    //Reflection only needs the shader code, so the layout of a pipeline is known before it has been built.
+    public static ShaderInterface reflect(ShaderPack shaderPack, PipelineState state) {
+        return ShaderReflection.reflect(state.vertexShader(), shaderPack.getCode(state.vertexShader()))
+                .merge(ShaderReflection.reflect(state.fragmentShader(), shaderPack.getCode(state.fragmentShader())));
+    }
+
+    public boolean usesShader(String shaderName) {
+        return state.usesShader(shaderName);
     }
 
     public Long getGraphicsPipelinePointer() {
@@ -216,11 +241,26 @@ public class GraphicsPipeline {
     }
 
     public Long getPipelineLayoutPointer() {
-        return pipelineLayoutPointer;
+        return pipelineLayout.getHandle();
+    }
+
+    public PipelineLayout getPipelineLayout() {
+        return pipelineLayout;
+    }
+
+    public PipelineState getState() {
+        return state;
+    }
+
+    public RenderTargetLayout getRenderTargetLayout() {
+        return renderTargetLayout;
+    }
+
+    public ShaderInterface getShaderInterface() {
+        return shaderInterface;
     }
 
     public void free() {
         VK10.vkDestroyPipeline(device, graphicsPipelinePointer, null);
-        VK10.vkDestroyPipelineLayout(device, pipelineLayoutPointer, null);
     }
 }
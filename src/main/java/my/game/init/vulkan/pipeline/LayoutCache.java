@@ -0,0 +1,85 @@
+package my.game.init.vulkan.pipeline;
+
+import my.game.init.vulkan.devices.physical.DeviceLimits;
+import my.game.init.vulkan.drawing.transformation.DescriptorSetLayout;
+import my.game.init.vulkan.drawing.transformation.PushConstantLayout;
+import my.game.init.vulkan.pipeline.shaders.ShaderInterface;
+import org.lwjgl.vulkan.VkDevice;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Hands out one VkDescriptorSetLayout per distinct set of bindings and one VkPipelineLayout per distinct combination of
+// set layouts and push constant ranges. Pipelines built from shaders with the same interface therefore share layouts,
+// so binding descriptor sets or pushing constants stays valid across pipeline switches and reloads.
+// Synchronized since pipelines get built on the hot reload thread too. Everything lives until free.
+public class LayoutCache {
+    private final VkDevice device;
+    private final DeviceLimits deviceLimits;
+    private final Map<List<DescriptorSetLayout.Binding>, DescriptorSetLayout> descriptorSetLayouts = new HashMap<>();
+    private final Map<PipelineLayoutKey, PipelineLayout> pipelineLayouts = new HashMap<>();
+    private int hits = 0;
+    private int misses = 0;
+
+    public LayoutCache(VkDevice device, DeviceLimits deviceLimits) {
+        this.device = device;
+        this.deviceLimits = deviceLimits;
+    }
+
+    //Sets the shaders skip still get an empty layout, set numbers in the pipeline layout are positional.
+    public synchronized PipelineLayout getPipelineLayout(ShaderInterface shaderInterface) {
+        List<DescriptorSetLayout> setLayouts = new ArrayList<>();
+        for (int set = 0; set < shaderInterface.getSetCount(); ++set) {
+            setLayouts.add(getDescriptorSetLayout(toLayoutBindings(shaderInterface.getBindings(set))));
+        }
+        PushConstantLayout pushConstantLayout = shaderInterface.getPushConstantLayout();
+        PipelineLayoutKey key = new PipelineLayoutKey(setLayouts.stream().map(DescriptorSetLayout::getHandle).toList(),
+                pushConstantLayout.getRanges());
+        PipelineLayout pipelineLayout = pipelineLayouts.get(key);
+        if (pipelineLayout != null) {
+            ++hits;
+            return pipelineLayout;
+        }
+        ++misses;
+        pushConstantLayout.validate(deviceLimits);
+        pipelineLayout = new PipelineLayout(device, setLayouts, pushConstantLayout);
+        pipelineLayouts.put(key, pipelineLayout);
+        return pipelineLayout;
+    }
+
+    public synchronized DescriptorSetLayout getDescriptorSetLayout(List<DescriptorSetLayout.Binding> bindings) {
+        DescriptorSetLayout descriptorSetLayout = descriptorSetLayouts.get(bindings);
+        if (descriptorSetLayout != null) {
+            ++hits;
+            return descriptorSetLayout;
+        }
+        ++misses;
+        descriptorSetLayout = new DescriptorSetLayout(device, bindings);
+        descriptorSetLayouts.put(List.copyOf(bindings), descriptorSetLayout);
+        return descriptorSetLayout;
+    }
+
+    private static List<DescriptorSetLayout.Binding> toLayoutBindings(List<ShaderInterface.Binding> bindings) {
+        return bindings.stream()
+                .map(binding -> new DescriptorSetLayout.Binding(binding.binding(), binding.descriptorType(),
+                        binding.descriptorCount(), binding.stageFlags()))
+                .toList();
+    }
+
+    public synchronized String getStatistics() {
+        return String.format("%d descriptor set layouts, %d pipeline layouts, %d hits, %d misses",
+                descriptorSetLayouts.size(), pipelineLayouts.size(), hits, misses);
+    }
+
+    public synchronized void free() {
+        pipelineLayouts.values().forEach(PipelineLayout::free);
+        pipelineLayouts.clear();
+        descriptorSetLayouts.values().forEach(DescriptorSetLayout::free);
+        descriptorSetLayouts.clear();
+    }
+
+    private record PipelineLayoutKey(List<Long> setLayoutHandles, List<PushConstantLayout.Range> pushConstantRanges) {
+    }
+}
@@ -0,0 +1,153 @@
+package my.game.init.vulkan.pipeline;
+
+import my.game.init.vulkan.devices.physical.DeviceIdentity;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkPipelineCacheCreateInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+//A VkPipelineCache that is loaded from disk at startup and written back on shutdown, so the driver does not have to
+// compile every pipeline from scratch on each launch. One cache is shared by all pipeline creation.
+// The blob is only handed to the driver when its header says it was written by the same device and driver,
+// otherwise we start with an empty cache.
+public class PipelineCache {
+    //headerSize, headerVersion, vendorID, deviceID and then the pipelineCacheUUID.
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + VK10.VK_UUID_SIZE;
+
+    private final VkDevice device;
+    private final Path path;
+    private final long pipelineCacheHandle;
+    private final boolean warm;
+
+    public PipelineCache(VkDevice device, DeviceIdentity deviceIdentity, Path path) {
+        this.device = device;
+        this.path = path;
+        long loadStart = System.nanoTime();
+        ByteBuffer initialData = load(path, deviceIdentity);
+        this.warm = initialData != null;
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkPipelineCacheCreateInfo pipelineCacheCreateInfo = VkPipelineCacheCreateInfo.calloc(memoryStack);
+            pipelineCacheCreateInfo
+                    .sType(VK10.VK_STRUCTURE_TYPE_PIPELINE_CACHE_CREATE_INFO)
+                    .pInitialData(initialData);
+            LongBuffer pipelineCacheBuffer = memoryStack.mallocLong(1);
+            int result = VK10.vkCreatePipelineCache(device, pipelineCacheCreateInfo, null, pipelineCacheBuffer);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to create pipeline cache. Error code: %d", result));
+            }
+            pipelineCacheHandle = pipelineCacheBuffer.get(0);
+        } finally {
+            MemoryUtil.memFree(initialData);
+        }
+        System.out.printf("Pipeline cache %s in %.2f ms (%s)%n", warm ? "loaded" : "started empty",
+                (System.nanoTime() - loadStart) / 1_000_000.0, path);
+    }
+
+    //Returns null when there is no usable cache on disk.
+    private static ByteBuffer load(Path path, DeviceIdentity deviceIdentity) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        byte[] data;
+        try {
+            data = Files.readAllBytes(path);
+        } catch (IOException e) {
+            System.out.printf("Failed to read pipeline cache %s. %s%n", path, e);
+            return null;
+        }
+        String rejectReason = validateHeader(data, deviceIdentity);
+        if (rejectReason != null) {
+            System.out.printf("Ignoring pipeline cache %s. %s%n", path, rejectReason);
+            return null;
+        }
+        ByteBuffer initialData = MemoryUtil.memAlloc(data.length);
+        initialData.put(data).flip();
+        return initialData;
+    }
+
+    //The header is written by the driver in the host's byte order.
+    private static String validateHeader(byte[] data, DeviceIdentity deviceIdentity) {
+        if (data.length < HEADER_SIZE) {
+            return String.format("File is %d bytes, smaller than the header", data.length);
+        }
+        ByteBuffer header = ByteBuffer.wrap(data).order(ByteOrder.nativeOrder());
+        int headerSize = header.getInt();
+        int headerVersion = header.getInt();
+        int vendorId = header.getInt();
+        int deviceId = header.getInt();
+        byte[] uuid = new byte[VK10.VK_UUID_SIZE];
+        header.get(uuid);
+        if (headerSize < HEADER_SIZE || headerSize > data.length) {
+            return String.format("Invalid header size %d", headerSize);
+        }
+        if (headerVersion != VK10.VK_PIPELINE_CACHE_HEADER_VERSION_ONE) {
+            return String.format("Unknown header version %d", headerVersion);
+        }
+        if (vendorId != deviceIdentity.getVendorId() || deviceId != deviceIdentity.getDeviceId()) {
+            return String.format("Written by vendor %x device %x but running on vendor %x device %x",
+                    vendorId, deviceId, deviceIdentity.getVendorId(), deviceIdentity.getDeviceId());
+        }
+        if (!deviceIdentity.matchesPipelineCacheUuid(uuid)) {
+            return "Pipeline cache UUID does not match, the driver was probably updated";
+        }
+        return null;
+    }
+
+    //Writes to a temporary file first and moves it over the old cache, so a crash while saving never leaves a torn file behind.
+    public void save() {
+        long saveStart = System.nanoTime();
+        ByteBuffer data = null;
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            PointerBuffer dataSize = memoryStack.mallocPointer(1);
+            int result = VK10.vkGetPipelineCacheData(device, pipelineCacheHandle, dataSize, null);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to get pipeline cache size. Error code: %d", result));
+            }
+            data = MemoryUtil.memAlloc((int) dataSize.get(0));
+            result = VK10.vkGetPipelineCacheData(device, pipelineCacheHandle, dataSize, data);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to get pipeline cache data. Error code: %d", result));
+            }
+            byte[] bytes = new byte[(int) dataSize.get(0)];
+            data.get(0, bytes);
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temporary, bytes);
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            System.out.printf("Saved %d bytes of pipeline cache in %.2f ms%n", bytes.length, (System.nanoTime() - saveStart) / 1_000_000.0);
+        } catch (IOException e) {
+            //Not being able to save the cache only costs us startup time next launch.
+            System.out.printf("Failed to save pipeline cache %s. %s%n", path, e);
+        } finally {
+            MemoryUtil.memFree(data);
+        }
+    }
+
+    public long getPipelineCacheHandle() {
+        return pipelineCacheHandle;
+    }
+
+    //Whether the cache was loaded from disk. Used to label startup timings as cold or warm.
+    public boolean isWarm() {
+        return warm;
+    }
+
+    public void free() {
+        VK10.vkDestroyPipelineCache(device, pipelineCacheHandle, null);
+    }
+}
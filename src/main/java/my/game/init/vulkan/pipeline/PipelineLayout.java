@@ -0,0 +1,61 @@
+package my.game.init.vulkan.pipeline;
+
+import com.google.common.collect.ImmutableList;
+import my.game.init.vulkan.drawing.transformation.DescriptorSetLayout;
+import my.game.init.vulkan.drawing.transformation.PushConstantLayout;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkPipelineLayoutCreateInfo;
+
+import java.nio.LongBuffer;
+import java.util.List;
+
+//Owned by the LayoutCache, pipelines only borrow it.
+public class PipelineLayout {
+    private final VkDevice device;
+    private final long handle;
+    private final List<DescriptorSetLayout> descriptorSetLayouts;
+    private final PushConstantLayout pushConstantLayout;
+
+    public PipelineLayout(VkDevice device, List<DescriptorSetLayout> descriptorSetLayouts, PushConstantLayout pushConstantLayout) {
+        this.device = device;
+        this.descriptorSetLayouts = ImmutableList.copyOf(descriptorSetLayouts);
+        this.pushConstantLayout = pushConstantLayout;
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            LongBuffer pPipelineLayout = memoryStack.mallocLong(1);
+            VkPipelineLayoutCreateInfo pipelineLayoutInfo = VkPipelineLayoutCreateInfo.calloc(memoryStack);
+            LongBuffer layouts = memoryStack.mallocLong(descriptorSetLayouts.size());
+            for (DescriptorSetLayout descriptorSetLayout : descriptorSetLayouts) {
+                layouts.put(descriptorSetLayout.getHandle());
+            }
+            layouts.flip();
+            pipelineLayoutInfo
+                    .sType(VK10.VK_STRUCTURE_TYPE_PIPELINE_LAYOUT_CREATE_INFO)
+                    .pSetLayouts(layouts)
+                    .setLayoutCount(layouts.capacity())
+                    .pPushConstantRanges(pushConstantLayout.toVkPushConstantRanges(memoryStack));
+            int result = VK10.vkCreatePipelineLayout(device, pipelineLayoutInfo, null, pPipelineLayout);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to create pipeline layout. Error code: %d", result));
+            }
+            handle = pPipelineLayout.get(0);
+        }
+    }
+
+    public long getHandle() {
+        return handle;
+    }
+
+    public List<DescriptorSetLayout> getDescriptorSetLayouts() {
+        return descriptorSetLayouts;
+    }
+
+    public PushConstantLayout getPushConstantLayout() {
+        return pushConstantLayout;
+    }
+
+    public void free() {
+        VK10.vkDestroyPipelineLayout(device, handle, null);
+    }
+}
@@ -0,0 +1,249 @@
+package my.game.init.vulkan.pipeline;
+
+import my.game.init.vulkan.pipeline.shaders.ShaderInterface;
+import my.game.init.vulkan.pipeline.shaders.ShaderPack;
+import my.game.render.FrameDeletionQueue;
+import org.lwjgl.vulkan.VkDevice;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+//Owns every graphics pipeline, one per distinct PipelineState for the current render target layout. Pipelines are compiled on
+// background threads: the ones we know we need up front through precompile, anything else the first time it is asked
+// for. The render thread only ever asks with getIfReady and skips what is not compiled yet instead of waiting on the driver.
+// Shader hot reload and render target layout changes replace pipelines here too. Replaced pipelines are handed to the render
+// thread's deletion queue when they may still be in flight.
+public class PipelineRegistry {
+    private final VkDevice device;
+    private final LayoutCache layoutCache;
+    private final PipelineCache pipelineCache;
+    private final Map<PipelineState, CompletableFuture<GraphicsPipeline>> pipelines = new ConcurrentHashMap<>();
+    //Built by the hot reload thread, swapped in by the render thread at the start of a frame.
+    private final Map<PipelineState, GraphicsPipeline> reloadedPipelines = new ConcurrentHashMap<>();
+    //Builds hold the read lock for as long as they use the render target layout, replacing it takes the write lock.
+    private final ReadWriteLock renderTargetLock = new ReentrantReadWriteLock();
+    private final ExecutorService compileExecutor;
+    private final AtomicInteger unpredictedCompiles = new AtomicInteger();
+    //States whose compile failed and has been reported, so a failure is printed once and not every frame.
+    private final Set<PipelineState> reportedFailures = ConcurrentHashMap.newKeySet();
+    private volatile ShaderPack shaderPack;
+    private RenderTargetLayout renderTargetLayout;
+
+    public PipelineRegistry(VkDevice device, LayoutCache layoutCache, PipelineCache pipelineCache, ShaderPack shaderPack, RenderTargetLayout renderTargetLayout) {
+        this.device = device;
+        this.layoutCache = layoutCache;
+        this.pipelineCache = pipelineCache;
+        this.shaderPack = shaderPack;
+        this.renderTargetLayout = renderTargetLayout;
+        //Leave a core for the render thread.
+        int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.compileExecutor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-compiler-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //Starts compiling the given variants in the background. States that are already known are not compiled again.
+    public Map<PipelineState, CompletableFuture<GraphicsPipeline>> precompile(List<PipelineState> states) {
+        Map<PipelineState, CompletableFuture<GraphicsPipeline>> compiling = new LinkedHashMap<>();
+        for (PipelineState state : states) {
+            compiling.put(state, pipelines.computeIfAbsent(state, this::compileAsync));
+        }
+        return compiling;
+    }
+
+    //Null while the pipeline is still being compiled. A state nobody precompiled starts compiling now and is reported,
+    // so it can be added to the precompile list. Also null when compiling failed, like for a bad specialization value,
+    // the failure is printed the first time.
+    public GraphicsPipeline getIfReady(PipelineState state) {
+        CompletableFuture<GraphicsPipeline> pipeline = pipelines.get(state);
+        if (pipeline == null) {
+            pipeline = pipelines.computeIfAbsent(state, s -> {
+                unpredictedCompiles.incrementAndGet();
+                System.out.printf("Pipeline %s was not precompiled, compiling it now%n", s);
+                return compileAsync(s);
+            });
+        }
+        if (!pipeline.isDone()) {
+            return null;
+        }
+        if (pipeline.isCompletedExceptionally()) {
+            if (reportedFailures.add(state)) {
+                System.out.printf("Failed to compile pipeline %s, skipping it. %s%n", state, pipeline.exceptionNow());
+            }
+            return null;
+        }
+        return pipeline.join();
+    }
+
+    //Blocks until the pipeline is compiled. Only for places where waiting is fine, like startup.
+    public GraphicsPipeline get(PipelineState state) {
+        return pipelines.computeIfAbsent(state, this::compileAsync).join();
+    }
+
+    //The interface of a pipeline without compiling it, to set up descriptor sets and such ahead of time.
+    public ShaderInterface reflect(PipelineState state) {
+        return GraphicsPipeline.reflect(shaderPack, state);
+    }
+
+    public PipelineLayout getPipelineLayout(PipelineState state) {
+        return layoutCache.getPipelineLayout(reflect(state));
+    }
+
+    private CompletableFuture<GraphicsPipeline> compileAsync(PipelineState state) {
+        return CompletableFuture.supplyAsync(() -> build(state), compileExecutor);
+    }
+
+    private GraphicsPipeline build(PipelineState state) {
+        renderTargetLock.readLock().lock();
+        try {
+            return new GraphicsPipeline(device, renderTargetLayout, layoutCache, shaderPack, state, pipelineCache);
+        } finally {
+            renderTargetLock.readLock().unlock();
+        }
+    }
+
+    //Called on the hot reload thread. Rebuilds every compiled pipeline that uses one of the shaders, they get swapped in
+    // by swapReloaded. Pipelines whose layout would change are left alone since descriptor sets and push constants
+    // recorded against the old layout would no longer fit.
+    public void reloadShaders(ShaderPack shaderPack, Set<String> recompiledShaders) {
+        this.shaderPack = shaderPack;
+        for (Map.Entry<PipelineState, CompletableFuture<GraphicsPipeline>> entry : pipelines.entrySet()) {
+            PipelineState state = entry.getKey();
+            if (recompiledShaders.stream().noneMatch(state::usesShader) || !entry.getValue().isDone()
+                    || entry.getValue().isCompletedExceptionally()) {
+                continue;
+            }
+            long reloadStart = System.nanoTime();
+            GraphicsPipeline rebuilt;
+            try {
+                rebuilt = build(state);
+            } catch (RuntimeException e) {
+                System.out.printf("Failed to rebuild pipeline %s, keeping the current one. %s%n", state, e.getMessage());
+                continue;
+            }
+            if (rebuilt.getPipelineLayout() != entry.getValue().join().getPipelineLayout()) {
+                System.out.printf("Reloaded pipeline %s changes the pipeline layout, restart to pick it up%n", state);
+                rebuilt.free();
+                continue;
+            }
+            //Never handed to the render thread so it is safe to free right away.
+            GraphicsPipeline superseded = reloadedPipelines.put(state, rebuilt);
+            if (superseded != null) {
+                superseded.free();
+            }
+            System.out.printf("Rebuilt pipeline %s in %.2f ms%n", state, (System.nanoTime() - reloadStart) / 1_000_000.0);
+        }
+    }
+
+    //Render thread, at the start of a frame. The pipelines being replaced may still be used by frames in flight.
+    public void swapReloaded(FrameDeletionQueue deletionQueue) {
+        //Checked first so the usual frame without a reload does not create an iterator.
+        if (reloadedPipelines.isEmpty()) {
+            return;
+        }
+        for (PipelineState state : reloadedPipelines.keySet()) {
+            GraphicsPipeline reloaded = reloadedPipelines.remove(state);
+            if (reloaded == null) {
+                continue;
+            }
+            //Built against a layout that has been replaced since, replaceRenderTargetLayout already rebuilds it from the
+            // new shaders. The same goes when that rebuild is still compiling, waiting for it here would stall the frame
+            // on the driver.
+            CompletableFuture<GraphicsPipeline> current = pipelines.get(state);
+            if (reloaded.getRenderTargetLayout() != renderTargetLayout || current == null || !current.isDone()) {
+                reloaded.free();
+                continue;
+            }
+            pipelines.put(state, CompletableFuture.completedFuture(reloaded));
+            if (!current.isCompletedExceptionally()) {
+                deletionQueue.defer(current.join()::free);
+            }
+        }
+    }
+
+    //Render thread. The replacement runs under the lock so no build on another thread is still creating a pipeline against
+    // the old layout. Every pipeline has to be rebuilt when the layout changes, until then getIfReady returns null
+    // for them. The old layout and pipelines go through the deletion queue since frames in flight still use them.
+    public RenderTargetLayout replaceRenderTargetLayout(UnaryOperator<RenderTargetLayout> replacement, FrameDeletionQueue deletionQueue) {
+        renderTargetLock.writeLock().lock();
+        try {
+            RenderTargetLayout newRenderTargetLayout = replacement.apply(renderTargetLayout);
+            if (newRenderTargetLayout == renderTargetLayout) {
+                return renderTargetLayout;
+            }
+            deletionQueue.defer(renderTargetLayout::free);
+            renderTargetLayout = newRenderTargetLayout;
+            //Everything gets compiled again, failures included.
+            reportedFailures.clear();
+            //Taken out one at a time since the hot reload thread may put new ones in meanwhile, each pipeline is then
+            // either freed here or superseded there but never both. Anything it puts in after this was built against the
+            // old layout and gets dropped by swapReloaded.
+            for (PipelineState state : reloadedPipelines.keySet()) {
+                GraphicsPipeline reloaded = reloadedPipelines.remove(state);
+                if (reloaded != null) {
+                    reloaded.free();
+                }
+            }
+            for (Map.Entry<PipelineState, CompletableFuture<GraphicsPipeline>> entry : pipelines.entrySet()) {
+                CompletableFuture<GraphicsPipeline> previous = entry.getValue();
+                PipelineState state = entry.getKey();
+                if (previous.isDone() && !previous.isCompletedExceptionally()) {
+                    deletionQueue.defer(previous.join()::free);
+                    entry.setValue(compileAsync(state));
+                } else {
+                    //Still compiling against the old layout. It was never handed out so it can go as soon as it is done.
+                    entry.setValue(previous.handle((pipeline, error) -> {
+                        if (pipeline != null) {
+                            pipeline.free();
+                        }
+                        return state;
+                    }).thenApplyAsync(this::build, compileExecutor));
+                }
+            }
+            return renderTargetLayout;
+        } finally {
+            renderTargetLock.writeLock().unlock();
+        }
+    }
+
+    public int getPipelineCount() {
+        return pipelines.size();
+    }
+
+    public int getUnpredictedCompiles() {
+        return unpredictedCompiles.get();
+    }
+
+    public void free() {
+        compileExecutor.shutdown();
+        try {
+            if (!compileExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println("Pipeline compiler threads did not stop. Leaking their pipelines");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (CompletableFuture<GraphicsPipeline> pipeline : pipelines.values()) {
+            if (pipeline.isDone() && !pipeline.isCompletedExceptionally()) {
+                pipeline.join().free();
+            }
+        }
+        pipelines.clear();
+        reloadedPipelines.values().forEach(GraphicsPipeline::free);
+        reloadedPipelines.clear();
+    }
+}
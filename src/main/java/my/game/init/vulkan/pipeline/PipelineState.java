@@ -0,0 +1,35 @@
+package my.game.init.vulkan.pipeline;
+
+import my.game.init.vulkan.pipeline.shaders.SpecializationConstants;
+import org.lwjgl.vulkan.VK10;
+
+//Everything that makes two graphics pipelines different apart from the render pass they are built for. Used as the key
+// of the PipelineRegistry, so equal states always share one VkPipeline. The vertex input is not part of it since it is
+// reflected from the vertex shader. Feature toggles inside the shaders are specialization constants, so variants of the
+// same shaders differ only in those values.
+public record PipelineState(String vertexShader, String fragmentShader, int topology, int polygonMode, int cullMode,
+                            int frontFace, BlendMode blendMode, SpecializationConstants specializationConstants) {
+
+    public static PipelineState opaque(String vertexShader, String fragmentShader) {
+        return new PipelineState(vertexShader, fragmentShader, VK10.VK_PRIMITIVE_TOPOLOGY_TRIANGLE_LIST, VK10.VK_POLYGON_MODE_FILL,
+                VK10.VK_CULL_MODE_BACK_BIT, VK10.VK_FRONT_FACE_CLOCKWISE, BlendMode.OPAQUE, SpecializationConstants.NONE);
+    }
+
+    public PipelineState withBlendMode(BlendMode blendMode) {
+        return new PipelineState(vertexShader, fragmentShader, topology, polygonMode, cullMode, frontFace, blendMode, specializationConstants);
+    }
+
+    public PipelineState withSpecializationConstants(SpecializationConstants specializationConstants) {
+        return new PipelineState(vertexShader, fragmentShader, topology, polygonMode, cullMode, frontFace, blendMode, specializationConstants);
+    }
+
+    public boolean usesShader(String shaderName) {
+        return vertexShader.equals(shaderName) || fragmentShader.equals(shaderName);
+    }
+
+    public enum BlendMode {
+        OPAQUE,
+        //Standard non premultiplied alpha blending.
+        ALPHA
+    }
+}
@@ -7,13 +7,14 @@ import org.lwjgl.vulkan.VK10;
 import org.lwjgl.vulkan.VkAttachmentDescription;
 import org.lwjgl.vulkan.VkAttachmentReference;
 import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkGraphicsPipelineCreateInfo;
 import org.lwjgl.vulkan.VkRenderPassCreateInfo;
 import org.lwjgl.vulkan.VkSubpassDependency;
 import org.lwjgl.vulkan.VkSubpassDescription;
 
 import java.nio.LongBuffer;
 
-public class RenderPass {
+public class RenderPass implements RenderTargetLayout {
     private final VkDevice device;
     private final SwapChain swapChain;
     private final long renderPassPointer;
@@ -100,9 +101,16 @@ public class RenderPass {
         }
     }
 
+    @Override
+    public void configure(VkGraphicsPipelineCreateInfo graphicsPipelineCreateInfo, MemoryStack memoryStack) {
+        graphicsPipelineCreateInfo
+                .renderPass(renderPassPointer)
+                .subpass(0);
+    }
+
+    @Override
     public RenderPass validateSwapChain(SwapChain newSwapChain) {
         if (swapChain.getSurfaceFormat().format() != newSwapChain.getSurfaceFormat().format()) {
-            free();
             return new RenderPass(device, newSwapChain);
         } else {
             return this;
@@ -113,6 +121,7 @@ public class RenderPass {
         return renderPassPointer;
     }
 
+    @Override
     public void free() {
         VK10.vkDestroyRenderPass(device,
                 renderPassPointer,
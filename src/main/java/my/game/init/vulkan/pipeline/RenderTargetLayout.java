@@ -0,0 +1,20 @@
+package my.game.init.vulkan.pipeline;
+
+import my.game.init.vulkan.swapchain.SwapChain;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VkGraphicsPipelineCreateInfo;
+
+//What graphics pipelines are created against. Either a RenderPass, or with dynamic rendering just the formats of the
+// attachments they draw into.
+public interface RenderTargetLayout {
+
+    //Ties the pipeline to this layout while its create info is filled in. Anything chained onto the create info comes
+    // from the memory stack.
+    void configure(VkGraphicsPipelineCreateInfo graphicsPipelineCreateInfo, MemoryStack memoryStack);
+
+    //The layout pipelines need for the new swap chain, this one if nothing changed. Frames in flight may still use a
+    // replaced layout, freeing it is left to the caller.
+    RenderTargetLayout validateSwapChain(SwapChain newSwapChain);
+
+    void free();
+}
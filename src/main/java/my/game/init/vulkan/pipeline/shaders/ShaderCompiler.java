@@ -1,109 +1,300 @@
 package my.game.init.vulkan.pipeline.shaders;
 
+import my.game.VulkanProject;
+import org.lwjgl.Version;
+import org.lwjgl.system.MemoryStack;
 import org.lwjgl.util.shaderc.Shaderc;
 
-import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
-import java.util.Enumeration;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 // IMPORTANT!!! we must call this at runtime since the shaders are compiled to be understood by the user's cpu.
 // If I compiled the shader on my machine and then shipped the compiled shaders to be used by other people it
 // would fail spectacularly to be understood by their gpu.
+//Shaders are compiled in parallel, each worker thread keeps its own shaderc compiler since a compiler object must
+// not be used from two threads at once. A shader is only recompiled when the hash of everything that goes into it
+// changes (source, includes, options and compiler version). Modification times are not used so touching a file or
+// switching git branches back and forth does not cause needless recompiles.
+//The results all go into one ShaderPack, which also stores each shader's hash for the next run. Each write is a new
+// numbered pack file, see ShaderPackVersions.
 public class ShaderCompiler {
+    //Bump when the way we compile changes in a way the hash does not capture.
+    private static final String CACHE_VERSION = "1";
 
-    private final File[] glslShaderFiles;
+    private final Path sourceDirectory;
+    private final ShaderPackVersions packVersions;
+    private volatile ShaderPack shaderPack;
 
     public ShaderCompiler() {
-        Enumeration<URL> shadersDirectory;
-        try {
-            shadersDirectory = ShaderCompiler.class.getClassLoader().getResources("shaders/source");
-        } catch (IOException e) {
-            System.out.printf("Error occurred trying to load source shaders. %s%n", e);
-            throw new RuntimeException(e);
-        }
-        if (!shadersDirectory.hasMoreElements()) {
+        URL shaders = ShaderCompiler.class.getClassLoader().getResource("shaders/source");
+        if (shaders == null) {
             throw new IllegalStateException("No shaders directory found. Giving up");
         }
-        URL shaders = shadersDirectory.nextElement();
-        if (shadersDirectory.hasMoreElements()) {
-            throw new IllegalStateException("More than one shaders directory found. Giving up");
-        }
-        File file = new File(shaders.getFile());
-        glslShaderFiles = file.listFiles();
-        if (glslShaderFiles == null) {
-            throw new IllegalStateException(String.format("Shaders directory is empty at %s", file.getName()));
+        //The sources can live elsewhere so hot reload can watch the files that are actually being edited.
+        sourceDirectory = VulkanProject.SHADER_SOURCE_PATH == null
+                ? toPath(shaders)
+                : Path.of(VulkanProject.SHADER_SOURCE_PATH).toAbsolutePath().normalize();
+        if (!Files.isDirectory(sourceDirectory)) {
+            throw new IllegalStateException(String.format("Shaders directory is missing at %s", sourceDirectory));
         }
+        packVersions = new ShaderPackVersions(Path.of(VulkanProject.SHADER_PACK_PATH));
     }
 
-    public void compileShaders() {
-        for (File f : glslShaderFiles) {
-            if (f.getName().endsWith(".frag")) {
-                compileShaderIfChanged(f, Shaderc.shaderc_fragment_shader);
-            } else if (f.getName().endsWith(".vert")) {
-                compileShaderIfChanged(f, Shaderc.shaderc_vertex_shader);
+    //Works for a plain directory as well as for the sources packaged inside our jar.
+    private static Path toPath(URL url) {
+        try {
+            URI uri = url.toURI();
+            if ("jar".equals(uri.getScheme())) {
+                try {
+                    FileSystems.newFileSystem(uri, Map.of());
+                } catch (FileSystemAlreadyExistsException e) {
+                    //Opened by an earlier compiler, Path.of finds it.
+                }
+                return Path.of(uri);
             }
+            return Path.of(uri).toAbsolutePath().normalize();
+        } catch (URISyntaxException | IOException e) {
+            throw new IllegalStateException(String.format("Failed to open shaders directory %s", url), e);
         }
     }
 
-    private void compileShaderIfChanged(File glslShaderFile, int shaderType) {
-        byte[] compiledShader;
+    public Path getSourceDirectory() {
+        return sourceDirectory;
+    }
+
+    //The pack with the result of the last compileShaders call.
+    public ShaderPack getShaderPack() {
+        if (shaderPack == null) {
+            throw new IllegalStateException("Shaders have not been compiled yet");
+        }
+        return shaderPack;
+    }
+
+    //Returns the names of the shaders that were actually recompiled, cache hits are left out.
+    public Set<String> compileShaders() {
+        long compileStart = System.nanoTime();
+        List<ShaderJob> jobs = new ArrayList<>();
+        try (Stream<Path> files = Files.list(sourceDirectory)) {
+            files.sorted().forEach(file -> {
+                int shaderType = shaderTypeOf(file.getFileName().toString());
+                if (shaderType != -1) {
+                    jobs.add(new ShaderJob(file, shaderType));
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Failed to list shaders in %s", sourceDirectory), e);
+        }
+        ShaderPack previousPack = shaderPack != null ? shaderPack : openStartupPack();
+
+        String compilerVersion = compilerVersion();
+        ShaderIncludeResolver includeResolver = new ShaderIncludeResolver(sourceDirectory);
+        ConcurrentLinkedQueue<CompilerContext> compilerContexts = new ConcurrentLinkedQueue<>();
+        ThreadLocal<CompilerContext> threadCompiler = ThreadLocal.withInitial(() -> {
+            CompilerContext compilerContext = new CompilerContext(includeResolver);
+            compilerContexts.add(compilerContext);
+            return compilerContext;
+        });
+        int threadCount = Math.max(1, Math.min(jobs.size(), Runtime.getRuntime().availableProcessors()));
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "shader-compiler-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<ShaderResult>> results = new ArrayList<>();
         try {
-            String glslShaderFileName = glslShaderFile.getName();
-            File spvFile = new File(glslShaderFile.getParentFile().getParentFile() + "/compiled/" + glslShaderFileName + ".spv");
-            File compiledDirectory = spvFile.getParentFile();
-            if (!compiledDirectory.exists()) {
-                if (!spvFile.getParentFile().mkdir()) {
-                    System.out.println("Failed to create compiled shaders directory.");
-                    throw new IllegalStateException("Failed to create compiled shaders directory.");
+            for (ShaderJob job : jobs) {
+                results.add(executor.submit(() -> compileShaderIfChanged(job, compilerVersion, includeResolver, threadCompiler, previousPack)));
+            }
+            Set<String> recompiled = new TreeSet<>();
+            List<ShaderPack.Entry> entries = new ArrayList<>();
+            int cacheHits = 0;
+            for (Future<ShaderResult> future : results) {
+                ShaderResult result = future.get();
+                entries.add(new ShaderPack.Entry(result.name(), result.sourceHash(), result.code()));
+                if (result.cacheHit()) {
+                    cacheHits++;
+                    System.out.printf("Shader [%s] unchanged. Using compiled version from [%s]%n", result.name(), previousPack.getPath());
+                } else {
+                    recompiled.add(result.name());
+                    System.out.printf("Compiled [%s] in %.2f ms%n", result.name(), result.nanos() / 1_000_000.0);
                 }
             }
-            if (!spvFile.exists() || glslShaderFile.lastModified() > spvFile.lastModified()) {
-                System.out.printf("Compiling [%s] to [%s]\n", glslShaderFile.getPath(), spvFile.getPath());
-                String shaderCode = new String(Files.readAllBytes(glslShaderFile.toPath()));
-
-                compiledShader = compileShader(shaderCode, shaderType);
-                Files.write(spvFile.toPath(), compiledShader);
+            //Shaders that were deleted also mean the pack is out of date.
+            if (previousPack == null || !recompiled.isEmpty() || previousPack.getEntryCount() != entries.size()) {
+                Path nextPack = packVersions.next();
+                ShaderPack.write(nextPack, entries);
+                shaderPack = ShaderPack.open(nextPack);
             } else {
-                System.out.printf("Shader [%s] already compiled. Loading compiled version: [%s]\n", glslShaderFile.getPath(), spvFile.getPath());
+                shaderPack = previousPack;
+            }
+            System.out.printf("Shaders ready in %.2f ms on %d threads. %d/%d cache hits (%.0f%%)%n",
+                    (System.nanoTime() - compileStart) / 1_000_000.0, threadCount, cacheHits, jobs.size(),
+                    jobs.isEmpty() ? 0.0 : 100.0 * cacheHits / jobs.size());
+            return recompiled;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while compiling shaders", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
             }
+            throw new RuntimeException(e.getCause());
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new IllegalStateException(String.format("Failed to write shader pack next to %s", VulkanProject.SHADER_PACK_PATH), e);
+        } finally {
+            executor.shutdownNow();
+            //The compilers can only be released once no worker is using them anymore.
+            if (awaitTermination(executor)) {
+                compilerContexts.forEach(CompilerContext::free);
+                includeResolver.free();
+            } else {
+                System.out.println("Shader compiler threads did not stop. Leaking their compilers");
+            }
+        }
+    }
+
+    //Nothing has been mapped yet on the first compile, so this is when packs older than the newest one can go.
+    private ShaderPack openStartupPack() {
+        ShaderPack latest = packVersions.openLatest();
+        packVersions.deleteAllBut(latest);
+        return latest;
+    }
+
+    private static boolean awaitTermination(ExecutorService executor) {
+        try {
+            return executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
-    private byte[] compileShader(String shaderCode, int shaderType) {
-        long compiler = 0;
-        long options = 0;
-        byte[] compiledShader;
+    private static int shaderTypeOf(String fileName) {
+        if (fileName.endsWith(".frag")) {
+            return Shaderc.shaderc_fragment_shader;
+        } else if (fileName.endsWith(".vert")) {
+            return Shaderc.shaderc_vertex_shader;
+        } else if (fileName.endsWith(".comp")) {
+            return Shaderc.shaderc_compute_shader;
+        }
+        return -1;
+    }
+
+    private ShaderResult compileShaderIfChanged(ShaderJob job, String compilerVersion, ShaderIncludeResolver includeResolver,
+                                                ThreadLocal<CompilerContext> threadCompiler, ShaderPack previousPack) throws IOException {
+        long start = System.nanoTime();
+        String name = sourceDirectory.relativize(job.source()).toString();
+        byte[] source = Files.readAllBytes(job.source());
+        byte[] hash = hash(name, job.shaderType(), source, includeResolver.collectIncludes(job.source()), compilerVersion);
+        if (previousPack != null && previousPack.hasSourceHash(name, hash)) {
+            return new ShaderResult(name, hash, previousPack.getCode(name), true, System.nanoTime() - start);
+        }
+        byte[] compiledShader = threadCompiler.get().compile(new String(source, StandardCharsets.UTF_8), job.shaderType(), name);
+        return new ShaderResult(name, hash, ByteBuffer.wrap(compiledShader), false, System.nanoTime() - start);
+    }
 
+    private static byte[] hash(String name, int shaderType, byte[] source, Map<String, byte[]> includes, String compilerVersion) {
+        MessageDigest digest;
         try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        digest.update(String.format("%s|%s|%s|%s|%d|%d|", CACHE_VERSION, compilerVersion, CompilerContext.OPTIONS_KEY,
+                name, shaderType, source.length).getBytes(StandardCharsets.UTF_8));
+        digest.update(source);
+        for (Map.Entry<String, byte[]> include : includes.entrySet()) {
+            digest.update(String.format("|%s|%d|", include.getKey(), include.getValue().length).getBytes(StandardCharsets.UTF_8));
+            digest.update(include.getValue());
+        }
+        return digest.digest();
+    }
+
+    //Shaderc ships inside lwjgl, so the lwjgl version pins the compiler build as well.
+    private static String compilerVersion() {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            IntBuffer version = memoryStack.mallocInt(1);
+            IntBuffer revision = memoryStack.mallocInt(1);
+            Shaderc.shaderc_get_spv_version(version, revision);
+            return String.format("lwjgl %s spv %d.%d", Version.getVersion(), version.get(0), revision.get(0));
+        }
+    }
+
+    private static class CompilerContext {
+        //Describes the options set below. Part of the cache key so changing them recompiles everything.
+        private static final String OPTIONS_KEY = "glsl;vulkan_1_0;includes";
+
+        private final long compiler;
+        private final long options;
+
+        private CompilerContext(ShaderIncludeResolver includeResolver) {
             compiler = Shaderc.shaderc_compiler_initialize();
             options = Shaderc.shaderc_compile_options_initialize();
+            if (compiler == 0 || options == 0) {
+                throw new IllegalStateException("Failed to create shader compiler");
+            }
+            Shaderc.shaderc_compile_options_set_source_language(options, Shaderc.shaderc_source_language_glsl);
+            Shaderc.shaderc_compile_options_set_target_env(options, Shaderc.shaderc_target_env_vulkan, Shaderc.shaderc_env_version_vulkan_1_0);
+            Shaderc.shaderc_compile_options_set_include_callbacks(options, includeResolver.getResolveCallback(),
+                    includeResolver.getReleaseCallback(), 0);
+        }
 
+        private byte[] compile(String shaderCode, int shaderType, String name) {
             long result = Shaderc.shaderc_compile_into_spv(
                     compiler,
                     shaderCode,
                     shaderType,
-                    "shader.glsl",
+                    name,
                     "main",
                     options
             );
-
-            if (Shaderc.shaderc_result_get_compilation_status(result) != Shaderc.shaderc_compilation_status_success) {
-                throw new RuntimeException("Shader compilation failed: " + Shaderc.shaderc_result_get_error_message(result));
+            try {
+                if (Shaderc.shaderc_result_get_compilation_status(result) != Shaderc.shaderc_compilation_status_success) {
+                    throw new RuntimeException(String.format("Shader compilation of %s failed: %s", name, Shaderc.shaderc_result_get_error_message(result)));
+                }
+                ByteBuffer buffer = Shaderc.shaderc_result_get_bytes(result);
+                byte[] compiledShader = new byte[buffer.remaining()];
+                buffer.get(compiledShader);
+                return compiledShader;
+            } finally {
+                Shaderc.shaderc_result_release(result);
             }
+        }
 
-            ByteBuffer buffer = Shaderc.shaderc_result_get_bytes(result);
-            compiledShader = new byte[buffer.remaining()];
-            buffer.get(compiledShader);
-        } finally {
+        private void free() {
             Shaderc.shaderc_compile_options_release(options);
             Shaderc.shaderc_compiler_release(compiler);
         }
+    }
+
+    private record ShaderJob(Path source, int shaderType) {
+    }
 
-        return compiledShader;
+    private record ShaderResult(String name, byte[] sourceHash, ByteBuffer code, boolean cacheHit, long nanos) {
     }
 }
@@ -0,0 +1,88 @@
+package my.game.init.vulkan.pipeline.shaders;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+//Watches the shader source directory and recompiles on its own thread whenever something in it changes. The listener
+// gets the new shader pack and the names of the recompiled shaders. It is called from this thread too, so it must not
+// touch anything the render thread owns without handing it over safely.
+public class ShaderHotReloader {
+    //Editors tend to save a file as several writes, wait for them to settle before compiling.
+    private static final long SETTLE_MILLIS = 100;
+
+    private final ShaderCompiler shaderCompiler;
+    private final BiConsumer<ShaderPack, Set<String>> listener;
+    private final WatchService watchService;
+    private final Thread watchThread;
+
+    public ShaderHotReloader(ShaderCompiler shaderCompiler, BiConsumer<ShaderPack, Set<String>> listener) {
+        this.shaderCompiler = shaderCompiler;
+        this.listener = listener;
+        if (shaderCompiler.getSourceDirectory().getFileSystem() != FileSystems.getDefault()) {
+            throw new IllegalStateException("Shader hot reload needs the shader sources on disk. Point myGameShaderSource at them");
+        }
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            shaderCompiler.getSourceDirectory().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Failed to watch shader directory %s", shaderCompiler.getSourceDirectory()), e);
+        }
+        this.watchThread = new Thread(this::watch, "shader-hot-reload");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        System.out.printf("Watching [%s] for shader changes%n", shaderCompiler.getSourceDirectory());
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                do {
+                    key.pollEvents();
+                    key.reset();
+                    key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            //Asked to stop.
+        }
+    }
+
+    private void reload() {
+        Set<String> recompiled;
+        try {
+            recompiled = shaderCompiler.compileShaders();
+        } catch (RuntimeException e) {
+            //A typo in a shader should not take the game down, keep running the last working version.
+            System.out.printf("Shader reload failed, keeping the current shaders. %s%n", e.getMessage());
+            return;
+        }
+        if (!recompiled.isEmpty()) {
+            listener.accept(shaderCompiler.getShaderPack(), recompiled);
+        }
+    }
+
+    public void free() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.out.printf("Failed to close shader watch service. %s%n", e);
+        }
+        watchThread.interrupt();
+        try {
+            //The listener may be in the middle of building a pipeline, it has to finish before the device goes away.
+            watchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
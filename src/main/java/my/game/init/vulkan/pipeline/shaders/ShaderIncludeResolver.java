@@ -0,0 +1,106 @@
+package my.game.init.vulkan.pipeline.shaders;
+
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.util.shaderc.ShadercIncludeResolve;
+import org.lwjgl.util.shaderc.ShadercIncludeResult;
+import org.lwjgl.util.shaderc.ShadercIncludeResultRelease;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//Resolves #include directives against the shader source directory. Shaderc asks us for the files while compiling,
+// and the compile cache uses the same lookup to find every file a shader depends on so that editing an include
+// invalidates the shaders using it.
+public class ShaderIncludeResolver {
+    private static final Pattern INCLUDE_PATTERN = Pattern.compile("^\\s*#\\s*include\\s*[\"<]([^\">]+)[\">]", Pattern.MULTILINE);
+
+    private final Path sourceDirectory;
+    private final ShadercIncludeResolve resolveCallback;
+    private final ShadercIncludeResultRelease releaseCallback;
+
+    public ShaderIncludeResolver(Path sourceDirectory) {
+        this.sourceDirectory = sourceDirectory;
+        //Called from every compiler thread at once. Only reads files so no locking needed.
+        this.resolveCallback = ShadercIncludeResolve.create((userData, requestedSource, type, requestingSource, includeDepth) ->
+                resolveInclude(MemoryUtil.memUTF8(requestedSource), MemoryUtil.memUTF8(requestingSource)));
+        this.releaseCallback = ShadercIncludeResultRelease.create((userData, includeResult) -> {
+            ShadercIncludeResult result = ShadercIncludeResult.create(includeResult);
+            MemoryUtil.memFree(result.source_name());
+            MemoryUtil.memFree(result.content());
+            result.free();
+        });
+    }
+
+    //Every file the shader includes, directly or through other includes, mapped to its contents. Sorted so the
+    // compile cache hashes them in a stable order.
+    public Map<String, byte[]> collectIncludes(Path shaderFile) throws IOException {
+        Map<String, byte[]> includes = new TreeMap<>();
+        collectIncludes(shaderFile, includes);
+        return includes;
+    }
+
+    private void collectIncludes(Path file, Map<String, byte[]> includes) throws IOException {
+        Matcher matcher = INCLUDE_PATTERN.matcher(Files.readString(file));
+        while (matcher.find()) {
+            Path included = resolve(matcher.group(1), file.getFileName().toString());
+            String key = sourceDirectory.relativize(included).toString();
+            //Missing includes are left for shaderc to report with a proper error message.
+            if (!includes.containsKey(key) && Files.isRegularFile(included)) {
+                includes.put(key, Files.readAllBytes(included));
+                collectIncludes(included, includes);
+            }
+        }
+    }
+
+    private Path resolve(String requestedSource, String requestingSource) {
+        Path requestingDirectory = sourceDirectory.resolve(requestingSource).getParent();
+        Path relative = requestingDirectory.resolve(requestedSource).normalize();
+        if (Files.isRegularFile(relative)) {
+            return relative;
+        }
+        return sourceDirectory.resolve(requestedSource).normalize();
+    }
+
+    //Shaderc expects an empty source name with the error message as content when an include can not be found.
+    private long resolveInclude(String requestedSource, String requestingSource) {
+        ShadercIncludeResult result = ShadercIncludeResult.calloc();
+        Path included = resolve(requestedSource, requestingSource);
+        ByteBuffer sourceName;
+        ByteBuffer content;
+        if (included.startsWith(sourceDirectory) && Files.isRegularFile(included)) {
+            try {
+                byte[] bytes = Files.readAllBytes(included);
+                sourceName = MemoryUtil.memUTF8(sourceDirectory.relativize(included).toString(), false);
+                content = MemoryUtil.memAlloc(bytes.length);
+                content.put(bytes).flip();
+            } catch (IOException e) {
+                sourceName = MemoryUtil.memUTF8("", false);
+                content = MemoryUtil.memUTF8(String.format("Failed to read include %s. %s", included, e), false);
+            }
+        } else {
+            sourceName = MemoryUtil.memUTF8("", false);
+            content = MemoryUtil.memUTF8(String.format("Could not find include %s requested by %s", requestedSource, requestingSource), false);
+        }
+        result.source_name(sourceName).content(content);
+        return result.address();
+    }
+
+    public ShadercIncludeResolve getResolveCallback() {
+        return resolveCallback;
+    }
+
+    public ShadercIncludeResultRelease getReleaseCallback() {
+        return releaseCallback;
+    }
+
+    public void free() {
+        resolveCallback.free();
+        releaseCallback.free();
+    }
+}
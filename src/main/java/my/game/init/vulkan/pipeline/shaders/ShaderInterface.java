@@ -0,0 +1,154 @@
+package my.game.init.vulkan.pipeline.shaders;
+
+import com.google.common.collect.ImmutableList;
+import my.game.init.vulkan.drawing.transformation.PushConstantLayout;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+//Everything a shader, or all the stages of a pipeline once merged, reads from outside. Produced by ShaderReflection.
+public class ShaderInterface {
+    private final int stageFlags;
+    private final List<Binding> bindings;
+    private final PushConstantLayout pushConstantLayout;
+    private final List<VertexInput> vertexInputs;
+    private final List<SpecializationConstant> specializationConstants;
+    private final WorkgroupSize workgroupSize;
+
+    public ShaderInterface(int stageFlags, List<Binding> bindings, PushConstantLayout pushConstantLayout, List<VertexInput> vertexInputs,
+                           List<SpecializationConstant> specializationConstants, WorkgroupSize workgroupSize) {
+        this.stageFlags = stageFlags;
+        this.bindings = ImmutableList.copyOf(bindings);
+        this.pushConstantLayout = pushConstantLayout;
+        this.vertexInputs = ImmutableList.copyOf(vertexInputs);
+        this.specializationConstants = ImmutableList.copyOf(specializationConstants);
+        this.workgroupSize = workgroupSize;
+    }
+
+    //Combines the stages of one pipeline. A binding used by several stages has to be declared the same way in each of them.
+    public ShaderInterface merge(ShaderInterface other) {
+        List<Binding> mergedBindings = new ArrayList<>(bindings);
+        for (Binding binding : other.bindings) {
+            Optional<Binding> existing = mergedBindings.stream()
+                    .filter(b -> b.set() == binding.set() && b.binding() == binding.binding())
+                    .findFirst();
+            if (existing.isEmpty()) {
+                mergedBindings.add(binding);
+                continue;
+            }
+            Binding current = existing.get();
+            if (current.descriptorType() != binding.descriptorType() || current.descriptorCount() != binding.descriptorCount()) {
+                throw new IllegalStateException(String.format("Set %d binding %d is declared differently between shader stages",
+                        binding.set(), binding.binding()));
+            }
+            mergedBindings.set(mergedBindings.indexOf(current), new Binding(current.set(), current.binding(), current.descriptorType(),
+                    current.descriptorCount(), current.stageFlags() | binding.stageFlags(),
+                    Math.max(current.blockSize(), binding.blockSize()), current.name()));
+        }
+        mergedBindings.sort(Comparator.comparingInt(Binding::set).thenComparingInt(Binding::binding));
+
+        //The same block seen by several stages becomes one range visible to all of them.
+        List<PushConstantLayout.Range> mergedRanges = new ArrayList<>(pushConstantLayout.getRanges());
+        for (PushConstantLayout.Range range : other.pushConstantLayout.getRanges()) {
+            Optional<PushConstantLayout.Range> existing = mergedRanges.stream()
+                    .filter(r -> r.offset() == range.offset() && r.size() == range.size())
+                    .findFirst();
+            if (existing.isPresent()) {
+                mergedRanges.set(mergedRanges.indexOf(existing.get()),
+                        new PushConstantLayout.Range(existing.get().stageFlags() | range.stageFlags(), range.offset(), range.size()));
+            } else {
+                mergedRanges.add(range);
+            }
+        }
+        List<VertexInput> mergedVertexInputs = new ArrayList<>(vertexInputs);
+        mergedVertexInputs.addAll(other.vertexInputs);
+
+        //One value is given per constant id for the whole pipeline, so stages sharing an id have to agree on what it is.
+        List<SpecializationConstant> mergedConstants = new ArrayList<>(specializationConstants);
+        for (SpecializationConstant constant : other.specializationConstants) {
+            Optional<SpecializationConstant> existing = mergedConstants.stream()
+                    .filter(c -> c.constantId() == constant.constantId())
+                    .findFirst();
+            if (existing.isEmpty()) {
+                mergedConstants.add(constant);
+                continue;
+            }
+            SpecializationConstant current = existing.get();
+            if (current.type() != constant.type()) {
+                throw new IllegalStateException(String.format("Specialization constant %d is declared with different types between shader stages",
+                        constant.constantId()));
+            }
+            mergedConstants.set(mergedConstants.indexOf(current), new SpecializationConstant(current.constantId(), current.type(),
+                    current.defaultValue(), current.stageFlags() | constant.stageFlags(), current.name()));
+        }
+        mergedConstants.sort(Comparator.comparingInt(SpecializationConstant::constantId));
+        //Only a compute stage has a workgroup size and it is always alone in its pipeline.
+        WorkgroupSize mergedWorkgroupSize = workgroupSize != null ? workgroupSize : other.workgroupSize;
+        return new ShaderInterface(stageFlags | other.stageFlags, mergedBindings, new PushConstantLayout(mergedRanges), mergedVertexInputs,
+                mergedConstants, mergedWorkgroupSize);
+    }
+
+    public int getSetCount() {
+        return bindings.isEmpty() ? 0 : bindings.get(bindings.size() - 1).set() + 1;
+    }
+
+    public List<Binding> getBindings(int set) {
+        return bindings.stream().filter(binding -> binding.set() == set).toList();
+    }
+
+    public Optional<Binding> findBinding(int set, int binding) {
+        return bindings.stream().filter(b -> b.set() == set && b.binding() == binding).findFirst();
+    }
+
+    public int getStageFlags() {
+        return stageFlags;
+    }
+
+    public List<Binding> getBindings() {
+        return bindings;
+    }
+
+    public PushConstantLayout getPushConstantLayout() {
+        return pushConstantLayout;
+    }
+
+    public List<VertexInput> getVertexInputs() {
+        return vertexInputs;
+    }
+
+    public List<SpecializationConstant> getSpecializationConstants() {
+        return specializationConstants;
+    }
+
+    //Null for anything but compute shaders.
+    public WorkgroupSize getWorkgroupSize() {
+        return workgroupSize;
+    }
+
+    public Optional<SpecializationConstant> findSpecializationConstant(int constantId) {
+        return specializationConstants.stream().filter(c -> c.constantId() == constantId).findFirst();
+    }
+
+    //blockSize is the number of bytes a buffer binding reads, 0 for images and samplers.
+    public record Binding(int set, int binding, int descriptorType, int descriptorCount, int stageFlags, int blockSize, String name) {
+    }
+
+    public record VertexInput(int location, int format, String name) {
+    }
+
+    //local_size_x, y and z of a compute shader.
+    public record WorkgroupSize(int x, int y, int z) {
+    }
+
+    //defaultValue holds the raw 32 bits the shader was compiled with.
+    public record SpecializationConstant(int constantId, Type type, int defaultValue, int stageFlags, String name) {
+        public enum Type {
+            BOOL,
+            INT,
+            UINT,
+            FLOAT
+        }
+    }
+}
@@ -5,19 +5,21 @@ import org.lwjgl.vulkan.VK10;
 import org.lwjgl.vulkan.VkDevice;
 import org.lwjgl.vulkan.VkShaderModuleCreateInfo;
 
+import java.nio.ByteBuffer;
 import java.nio.LongBuffer;
 
 public class ShaderModule {
     private final Long shaderModulePointer;
     private final VkDevice device;
 
-    public ShaderModule(final VkDevice device, final LoadedShader loadedShader) {
+    //The code is only read during this call, it can be a view straight into the mapped ShaderPack.
+    public ShaderModule(final VkDevice device, final String name, final ByteBuffer code) {
         this.device = device;
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
             VkShaderModuleCreateInfo shaderModuleCreateInfo = VkShaderModuleCreateInfo.calloc(memoryStack);
             shaderModuleCreateInfo
                     .sType(VK10.VK_STRUCTURE_TYPE_SHADER_MODULE_CREATE_INFO)
-                    .pCode(loadedShader.getShaderCode());
+                    .pCode(code);
             LongBuffer shaderModulePointerBuffer = memoryStack.mallocLong(1);
             int result = VK10.vkCreateShaderModule(
                     device,
@@ -25,7 +27,7 @@ public class ShaderModule {
                     null,
                     shaderModulePointerBuffer);
             if (result != VK10.VK_SUCCESS) {
-                throw new IllegalStateException(String.format("Failed to create shader for %s. Error code %d", loadedShader.getFileName(), result));
+                throw new IllegalStateException(String.format("Failed to create shader for %s. Error code %d", name, result));
             }
             shaderModulePointer = shaderModulePointerBuffer.get(0);
         }
@@ -0,0 +1,231 @@
+package my.game.init.vulkan.pipeline.shaders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+//All compiled shaders in one file that is memory mapped once. Looking a shader up is a binary search over a sorted hash
+// index and returns a slice of the mapping, which is handed to vkCreateShaderModule as is, so nothing gets copied and
+// opening the pack costs the same no matter how many shaders are in it.
+// Layout, little endian:
+// header:  magic, version, entry count, offset of the names (4 ints)
+// index:   one entry per shader sorted by name hash: name hash (long), name offset, name length, code offset,
+//          code size (ints) and the hash of everything the shader was compiled from (32 bytes)
+// names:   utf-8 shader names the index points into, to rule out hash collisions
+// code:    the spir-v of each shader, starting on CODE_ALIGNMENT
+// A pack file is never modified or replaced once written, since older packs can still be mapped. ShaderPackVersions
+// gives every new pack its own file.
+public class ShaderPack {
+    private static final int MAGIC = 0x4B415053; //"SPAK"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+    public static final int SOURCE_HASH_SIZE = 32;
+    private static final int ENTRY_SIZE = Long.BYTES + 4 * Integer.BYTES + SOURCE_HASH_SIZE;
+    //Spir-v is read as 32 bit words, give it a bit more so blobs never straddle more cache lines than they have to.
+    private static final int CODE_ALIGNMENT = 16;
+
+    private final Path path;
+    private final MappedByteBuffer mapping;
+    private final ByteBuffer data;
+    private final int entryCount;
+
+    private ShaderPack(Path path, MappedByteBuffer mapping) {
+        this.path = path;
+        this.mapping = mapping;
+        this.data = mapping.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IllegalStateException(String.format("%s is not a shader pack", path));
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IllegalStateException(String.format("Shader pack %s has version %d, expected %d", path, data.getInt(4), VERSION));
+        }
+        entryCount = data.getInt(8);
+        if (entryCount < 0 || HEADER_SIZE + (long) entryCount * ENTRY_SIZE > data.capacity()) {
+            throw new IllegalStateException(String.format("Shader pack %s is truncated", path));
+        }
+        for (int i = 0; i < entryCount; ++i) {
+            int entry = entryOffset(i);
+            if ((long) data.getInt(entry + 8) + data.getInt(entry + 12) > data.capacity()
+                    || (long) data.getInt(entry + 16) + data.getInt(entry + 20) > data.capacity()) {
+                throw new IllegalStateException(String.format("Shader pack %s is truncated", path));
+            }
+        }
+    }
+
+    public static ShaderPack open(Path path) {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            //The mapping outlives the channel.
+            return new ShaderPack(path, fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()));
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Failed to open shader pack %s", path), e);
+        }
+    }
+
+    //Null instead of an exception when the pack is missing or unreadable, for callers that can rebuild it.
+    public static ShaderPack openIfValid(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            return open(path);
+        } catch (IllegalStateException e) {
+            System.out.printf("Ignoring shader pack. %s%n", e.getMessage());
+            return null;
+        }
+    }
+
+    //Zero copy view of the shader's spir-v, valid for as long as this pack is reachable.
+    public ByteBuffer getCode(String name) {
+        int entry = find(name);
+        if (entry == -1) {
+            throw new IllegalStateException(String.format("Shader %s is not in shader pack %s", name, path));
+        }
+        return mapping.slice(data.getInt(entry + 16), data.getInt(entry + 20)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public boolean contains(String name) {
+        return find(name) != -1;
+    }
+
+    public boolean hasSourceHash(String name, byte[] sourceHash) {
+        int entry = find(name);
+        if (entry == -1) {
+            return false;
+        }
+        byte[] stored = new byte[SOURCE_HASH_SIZE];
+        data.get(entry + 24, stored);
+        return Arrays.equals(stored, sourceHash);
+    }
+
+    public List<String> getNames() {
+        List<String> names = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; ++i) {
+            names.add(readName(entryOffset(i)));
+        }
+        return names;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private int find(String name) {
+        long hash = hashName(name);
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleHash = data.getLong(entryOffset(middle));
+            if (middleHash < hash) {
+                low = middle + 1;
+            } else if (middleHash > hash) {
+                high = middle - 1;
+            } else {
+                //Step back to the first entry with this hash, then check the names of all that share it.
+                while (middle > 0 && data.getLong(entryOffset(middle - 1)) == hash) {
+                    --middle;
+                }
+                for (; middle < entryCount && data.getLong(entryOffset(middle)) == hash; ++middle) {
+                    if (readName(entryOffset(middle)).equals(name)) {
+                        return entryOffset(middle);
+                    }
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private String readName(int entry) {
+        byte[] name = new byte[data.getInt(entry + 12)];
+        data.get(data.getInt(entry + 8), name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private static int entryOffset(int index) {
+        return HEADER_SIZE + index * ENTRY_SIZE;
+    }
+
+    //64 bit FNV-1a.
+    private static long hashName(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    //Writes the pack to a temporary file first and moves it into place, so readers only ever see a complete pack.
+    // Fails if path already exists instead of replacing a file that might be mapped.
+    public static void write(Path path, List<Entry> entries) throws IOException {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong(entry -> hashName(entry.name())));
+        List<byte[]> names = sorted.stream().map(entry -> entry.name().getBytes(StandardCharsets.UTF_8)).toList();
+        int namesOffset = HEADER_SIZE + sorted.size() * ENTRY_SIZE;
+        int namesSize = names.stream().mapToInt(name -> name.length).sum();
+        int codeOffset = align(namesOffset + namesSize);
+        int size = codeOffset;
+        for (Entry entry : sorted) {
+            size = align(size + entry.code().remaining());
+        }
+
+        ByteBuffer pack = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        pack.putInt(MAGIC).putInt(VERSION).putInt(sorted.size()).putInt(namesOffset);
+        int nameOffset = namesOffset;
+        for (int i = 0; i < sorted.size(); ++i) {
+            Entry entry = sorted.get(i);
+            if (entry.sourceHash().length != SOURCE_HASH_SIZE) {
+                throw new IllegalArgumentException(String.format("Source hash of %s must be %d bytes", entry.name(), SOURCE_HASH_SIZE));
+            }
+            pack.putLong(hashName(entry.name()))
+                    .putInt(nameOffset)
+                    .putInt(names.get(i).length)
+                    .putInt(codeOffset)
+                    .putInt(entry.code().remaining())
+                    .put(entry.sourceHash());
+            pack.put(nameOffset, names.get(i));
+            pack.put(codeOffset, entry.code(), entry.code().position(), entry.code().remaining());
+            nameOffset += names.get(i).length;
+            codeOffset = align(codeOffset + entry.code().remaining());
+        }
+        pack.clear();
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel fileChannel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (pack.hasRemaining()) {
+                    fileChannel.write(pack);
+                }
+            }
+            //ATOMIC_MOVE would silently replace an existing file on some platforms, a plain move within the directory is
+            // still a rename and refuses to.
+            Files.move(temporary, path);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static int align(int offset) {
+        return (offset + CODE_ALIGNMENT - 1) / CODE_ALIGNMENT * CODE_ALIGNMENT;
+    }
+
+    public record Entry(String name, byte[] sourceHash, ByteBuffer code) {
+    }
+}
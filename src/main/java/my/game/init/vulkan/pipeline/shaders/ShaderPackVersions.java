@@ -0,0 +1,95 @@
+package my.game.init.vulkan.pipeline.shaders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+//A pack stays mapped for as long as anything still uses its code, and on Windows a mapped file can neither be replaced
+// nor deleted. So packs are never written over: every write gets the next number after the configured path, cache/shaders.pack
+// becomes cache/shaders.1.pack, cache/shaders.2.pack and so on, and the highest number that opens is the current pack.
+// The older ones are deleted on the next startup, before anything has mapped them.
+class ShaderPackVersions {
+    private final Path basePath;
+    private final Path directory;
+    private final String prefix;
+    private final String suffix;
+
+    ShaderPackVersions(Path basePath) {
+        this.basePath = basePath.toAbsolutePath().normalize();
+        this.directory = this.basePath.getParent();
+        String fileName = this.basePath.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        this.prefix = (extension == -1 ? fileName : fileName.substring(0, extension)) + ".";
+        this.suffix = extension == -1 ? "" : fileName.substring(extension);
+    }
+
+    //The newest pack that opens, or null when there is none yet.
+    ShaderPack openLatest() {
+        for (Path path : list()) {
+            ShaderPack shaderPack = ShaderPack.openIfValid(path);
+            if (shaderPack != null) {
+                return shaderPack;
+            }
+        }
+        return null;
+    }
+
+    //Where the next pack goes. Nothing exists there yet, so nobody can have it mapped.
+    Path next() {
+        List<Path> versions = list();
+        return path(versions.isEmpty() ? 1 : version(versions.get(0)) + 1);
+    }
+
+    //Only safe before the packs being deleted could have been mapped, so call it once on startup. current may be null.
+    void deleteAllBut(ShaderPack current) {
+        List<Path> superseded = new ArrayList<>(list());
+        //Written by builds from before packs were numbered.
+        superseded.add(basePath);
+        for (Path path : superseded) {
+            if (current != null && path.equals(current.getPath().toAbsolutePath().normalize())) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                //Probably another instance of the game still has it mapped, the next startup tries again.
+                System.out.printf("Failed to delete old shader pack [%s]. %s%n", path, e);
+            }
+        }
+    }
+
+    //Newest first.
+    List<Path> list() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> version(path) > 0)
+                    .sorted(Comparator.comparingLong(this::version).reversed())
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Failed to list shader packs in %s", directory), e);
+        }
+    }
+
+    Path path(long version) {
+        return directory.resolve(prefix + version + suffix);
+    }
+
+    //The number in the file name, or -1 when the file is not one of our packs.
+    long version(Path path) {
+        String fileName = path.getFileName().toString();
+        if (!fileName.startsWith(prefix) || !fileName.endsWith(suffix) || fileName.length() <= prefix.length() + suffix.length()) {
+            return -1;
+        }
+        String number = fileName.substring(prefix.length(), fileName.length() - suffix.length());
+        if (number.length() > 18 || !number.chars().allMatch(character -> character >= '0' && character <= '9')) {
+            return -1;
+        }
+        return Long.parseLong(number);
+    }
+}
@@ -0,0 +1,391 @@
+package my.game.init.vulkan.pipeline.shaders;
+
+import my.game.init.vulkan.drawing.transformation.PushConstantLayout;
+import org.lwjgl.vulkan.VK10;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Reads what a compiled shader expects from the outside directly from its SPIR-V words: descriptor bindings, push constant
+// blocks and vertex inputs. Only the handful of instructions that describe the shader interface are looked at, everything
+// else is skipped using the word count every instruction starts with.
+// https://registry.khronos.org/SPIR-V/specs/unified1/SPIRV.html
+public final class ShaderReflection {
+    private static final int MAGIC = 0x07230203;
+    private static final int HEADER_WORDS = 5;
+
+    private static final int OP_NAME = 5;
+    private static final int OP_ENTRY_POINT = 15;
+    private static final int OP_EXECUTION_MODE = 16;
+    private static final int OP_TYPE_BOOL = 20;
+    private static final int OP_TYPE_INT = 21;
+    private static final int OP_TYPE_FLOAT = 22;
+    private static final int OP_TYPE_VECTOR = 23;
+    private static final int OP_TYPE_MATRIX = 24;
+    private static final int OP_TYPE_IMAGE = 25;
+    private static final int OP_TYPE_SAMPLER = 26;
+    private static final int OP_TYPE_SAMPLED_IMAGE = 27;
+    private static final int OP_TYPE_ARRAY = 28;
+    private static final int OP_TYPE_RUNTIME_ARRAY = 29;
+    private static final int OP_TYPE_STRUCT = 30;
+    private static final int OP_TYPE_POINTER = 32;
+    private static final int OP_CONSTANT = 43;
+    private static final int OP_SPEC_CONSTANT_TRUE = 48;
+    private static final int OP_SPEC_CONSTANT_FALSE = 49;
+    private static final int OP_SPEC_CONSTANT = 50;
+    private static final int OP_VARIABLE = 59;
+    private static final int OP_DECORATE = 71;
+    private static final int OP_MEMBER_DECORATE = 72;
+
+    private static final int DECORATION_SPEC_ID = 1;
+    private static final int DECORATION_BLOCK = 2;
+    private static final int DECORATION_BUFFER_BLOCK = 3;
+    private static final int DECORATION_ROW_MAJOR = 4;
+    private static final int DECORATION_ARRAY_STRIDE = 6;
+    private static final int DECORATION_MATRIX_STRIDE = 7;
+    private static final int DECORATION_BUILT_IN = 11;
+    private static final int DECORATION_LOCATION = 30;
+    private static final int DECORATION_BINDING = 33;
+    private static final int DECORATION_DESCRIPTOR_SET = 34;
+    private static final int DECORATION_OFFSET = 35;
+
+    private static final int STORAGE_UNIFORM_CONSTANT = 0;
+    private static final int STORAGE_INPUT = 1;
+    private static final int STORAGE_UNIFORM = 2;
+    private static final int STORAGE_PUSH_CONSTANT = 9;
+    private static final int STORAGE_STORAGE_BUFFER = 12;
+
+    private static final int DIM_BUFFER = 5;
+
+    private static final int EXECUTION_MODE_LOCAL_SIZE = 17;
+
+    private ShaderReflection() {
+    }
+
+    public static ShaderInterface reflect(String name, ByteBuffer spirv) {
+        IntBuffer words = spirv.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        if (words.remaining() < HEADER_WORDS) {
+            throw new IllegalStateException(String.format("Shader %s is too small to be SPIR-V", name));
+        }
+        if (words.get(0) != MAGIC) {
+            //SPIR-V may be stored in either byte order, the magic number tells which one.
+            words = spirv.slice().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+            if (words.get(0) != MAGIC) {
+                throw new IllegalStateException(String.format("Shader %s is not SPIR-V", name));
+            }
+        }
+        Module module = new Module(name);
+        int position = HEADER_WORDS;
+        while (position < words.limit()) {
+            int instruction = words.get(position);
+            int wordCount = instruction >>> 16;
+            if (wordCount == 0 || position + wordCount > words.limit()) {
+                throw new IllegalStateException(String.format("Shader %s has a malformed instruction at word %d", name, position));
+            }
+            int[] operands = new int[wordCount - 1];
+            words.get(position + 1, operands);
+            module.read(instruction & 0xFFFF, operands);
+            position += wordCount;
+        }
+        return module.toShaderInterface();
+    }
+
+    private static class Module {
+        private final String name;
+        private final Map<Integer, Type> types = new HashMap<>();
+        private final Map<Integer, Integer> constants = new HashMap<>();
+        private final Map<Integer, String> names = new HashMap<>();
+        private final Map<Integer, Map<Integer, Integer>> decorations = new HashMap<>();
+        private final Map<Integer, Map<Integer, Map<Integer, Integer>>> memberDecorations = new HashMap<>();
+        private final List<int[]> variables = new ArrayList<>();
+        //Result type, result id and default value of every OpSpecConstant*, bools get 0 or 1 as their value.
+        private final List<int[]> specConstants = new ArrayList<>();
+        private int stage = -1;
+        private ShaderInterface.WorkgroupSize workgroupSize;
+
+        private Module(String name) {
+            this.name = name;
+        }
+
+        private void read(int opcode, int[] operands) {
+            switch (opcode) {
+                case OP_NAME -> names.put(operands[0], decodeString(operands, 1));
+                case OP_ENTRY_POINT -> {
+                    if (stage != -1) {
+                        throw new IllegalStateException(String.format("Shader %s has more than one entry point", name));
+                    }
+                    stage = toStageFlag(operands[0]);
+                }
+                //With local_size_x_id the sizes here are only the defaults, the specialization constants can still change them.
+                case OP_EXECUTION_MODE -> {
+                    if (operands[1] == EXECUTION_MODE_LOCAL_SIZE) {
+                        workgroupSize = new ShaderInterface.WorkgroupSize(operands[2], operands[3], operands[4]);
+                    }
+                }
+                case OP_TYPE_BOOL -> types.put(operands[0], new Type(opcode, new int[]{32}));
+                case OP_TYPE_INT, OP_TYPE_FLOAT, OP_TYPE_VECTOR, OP_TYPE_MATRIX, OP_TYPE_IMAGE, OP_TYPE_SAMPLER,
+                     OP_TYPE_SAMPLED_IMAGE, OP_TYPE_ARRAY, OP_TYPE_RUNTIME_ARRAY, OP_TYPE_STRUCT, OP_TYPE_POINTER ->
+                        types.put(operands[0], new Type(opcode, Arrays.copyOfRange(operands, 1, operands.length)));
+                //Only needed for array lengths, which are always 32 bit.
+                case OP_CONSTANT -> constants.put(operands[1], operands[2]);
+                case OP_SPEC_CONSTANT_TRUE -> specConstants.add(new int[]{operands[0], operands[1], 1});
+                case OP_SPEC_CONSTANT_FALSE -> specConstants.add(new int[]{operands[0], operands[1], 0});
+                case OP_SPEC_CONSTANT -> specConstants.add(new int[]{operands[0], operands[1], operands[2]});
+                case OP_VARIABLE -> variables.add(operands);
+                case OP_DECORATE -> decorations.computeIfAbsent(operands[0], k -> new HashMap<>())
+                        .put(operands[1], operands.length > 2 ? operands[2] : 0);
+                case OP_MEMBER_DECORATE -> memberDecorations.computeIfAbsent(operands[0], k -> new HashMap<>())
+                        .computeIfAbsent(operands[1], k -> new HashMap<>())
+                        .put(operands[2], operands.length > 3 ? operands[3] : 0);
+                default -> {
+                }
+            }
+        }
+
+        private ShaderInterface toShaderInterface() {
+            if (stage == -1) {
+                throw new IllegalStateException(String.format("Shader %s has no entry point", name));
+            }
+            List<ShaderInterface.Binding> bindings = new ArrayList<>();
+            List<PushConstantLayout.Range> pushConstantRanges = new ArrayList<>();
+            List<ShaderInterface.VertexInput> vertexInputs = new ArrayList<>();
+            for (int[] variable : variables) {
+                int variableId = variable[1];
+                int storageClass = variable[2];
+                Type pointer = type(variable[0]);
+                int pointeeId = pointer.operands()[1];
+                switch (storageClass) {
+                    case STORAGE_UNIFORM, STORAGE_UNIFORM_CONSTANT, STORAGE_STORAGE_BUFFER ->
+                            bindings.add(toBinding(variableId, storageClass, pointeeId));
+                    case STORAGE_PUSH_CONSTANT -> pushConstantRanges.add(toPushConstantRange(pointeeId));
+                    case STORAGE_INPUT -> {
+                        if (stage == VK10.VK_SHADER_STAGE_VERTEX_BIT && !isBuiltIn(variableId, pointeeId)) {
+                            vertexInputs.add(new ShaderInterface.VertexInput(decoration(variableId, DECORATION_LOCATION),
+                                    toVertexFormat(pointeeId), names.getOrDefault(variableId, "")));
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+            bindings.sort(Comparator.comparingInt(ShaderInterface.Binding::set).thenComparingInt(ShaderInterface.Binding::binding));
+            vertexInputs.sort(Comparator.comparingInt(ShaderInterface.VertexInput::location));
+            List<ShaderInterface.SpecializationConstant> specializationConstants = new ArrayList<>();
+            for (int[] specConstant : specConstants) {
+                //Constants without a SpecId are derived from other constants and cannot be set from outside.
+                if (hasDecoration(specConstant[1], DECORATION_SPEC_ID)) {
+                    specializationConstants.add(new ShaderInterface.SpecializationConstant(decoration(specConstant[1], DECORATION_SPEC_ID),
+                            toSpecializationType(specConstant[0]), specConstant[2], stage, names.getOrDefault(specConstant[1], "")));
+                }
+            }
+            specializationConstants.sort(Comparator.comparingInt(ShaderInterface.SpecializationConstant::constantId));
+            return new ShaderInterface(stage, bindings, new PushConstantLayout(pushConstantRanges), vertexInputs, specializationConstants,
+                    workgroupSize);
+        }
+
+        private ShaderInterface.SpecializationConstant.Type toSpecializationType(int typeId) {
+            Type type = type(typeId);
+            if (type.opcode() != OP_TYPE_BOOL && type.operands()[0] != 32) {
+                throw new IllegalStateException(String.format("Shader %s has a specialization constant that is not 32 bits", name));
+            }
+            return switch (type.opcode()) {
+                case OP_TYPE_BOOL -> ShaderInterface.SpecializationConstant.Type.BOOL;
+                case OP_TYPE_INT -> type.operands()[1] == 1 ? ShaderInterface.SpecializationConstant.Type.INT
+                        : ShaderInterface.SpecializationConstant.Type.UINT;
+                case OP_TYPE_FLOAT -> ShaderInterface.SpecializationConstant.Type.FLOAT;
+                default -> throw new IllegalStateException(String.format("Shader %s has a specialization constant of unsupported type %d",
+                        name, type.opcode()));
+            };
+        }
+
+        private ShaderInterface.Binding toBinding(int variableId, int storageClass, int pointeeId) {
+            int count = 1;
+            int typeId = pointeeId;
+            Type type = type(typeId);
+            if (type.opcode() == OP_TYPE_RUNTIME_ARRAY) {
+                throw new IllegalStateException(String.format("Shader %s uses a runtime sized descriptor array, which is not supported", name));
+            }
+            if (type.opcode() == OP_TYPE_ARRAY) {
+                count = arrayLength(type);
+                typeId = type.operands()[0];
+                type = type(typeId);
+            }
+            int descriptorType;
+            int blockSize = 0;
+            if (storageClass == STORAGE_UNIFORM && hasDecoration(typeId, DECORATION_BLOCK)) {
+                //Uniform buffers are always dynamic here, they are all fed from slices of the per frame uniform arena.
+                descriptorType = VK10.VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER_DYNAMIC;
+                blockSize = sizeOf(typeId, -1, -1);
+            } else if (storageClass == STORAGE_STORAGE_BUFFER || hasDecoration(typeId, DECORATION_BUFFER_BLOCK)) {
+                descriptorType = VK10.VK_DESCRIPTOR_TYPE_STORAGE_BUFFER;
+                blockSize = sizeOf(typeId, -1, -1);
+            } else {
+                descriptorType = switch (type.opcode()) {
+                    case OP_TYPE_SAMPLER -> VK10.VK_DESCRIPTOR_TYPE_SAMPLER;
+                    case OP_TYPE_SAMPLED_IMAGE -> VK10.VK_DESCRIPTOR_TYPE_COMBINED_IMAGE_SAMPLER;
+                    case OP_TYPE_IMAGE -> {
+                        //Operands after the result id: sampled type, dim, depth, arrayed, ms, sampled, format.
+                        boolean texelBuffer = type.operands()[1] == DIM_BUFFER;
+                        boolean storage = type.operands()[5] == 2;
+                        if (texelBuffer) {
+                            yield storage ? VK10.VK_DESCRIPTOR_TYPE_STORAGE_TEXEL_BUFFER : VK10.VK_DESCRIPTOR_TYPE_UNIFORM_TEXEL_BUFFER;
+                        }
+                        yield storage ? VK10.VK_DESCRIPTOR_TYPE_STORAGE_IMAGE : VK10.VK_DESCRIPTOR_TYPE_SAMPLED_IMAGE;
+                    }
+                    default -> throw new IllegalStateException(String.format("Shader %s has a resource %s of an unsupported type %d",
+                            name, names.getOrDefault(variableId, "?"), type.opcode()));
+                };
+            }
+            String bindingName = names.getOrDefault(variableId, "");
+            if (bindingName.isEmpty()) {
+                bindingName = names.getOrDefault(typeId, "");
+            }
+            return new ShaderInterface.Binding(decoration(variableId, DECORATION_DESCRIPTOR_SET), decoration(variableId, DECORATION_BINDING),
+                    descriptorType, count, stage, blockSize, bindingName);
+        }
+
+        //One range per block, starting at its first member so blocks that were split up between stages with offsets stay apart.
+        private PushConstantLayout.Range toPushConstantRange(int structId) {
+            Type struct = type(structId);
+            int start = Integer.MAX_VALUE;
+            for (int member = 0; member < struct.operands().length; ++member) {
+                start = Math.min(start, memberDecoration(structId, member, DECORATION_OFFSET));
+            }
+            int end = sizeOf(structId, -1, -1);
+            //Push constant ranges have to be a multiple of 4 bytes.
+            return new PushConstantLayout.Range(stage, start, (end - start + 3) / 4 * 4);
+        }
+
+        //Size the value takes up inside a block, using the explicit offsets and strides the compiler decorated it with.
+        private int sizeOf(int typeId, int matrixStride, int rowMajor) {
+            Type type = type(typeId);
+            int[] operands = type.operands();
+            return switch (type.opcode()) {
+                case OP_TYPE_BOOL, OP_TYPE_INT, OP_TYPE_FLOAT -> operands[0] / 8;
+                case OP_TYPE_VECTOR -> operands[1] * sizeOf(operands[0], -1, -1);
+                case OP_TYPE_MATRIX -> {
+                    if (matrixStride == -1) {
+                        throw new IllegalStateException(String.format("Shader %s has a matrix without a matrix stride", name));
+                    }
+                    int columns = operands[1];
+                    int rows = type(operands[0]).operands()[1];
+                    yield (rowMajor == 1 ? rows : columns) * matrixStride;
+                }
+                case OP_TYPE_ARRAY -> arrayLength(type) * decoration(typeId, DECORATION_ARRAY_STRIDE);
+                case OP_TYPE_STRUCT -> {
+                    int end = 0;
+                    for (int member = 0; member < operands.length; ++member) {
+                        Map<Integer, Integer> memberDecoration = memberDecorations.getOrDefault(typeId, Map.of()).getOrDefault(member, Map.of());
+                        int memberOffset = memberDecoration.getOrDefault(DECORATION_OFFSET, 0);
+                        int memberSize = sizeOf(operands[member], memberDecoration.getOrDefault(DECORATION_MATRIX_STRIDE, -1),
+                                memberDecoration.containsKey(DECORATION_ROW_MAJOR) ? 1 : 0);
+                        end = Math.max(end, memberOffset + memberSize);
+                    }
+                    yield end;
+                }
+                case OP_TYPE_RUNTIME_ARRAY -> 0;
+                default -> throw new IllegalStateException(String.format("Shader %s has a block member of unsupported type %d", name, type.opcode()));
+            };
+        }
+
+        private int toVertexFormat(int typeId) {
+            Type type = type(typeId);
+            int components = 1;
+            if (type.opcode() == OP_TYPE_VECTOR) {
+                components = type.operands()[1];
+                type = type(type.operands()[0]);
+            }
+            boolean isFloat = type.opcode() == OP_TYPE_FLOAT;
+            if ((!isFloat && type.opcode() != OP_TYPE_INT) || type.operands()[0] != 32) {
+                throw new IllegalStateException(String.format("Shader %s has a vertex input of a type that is not supported", name));
+            }
+            boolean signed = isFloat || type.operands()[1] == 1;
+            return switch (components) {
+                case 1 -> isFloat ? VK10.VK_FORMAT_R32_SFLOAT : signed ? VK10.VK_FORMAT_R32_SINT : VK10.VK_FORMAT_R32_UINT;
+                case 2 -> isFloat ? VK10.VK_FORMAT_R32G32_SFLOAT : signed ? VK10.VK_FORMAT_R32G32_SINT : VK10.VK_FORMAT_R32G32_UINT;
+                case 3 -> isFloat ? VK10.VK_FORMAT_R32G32B32_SFLOAT : signed ? VK10.VK_FORMAT_R32G32B32_SINT : VK10.VK_FORMAT_R32G32B32_UINT;
+                default -> isFloat ? VK10.VK_FORMAT_R32G32B32A32_SFLOAT : signed ? VK10.VK_FORMAT_R32G32B32A32_SINT : VK10.VK_FORMAT_R32G32B32A32_UINT;
+            };
+        }
+
+        private boolean isBuiltIn(int variableId, int typeId) {
+            if (hasDecoration(variableId, DECORATION_BUILT_IN)) {
+                return true;
+            }
+            //Built in blocks like gl_PerVertex are decorated on their members instead.
+            return memberDecorations.getOrDefault(typeId, Map.of()).values().stream()
+                    .anyMatch(memberDecoration -> memberDecoration.containsKey(DECORATION_BUILT_IN));
+        }
+
+        private int arrayLength(Type array) {
+            Integer length = constants.get(array.operands()[1]);
+            if (length == null) {
+                //Array lengths set through specialization constants are only known once the pipeline is created.
+                throw new IllegalStateException(String.format("Shader %s has an array whose length is not a constant", name));
+            }
+            return length;
+        }
+
+        private Type type(int id) {
+            Type type = types.get(id);
+            if (type == null) {
+                throw new IllegalStateException(String.format("Shader %s references unknown type %d", name, id));
+            }
+            return type;
+        }
+
+        private boolean hasDecoration(int id, int decoration) {
+            return decorations.getOrDefault(id, Map.of()).containsKey(decoration);
+        }
+
+        private int decoration(int id, int decoration) {
+            Integer value = decorations.getOrDefault(id, Map.of()).get(decoration);
+            //Glslang always writes set and binding, but a missing set means set 0.
+            return value == null ? 0 : value;
+        }
+
+        private int memberDecoration(int structId, int member, int decoration) {
+            return memberDecorations.getOrDefault(structId, Map.of()).getOrDefault(member, Map.of()).getOrDefault(decoration, 0);
+        }
+
+        private int toStageFlag(int executionModel) {
+            return switch (executionModel) {
+                case 0 -> VK10.VK_SHADER_STAGE_VERTEX_BIT;
+                case 1 -> VK10.VK_SHADER_STAGE_TESSELLATION_CONTROL_BIT;
+                case 2 -> VK10.VK_SHADER_STAGE_TESSELLATION_EVALUATION_BIT;
+                case 3 -> VK10.VK_SHADER_STAGE_GEOMETRY_BIT;
+                case 4 -> VK10.VK_SHADER_STAGE_FRAGMENT_BIT;
+                case 5 -> VK10.VK_SHADER_STAGE_COMPUTE_BIT;
+                default -> throw new IllegalStateException(String.format("Shader %s has unsupported execution model %d", name, executionModel));
+            };
+        }
+    }
+
+    //Literal strings are packed 4 utf-8 bytes to a word, little end first, and null terminated.
+    // Package-private for ShaderReflectionTest.
+    static String decodeString(int[] operands, int start) {
+        byte[] bytes = new byte[Math.max(0, operands.length - start) * 4];
+        int length = 0;
+        for (int i = start; i < operands.length; ++i) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                byte character = (byte) (operands[i] >>> shift);
+                if (character == 0) {
+                    return new String(bytes, 0, length, StandardCharsets.UTF_8);
+                }
+                bytes[length++] = character;
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private record Type(int opcode, int[] operands) {
+    }
+}
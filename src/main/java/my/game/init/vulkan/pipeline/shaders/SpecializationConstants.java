@@ -0,0 +1,126 @@
+package my.game.init.vulkan.pipeline.shaders;
+
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VkSpecializationInfo;
+import org.lwjgl.vulkan.VkSpecializationMapEntry;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+//Values for the layout(constant_id = n) constants of a pipeline's shaders. The driver folds them in when the pipeline is
+// created, so toggling a feature this way gives a new variant from the same spir-v without going through glsl again.
+// Compares by value since it is part of the PipelineState key. Every constant is stored as 32 bits, which covers
+// bool, int, uint and float.
+public final class SpecializationConstants {
+    public static final SpecializationConstants NONE = new SpecializationConstants(new TreeMap<>());
+
+    private final SortedMap<Integer, Value> values;
+    //The render thread looks pipelines up by state every frame, hashing the map each time would walk it through an iterator.
+    private final int hashCode;
+
+    private SpecializationConstants(SortedMap<Integer, Value> values) {
+        this.values = values;
+        this.hashCode = values.hashCode();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    //Every constant has to be declared by at least one stage, a typo in an id would otherwise be silently ignored by the driver.
+    public void validate(ShaderInterface shaderInterface, String pipelineName) {
+        for (Map.Entry<Integer, Value> value : values.entrySet()) {
+            ShaderInterface.SpecializationConstant declared = shaderInterface.findSpecializationConstant(value.getKey())
+                    .orElseThrow(() -> new IllegalStateException(String.format(
+                            "Pipeline %s sets specialization constant %d but none of its shaders declare it", pipelineName, value.getKey())));
+            if (!value.getValue().fits(declared.type())) {
+                throw new IllegalStateException(String.format("Pipeline %s sets specialization constant %d (%s) as %s but it is declared as %s",
+                        pipelineName, declared.constantId(), declared.name(), value.getValue().type(), declared.type()));
+            }
+        }
+    }
+
+    //Null when there is nothing to specialize, which is what pSpecializationInfo expects then.
+    public VkSpecializationInfo toSpecializationInfo(MemoryStack memoryStack) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        VkSpecializationMapEntry.Buffer mapEntries = VkSpecializationMapEntry.calloc(values.size(), memoryStack);
+        ByteBuffer data = memoryStack.malloc(values.size() * Integer.BYTES);
+        int offset = 0;
+        for (Map.Entry<Integer, Value> value : values.entrySet()) {
+            mapEntries.get()
+                    .constantID(value.getKey())
+                    .offset(offset)
+                    .size(Integer.BYTES);
+            data.putInt(offset, value.getValue().bits());
+            offset += Integer.BYTES;
+        }
+        mapEntries.flip();
+        return VkSpecializationInfo.calloc(memoryStack)
+                .pMapEntries(mapEntries)
+                .pData(data);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SpecializationConstants constants && values.equals(constants.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+
+    public static class Builder {
+        private final SortedMap<Integer, Value> values = new TreeMap<>();
+
+        private Builder() {
+        }
+
+        //Also used for uint constants.
+        public Builder set(int constantId, int value) {
+            values.put(constantId, new Value(ShaderInterface.SpecializationConstant.Type.INT, value));
+            return this;
+        }
+
+        //VkBool32, anything but 0 is true.
+        public Builder set(int constantId, boolean value) {
+            values.put(constantId, new Value(ShaderInterface.SpecializationConstant.Type.BOOL, value ? 1 : 0));
+            return this;
+        }
+
+        public Builder set(int constantId, float value) {
+            values.put(constantId, new Value(ShaderInterface.SpecializationConstant.Type.FLOAT, Float.floatToRawIntBits(value)));
+            return this;
+        }
+
+        public SpecializationConstants build() {
+            return values.isEmpty() ? NONE : new SpecializationConstants(new TreeMap<>(values));
+        }
+    }
+
+    private record Value(ShaderInterface.SpecializationConstant.Type type, int bits) {
+        private boolean fits(ShaderInterface.SpecializationConstant.Type declared) {
+            return type == declared || (type == ShaderInterface.SpecializationConstant.Type.INT
+                    && declared == ShaderInterface.SpecializationConstant.Type.UINT);
+        }
+
+        @Override
+        public String toString() {
+            return type == ShaderInterface.SpecializationConstant.Type.FLOAT ? Float.toString(Float.intBitsToFloat(bits))
+                    : type == ShaderInterface.SpecializationConstant.Type.BOOL ? Boolean.toString(bits != 0) : Integer.toString(bits);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package my.game.init.vulkan.struct;
+
+import my.game.processor.GpuStruct;
+import org.joml.Matrix2f;
+
+//Matches the push_constant block in basic_push.vert. Push constants use std430 so the uint follows the mat2 directly.
+@GpuStruct(layout = GpuStruct.Layout.STD430)
+public record DrawPushConstants(Matrix2f model, int materialIndex) implements Struct {
+    public static final int MODEL_OFFSET = DrawPushConstantsLayout.MODEL_OFFSET;
+    public static final int MATERIAL_INDEX_OFFSET = DrawPushConstantsLayout.MATERIAL_INDEX_OFFSET;
+    public static final int SIZE = DrawPushConstantsLayout.SIZE;
+
+    @Override
+    public int getSize() {
+        return SIZE;
+    }
+}
@@ -1,9 +1,12 @@
 package my.game.init.vulkan.struct;
 
+import my.game.processor.GpuStruct;
+
+@GpuStruct(layout = GpuStruct.Layout.SCALAR)
 public record Index(short value) implements Struct {
 
     @Override
     public int getSize() {
-        return Short.SIZE;
+        return IndexLayout.SIZE;
     }
 }
@@ -2,11 +2,14 @@ package my.game.init.vulkan.struct;
 
 import my.game.init.vulkan.math.Vector2fWithSize;
 import my.game.init.vulkan.math.Vector3fWithSize;
+import my.game.processor.GpuStruct;
 
+//Vertex input is tightly packed, so the scalar layout matches what the pipeline's attribute descriptions expect.
+@GpuStruct(layout = GpuStruct.Layout.SCALAR, vertexInput = true)
 public record Vertex(Vector2fWithSize pos, Vector3fWithSize color) implements Struct {
-    public static final int SIZE = Vector2fWithSize.SIZE + Vector3fWithSize.SIZE;
-    public static final int POSITION_OFFSET = 0;
-    public static final int COLOR_OFFSET = Vector2fWithSize.SIZE;
+    public static final int SIZE = VertexLayout.SIZE;
+    public static final int POSITION_OFFSET = VertexLayout.POS_OFFSET;
+    public static final int COLOR_OFFSET = VertexLayout.COLOR_OFFSET;
 
     public int getSize() {
         return SIZE;
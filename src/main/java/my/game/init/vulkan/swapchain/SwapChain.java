@@ -5,6 +5,7 @@ import my.game.init.vulkan.devices.physical.PhysicalDeviceInformation;
 import my.game.init.vulkan.devices.physical.SwapChainSupportDetails;
 import my.game.init.window.WindowHandle;
 import my.game.init.window.WindowSurface;
+import my.game.render.FramePacingPolicy;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.KHRSurface;
@@ -25,22 +26,30 @@ public class SwapChain {
     private final VkSurfaceFormatKHR surfaceFormat;
     private final VkExtent2D swapChainExtent;
 
-    public SwapChain(VkDevice device, PhysicalDeviceInformation physicalDeviceInformation, WindowHandle windowHandle, WindowSurface windowSurface, long oldSwapChainHandle) {
+    public SwapChain(VkDevice device, PhysicalDeviceInformation physicalDeviceInformation, WindowHandle windowHandle, WindowSurface windowSurface,
+                     FramePacingPolicy framePacingPolicy, long oldSwapChainHandle) {
         this.device = device;
         SwapChainSupportDetails swapChainSupportDetails = physicalDeviceInformation.swapChainSupportDetails();
         surfaceFormat = chooseSwapSurfaceFormat(swapChainSupportDetails.formats());
-        int presentMode = choosePresentMode(swapChainSupportDetails.presentModes());
+        int presentMode = choosePresentMode(swapChainSupportDetails.presentModes(), framePacingPolicy.presentMode());
         swapChainExtent = chooseSwapExtent(swapChainSupportDetails.capabilities(), windowHandle);
-        swapChainPointer = createSwapChain(swapChainSupportDetails, windowSurface, physicalDeviceInformation, presentMode, oldSwapChainHandle);
+        swapChainPointer = createSwapChain(swapChainSupportDetails, windowSurface, physicalDeviceInformation, presentMode,
+                framePacingPolicy.swapChainImageCount(), oldSwapChainHandle);
     }
 
-    private long createSwapChain(SwapChainSupportDetails swapChainSupportDetails, WindowSurface windowSurface, PhysicalDeviceInformation physicalDeviceInformation, int presentMode, long oldSwapChainHandle) {
+    private long createSwapChain(SwapChainSupportDetails swapChainSupportDetails, WindowSurface windowSurface, PhysicalDeviceInformation physicalDeviceInformation,
+                                 int presentMode, int requestedImageCount, long oldSwapChainHandle) {
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
-            int imageCount = swapChainSupportDetails.capabilities().minImageCount() + 1;
+            int minImageCount = swapChainSupportDetails.capabilities().minImageCount();
+            int imageCount = requestedImageCount == 0 ? minImageCount + 1 : Math.max(requestedImageCount, minImageCount);
             //We should also make sure to not exceed the maximum number of images while doing this, where 0 is a special value that means that there is no maximum:
             if (swapChainSupportDetails.capabilities().maxImageCount() > 0 && imageCount > swapChainSupportDetails.capabilities().maxImageCount()) {
                 imageCount = swapChainSupportDetails.capabilities().maxImageCount();
             }
+            if (requestedImageCount != 0 && imageCount != requestedImageCount) {
+                System.out.printf("Asked for %d swap chain images but the surface allows %d to %d, using %d%n", requestedImageCount,
+                        minImageCount, swapChainSupportDetails.capabilities().maxImageCount(), imageCount);
+            }
             VkSwapchainCreateInfoKHR vkSwapchainCreateInfoKHR = VkSwapchainCreateInfoKHR.calloc(memoryStack);
             vkSwapchainCreateInfoKHR
                     .sType(KHRSwapchain.VK_STRUCTURE_TYPE_SWAPCHAIN_CREATE_INFO_KHR)
@@ -77,7 +86,8 @@ public class SwapChain {
                     vkSwapchainCreateInfoKHR,
                     null,
                     swapChainPointerBuffer);
-            KHRSwapchain.vkDestroySwapchainKHR(device, oldSwapChainHandle, null);
+            //The old swap chain is retired now but frames still in flight may be presenting from it, the caller destroys it
+            // once they are done.
             if (result != VK10.VK_SUCCESS) {
                 throw new IllegalStateException(String.format("Failed to create swap chain. Error code: %d", result));
             }
@@ -85,7 +95,7 @@ public class SwapChain {
         }
     }
 
-    public Long getSwapChainPointer() {
+    public long getSwapChainPointer() {
         return swapChainPointer;
     }
 
@@ -107,13 +117,16 @@ public class SwapChain {
         return formats.get(0);
     }
 
-    private int choosePresentMode(IntBuffer presentModes) {
+    private int choosePresentMode(IntBuffer presentModes, FramePacingPolicy.PresentMode requested) {
         for (int i = 0; i < presentModes.capacity(); ++i) {
             int curr = presentModes.get(i);
-            if (curr == KHRSurface.VK_PRESENT_MODE_MAILBOX_KHR) {
+            if (curr == requested.getVkPresentMode()) {
                 return curr;
             }
         }
+        if (requested != FramePacingPolicy.PresentMode.FIFO) {
+            System.out.printf("Present mode %s is not supported, falling back to FIFO%n", requested);
+        }
         return KHRSurface.VK_PRESENT_MODE_FIFO_KHR;
     }
 
@@ -26,7 +26,7 @@ public class SwapChainImages {
     }
 
     private List<Long> createSwapChainImages(SwapChain swapChain) {
-        Long swapChainPointer = swapChain.getSwapChainPointer();
+        long swapChainPointer = swapChain.getSwapChainPointer();
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
             IntBuffer imageCount = memoryStack.mallocInt(1);
             int result = KHRSwapchain.vkGetSwapchainImagesKHR(device, swapChainPointer, imageCount, null);
@@ -87,6 +87,15 @@ public class SwapChainImages {
         return swapChainImageViewPointers;
     }
 
+    //Dynamic rendering draws into these directly, so they are read every frame.
+    public long getSwapChainImage(int index) {
+        return swapChainImagePointers.get(index);
+    }
+
+    public long getSwapChainImageView(int index) {
+        return swapChainImageViewPointers.get(index).get(0);
+    }
+
     public void free() {
         for (LongBuffer x : swapChainImageViewPointers) {
             VK10.vkDestroyImageView(device, x.get(0), null);
@@ -0,0 +1,122 @@
+package my.game.init.vulkan.sync;
+
+import my.game.init.vulkan.devices.logical.queue.VulkanQueue;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkFenceCreateInfo;
+import org.lwjgl.vulkan.VkSubmitInfo;
+
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+
+//Emulates a timeline with one fence per submission. Fences are recycled once they have been observed as signaled.
+// Submissions to a single queue finish in order, so we only ever have to look at the oldest pending fence.
+//The lock only covers the bookkeeping. waitForValue blocks in vkWaitForFences without it, so the render thread can keep
+// calling completedValue() while a loader thread waits. A fence somebody is waiting on is not reset until they are done,
+// resetting it would be a second thread touching it at the same time.
+public class FenceTimeline implements GpuTimeline {
+    private final VkDevice device;
+    private final ArrayDeque<PendingFence> pendingFences = new ArrayDeque<>();
+    private final ArrayDeque<Long> freeFences = new ArrayDeque<>();
+    private long lastSubmittedValue = 0;
+    private long completedValue = 0;
+
+    public FenceTimeline(VkDevice device) {
+        this.device = device;
+    }
+
+    @Override
+    public synchronized long submit(VulkanQueue queue, VkSubmitInfo submitInfo) {
+        long fence = acquireFence();
+        int result = queue.submit(submitInfo, fence);
+        if (result != VK10.VK_SUCCESS) {
+            freeFences.add(fence);
+            throw new IllegalStateException(String.format("Failed to submit command buffer. Error code: %d", result));
+        }
+        pendingFences.add(new PendingFence(++lastSubmittedValue, fence));
+        return lastSubmittedValue;
+    }
+
+    @Override
+    public synchronized long completedValue() {
+        while (!pendingFences.isEmpty() && pendingFences.peek().waiters == 0
+                && VK10.vkGetFenceStatus(device, pendingFences.peek().fence) == VK10.VK_SUCCESS) {
+            retire(pendingFences.poll());
+        }
+        return completedValue;
+    }
+
+    @Override
+    public void waitForValue(long value) {
+        while (true) {
+            PendingFence oldest;
+            synchronized (this) {
+                if (completedValue >= value || pendingFences.isEmpty()) {
+                    return;
+                }
+                oldest = pendingFences.peek();
+                oldest.waiters++;
+            }
+            int result = VK10.vkWaitForFences(device, oldest.fence, true, Long.MAX_VALUE);
+            synchronized (this) {
+                oldest.waiters--;
+                //The last thread that waited on it hands it back.
+                if (result == VK10.VK_SUCCESS && oldest.waiters == 0 && pendingFences.peek() == oldest) {
+                    retire(pendingFences.poll());
+                }
+            }
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to wait for fence. Error code: %d", result));
+            }
+        }
+    }
+
+    private void retire(PendingFence pendingFence) {
+        VK10.vkResetFences(device, pendingFence.fence);
+        freeFences.add(pendingFence.fence);
+        completedValue = pendingFence.value;
+    }
+
+    private long acquireFence() {
+        Long fence = freeFences.poll();
+        if (fence != null) {
+            return fence;
+        }
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkFenceCreateInfo fenceCreateInfo = VkFenceCreateInfo.calloc(memoryStack);
+            fenceCreateInfo
+                    .sType(VK10.VK_STRUCTURE_TYPE_FENCE_CREATE_INFO);
+            LongBuffer fenceBuffer = memoryStack.mallocLong(1);
+            int result = VK10.vkCreateFence(device, fenceCreateInfo, null, fenceBuffer);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to create fence. Error code: %d", result));
+            }
+            return fenceBuffer.get(0);
+        }
+    }
+
+    @Override
+    public synchronized void free() {
+        for (PendingFence pendingFence : pendingFences) {
+            VK10.vkDestroyFence(device, pendingFence.fence, null);
+        }
+        for (long fence : freeFences) {
+            VK10.vkDestroyFence(device, fence, null);
+        }
+        pendingFences.clear();
+        freeFences.clear();
+    }
+
+    private static class PendingFence {
+        private final long value;
+        private final long fence;
+        //Threads inside vkWaitForFences on this fence. Only changed under the timeline's lock.
+        private int waiters = 0;
+
+        private PendingFence(long value, long fence) {
+            this.value = value;
+            this.fence = fence;
+        }
+    }
+}
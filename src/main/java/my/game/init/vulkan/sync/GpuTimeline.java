@@ -0,0 +1,17 @@
+package my.game.init.vulkan.sync;
+
+import my.game.init.vulkan.devices.logical.queue.VulkanQueue;
+import org.lwjgl.vulkan.VkSubmitInfo;
+
+//A monotonically increasing counter of finished gpu work on one queue. Every submission made through the timeline gets
+// the next value, and anything that was read by that submission can be reused once completedValue() reaches it.
+public interface GpuTimeline {
+    //Submits the work and returns the value the timeline reaches once the gpu has finished it.
+    long submit(VulkanQueue queue, VkSubmitInfo submitInfo);
+
+    long completedValue();
+
+    void waitForValue(long value);
+
+    void free();
+}
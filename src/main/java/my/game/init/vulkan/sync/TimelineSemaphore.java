@@ -0,0 +1,128 @@
+package my.game.init.vulkan.sync;
+
+import my.game.init.vulkan.devices.logical.queue.VulkanQueue;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VK12;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkSemaphoreCreateInfo;
+import org.lwjgl.vulkan.VkSemaphoreTypeCreateInfo;
+import org.lwjgl.vulkan.VkSemaphoreWaitInfo;
+import org.lwjgl.vulkan.VkSubmitInfo;
+import org.lwjgl.vulkan.VkTimelineSemaphoreSubmitInfo;
+
+import java.nio.LongBuffer;
+
+//The real thing FenceTimeline emulates, a Vulkan 1.2 timeline semaphore. The gpu writes the counter itself, so there is
+// a single object no matter how many submissions are in flight and the host can wait for any value directly.
+// Reading the counter and waiting do not allocate on the java heap, the render thread does both every frame.
+public class TimelineSemaphore implements GpuTimeline {
+    private final VkDevice device;
+    private final long semaphore;
+    //Only used under the lock, so waiting needs no struct of its own.
+    private final VkSemaphoreWaitInfo waitInfo = VkSemaphoreWaitInfo.calloc();
+    private final LongBuffer waitSemaphores = MemoryUtil.memAllocLong(1);
+    private final LongBuffer waitValues = MemoryUtil.memAllocLong(1);
+    private long lastSubmittedValue = 0;
+
+    public TimelineSemaphore(VkDevice device) {
+        this.device = device;
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            VkSemaphoreTypeCreateInfo semaphoreTypeCreateInfo = VkSemaphoreTypeCreateInfo.calloc(memoryStack);
+            semaphoreTypeCreateInfo
+                    .sType(VK12.VK_STRUCTURE_TYPE_SEMAPHORE_TYPE_CREATE_INFO)
+                    .semaphoreType(VK12.VK_SEMAPHORE_TYPE_TIMELINE)
+                    .initialValue(0);
+            VkSemaphoreCreateInfo semaphoreCreateInfo = VkSemaphoreCreateInfo.calloc(memoryStack);
+            semaphoreCreateInfo
+                    .sType(VK10.VK_STRUCTURE_TYPE_SEMAPHORE_CREATE_INFO)
+                    .pNext(semaphoreTypeCreateInfo);
+            LongBuffer semaphoreBuffer = memoryStack.mallocLong(1);
+            int result = VK10.vkCreateSemaphore(device, semaphoreCreateInfo, null, semaphoreBuffer);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to create timeline semaphore. Error code: %d", result));
+            }
+            semaphore = semaphoreBuffer.get(0);
+        }
+        waitSemaphores.put(0, semaphore);
+        waitInfo
+                .sType(VK12.VK_STRUCTURE_TYPE_SEMAPHORE_WAIT_INFO)
+                .pSemaphores(waitSemaphores)
+                .pValues(waitValues);
+    }
+
+    //Adds the timeline to whatever the submission already signals. The caller's submit info is left as it was.
+    @Override
+    public synchronized long submit(VulkanQueue queue, VkSubmitInfo submitInfo) {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            long value = lastSubmittedValue + 1;
+            int signalSemaphoreCount = submitInfo.signalSemaphoreCount();
+            LongBuffer signalSemaphores = memoryStack.mallocLong(signalSemaphoreCount + 1);
+            //Binary semaphores ignore their value.
+            LongBuffer signalValues = memoryStack.callocLong(signalSemaphoreCount + 1);
+            if (signalSemaphoreCount > 0) {
+                signalSemaphores.put(submitInfo.pSignalSemaphores());
+            }
+            signalSemaphores.put(semaphore);
+            signalSemaphores.flip();
+            signalValues.put(signalSemaphoreCount, value);
+            VkTimelineSemaphoreSubmitInfo timelineSubmitInfo = VkTimelineSemaphoreSubmitInfo.calloc(memoryStack);
+            timelineSubmitInfo
+                    .sType(VK12.VK_STRUCTURE_TYPE_TIMELINE_SEMAPHORE_SUBMIT_INFO)
+                    .pNext(submitInfo.pNext())
+                    .pSignalSemaphoreValues(signalValues);
+            VkSubmitInfo timelineSubmit = VkSubmitInfo.malloc(memoryStack).set(submitInfo);
+            timelineSubmit
+                    .pNext(timelineSubmitInfo)
+                    .pSignalSemaphores(signalSemaphores);
+            int result = queue.submit(timelineSubmit, VK10.VK_NULL_HANDLE);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to submit command buffer. Error code: %d", result));
+            }
+            lastSubmittedValue = value;
+            return value;
+        }
+    }
+
+    //For submissions that fill in VkTimelineSemaphoreSubmitInfo themselves, like a frame that also signals the binary
+    // semaphore presentation waits on. Signal this semaphore with the returned value in the very next submission made
+    // through this timeline, values have to reach the queue in increasing order.
+    public synchronized long nextSignalValue() {
+        return ++lastSubmittedValue;
+    }
+
+    @Override
+    public long completedValue() {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            //An address instead of a LongBuffer keeps this free of java objects.
+            long value = memoryStack.nlong(0);
+            int result = VK12.nvkGetSemaphoreCounterValue(device, semaphore, value);
+            if (result != VK10.VK_SUCCESS) {
+                throw new IllegalStateException(String.format("Failed to read timeline semaphore. Error code: %d", result));
+            }
+            return MemoryUtil.memGetLong(value);
+        }
+    }
+
+    @Override
+    public synchronized void waitForValue(long value) {
+        waitValues.put(0, value);
+        int result = VK12.vkWaitSemaphores(device, waitInfo, Long.MAX_VALUE);
+        if (result != VK10.VK_SUCCESS) {
+            throw new IllegalStateException(String.format("Failed to wait for timeline semaphore. Error code: %d", result));
+        }
+    }
+
+    public long getHandle() {
+        return semaphore;
+    }
+
+    @Override
+    public synchronized void free() {
+        VK10.vkDestroySemaphore(device, semaphore, null);
+        waitInfo.free();
+        MemoryUtil.memFree(waitSemaphores);
+        MemoryUtil.memFree(waitValues);
+    }
+}
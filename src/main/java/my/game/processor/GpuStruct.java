@@ -0,0 +1,29 @@
+package my.game.processor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//Put this on a record that gets copied into gpu memory. GpuStructProcessor generates a <Record>Layout class next to it
+// with the size and member offsets for the chosen layout and writers that put each member at its offset with MemoryUtil.
+// Supported members are float, int, short and the joml Vector2f/3f/4f and Matrix2f/4f types.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GpuStruct {
+    Layout layout();
+
+    //Also generate the VkVertexInputBindingDescription and VkVertexInputAttributeDescription for the record,
+    // one attribute location per member in declaration order.
+    boolean vertexInput() default false;
+
+    enum Layout {
+        //Uniform blocks without extensions. Matrix columns and the struct itself are padded to 16 bytes.
+        STD140,
+        //Storage buffers, push constants and uniform blocks. Uniform blocks need the uniformBufferStandardLayout device
+        // feature, which PhysicalDeviceInformation.isValid checks for. vec3 is still aligned like a vec4.
+        STD430,
+        //GL_EXT_scalar_block_layout and vertex input. Everything is aligned to its scalar size and tightly packed.
+        SCALAR
+    }
+}
@@ -0,0 +1,211 @@
+package my.game.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Generates a <Record>Layout class for every record annotated with @GpuStruct. Offsets are worked out here at compile time,
+// so the generated writers are a flat list of MemoryUtil.memPut calls with constant offsets and no branches.
+// Compiled in its own maven-compiler execution before the rest of the sources, see the pom.
+@SupportedAnnotationTypes("my.game.processor.GpuStruct")
+public class GpuStructProcessor extends AbstractProcessor {
+    private static final Map<String, MemberType> JOML_TYPES = Map.of(
+            "org.joml.Vector2fc", MemberType.VEC2,
+            "org.joml.Vector3fc", MemberType.VEC3,
+            "org.joml.Vector4fc", MemberType.VEC4,
+            "org.joml.Matrix2fc", MemberType.MAT2,
+            "org.joml.Matrix4fc", MemberType.MAT4
+    );
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+        for (Element element : roundEnvironment.getElementsAnnotatedWith(GpuStruct.class)) {
+            if (element.getKind() != ElementKind.RECORD) {
+                error(element, "@GpuStruct can only be used on records");
+                continue;
+            }
+            TypeElement record = (TypeElement) element;
+            GpuStruct gpuStruct = record.getAnnotation(GpuStruct.class);
+            List<Member> members = layoutMembers(record, gpuStruct);
+            if (members == null) {
+                continue;
+            }
+            try {
+                writeLayoutClass(record, gpuStruct, members);
+            } catch (IOException e) {
+                error(record, String.format("Failed to write layout for %s. %s", record.getSimpleName(), e));
+            }
+        }
+        return true;
+    }
+
+    //Returns null after reporting an error if a member can not be laid out.
+    private List<Member> layoutMembers(TypeElement record, GpuStruct gpuStruct) {
+        List<Member> members = new ArrayList<>();
+        int offset = 0;
+        for (RecordComponentElement component : record.getRecordComponents()) {
+            MemberType memberType = memberType(component.asType());
+            if (memberType == null) {
+                error(component, String.format("Unsupported @GpuStruct member type %s", component.asType()));
+                return null;
+            }
+            if (gpuStruct.vertexInput() && memberType.getVertexFormat() == null) {
+                error(component, "Matrices can not be used as vertex input");
+                return null;
+            }
+            offset = MemberType.roundUp(offset, memberType.alignment(gpuStruct.layout()));
+            members.add(new Member(component.getSimpleName().toString(), memberType, offset));
+            offset += memberType.size(gpuStruct.layout());
+        }
+        return members;
+    }
+
+    private MemberType memberType(TypeMirror typeMirror) {
+        if (typeMirror.getKind() == TypeKind.FLOAT) {
+            return MemberType.FLOAT;
+        } else if (typeMirror.getKind() == TypeKind.INT) {
+            return MemberType.INT;
+        } else if (typeMirror.getKind() == TypeKind.SHORT) {
+            return MemberType.SHORT;
+        }
+        for (Map.Entry<String, MemberType> jomlType : JOML_TYPES.entrySet()) {
+            TypeElement jomlElement = processingEnv.getElementUtils().getTypeElement(jomlType.getKey());
+            if (jomlElement != null && processingEnv.getTypeUtils().isAssignable(typeMirror, jomlElement.asType())) {
+                return jomlType.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static int structAlignment(GpuStruct.Layout layout, List<Member> members) {
+        int alignment = 1;
+        for (Member member : members) {
+            alignment = Math.max(alignment, member.type().alignment(layout));
+        }
+        return layout == GpuStruct.Layout.STD140 ? MemberType.roundUp(alignment, 16) : alignment;
+    }
+
+    private void writeLayoutClass(TypeElement record, GpuStruct gpuStruct, List<Member> members) throws IOException {
+        GpuStruct.Layout layout = gpuStruct.layout();
+        String packageName = ((PackageElement) record.getEnclosingElement()).getQualifiedName().toString();
+        String recordName = record.getSimpleName().toString();
+        String layoutName = recordName + "Layout";
+        int alignment = structAlignment(layout, members);
+        int end = members.isEmpty() ? 0 : members.getLast().offset() + members.getLast().type().size(layout);
+        int size = MemberType.roundUp(end, alignment);
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(packageName + "." + layoutName, record).openWriter())) {
+            out.printf("package %s;%n%n", packageName);
+            out.printf("import org.lwjgl.system.MemoryUtil;%n");
+            if (gpuStruct.vertexInput()) {
+                out.printf("import org.lwjgl.system.MemoryStack;%n");
+                out.printf("import org.lwjgl.vulkan.VK10;%n");
+                out.printf("import org.lwjgl.vulkan.VkVertexInputAttributeDescription;%n");
+                out.printf("import org.lwjgl.vulkan.VkVertexInputBindingDescription;%n");
+            }
+            out.printf("%nimport java.nio.ByteBuffer;%nimport java.util.List;%n%n");
+            out.printf("//Generated by GpuStructProcessor from %s with the %s layout. Do not edit.%n", recordName, layout);
+            out.printf("public final class %s {%n", layoutName);
+            out.printf("    public static final int SIZE = %d;%n", size);
+            out.printf("    public static final int ALIGNMENT = %d;%n", alignment);
+            for (Member member : members) {
+                out.printf("    public static final int %s_OFFSET = %d;%n", constantName(member.name()), member.offset());
+            }
+            out.printf("%n    private %s() {}%n", layoutName);
+
+            out.printf("%n    public static void write(%s value, long address) {%n", recordName);
+            for (Member member : members) {
+                writeMember(out, layout, member);
+            }
+            out.printf("    }%n");
+
+            out.printf("%n    //Writes at offset from the start of the buffer, its position is ignored.%n");
+            out.printf("    public static void write(%s value, ByteBuffer buffer, int offset) {%n", recordName);
+            out.printf("        write(value, MemoryUtil.memAddress0(buffer) + offset);%n");
+            out.printf("    }%n");
+
+            out.printf("%n    public static void writeAll(List<? extends %s> values, long address) {%n", recordName);
+            out.printf("        for (int i = 0; i < values.size(); ++i) {%n");
+            out.printf("            write(values.get(i), address + (long) i * SIZE);%n");
+            out.printf("        }%n");
+            out.printf("    }%n");
+
+            if (gpuStruct.vertexInput()) {
+                writeVertexInput(out, members);
+            }
+            out.printf("}%n");
+        }
+    }
+
+    private static void writeMember(PrintWriter out, GpuStruct.Layout layout, Member member) {
+        MemberType type = member.type();
+        if (type.isScalar()) {
+            out.printf("        MemoryUtil.memPut%s(address + %d, value.%s());%n", type.getMemPutSuffix(), member.offset(), member.name());
+            return;
+        }
+        String local = member.name() + "Member";
+        out.printf("        var %s = value.%s();%n", local, member.name());
+        for (int column = 0; column < type.getColumns(); ++column) {
+            for (int row = 0; row < type.getRows(); ++row) {
+                int offset = member.offset() + column * type.columnStride(layout) + row * type.getScalarSize();
+                out.printf("        MemoryUtil.memPut%s(address + %d, %s.%s);%n", type.getMemPutSuffix(), offset, local, type.componentAccessor(column, row));
+            }
+        }
+    }
+
+    private static void writeVertexInput(PrintWriter out, List<Member> members) {
+        out.printf("%n    public static VkVertexInputBindingDescription.Buffer bindingDescriptions(int binding, MemoryStack memoryStack) {%n");
+        out.printf("        VkVertexInputBindingDescription.Buffer bindingDescriptions = VkVertexInputBindingDescription.calloc(1, memoryStack);%n");
+        out.printf("        bindingDescriptions.get(0)%n");
+        out.printf("                .binding(binding)%n");
+        out.printf("                .stride(SIZE)%n");
+        out.printf("                .inputRate(VK10.VK_VERTEX_INPUT_RATE_VERTEX);%n");
+        out.printf("        return bindingDescriptions;%n");
+        out.printf("    }%n");
+
+        out.printf("%n    public static VkVertexInputAttributeDescription.Buffer attributeDescriptions(int binding, int firstLocation, MemoryStack memoryStack) {%n");
+        out.printf("        VkVertexInputAttributeDescription.Buffer attributeDescriptions = VkVertexInputAttributeDescription.calloc(%d, memoryStack);%n", members.size());
+        for (int i = 0; i < members.size(); ++i) {
+            Member member = members.get(i);
+            out.printf("        attributeDescriptions.get(%d)%n", i);
+            out.printf("                .binding(binding)%n");
+            out.printf("                .location(firstLocation + %d)%n", i);
+            out.printf("                .format(VK10.%s)%n", member.type().getVertexFormat());
+            out.printf("                .offset(%d);%n", member.offset());
+        }
+        out.printf("        return attributeDescriptions;%n");
+        out.printf("    }%n");
+    }
+
+    //pos -> POS, materialIndex -> MATERIAL_INDEX
+    private static String constantName(String memberName) {
+        return memberName.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private record Member(String name, MemberType type, int offset) {
+    }
+}
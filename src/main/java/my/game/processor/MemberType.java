@@ -0,0 +1,101 @@
+package my.game.processor;
+
+//The member types a GpuStruct can contain and how big and aligned they are in each layout.
+// Matrices are stored column major as columns vectors of rows floats.
+enum MemberType {
+    FLOAT("Float", 4, 1, 1, "VK_FORMAT_R32_SFLOAT"),
+    INT("Int", 4, 1, 1, "VK_FORMAT_R32_SINT"),
+    SHORT("Short", 2, 1, 1, "VK_FORMAT_R16_SINT"),
+    VEC2("Float", 4, 2, 1, "VK_FORMAT_R32G32_SFLOAT"),
+    VEC3("Float", 4, 3, 1, "VK_FORMAT_R32G32B32_SFLOAT"),
+    VEC4("Float", 4, 4, 1, "VK_FORMAT_R32G32B32A32_SFLOAT"),
+    MAT2("Float", 4, 2, 2, null),
+    MAT4("Float", 4, 4, 4, null);
+
+    private static final String[] VECTOR_COMPONENTS = {"x", "y", "z", "w"};
+
+    private final String memPutSuffix;
+    private final int scalarSize;
+    private final int rows;
+    private final int columns;
+    private final String vertexFormat;
+
+    MemberType(String memPutSuffix, int scalarSize, int rows, int columns, String vertexFormat) {
+        this.memPutSuffix = memPutSuffix;
+        this.scalarSize = scalarSize;
+        this.rows = rows;
+        this.columns = columns;
+        this.vertexFormat = vertexFormat;
+    }
+
+    boolean isScalar() {
+        return rows == 1 && columns == 1;
+    }
+
+    boolean isMatrix() {
+        return columns > 1;
+    }
+
+    String getMemPutSuffix() {
+        return memPutSuffix;
+    }
+
+    int getScalarSize() {
+        return scalarSize;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getColumns() {
+        return columns;
+    }
+
+    String getVertexFormat() {
+        return vertexFormat;
+    }
+
+    //How the value of one component is read from the java object, x() for vectors and m<column><row>() for matrices.
+    String componentAccessor(int column, int row) {
+        if (isMatrix()) {
+            return String.format("m%d%d()", column, row);
+        }
+        return VECTOR_COMPONENTS[row] + "()";
+    }
+
+    //A vec3 is aligned like a vec4 everywhere except the scalar layout.
+    private int vectorAlignment(GpuStruct.Layout layout) {
+        if (layout == GpuStruct.Layout.SCALAR || rows == 1) {
+            return scalarSize;
+        }
+        return (rows == 2 ? 2 : 4) * scalarSize;
+    }
+
+    //In the scalar layout a matrix is only aligned to its scalar size, its columns are still packed back to back.
+    int alignment(GpuStruct.Layout layout) {
+        if (isMatrix() && layout != GpuStruct.Layout.SCALAR) {
+            return columnStride(layout);
+        }
+        return vectorAlignment(layout);
+    }
+
+    int columnStride(GpuStruct.Layout layout) {
+        return switch (layout) {
+            case SCALAR -> rows * scalarSize;
+            case STD430 -> vectorAlignment(layout);
+            case STD140 -> roundUp(vectorAlignment(layout), 16);
+        };
+    }
+
+    int size(GpuStruct.Layout layout) {
+        if (isMatrix()) {
+            return columns * columnStride(layout);
+        }
+        return rows * scalarSize;
+    }
+
+    static int roundUp(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+}
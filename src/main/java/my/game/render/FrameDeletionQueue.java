@@ -0,0 +1,38 @@
+package my.game.render;
+
+import java.util.ArrayDeque;
+
+//Destroys objects once every frame that could still be using them has finished on the gpu, instead of waiting for
+// the whole device to go idle. Keyed by the renderer's frame timeline: every frame submission reaches the next value,
+// so something deferred after the submission of value n was at most used by submissions up to n and can go once the
+// timeline has completed n.
+// Only used from the render thread.
+public class FrameDeletionQueue {
+    private final ArrayDeque<Deletion> deletions = new ArrayDeque<>();
+    private long lastSubmittedValue = 0;
+
+    public void defer(Runnable deletion) {
+        deletions.add(new Deletion(lastSubmittedValue, deletion));
+    }
+
+    public void frameSubmitted(long timelineValue) {
+        lastSubmittedValue = timelineValue;
+    }
+
+    //Frees everything the gpu is done with.
+    public void retire(long completedValue) {
+        while (!deletions.isEmpty() && deletions.peek().timelineValue() <= completedValue) {
+            deletions.poll().deletion().run();
+        }
+    }
+
+    //Only when the device is idle.
+    public void flush() {
+        while (!deletions.isEmpty()) {
+            deletions.poll().deletion().run();
+        }
+    }
+
+    private record Deletion(long timelineValue, Runnable deletion) {
+    }
+}
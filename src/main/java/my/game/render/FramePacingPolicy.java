@@ -0,0 +1,61 @@
+package my.game.render;
+
+import org.lwjgl.vulkan.KHRSurface;
+
+//How far the cpu may run ahead of the gpu and how finished frames reach the screen. Fewer frames in flight and fewer swap
+// chain images mean less input latency, more of them keep the gpu busy when frame times vary.
+// swapChainImageCount 0 asks for one more than the surface's minimum.
+public record FramePacingPolicy(int framesInFlight, PresentMode presentMode, int swapChainImageCount) {
+    public static final int MAX_FRAMES_IN_FLIGHT = 3;
+
+    public FramePacingPolicy {
+        if (framesInFlight < 1 || framesInFlight > MAX_FRAMES_IN_FLIGHT) {
+            throw new IllegalArgumentException(String.format("Frames in flight must be between 1 and %d, got %d", MAX_FRAMES_IN_FLIGHT, framesInFlight));
+        }
+        if (swapChainImageCount < 0) {
+            throw new IllegalArgumentException(String.format("Swap chain image count can not be negative, got %d", swapChainImageCount));
+        }
+    }
+
+    public static FramePacingPolicy fromProperties(String framesInFlight, String presentMode, String swapChainImageCount) {
+        return new FramePacingPolicy(
+                framesInFlight == null ? 2 : Integer.parseInt(framesInFlight),
+                PresentMode.fromProperty(presentMode),
+                swapChainImageCount == null ? 0 : Integer.parseInt(swapChainImageCount));
+    }
+
+    public enum PresentMode {
+        //No waiting for vblank at all. Lowest latency, tears.
+        IMMEDIATE(KHRSurface.VK_PRESENT_MODE_IMMEDIATE_KHR),
+        //Vsync, but a late frame is shown right away instead of waiting for the next vblank. Tears only when running behind.
+        FIFO_RELAXED(KHRSurface.VK_PRESENT_MODE_FIFO_RELAXED_KHR),
+        //Vsync where a newer frame replaces the queued one, so the gpu never waits on the display.
+        MAILBOX(KHRSurface.VK_PRESENT_MODE_MAILBOX_KHR),
+        //Plain vsync. The only mode every device has to support, so it is what we fall back to.
+        FIFO(KHRSurface.VK_PRESENT_MODE_FIFO_KHR);
+
+        private final int vkPresentMode;
+
+        PresentMode(int vkPresentMode) {
+            this.vkPresentMode = vkPresentMode;
+        }
+
+        public int getVkPresentMode() {
+            return vkPresentMode;
+        }
+
+        public static PresentMode fromProperty(String value) {
+            if (value == null) {
+                return MAILBOX;
+            }
+            return switch (value.toLowerCase()) {
+                case "immediate" -> IMMEDIATE;
+                case "fifo_relaxed", "relaxed" -> FIFO_RELAXED;
+                case "mailbox" -> MAILBOX;
+                case "fifo" -> FIFO;
+                default -> throw new IllegalArgumentException(String.format(
+                        "Unknown present mode %s. Expected immediate, fifo_relaxed, mailbox or fifo", value));
+            };
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package my.game.render;
+
+import my.game.init.vulkan.struct.DrawPushConstants;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.KHRDynamicRendering;
+import org.lwjgl.vulkan.KHRSwapchain;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VK12;
+import org.lwjgl.vulkan.VkCommandBufferBeginInfo;
+import org.lwjgl.vulkan.VkClearValue;
+import org.lwjgl.vulkan.VkExtent2D;
+import org.lwjgl.vulkan.VkImageMemoryBarrier;
+import org.lwjgl.vulkan.VkPresentInfoKHR;
+import org.lwjgl.vulkan.VkRect2D;
+import org.lwjgl.vulkan.VkRenderPassBeginInfo;
+import org.lwjgl.vulkan.VkRenderingAttachmentInfoKHR;
+import org.lwjgl.vulkan.VkRenderingInfoKHR;
+import org.lwjgl.vulkan.VkSubmitInfo;
+import org.lwjgl.vulkan.VkTimelineSemaphoreSubmitInfo;
+import org.lwjgl.vulkan.VkViewport;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+//Everything a frame hands to vulkan, allocated once per frame slot. A frame only patches the fields that changed since
+// the slot was last used, so drawing does not create a single java object, not even the struct wrappers a MemoryStack
+// calloc would. Vulkan copies what it needs during each call, nothing here has to live until the gpu is done with it.
+class FrameStructs {
+    private final IntBuffer imageIndex = MemoryUtil.memAllocInt(1);
+    private final LongBuffer waitSemaphores = MemoryUtil.memAllocLong(1);
+    private final IntBuffer waitStages = MemoryUtil.memAllocInt(1);
+    private final LongBuffer presentWaitSemaphores = MemoryUtil.memAllocLong(1);
+    private final LongBuffer signalSemaphores;
+    private final LongBuffer signalValues;
+    private final VkTimelineSemaphoreSubmitInfo timelineSubmitInfo;
+    private final PointerBuffer commandBuffers = MemoryUtil.memAllocPointer(1);
+    private final LongBuffer swapChains = MemoryUtil.memAllocLong(1);
+    private final VkSubmitInfo submitInfo = VkSubmitInfo.calloc();
+    private final VkPresentInfoKHR presentInfo = VkPresentInfoKHR.calloc();
+    private final VkCommandBufferBeginInfo commandBufferBeginInfo = VkCommandBufferBeginInfo.calloc();
+    private final VkClearValue.Buffer clearValue = VkClearValue.calloc(1);
+    private final VkRect2D renderArea = VkRect2D.calloc();
+    private final VkRenderPassBeginInfo renderPassBeginInfo = VkRenderPassBeginInfo.calloc();
+    private final VkImageMemoryBarrier.Buffer imageBarrier = VkImageMemoryBarrier.calloc(1);
+    private final VkRenderingAttachmentInfoKHR.Buffer colorAttachment = VkRenderingAttachmentInfoKHR.calloc(1);
+    private final VkRenderingInfoKHR renderingInfo = VkRenderingInfoKHR.calloc();
+    private final VkViewport.Buffer viewport = VkViewport.calloc(1);
+    private final VkRect2D.Buffer scissor = VkRect2D.calloc(1);
+    private final LongBuffer vertexBuffers = MemoryUtil.memAllocLong(1);
+    private final LongBuffer vertexOffsets = MemoryUtil.memCallocLong(1);
+    private final LongBuffer descriptorSets = MemoryUtil.memAllocLong(1);
+    private final IntBuffer dynamicOffsets = MemoryUtil.memAllocInt(1);
+    private final ByteBuffer pushConstants = MemoryUtil.memCalloc(DrawPushConstants.SIZE);
+
+    //Without a timeline semaphore the frame is tracked by the fence passed to the submit instead.
+    FrameStructs(long imageAvailableSemaphore, long renderFinishedSemaphore, long timelineSemaphore) {
+        waitSemaphores.put(0, imageAvailableSemaphore);
+        waitStages.put(0, VK10.VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT);
+        presentWaitSemaphores.put(0, renderFinishedSemaphore);
+        if (timelineSemaphore != VK10.VK_NULL_HANDLE) {
+            //The swap chain only works with binary semaphores, so the frame signals both.
+            signalSemaphores = MemoryUtil.memAllocLong(2);
+            signalSemaphores.put(0, renderFinishedSemaphore).put(1, timelineSemaphore);
+            signalValues = MemoryUtil.memCallocLong(2);
+            //Binary semaphores ignore their values, the wait on the acquire semaphore included.
+            timelineSubmitInfo = VkTimelineSemaphoreSubmitInfo.calloc();
+            timelineSubmitInfo
+                    .sType(VK12.VK_STRUCTURE_TYPE_TIMELINE_SEMAPHORE_SUBMIT_INFO)
+                    .pSignalSemaphoreValues(signalValues);
+            submitInfo.pNext(timelineSubmitInfo);
+        } else {
+            signalSemaphores = MemoryUtil.memAllocLong(1);
+            signalSemaphores.put(0, renderFinishedSemaphore);
+            signalValues = null;
+            timelineSubmitInfo = null;
+        }
+        submitInfo
+                .sType(VK10.VK_STRUCTURE_TYPE_SUBMIT_INFO)
+                .pWaitSemaphores(waitSemaphores)
+                .waitSemaphoreCount(1)
+                .pWaitDstStageMask(waitStages)
+                .pCommandBuffers(commandBuffers)
+                .pSignalSemaphores(signalSemaphores);
+        presentInfo
+                .sType(KHRSwapchain.VK_STRUCTURE_TYPE_PRESENT_INFO_KHR)
+                .pWaitSemaphores(presentWaitSemaphores)
+                .pSwapchains(swapChains)
+                .swapchainCount(1)
+                .pImageIndices(imageIndex)
+                .pResults(null);
+        commandBufferBeginInfo
+                .sType(VK10.VK_STRUCTURE_TYPE_COMMAND_BUFFER_BEGIN_INFO)
+                .pInheritanceInfo(null);
+        clearValue.color()
+                .float32(0, 0.0f)
+                .float32(1, 0.0f)
+                .float32(2, 0.0f)
+                .float32(3, 1.0f);
+        renderPassBeginInfo
+                .sType(VK10.VK_STRUCTURE_TYPE_RENDER_PASS_BEGIN_INFO)
+                .pClearValues(clearValue);
+        imageBarrier
+                .sType(VK10.VK_STRUCTURE_TYPE_IMAGE_MEMORY_BARRIER)
+                .srcQueueFamilyIndex(VK10.VK_QUEUE_FAMILY_IGNORED)
+                .dstQueueFamilyIndex(VK10.VK_QUEUE_FAMILY_IGNORED)
+                .subresourceRange(range -> range
+                        .aspectMask(VK10.VK_IMAGE_ASPECT_COLOR_BIT)
+                        .baseMipLevel(0)
+                        .levelCount(1)
+                        .baseArrayLayer(0)
+                        .layerCount(1));
+        //Same load and store as the render pass' color attachment.
+        colorAttachment
+                .sType(KHRDynamicRendering.VK_STRUCTURE_TYPE_RENDERING_ATTACHMENT_INFO_KHR)
+                .imageLayout(VK10.VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL)
+                .resolveMode(0)
+                .loadOp(VK10.VK_ATTACHMENT_LOAD_OP_CLEAR)
+                .storeOp(VK10.VK_ATTACHMENT_STORE_OP_STORE)
+                .clearValue(clearValue.get(0));
+        renderingInfo
+                .sType(KHRDynamicRendering.VK_STRUCTURE_TYPE_RENDERING_INFO_KHR)
+                .layerCount(1)
+                .pColorAttachments(colorAttachment);
+        viewport
+                .x(0)
+                .y(0)
+                .minDepth(0)
+                .maxDepth(1);
+    }
+
+    //Where vkAcquireNextImageKHR writes the image, present reads it from the same place.
+    IntBuffer getImageIndex() {
+        return imageIndex;
+    }
+
+    //The timeline value is only used with a timeline semaphore. Takes the command buffer's address so it can be used
+    // without a device.
+    VkSubmitInfo getSubmitInfo(long commandBuffer, long timelineValue) {
+        commandBuffers.put(0, commandBuffer);
+        if (signalValues != null) {
+            signalValues.put(1, timelineValue);
+        }
+        return submitInfo;
+    }
+
+    //The swap chain handle changes whenever it is recreated.
+    VkPresentInfoKHR getPresentInfo(long swapChain) {
+        swapChains.put(0, swapChain);
+        return presentInfo;
+    }
+
+    VkCommandBufferBeginInfo getCommandBufferBeginInfo() {
+        return commandBufferBeginInfo;
+    }
+
+    VkRenderPassBeginInfo getRenderPassBeginInfo(long renderPass, long frameBuffer, VkExtent2D extent) {
+        //Nested struct getters create a new wrapper every call, so the render area is written through a copy we keep instead.
+        renderArea.extent(extent);
+        renderPassBeginInfo
+                .renderPass(renderPass)
+                .framebuffer(frameBuffer)
+                .renderArea(renderArea);
+        return renderPassBeginInfo;
+    }
+
+    //Only for dynamic rendering, where the layout transitions a render pass would do are recorded by hand.
+    VkImageMemoryBarrier.Buffer getImageBarrier(long image, int oldLayout, int newLayout, int srcAccessMask, int dstAccessMask) {
+        imageBarrier
+                .srcAccessMask(srcAccessMask)
+                .dstAccessMask(dstAccessMask)
+                .oldLayout(oldLayout)
+                .newLayout(newLayout)
+                .image(image);
+        return imageBarrier;
+    }
+
+    VkRenderingInfoKHR getRenderingInfo(long imageView, VkExtent2D extent) {
+        colorAttachment.imageView(imageView);
+        renderArea.extent(extent);
+        renderingInfo.renderArea(renderArea);
+        return renderingInfo;
+    }
+
+    VkViewport.Buffer getViewport(VkExtent2D extent) {
+        viewport
+                .width(extent.width())
+                .height(extent.height());
+        return viewport;
+    }
+
+    VkRect2D.Buffer getScissor(VkExtent2D extent) {
+        scissor.extent(extent);
+        return scissor;
+    }
+
+    LongBuffer getVertexBuffers(long vertexBuffer) {
+        vertexBuffers.put(0, vertexBuffer);
+        return vertexBuffers;
+    }
+
+    LongBuffer getVertexOffsets() {
+        return vertexOffsets;
+    }
+
+    LongBuffer getDescriptorSets(long descriptorSet) {
+        descriptorSets.put(0, descriptorSet);
+        return descriptorSets;
+    }
+
+    IntBuffer getDynamicOffsets() {
+        return dynamicOffsets;
+    }
+
+    ByteBuffer getPushConstants() {
+        return pushConstants;
+    }
+
+    void free() {
+        MemoryUtil.memFree(imageIndex);
+        MemoryUtil.memFree(waitSemaphores);
+        MemoryUtil.memFree(waitStages);
+        MemoryUtil.memFree(presentWaitSemaphores);
+        MemoryUtil.memFree(signalSemaphores);
+        if (timelineSubmitInfo != null) {
+            MemoryUtil.memFree(signalValues);
+            timelineSubmitInfo.free();
+        }
+        MemoryUtil.memFree(commandBuffers);
+        MemoryUtil.memFree(swapChains);
+        submitInfo.free();
+        presentInfo.free();
+        commandBufferBeginInfo.free();
+        clearValue.free();
+        renderArea.free();
+        renderPassBeginInfo.free();
+        imageBarrier.free();
+        colorAttachment.free();
+        renderingInfo.free();
+        viewport.free();
+        scissor.free();
+        MemoryUtil.memFree(vertexBuffers);
+        MemoryUtil.memFree(vertexOffsets);
+        MemoryUtil.memFree(descriptorSets);
+        MemoryUtil.memFree(dynamicOffsets);
+        MemoryUtil.memFree(pushConstants);
+    }
+}
@@ -1,70 +1,110 @@
 package my.game.render;
 
 import com.google.common.collect.ImmutableList;
+import my.game.VulkanProject;
 import my.game.init.vulkan.VulkanUtil;
 import my.game.init.vulkan.command.CommandBuffer;
-import my.game.init.vulkan.command.CommandBufferFactory;
-import my.game.init.vulkan.command.CommandPool;
+import my.game.init.vulkan.command.CommandBufferManager;
+import my.game.init.vulkan.command.FrameCommandPool;
 import my.game.init.vulkan.devices.logical.LogicalDevice;
 import my.game.init.vulkan.devices.physical.PhysicalDeviceInformation;
 import my.game.init.vulkan.drawing.FrameBuffers;
 import my.game.init.vulkan.drawing.memory.DescriptorPool;
 import my.game.init.vulkan.drawing.memory.DescriptorSets;
+import my.game.init.vulkan.drawing.memory.allocation.BufferAllocator;
 import my.game.init.vulkan.drawing.memory.buffer.IndexBuffer;
-import my.game.init.vulkan.drawing.memory.buffer.UniformBuffer;
+import my.game.init.vulkan.drawing.memory.buffer.UniformArena;
 import my.game.init.vulkan.drawing.memory.buffer.VertexBuffer;
+import my.game.init.vulkan.drawing.memory.upload.UploadBatch;
+import my.game.init.vulkan.drawing.mesh.MeshBuilder;
+import my.game.init.vulkan.drawing.memory.upload.UploadService;
 import my.game.init.vulkan.drawing.transformation.DescriptorSetLayout;
-import my.game.init.vulkan.math.Vector2fWithSize;
-import my.game.init.vulkan.math.Vector3fWithSize;
+import my.game.init.vulkan.pipeline.DynamicRenderingLayout;
 import my.game.init.vulkan.pipeline.GraphicsPipeline;
+import my.game.init.vulkan.pipeline.LayoutCache;
+import my.game.init.vulkan.pipeline.PipelineCache;
+import my.game.init.vulkan.pipeline.PipelineLayout;
+import my.game.init.vulkan.pipeline.PipelineRegistry;
+import my.game.init.vulkan.pipeline.PipelineState;
 import my.game.init.vulkan.pipeline.RenderPass;
-import my.game.init.vulkan.struct.Index;
-import my.game.init.vulkan.struct.Vertex;
+import my.game.init.vulkan.pipeline.RenderTargetLayout;
+import my.game.init.vulkan.pipeline.shaders.ShaderInterface;
+import my.game.init.vulkan.pipeline.shaders.ShaderPack;
+import my.game.init.vulkan.pipeline.shaders.SpecializationConstants;
+import my.game.init.vulkan.struct.DrawPushConstants;
+import my.game.init.vulkan.struct.UniformBufferObject;
+import my.game.init.vulkan.struct.UniformBufferObjectLayout;
 import my.game.init.vulkan.swapchain.SwapChain;
 import my.game.init.vulkan.swapchain.SwapChainImages;
+import my.game.init.vulkan.sync.TimelineSemaphore;
 import my.game.init.window.WindowHandle;
 import my.game.init.window.WindowSurface;
-import org.lwjgl.PointerBuffer;
+import my.game.simulation.InterpolatedState;
+import org.joml.Matrix2f;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.system.MemoryStack;
-import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.KHRDynamicRendering;
 import org.lwjgl.vulkan.KHRSwapchain;
 import org.lwjgl.vulkan.VK10;
-import org.lwjgl.vulkan.VkClearColorValue;
-import org.lwjgl.vulkan.VkClearValue;
 import org.lwjgl.vulkan.VkCommandBuffer;
 import org.lwjgl.vulkan.VkDevice;
 import org.lwjgl.vulkan.VkExtent2D;
 import org.lwjgl.vulkan.VkFenceCreateInfo;
-import org.lwjgl.vulkan.VkPresentInfoKHR;
-import org.lwjgl.vulkan.VkRect2D;
-import org.lwjgl.vulkan.VkRenderPassBeginInfo;
 import org.lwjgl.vulkan.VkSemaphoreCreateInfo;
-import org.lwjgl.vulkan.VkSubmitInfo;
-import org.lwjgl.vulkan.VkViewport;
 
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class GraphicsRenderer {
 
-    public static final int MAX_FRAMES_IN_FLIGHT = 2;
+    //Every copy of the quad is rotated a bit further than the last so the draws are distinguishable.
+    private static final double DRAW_ANGLE_STEP = Math.toRadians(360.0 / 64);
+    //constant_id of GRAYSCALE in basic.frag.
+    private static final int GRAYSCALE_CONSTANT_ID = 0;
     private final LogicalDevice logicalDevice;
-    private final List<CommandBuffer> graphicsCommandBuffers;
-    private RenderPass renderPass;
+    private final List<FrameCommandPool> frameCommandPools;
+    //A RenderPass, or a DynamicRenderingLayout when we draw straight into the swap chain image views.
+    private RenderTargetLayout renderTargetLayout;
     private final PhysicalDeviceInformation physicalDeviceInformation;
     private final WindowHandle windowHandle;
     private final WindowSurface windowSurface;
-    private GraphicsPipeline graphicsPipeline;
+    private final PipelineRegistry pipelineRegistry;
+    private final PipelineState pipelineState;
+    private final PipelineLayout pipelineLayout;
+    private final Map<PipelineState, CompletableFuture<GraphicsPipeline>> precompiledPipelines;
+    private final FramePacingPolicy framePacingPolicy;
+    //Every per frame resource has this many copies, the frame after the last one reuses the first copy.
+    private final int framesInFlight;
+    private final FrameDeletionQueue deletionQueue;
     private final VertexBuffer vertexBuffer;
     private final IndexBuffer indexBuffer;
-    private final List<LongBuffer> imageAvailableSemaphores;
-    private final List<LongBuffer> renderFinishedSemaphores;
-    private final List<LongBuffer> inFlightFences;
-    private final DescriptorSetLayout descriptorSetLayout;
-    private final List<UniformBuffer> uniformBuffers;
+    private final UploadService uploadService;
+    private final long[] imageAvailableSemaphores;
+    private final long[] renderFinishedSemaphores;
+    //One timeline semaphore tracks every frame when the device has them, otherwise each frame slot has a fence.
+    // Either way a frame's submission reaches the next value of the frame timeline, frameValues holds the value each
+    // slot's last frame reaches.
+    private final TimelineSemaphore frameTimeline;
+    private final long[] inFlightFences;
+    private final long[] frameValues;
+    private long lastFrameValue = 0;
+    private final FrameStructs[] frameStructs;
+    private final LayoutCache layoutCache;
+    private final UniformArena uniformArena;
+    private final UniformBufferObject uniformBufferObject;
+    private final TransformPath transformPath;
+    private final int drawCount;
+    private final int[] uniformOffsets;
+    private final Matrix2f drawTransform = new Matrix2f();
+    private final InterpolatedState simulationState;
+    //Completed once a frame that draws with the pipeline, not just a cleared screen, has been submitted. For the startup trace.
+    private final CompletableFuture<Void> firstSceneFrame = new CompletableFuture<>();
+    private boolean drewScene = false;
     private final DescriptorPool descriptorPool;
     private final DescriptorSets descriptorSets;
     private int currentFrame = 0;
@@ -72,53 +112,90 @@ public class GraphicsRenderer {
     private SwapChainImages swapChainImages;
     private FrameBuffers frameBuffers;
 
-    public GraphicsRenderer(LogicalDevice logicalDevice, CommandPool graphicsCommandPool,
-                            CommandPool transferCommandPool,
-                            PhysicalDeviceInformation physicalDeviceInformation,
-                            WindowHandle windowHandle, WindowSurface windowSurface) {
+    public GraphicsRenderer(LogicalDevice logicalDevice, CommandBufferManager commandBufferManager, BufferAllocator bufferAllocator,
+                            PhysicalDeviceInformation physicalDeviceInformation, ShaderPack shaderPack, PipelineCache pipelineCache,
+                            WindowHandle windowHandle, WindowSurface windowSurface, InterpolatedState simulationState,
+                            TransformPath transformPath, int drawCount) {
         this.logicalDevice = logicalDevice;
+        this.simulationState = simulationState;
         this.physicalDeviceInformation = physicalDeviceInformation;
         this.windowHandle = windowHandle;
         this.windowSurface = windowSurface;
+        this.framePacingPolicy = VulkanProject.FRAME_PACING;
+        this.framesInFlight = framePacingPolicy.framesInFlight();
+        this.deletionQueue = new FrameDeletionQueue();
+        this.frameTimeline = logicalDevice.usesTimelineSemaphores() ? new TimelineSemaphore(logicalDevice.vkDevice()) : null;
+        System.out.printf("Frame pacing: %d frames in flight, %s, %s swap chain images, synchronized with %s%n", framesInFlight,
+                framePacingPolicy.presentMode(), framePacingPolicy.swapChainImageCount() == 0 ? "default" : framePacingPolicy.swapChainImageCount(),
+                frameTimeline != null ? "a timeline semaphore" : "fences");
         this.swapChain = new SwapChain(
                 logicalDevice.vkDevice(),
                 physicalDeviceInformation,
                 windowHandle,
                 windowSurface,
+                framePacingPolicy,
                 VK10.VK_NULL_HANDLE);
         this.swapChainImages = createImageViews(logicalDevice, swapChain);
-        this.renderPass = new RenderPass(logicalDevice.vkDevice(), swapChain);
-        this.descriptorSetLayout = new DescriptorSetLayout(logicalDevice.vkDevice());
-        this.graphicsPipeline = new GraphicsPipeline(logicalDevice.vkDevice(), renderPass, descriptorSetLayout);
+        this.renderTargetLayout = logicalDevice.usesDynamicRendering()
+                ? new DynamicRenderingLayout(swapChain)
+                : new RenderPass(logicalDevice.vkDevice(), swapChain);
+        System.out.printf("Drawing with %s%n", logicalDevice.usesDynamicRendering() ? "dynamic rendering" : "a render pass");
+        this.layoutCache = new LayoutCache(logicalDevice.vkDevice(), physicalDeviceInformation.deviceLimits());
+        this.transformPath = transformPath;
+        this.drawCount = drawCount;
+        this.uniformOffsets = new int[drawCount];
+        this.pipelineRegistry = new PipelineRegistry(logicalDevice.vkDevice(), layoutCache, pipelineCache, shaderPack, renderTargetLayout);
+        this.pipelineState = PipelineState.opaque(transformPath.getVertexShaderName(), "basic.frag")
+                .withSpecializationConstants(SpecializationConstants.builder()
+                        .set(GRAYSCALE_CONSTANT_ID, VulkanProject.GRAYSCALE)
+                        .build());
+        ShaderInterface shaderInterface = pipelineRegistry.reflect(pipelineState);
+        validateShaderInterface(shaderInterface);
+        //The layout is known from reflection alone, so everything else is set up while the pipeline compiles.
+        this.pipelineLayout = layoutCache.getPipelineLayout(shaderInterface);
+        this.precompiledPipelines = pipelineRegistry.precompile(List.of(pipelineState));
 
-        List<Vertex> vertexList = List.of(
-                new Vertex(new Vector2fWithSize(-0.5f, -0.5f), new Vector3fWithSize(1.0f, 0.0f, 0.0f)),
-                new Vertex(new Vector2fWithSize(0.5f, -0.5f), new Vector3fWithSize(0.0f, 1.0f, 0.0f)),
-                new Vertex(new Vector2fWithSize(0.5f, 0.5f), new Vector3fWithSize(0.0f, 0.0f, 1.0f)),
-                new Vertex(new Vector2fWithSize(-0.5f, 0.5f), new Vector3fWithSize(1.0f, 1.0f, 1.0f))
-        );
-
-        List<Index> indexes = List.of(
-                new Index((short) 0),
-                new Index((short) 1),
-                new Index((short) 2),
-                new Index((short) 2),
-                new Index((short) 3),
-                new Index((short) 0)
-        );
-        this.vertexBuffer = new VertexBuffer(logicalDevice, vertexList, transferCommandPool);
-        this.indexBuffer = new IndexBuffer(logicalDevice, indexes, transferCommandPool);
-        this.uniformBuffers = new ArrayList<>();
-        for (int i = 0; i < MAX_FRAMES_IN_FLIGHT; ++i) {
-            uniformBuffers.add(new UniformBuffer(logicalDevice.vkDevice()));
+        MeshBuilder quad = new MeshBuilder(4, 6);
+        quad.putVertices(new float[]{
+                -0.5f, -0.5f, 1.0f, 0.0f, 0.0f,
+                0.5f, -0.5f, 0.0f, 1.0f, 0.0f,
+                0.5f, 0.5f, 0.0f, 0.0f, 1.0f,
+                -0.5f, 0.5f, 1.0f, 1.0f, 1.0f
+        });
+        quad.triangle(0, 1, 2)
+                .triangle(2, 3, 0);
+        this.uploadService = new UploadService(logicalDevice, commandBufferManager, bufferAllocator);
+        UploadBatch uploadBatch = uploadService.beginBatch();
+        this.vertexBuffer = new VertexBuffer(bufferAllocator, quad, uploadBatch);
+        this.indexBuffer = new IndexBuffer(bufferAllocator, quad, uploadBatch);
+        uploadBatch.submit();
+        quad.free();
+        long uniformAlignment = physicalDeviceInformation.deviceLimits().getMinUniformBufferOffsetAlignment();
+        long uniformSliceSize = (UniformBufferObject.SIZE + uniformAlignment - 1) / uniformAlignment * uniformAlignment;
+        this.uniformArena = new UniformArena(bufferAllocator, framesInFlight,
+                (int) Math.max(UniformArena.DEFAULT_FRAME_SIZE, uniformSliceSize * drawCount), uniformAlignment);
+        this.uniformBufferObject = new UniformBufferObject(new Matrix2f());
+        //The push constant shader has no descriptor sets at all.
+        if (shaderInterface.getSetCount() > 0) {
+            DescriptorSetLayout descriptorSetLayout = pipelineLayout.getDescriptorSetLayouts().get(0);
+            descriptorPool = new DescriptorPool(logicalDevice.vkDevice(), descriptorSetLayout, framesInFlight);
+            descriptorSets = new DescriptorSets(logicalDevice.vkDevice(), descriptorPool, descriptorSetLayout,
+                    uniformArena, UniformBufferObject.SIZE, framesInFlight);
+        } else {
+            descriptorPool = null;
+            descriptorSets = null;
+        }
+        ImmutableList.Builder<FrameCommandPool> frameCommandPoolsBuilder = ImmutableList.builder();
+        for (int i = 0; i < framesInFlight; ++i) {
+            frameCommandPoolsBuilder.add(commandBufferManager.createFramePool(logicalDevice.graphicsQueue()));
         }
-        descriptorPool = new DescriptorPool(logicalDevice.vkDevice());
-        descriptorSets = new DescriptorSets(logicalDevice.vkDevice(), descriptorPool, descriptorSetLayout, uniformBuffers);
-        this.graphicsCommandBuffers = CommandBufferFactory.createCommandBuffers(graphicsCommandPool, MAX_FRAMES_IN_FLIGHT);
-        this.frameBuffers = createFrameBuffers(logicalDevice, renderPass, swapChainImages, swapChain);
-        ImmutableList.Builder<LongBuffer> imageAvailableSemaphoresBuilder = ImmutableList.builder();
-        ImmutableList.Builder<LongBuffer> renderFinishedSemaphoresBuilder = ImmutableList.builder();
-        ImmutableList.Builder<LongBuffer> inFlightFencesBuilder = ImmutableList.builder();
+        this.frameCommandPools = frameCommandPoolsBuilder.build();
+        this.frameBuffers = createFrameBuffers(logicalDevice, renderTargetLayout, swapChainImages, swapChain);
+        this.imageAvailableSemaphores = new long[framesInFlight];
+        this.renderFinishedSemaphores = new long[framesInFlight];
+        this.inFlightFences = frameTimeline == null ? new long[framesInFlight] : null;
+        this.frameValues = new long[framesInFlight];
+        this.frameStructs = new FrameStructs[framesInFlight];
         try (MemoryStack memoryStack = MemoryStack.stackPush()) {
             VkSemaphoreCreateInfo semaphoreCreateInfo = VkSemaphoreCreateInfo.calloc(memoryStack);
             semaphoreCreateInfo
@@ -127,29 +204,28 @@ public class GraphicsRenderer {
             fenceCreateInfo
                     .sType(VK10.VK_STRUCTURE_TYPE_FENCE_CREATE_INFO)
                     .flags(VK10.VK_FENCE_CREATE_SIGNALED_BIT);
-            for (int i = 0; i < MAX_FRAMES_IN_FLIGHT; ++i) {
-                LongBuffer imageAvailableSemaphore = MemoryUtil.memAllocLong(1);
-                int result = VK10.vkCreateSemaphore(logicalDevice.vkDevice(), semaphoreCreateInfo, null, imageAvailableSemaphore);
+            LongBuffer handle = memoryStack.mallocLong(1);
+            for (int i = 0; i < framesInFlight; ++i) {
+                int result = VK10.vkCreateSemaphore(logicalDevice.vkDevice(), semaphoreCreateInfo, null, handle);
                 if (result != VK10.VK_SUCCESS) {
                     throw new IllegalStateException(String.format("Failed to create semaphore. Error code: %d", result));
                 }
-                LongBuffer renderFinishedSemaphore = MemoryUtil.memAllocLong(1);
-                int result2 = VK10.vkCreateSemaphore(logicalDevice.vkDevice(), semaphoreCreateInfo, null, renderFinishedSemaphore);
+                imageAvailableSemaphores[i] = handle.get(0);
+                int result2 = VK10.vkCreateSemaphore(logicalDevice.vkDevice(), semaphoreCreateInfo, null, handle);
                 if (result2 != VK10.VK_SUCCESS) {
                     throw new IllegalStateException(String.format("Failed to create semaphore. Error code: %d", result2));
                 }
-                LongBuffer inFlightFence = MemoryUtil.memAllocLong(1);
-                int result3 = VK10.vkCreateFence(logicalDevice.vkDevice(), fenceCreateInfo, null, inFlightFence);
-                if (result3 != VK10.VK_SUCCESS) {
-                    throw new IllegalStateException(String.format("Failed to create fence. Error code: %d", result3));
+                renderFinishedSemaphores[i] = handle.get(0);
+                if (inFlightFences != null) {
+                    int result3 = VK10.vkCreateFence(logicalDevice.vkDevice(), fenceCreateInfo, null, handle);
+                    if (result3 != VK10.VK_SUCCESS) {
+                        throw new IllegalStateException(String.format("Failed to create fence. Error code: %d", result3));
+                    }
+                    inFlightFences[i] = handle.get(0);
                 }
-                imageAvailableSemaphoresBuilder.add(imageAvailableSemaphore);
-                renderFinishedSemaphoresBuilder.add(renderFinishedSemaphore);
-                inFlightFencesBuilder.add(inFlightFence);
+                frameStructs[i] = new FrameStructs(imageAvailableSemaphores[i], renderFinishedSemaphores[i],
+                        frameTimeline != null ? frameTimeline.getHandle() : VK10.VK_NULL_HANDLE);
             }
-            imageAvailableSemaphores = imageAvailableSemaphoresBuilder.build();
-            renderFinishedSemaphores = renderFinishedSemaphoresBuilder.build();
-            inFlightFences = inFlightFencesBuilder.build();
         }
     }
 
@@ -157,195 +233,295 @@ public class GraphicsRenderer {
         return new SwapChainImages(logicalDevice.vkDevice(), swapChain);
     }
 
-    private FrameBuffers createFrameBuffers(LogicalDevice logicalDevice, RenderPass renderPass,
+    //Dynamic rendering has no framebuffers, it begins rendering on the image views themselves.
+    private FrameBuffers createFrameBuffers(LogicalDevice logicalDevice, RenderTargetLayout renderTargetLayout,
                                             SwapChainImages swapChainImages, SwapChain swapChain) {
-        return new FrameBuffers(logicalDevice.vkDevice(), renderPass, swapChainImages, swapChain);
+        if (renderTargetLayout instanceof RenderPass renderPass) {
+            return new FrameBuffers(logicalDevice.vkDevice(), renderPass, swapChainImages, swapChain);
+        }
+        return null;
     }
 
+    //Nothing in here allocates on the java heap once the pipeline and uploads are ready, the structs handed to vulkan are
+    // the frame slot's FrameStructs and the handles live in plain arrays. Keep it that way, FrameStructsTest checks
+    // the struct patching.
     public void drawFrame() {
         VkDevice device = logicalDevice.vkDevice();
-        VK10.vkWaitForFences(device, inFlightFences.get(currentFrame), true, VulkanUtil.UINT64_MAX);
-        uniformBuffers.get(currentFrame).update(swapChain.getSwapChainExtent());
-        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
-            IntBuffer imageIndex = memoryStack.mallocInt(1);
-            int acquireNextImageResult = KHRSwapchain.vkAcquireNextImageKHR(device, swapChain.getSwapChainPointer(), VulkanUtil.UINT64_MAX,
-                    imageAvailableSemaphores.get(currentFrame).get(0), VK10.VK_NULL_HANDLE, imageIndex);
-            if (acquireNextImageResult == KHRSwapchain.VK_ERROR_OUT_OF_DATE_KHR) {
-                recreateSwapChain(memoryStack);
-                return;
-            } else if (acquireNextImageResult != VK10.VK_SUCCESS && acquireNextImageResult != KHRSwapchain.VK_SUBOPTIMAL_KHR) {
-                throw new IllegalStateException(String.format("Failed to acquire swap chain image! Error code: %d", acquireNextImageResult));
-            }
-            // Only reset the fence if we are submitting work otherwise vkWaitForFences will wait forever on a signal
-            // that will never come.
-            VK10.vkResetFences(device, inFlightFences.get(currentFrame));
-            VK10.vkResetCommandBuffer(graphicsCommandBuffers.get(currentFrame).getVkCommandBuffer(), 0);
-            graphicsCommandBuffers.get(currentFrame)
-                    .runCommand(0,
-                            (vkCommandBuffer) ->
-                                    recordCommandBuffer(imageIndex.get(0), swapChain, frameBuffers, vertexBuffer, indexBuffer, vkCommandBuffer));
+        long completedFrameValue = waitForFrameSlot();
+        deletionQueue.retire(completedFrameValue);
+        pipelineRegistry.swapReloaded(deletionQueue);
+        uploadService.poll();
+        simulationState.update(System.nanoTime());
+        uniformArena.beginFrame(currentFrame);
+        updateUniforms();
+        uniformArena.endFrame();
+        FrameStructs frame = frameStructs[currentFrame];
+        IntBuffer imageIndex = frame.getImageIndex();
+        int acquireNextImageResult = KHRSwapchain.vkAcquireNextImageKHR(device, swapChain.getSwapChainPointer(), VulkanUtil.UINT64_MAX,
+                imageAvailableSemaphores[currentFrame], VK10.VK_NULL_HANDLE, imageIndex);
+        if (acquireNextImageResult == KHRSwapchain.VK_ERROR_OUT_OF_DATE_KHR) {
+            recreateSwapChain();
+            return;
+        } else if (acquireNextImageResult != VK10.VK_SUCCESS && acquireNextImageResult != KHRSwapchain.VK_SUBOPTIMAL_KHR) {
+            throw new IllegalStateException(String.format("Failed to acquire swap chain image! Error code: %d", acquireNextImageResult));
+        }
+        // Only reset the fence if we are submitting work otherwise vkWaitForFences will wait forever on a signal
+        // that will never come.
+        if (inFlightFences != null) {
+            VK10.vkResetFences(device, inFlightFences[currentFrame]);
+        }
+        FrameCommandPool frameCommandPool = frameCommandPools.get(currentFrame);
+        frameCommandPool.reset();
+        CommandBuffer graphicsCommandBuffer = frameCommandPool.next();
+        graphicsCommandBuffer.begin(frame.getCommandBufferBeginInfo());
+        recordCommandBuffer(frame, imageIndex.get(0), graphicsCommandBuffer.getVkCommandBuffer());
+        graphicsCommandBuffer.end();
 
-            IntBuffer waitStages = memoryStack.mallocInt(1);
-            waitStages.put(VK10.VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT);
-            waitStages.flip();
+        long frameValue = frameTimeline != null ? frameTimeline.nextSignalValue() : lastFrameValue + 1;
+        int result = logicalDevice.graphicsQueue().submit(frame.getSubmitInfo(graphicsCommandBuffer.getVkCommandBuffer().address(), frameValue),
+                inFlightFences != null ? inFlightFences[currentFrame] : VK10.VK_NULL_HANDLE);
+        if (result != VK10.VK_SUCCESS) {
+            throw new IllegalStateException(String.format("Failed to submit draw command buffer. Error code: %d", result));
+        }
+        lastFrameValue = frameValue;
+        frameValues[currentFrame] = frameValue;
+        deletionQueue.frameSubmitted(frameValue);
+        if (drewScene && !firstSceneFrame.isDone()) {
+            firstSceneFrame.complete(null);
+        }
 
-            PointerBuffer commandBuffersPointer = memoryStack.mallocPointer(1);
-            commandBuffersPointer.put(graphicsCommandBuffers.get(currentFrame).getVkCommandBuffer());
-            commandBuffersPointer.flip();
+        int queuePresentResult = logicalDevice.presentationQueue().present(
+                frame.getPresentInfo(swapChain.getSwapChainPointer()));
+        if (queuePresentResult == KHRSwapchain.VK_ERROR_OUT_OF_DATE_KHR || queuePresentResult == KHRSwapchain.VK_SUBOPTIMAL_KHR || windowHandle.frameBufferResized()) {
+            recreateSwapChain();
+        } else if (queuePresentResult != VK10.VK_SUCCESS) {
+            throw new IllegalStateException(String.format("Failed to present swap chain image! Error code: %d", queuePresentResult));
+        }
+        currentFrame = (currentFrame + 1) % framesInFlight;
+    }
 
-            VkSubmitInfo vkSubmitInfo = VkSubmitInfo.calloc(memoryStack);
-            vkSubmitInfo
-                    .sType(VK10.VK_STRUCTURE_TYPE_SUBMIT_INFO)
-                    .pWaitSemaphores(imageAvailableSemaphores.get(currentFrame))
-                    .waitSemaphoreCount(1)
-                    .pWaitDstStageMask(waitStages)
-                    .pCommandBuffers(commandBuffersPointer)
-                    .pSignalSemaphores(renderFinishedSemaphores.get(currentFrame));
+    //Waits until the gpu is done with the last frame that used the current slot, and returns how far the frame timeline got.
+    private long waitForFrameSlot() {
+        if (frameTimeline != null) {
+            frameTimeline.waitForValue(frameValues[currentFrame]);
+            //Often further along than the value waited for, which lets deletions go sooner.
+            return frameTimeline.completedValue();
+        }
+        VK10.vkWaitForFences(logicalDevice.vkDevice(), inFlightFences[currentFrame], true, VulkanUtil.UINT64_MAX);
+        //Frames finish in the order they were submitted, so everything up to this slot's frame is done.
+        return frameValues[currentFrame];
+    }
 
-            int result = VK10.vkQueueSubmit(logicalDevice.graphicsQueue().getVkQueue(), vkSubmitInfo, inFlightFences.get(currentFrame).get(0));
-            if (result != VK10.VK_SUCCESS) {
-                throw new IllegalStateException(String.format("Failed to submit draw command buffer. Error code: %d", result));
+    //The layouts come from the shaders, but what we write into them still comes from the structs on the java side.
+    private void validateShaderInterface(ShaderInterface shaderInterface) {
+        pipelineState.specializationConstants().validate(shaderInterface, pipelineState.toString());
+        int pushConstantSize = shaderInterface.getPushConstantLayout().getSize();
+        if (pushConstantSize > DrawPushConstants.SIZE) {
+            throw new IllegalStateException(String.format("%s reads %d bytes of push constants but DrawPushConstants is only %d",
+                    transformPath.getVertexShaderName(), pushConstantSize, DrawPushConstants.SIZE));
+        }
+        shaderInterface.findBinding(0, 0).ifPresent(binding -> {
+            if (binding.blockSize() != UniformBufferObject.SIZE) {
+                throw new IllegalStateException(String.format("%s declares uniform block %s of %d bytes but UniformBufferObject is %d",
+                        transformPath.getVertexShaderName(), binding.name(), binding.blockSize(), UniformBufferObject.SIZE));
             }
+        });
+    }
 
-            LongBuffer swapChains = memoryStack.mallocLong(1);
-            swapChains.put(swapChain.getSwapChainPointer());
-            swapChains.flip();
-            VkPresentInfoKHR presentInfo = VkPresentInfoKHR.calloc(memoryStack);
-            presentInfo
-                    .sType(KHRSwapchain.VK_STRUCTURE_TYPE_PRESENT_INFO_KHR)
-                    .pWaitSemaphores(renderFinishedSemaphores.get(currentFrame))
-                    .pSwapchains(swapChains)
-                    .swapchainCount(1)
-                    .pImageIndices(imageIndex)
-                    .pResults(null);
-            int queuePresentResult = KHRSwapchain.vkQueuePresentKHR(logicalDevice.presentationQueue().getVkQueue(), presentInfo);
-            if (queuePresentResult == KHRSwapchain.VK_ERROR_OUT_OF_DATE_KHR || queuePresentResult == KHRSwapchain.VK_SUBOPTIMAL_KHR || windowHandle.frameBufferResized()) {
-                recreateSwapChain(memoryStack);
-            } else if (queuePresentResult != VK10.VK_SUCCESS) {
-                throw new IllegalStateException(String.format("Failed to present swap chain image! Error code: %d", queuePresentResult));
+    //Called on the hot reload thread. Only the pipeline creation happens here, the render thread picks the results up
+    // at the start of its next frame so it never waits on the driver compiling shaders.
+    public void reloadShaders(ShaderPack shaderPack, Set<String> recompiledShaders) {
+        if (recompiledShaders.stream().anyMatch(pipelineState::usesShader)) {
+            try {
+                validateShaderInterface(GraphicsPipeline.reflect(shaderPack, pipelineState));
+            } catch (IllegalStateException e) {
+                System.out.printf("Reloaded %s no longer matches the renderer, keeping the current pipelines. %s%n",
+                        transformPath.getVertexShaderName(), e.getMessage());
+                return;
             }
         }
-        currentFrame = (currentFrame + 1) % MAX_FRAMES_IN_FLIGHT;
+        pipelineRegistry.reloadShaders(shaderPack, recompiledShaders);
+    }
+
+    public CompletableFuture<Void> getFirstSceneFrame() {
+        return firstSceneFrame;
+    }
+
+    //The pipelines that started compiling with the renderer. Only for startup tracing, a render target layout change replaces them.
+    public Map<PipelineState, CompletableFuture<GraphicsPipeline>> getPrecompiledPipelines() {
+        return precompiledPipelines;
+    }
+
+    private void setDrawTransform(int drawIndex) {
+        //Set flag to true if using perspective since vulkan is zero to one for ndc z range instead of -1 to 1 like opengl
+        //proj.perspective((float) Math.toRadians(45),
+        //        (float)swapChainExtent.width() / (float)swapChainExtent.height(), 0.1f, 10.0f, true);
+        //The angle comes from the simulation thread, blended between its last two ticks.
+        drawTransform.identity();
+        drawTransform.rotate((float) (simulationState.getRotation() + drawIndex * DRAW_ANGLE_STEP));
     }
 
-    public void recordCommandBuffer(int imageIndex, SwapChain swapChain, FrameBuffers frameBuffers, VertexBuffer vertexBuffer,
-                                    IndexBuffer indexBuffer, VkCommandBuffer vkCommandBuffer) {
-        beginRenderPass(imageIndex, swapChain, frameBuffers, vkCommandBuffer);
+    //The push constant path does not touch the arena at all, its transforms are written while recording.
+    private void updateUniforms() {
+        int uniformDrawCount = switch (transformPath) {
+            case PUSH_CONSTANT -> 0;
+            case DYNAMIC_UBO -> drawCount;
+            case STATIC_UBO -> 1;
+        };
+        for (int i = 0; i < uniformDrawCount; ++i) {
+            setDrawTransform(i);
+            uniformBufferObject.model().set(drawTransform);
+            uniformOffsets[i] = uniformArena.allocate(UniformBufferObject.SIZE);
+            UniformBufferObjectLayout.write(uniformBufferObject, uniformArena.getFrameMemory(), uniformOffsets[i]);
+        }
+    }
+
+    private void recordCommandBuffer(FrameStructs frame, int imageIndex, VkCommandBuffer vkCommandBuffer) {
+        VkExtent2D swapChainExtent = swapChain.getSwapChainExtent();
+        beginRendering(frame, imageIndex, vkCommandBuffer, swapChainExtent);
+        //Until the uploads and the pipeline have finished we only clear the screen.
+        GraphicsPipeline graphicsPipeline = pipelineRegistry.getIfReady(pipelineState);
+        if (graphicsPipeline == null || !vertexBuffer.isReady() || !indexBuffer.isReady()) {
+            endRendering(frame, imageIndex, vkCommandBuffer);
+            return;
+        }
+        drewScene = true;
         VK10.vkCmdBindPipeline(vkCommandBuffer, VK10.VK_PIPELINE_BIND_POINT_GRAPHICS, graphicsPipeline.getGraphicsPipelinePointer());
-        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
-            VkExtent2D swapChainExtent = swapChain
-                    .getSwapChainExtent();
-            VkViewport.Buffer viewport = VkViewport.calloc(1, memoryStack);
-            viewport
-                    .x(0)
-                    .y(0)
-                    .width(swapChainExtent.width())
-                    .height(swapChainExtent.height())
-                    .minDepth(0)
-                    .maxDepth(1);
-            VK10.vkCmdSetViewport(vkCommandBuffer, 0, viewport);
-            VkRect2D.Buffer scissor = VkRect2D.calloc(1, memoryStack);
-            scissor.offset()
-                    .x(0)
-                    .y(0);
-            scissor.extent(swapChainExtent);
-            VK10.vkCmdSetScissor(vkCommandBuffer, 0, scissor);
-            LongBuffer vertices = memoryStack.mallocLong(1);
-            vertices.put(vertexBuffer.getDestinationBuffer().getVulkanBufferHandle());
-            vertices.flip();
-            LongBuffer offsets = memoryStack.mallocLong(1);
-            offsets.put(0);
-            offsets.flip();
-            VK10.vkCmdBindVertexBuffers(vkCommandBuffer, 0, vertices, offsets);
-            VK10.vkCmdBindIndexBuffer(vkCommandBuffer, indexBuffer.getDestinationBuffer().getVulkanBufferHandle(), 0, VK10.VK_INDEX_TYPE_UINT16);
-            LongBuffer currDescriptorSetBuffer = memoryStack.mallocLong(1);
-            currDescriptorSetBuffer.put(descriptorSets.getDescriptorSetHandles().get(currentFrame));
-            currDescriptorSetBuffer.flip();
-            VK10.vkCmdBindDescriptorSets(vkCommandBuffer, VK10.VK_PIPELINE_BIND_POINT_GRAPHICS, graphicsPipeline.getPipelineLayoutPointer(), 0, currDescriptorSetBuffer, null);
+        VK10.vkCmdSetViewport(vkCommandBuffer, 0, frame.getViewport(swapChainExtent));
+        VK10.vkCmdSetScissor(vkCommandBuffer, 0, frame.getScissor(swapChainExtent));
+        VK10.vkCmdBindVertexBuffers(vkCommandBuffer, 0, frame.getVertexBuffers(vertexBuffer.getDestinationBuffer().getVulkanBufferHandle()),
+                frame.getVertexOffsets());
+        VK10.vkCmdBindIndexBuffer(vkCommandBuffer, indexBuffer.getDestinationBuffer().getVulkanBufferHandle(), 0, indexBuffer.getIndexType());
+        switch (transformPath) {
+            case PUSH_CONSTANT -> recordPushConstantDraws(frame, vkCommandBuffer);
+            case DYNAMIC_UBO -> recordUniformDraws(frame, vkCommandBuffer, drawCount);
+            case STATIC_UBO -> recordUniformDraws(frame, vkCommandBuffer, 1);
         }
-        VK10.vkCmdDrawIndexed(vkCommandBuffer, indexBuffer.getStructEntriesCount(), 1, 0, 0, 0);
-        VK10.vkCmdEndRenderPass(vkCommandBuffer);
+        endRendering(frame, imageIndex, vkCommandBuffer);
     }
 
-    private void beginRenderPass(int imageIndex, SwapChain swapChain, FrameBuffers frameBuffers, VkCommandBuffer vkCommandBuffer) {
-        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
-            VkRect2D renderArea = VkRect2D.calloc(memoryStack);
-            renderArea.offset()
-                    .x(0)
-                    .y(0);
-            renderArea.extent(swapChain.getSwapChainExtent());
+    private void beginRendering(FrameStructs frame, int imageIndex, VkCommandBuffer vkCommandBuffer, VkExtent2D swapChainExtent) {
+        if (renderTargetLayout instanceof RenderPass renderPass) {
+            VK10.vkCmdBeginRenderPass(vkCommandBuffer, frame.getRenderPassBeginInfo(renderPass.getRenderPassPointer(),
+                    frameBuffers.getSwapChainFrameBuffer(imageIndex), swapChainExtent), VK10.VK_SUBPASS_CONTENTS_INLINE);
+            return;
+        }
+        //What the render pass' initial layout and subpass dependency did. The old contents get cleared so the image
+        // can come from undefined, and waiting at the color output stage chains onto the acquire semaphore's wait.
+        VK10.vkCmdPipelineBarrier(vkCommandBuffer, VK10.VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT,
+                VK10.VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT, 0, null, null,
+                frame.getImageBarrier(swapChainImages.getSwapChainImage(imageIndex), VK10.VK_IMAGE_LAYOUT_UNDEFINED,
+                        VK10.VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL, 0, VK10.VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT));
+        KHRDynamicRendering.vkCmdBeginRenderingKHR(vkCommandBuffer,
+                frame.getRenderingInfo(swapChainImages.getSwapChainImageView(imageIndex), swapChainExtent));
+    }
+
+    private void endRendering(FrameStructs frame, int imageIndex, VkCommandBuffer vkCommandBuffer) {
+        if (renderTargetLayout instanceof RenderPass) {
+            VK10.vkCmdEndRenderPass(vkCommandBuffer);
+            return;
+        }
+        KHRDynamicRendering.vkCmdEndRenderingKHR(vkCommandBuffer);
+        //And the render pass' final layout. Presenting waits on the render finished semaphore, nothing else has to wait here.
+        VK10.vkCmdPipelineBarrier(vkCommandBuffer, VK10.VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT,
+                VK10.VK_PIPELINE_STAGE_BOTTOM_OF_PIPE_BIT, 0, null, null,
+                frame.getImageBarrier(swapChainImages.getSwapChainImage(imageIndex), VK10.VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL,
+                        KHRSwapchain.VK_IMAGE_LAYOUT_PRESENT_SRC_KHR, VK10.VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT, 0));
+    }
 
-            VkClearColorValue clearColorValue = VkClearColorValue.calloc(memoryStack);
-            clearColorValue
-                    .float32(0, 0.0f)
-                    .float32(1, 0.0f)
-                    .float32(2, 0.0f)
-                    .float32(3, 1.0f);
-            VkClearValue.Buffer clearValue = VkClearValue.calloc(1, memoryStack);
-            clearValue
-                    .color(clearColorValue);
-            VkRenderPassBeginInfo renderPassBeginInfo = VkRenderPassBeginInfo.calloc(memoryStack);
-            renderPassBeginInfo
-                    .sType(VK10.VK_STRUCTURE_TYPE_RENDER_PASS_BEGIN_INFO)
-                    .renderPass(renderPass.getRenderPassPointer())
-                    .framebuffer(frameBuffers.getSwapChainFrameBuffers().get(imageIndex))
-                    .renderArea(renderArea)
-                    .pClearValues(clearValue);
-            VK10.vkCmdBeginRenderPass(vkCommandBuffer, renderPassBeginInfo, VK10.VK_SUBPASS_CONTENTS_INLINE);
+    private void recordPushConstantDraws(FrameStructs frame, VkCommandBuffer vkCommandBuffer) {
+        ByteBuffer pushConstants = frame.getPushConstants();
+        //Only the bytes the shader declares are part of the pipeline layout's range.
+        int pushConstantSize = pipelineLayout.getPushConstantLayout().getSize();
+        for (int i = 0; i < drawCount; ++i) {
+            setDrawTransform(i);
+            pushConstants.clear();
+            drawTransform.get(DrawPushConstants.MODEL_OFFSET, pushConstants);
+            pushConstants.putInt(DrawPushConstants.MATERIAL_INDEX_OFFSET, i);
+            pushConstants.limit(pushConstantSize);
+            VK10.vkCmdPushConstants(vkCommandBuffer, pipelineLayout.getHandle(), VK10.VK_SHADER_STAGE_VERTEX_BIT, 0, pushConstants);
+            VK10.vkCmdDrawIndexed(vkCommandBuffer, indexBuffer.getStructEntriesCount(), 1, 0, 0, 0);
         }
     }
 
-    public void recreateSwapChain(MemoryStack memoryStack) {
-        IntBuffer width = memoryStack.mallocInt(1);
-        IntBuffer height = memoryStack.mallocInt(1);
-        GLFW.glfwGetFramebufferSize(windowHandle.getWindowHandlePointer(), width, height);
-        while (width.get(0) == 0 || height.get(0) == 0) {
+    //With a single binding every draw reuses the first slice, otherwise the set is bound again with each draw's dynamic offset.
+    private void recordUniformDraws(FrameStructs frame, VkCommandBuffer vkCommandBuffer, int bindingCount) {
+        LongBuffer currDescriptorSetBuffer = frame.getDescriptorSets(descriptorSets.getDescriptorSetHandle(currentFrame));
+        IntBuffer dynamicOffsets = frame.getDynamicOffsets();
+        for (int i = 0; i < drawCount; ++i) {
+            if (i < bindingCount) {
+                dynamicOffsets.put(0, uniformOffsets[i]);
+                VK10.vkCmdBindDescriptorSets(vkCommandBuffer, VK10.VK_PIPELINE_BIND_POINT_GRAPHICS, pipelineLayout.getHandle(), 0, currDescriptorSetBuffer, dynamicOffsets);
+            }
+            VK10.vkCmdDrawIndexed(vkCommandBuffer, indexBuffer.getStructEntriesCount(), 1, 0, 0, 0);
+        }
+    }
+
+    public void recreateSwapChain() {
+        try (MemoryStack memoryStack = MemoryStack.stackPush()) {
+            IntBuffer width = memoryStack.mallocInt(1);
+            IntBuffer height = memoryStack.mallocInt(1);
             GLFW.glfwGetFramebufferSize(windowHandle.getWindowHandlePointer(), width, height);
-            GLFW.glfwWaitEvents();
+            while (width.get(0) == 0 || height.get(0) == 0) {
+                GLFW.glfwGetFramebufferSize(windowHandle.getWindowHandlePointer(), width, height);
+                GLFW.glfwWaitEvents();
+            }
         }
-        VK10.vkDeviceWaitIdle(logicalDevice.vkDevice());
-        cleanup();
+        //No waiting for the device to go idle. The new swap chain takes over from the old one, which stays alive along with
+        // its image views and framebuffers until the frames already submitted to it have finished. With dynamic rendering
+        // the image views are all there is to rebuild, the pipelines only change along with the surface format.
+        SwapChain oldSwapChain = swapChain;
+        SwapChainImages oldSwapChainImages = swapChainImages;
+        FrameBuffers oldFrameBuffers = frameBuffers;
         swapChain = new SwapChain(
                 logicalDevice.vkDevice(),
                 physicalDeviceInformation,
                 windowHandle,
                 windowSurface,
-                swapChain.getSwapChainPointer());
-        renderPass = renderPass.validateSwapChain(swapChain);
-        graphicsPipeline = graphicsPipeline.validateRenderPass(logicalDevice.vkDevice(), renderPass, descriptorSetLayout);
+                framePacingPolicy,
+                oldSwapChain.getSwapChainPointer());
+        SwapChain newSwapChain = swapChain;
+        renderTargetLayout = pipelineRegistry.replaceRenderTargetLayout(current -> current.validateSwapChain(newSwapChain), deletionQueue);
         swapChainImages = createImageViews(logicalDevice, swapChain);
-        frameBuffers = createFrameBuffers(logicalDevice, renderPass, swapChainImages, swapChain);
+        frameBuffers = createFrameBuffers(logicalDevice, renderTargetLayout, swapChainImages, swapChain);
+        deletionQueue.defer(() -> freeSwapChain(oldSwapChain, oldSwapChainImages, oldFrameBuffers));
     }
 
-    private void cleanup() {
-        frameBuffers.free();
+    private static void freeSwapChain(SwapChain swapChain, SwapChainImages swapChainImages, FrameBuffers frameBuffers) {
+        if (frameBuffers != null) {
+            frameBuffers.free();
+        }
         swapChainImages.free();
         swapChain.freeSwapChainExtent();
+        swapChain.freeSwapChainPointer();
     }
 
     public void free() {
-        cleanup();
-        swapChain.freeSwapChainPointer();
-        descriptorPool.free();
-        for (UniformBuffer u : uniformBuffers) {
-            u.free();
+        deletionQueue.flush();
+        pipelineRegistry.free();
+        freeSwapChain(swapChain, swapChainImages, frameBuffers);
+        if (descriptorPool != null) {
+            descriptorPool.free();
         }
+        uniformArena.free();
+        uploadService.free();
         indexBuffer.free();
         vertexBuffer.free();
-        for (LongBuffer x : inFlightFences) {
-            VK10.vkDestroyFence(logicalDevice.vkDevice(), x.get(0), null);
-            MemoryUtil.memFree(x);
-        }
-        for (LongBuffer x : renderFinishedSemaphores) {
-            VK10.vkDestroySemaphore(logicalDevice.vkDevice(), x.get(0), null);
-            MemoryUtil.memFree(x);
+        for (int i = 0; i < framesInFlight; ++i) {
+            if (inFlightFences != null) {
+                VK10.vkDestroyFence(logicalDevice.vkDevice(), inFlightFences[i], null);
+            }
+            VK10.vkDestroySemaphore(logicalDevice.vkDevice(), renderFinishedSemaphores[i], null);
+            VK10.vkDestroySemaphore(logicalDevice.vkDevice(), imageAvailableSemaphores[i], null);
+            frameStructs[i].free();
         }
-        for (LongBuffer x : imageAvailableSemaphores) {
-            VK10.vkDestroySemaphore(logicalDevice.vkDevice(), x.get(0), null);
-            MemoryUtil.memFree(x);
+        if (frameTimeline != null) {
+            frameTimeline.free();
         }
-        graphicsPipeline.free();
-        descriptorSetLayout.free();
-        renderPass.free();
+        System.out.printf("Pipelines: %d, compiled without being precompiled: %d%n",
+                pipelineRegistry.getPipelineCount(), pipelineRegistry.getUnpredictedCompiles());
+        System.out.printf("Layout cache: %s%n", layoutCache.getStatistics());
+        layoutCache.free();
+        renderTargetLayout.free();
     }
 }
@@ -0,0 +1,33 @@
+package my.game.render;
+
+//How per draw transforms get to the vertex shader.
+public enum TransformPath {
+    //vkCmdPushConstants before every draw. Nothing is written to mapped memory and no descriptor set is bound.
+    PUSH_CONSTANT("basic_push.vert"),
+    //One uniform arena slice per draw, the descriptor set is bound again with that draw's dynamic offset.
+    DYNAMIC_UBO("basic.vert"),
+    //One uniform arena slice per frame bound once and shared by every draw. The baseline to compare the other two against.
+    STATIC_UBO("basic.vert");
+
+    private final String vertexShaderName;
+
+    TransformPath(String vertexShaderName) {
+        this.vertexShaderName = vertexShaderName;
+    }
+
+    public String getVertexShaderName() {
+        return vertexShaderName;
+    }
+
+    public static TransformPath fromProperty(String value) {
+        if (value == null) {
+            return PUSH_CONSTANT;
+        }
+        return switch (value.toLowerCase()) {
+            case "push" -> PUSH_CONSTANT;
+            case "dynamic" -> DYNAMIC_UBO;
+            case "static" -> STATIC_UBO;
+            default -> throw new IllegalArgumentException(String.format("Unknown transform path %s. Expected push, dynamic or static", value));
+        };
+    }
+}
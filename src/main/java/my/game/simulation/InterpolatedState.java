@@ -0,0 +1,43 @@
+package my.game.simulation;
+
+//The render thread's side of the Simulation. Keeps copies of the two newest snapshots it has seen and blends between
+// them, so motion stays smooth whether frames come faster or slower than ticks. Drawing happens a tick behind the
+// simulation: the newest snapshot is only fully shown once the next one is due. Nothing in here allocates.
+public class InterpolatedState {
+    private final TripleBuffer<SimulationState> snapshots;
+    private final SimulationState previous = new SimulationState();
+    private final SimulationState current = new SimulationState();
+    private double rotation = 0;
+
+    InterpolatedState(TripleBuffer<SimulationState> snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    //Once per frame, before anything reads the state.
+    public void update(long nowNanos) {
+        SimulationState latest = snapshots.acquireLatest();
+        if (latest != null) {
+            previous.set(current);
+            current.set(latest);
+        }
+        long snapshotNanos = current.getTickNanos() - previous.getTickNanos();
+        double alpha = 1;
+        //Before the second tick there is nothing to blend between.
+        if (previous.getTick() > 0 && snapshotNanos > 0) {
+            //The time being drawn is as far past previous as now is past current.
+            double renderNanos = nowNanos - current.getTickNanos();
+            alpha = Math.clamp(renderNanos / snapshotNanos, 0.0, 1.0);
+        }
+        //The angle wraps around, blend along the shorter way.
+        double delta = Math.IEEEremainder(current.getRotation() - previous.getRotation(), 2 * Math.PI);
+        rotation = previous.getRotation() + delta * alpha;
+    }
+
+    public double getRotation() {
+        return rotation;
+    }
+
+    public long getTick() {
+        return current.getTick();
+    }
+}
@@ -0,0 +1,82 @@
+package my.game.simulation;
+
+import java.util.concurrent.locks.LockSupport;
+
+//Advances the game on its own thread at a fixed tick rate, independent of how fast frames are drawn. Every tick moves
+// the state forward by the same amount of time, so the same number of ticks always ends in the same state. Each tick
+// is published through a TripleBuffer, the render thread reads them with an InterpolatedState.
+public class Simulation {
+    //A quarter turn a second, what the quad did back when its angle came straight from glfwGetTime.
+    private static final double ANGULAR_VELOCITY = Math.toRadians(90);
+    //How many ticks the thread runs back to back to catch up. Further behind, like after the process was suspended, the
+    // missed ticks are dropped instead of running them all at once.
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
+    private final int tickRate;
+    private final long tickDurationNanos;
+    private final double tickSeconds;
+    private final TripleBuffer<SimulationState> snapshots = new TripleBuffer<>(SimulationState::new);
+    private final Thread simulationThread;
+    private volatile boolean running = true;
+    //Only touched by the simulation thread.
+    private long tick = 0;
+    private double rotation = 0;
+    private long droppedTicks = 0;
+
+    public Simulation(int tickRate) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException(String.format("Simulation tick rate has to be positive but was %d", tickRate));
+        }
+        this.tickRate = tickRate;
+        this.tickDurationNanos = 1_000_000_000L / tickRate;
+        this.tickSeconds = 1.0 / tickRate;
+        this.simulationThread = new Thread(this::run, "simulation");
+        simulationThread.setDaemon(true);
+    }
+
+    public void start() {
+        simulationThread.start();
+        System.out.printf("Simulating at %d ticks per second%n", tickRate);
+    }
+
+    //For the render thread. There is only one reader per TripleBuffer, so only call this once.
+    public InterpolatedState createInterpolatedState() {
+        return new InterpolatedState(snapshots);
+    }
+
+    private void run() {
+        long nextTickNanos = System.nanoTime();
+        while (running) {
+            long behindNanos = System.nanoTime() - nextTickNanos;
+            if (behindNanos < 0) {
+                LockSupport.parkNanos(-behindNanos);
+                continue;
+            }
+            if (behindNanos > MAX_CATCH_UP_TICKS * tickDurationNanos) {
+                long skipped = behindNanos / tickDurationNanos;
+                nextTickNanos += skipped * tickDurationNanos;
+                droppedTicks += skipped;
+            }
+            step(nextTickNanos);
+            nextTickNanos += tickDurationNanos;
+        }
+    }
+
+    private void step(long tickNanos) {
+        ++tick;
+        rotation = Math.IEEEremainder(rotation + ANGULAR_VELOCITY * tickSeconds, 2 * Math.PI);
+        snapshots.getWriteSlot().set(tick, tickNanos, rotation);
+        snapshots.publish();
+    }
+
+    public void free() {
+        running = false;
+        LockSupport.unpark(simulationThread);
+        try {
+            simulationThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.printf("Simulation ran %d ticks, dropped %d%n", tick, droppedTicks);
+    }
+}
@@ -0,0 +1,34 @@
+package my.game.simulation;
+
+//Everything a tick of the simulation produces that the renderer needs. Snapshots live in the slots of a TripleBuffer:
+// the simulation thread fills one and publishes it, after that nobody writes to it until the reader has handed it back,
+// so to the render thread a snapshot never changes.
+public class SimulationState {
+    private long tick;
+    //System.nanoTime() the tick is scheduled for. Interpolation places snapshots on the render thread's clock with it.
+    private long tickNanos;
+    //Radians in [-pi, pi].
+    private double rotation;
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    public double getRotation() {
+        return rotation;
+    }
+
+    void set(long tick, long tickNanos, double rotation) {
+        this.tick = tick;
+        this.tickNanos = tickNanos;
+        this.rotation = rotation;
+    }
+
+    void set(SimulationState other) {
+        set(other.tick, other.tickNanos, other.rotation);
+    }
+}
@@ -0,0 +1,52 @@
+package my.game.simulation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//Hands the latest value from one writer thread to one reader thread without locks and without either of them ever
+// waiting. There are three slots: the writer fills its own, the reader reads its own, and the third holds whatever was
+// published last. Publishing and acquiring swap a private slot with that middle one, so neither side ever sees a slot
+// the other is still using. The writer can publish any number of times in between, the reader only gets the newest.
+public class TripleBuffer<T> {
+    //Set on the middle index when it holds something the reader has not taken yet.
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    private final Object[] slots = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+    //Only touched by the writer.
+    private int writeIndex = 0;
+    //Only touched by the reader.
+    private int readIndex = 2;
+
+    public TripleBuffer(Supplier<T> slotFactory) {
+        for (int i = 0; i < slots.length; ++i) {
+            slots[i] = slotFactory.get();
+        }
+    }
+
+    //Writer. The slot still holds whatever was written into it a few publishes ago, so fill in all of it.
+    public T getWriteSlot() {
+        return slot(writeIndex);
+    }
+
+    //Writer. The write slot becomes visible to the reader and the writer gets the old middle slot to fill next.
+    public void publish() {
+        writeIndex = middle.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+    }
+
+    //Reader. The newest published slot, or null when nothing was published since the last call. The slot stays the
+    // reader's until the next successful call, the writer does not touch it in between.
+    public T acquireLatest() {
+        if ((middle.get() & FRESH) == 0) {
+            return null;
+        }
+        readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+        return slot(readIndex);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T slot(int index) {
+        return (T) slots[index];
+    }
+}
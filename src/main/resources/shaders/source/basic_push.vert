@@ -0,0 +1,17 @@
+#version 460
+
+//Per draw data comes in through push constants instead of the uniform buffer. Push constant blocks use std430 by default.
+layout(push_constant, std430) uniform DrawPushConstants {
+    mat2 model;
+    uint materialIndex;
+} draw;
+
+layout(location = 0) in vec2 inPosition;
+layout(location = 1) in vec3 inColor;
+
+layout(location = 0) out vec3 fragColor;
+
+void main() {
+    gl_Position = vec4(draw.model * inPosition, 0.0, 1.0);
+    fragColor = inColor;
+}
@@ -0,0 +1,24 @@
+package my.game.init.vulkan.devices.logical.queue;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class QueueLocksTest {
+
+    //Transfer and compute resolving to the same family get the same VkQueue handle and must share its lock.
+    @Test
+    void rolesOnTheSameVkQueueShareALock() {
+        QueueLocks queueLocks = new QueueLocks();
+        Object transferLock = queueLocks.forQueue(0x1000L);
+        Object computeLock = queueLocks.forQueue(0x1000L);
+        assertSame(transferLock, computeLock);
+    }
+
+    @Test
+    void differentVkQueuesDoNotShareALock() {
+        QueueLocks queueLocks = new QueueLocks();
+        assertNotSame(queueLocks.forQueue(0x1000L), queueLocks.forQueue(0x2000L));
+    }
+}
@@ -0,0 +1,61 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+//Hands out made up handles and addresses and remembers what is still allocated and mapped.
+class FakeDeviceMemoryBackend implements DeviceMemoryBackend {
+    private static final long FAKE_ADDRESS_BASE = 0x1000_0000L;
+
+    private final Map<Long, Long> allocationSizes = new HashMap<>();
+    private final Set<Long> mapped = new HashSet<>();
+    private long nextHandle = 1;
+    private int allocateCount = 0;
+
+    @Override
+    public long allocateMemory(long size, int memoryTypeIndex) {
+        long handle = nextHandle++;
+        allocationSizes.put(handle, size);
+        ++allocateCount;
+        return handle;
+    }
+
+    @Override
+    public void freeMemory(long memoryHandle) {
+        if (mapped.contains(memoryHandle)) {
+            throw new IllegalStateException(String.format("Memory %d freed while still mapped", memoryHandle));
+        }
+        if (allocationSizes.remove(memoryHandle) == null) {
+            throw new IllegalStateException(String.format("Memory %d freed twice", memoryHandle));
+        }
+    }
+
+    @Override
+    public long mapMemory(long memoryHandle, long size) {
+        mapped.add(memoryHandle);
+        return FAKE_ADDRESS_BASE * memoryHandle;
+    }
+
+    @Override
+    public void unmapMemory(long memoryHandle) {
+        mapped.remove(memoryHandle);
+    }
+
+    int liveAllocations() {
+        return allocationSizes.size();
+    }
+
+    long sizeOf(long memoryHandle) {
+        return allocationSizes.get(memoryHandle);
+    }
+
+    int getAllocateCount() {
+        return allocateCount;
+    }
+
+    boolean isMapped(long memoryHandle) {
+        return mapped.contains(memoryHandle);
+    }
+}
@@ -0,0 +1,112 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryAllocatorTest {
+    private static final long BLOCK_SIZE = 1024;
+    private static final int MEMORY_TYPE = 3;
+
+    private final FakeDeviceMemoryBackend backend = new FakeDeviceMemoryBackend();
+    private final MemoryAllocator allocator = new MemoryAllocator(backend, BLOCK_SIZE);
+
+    @Test
+    void smallAllocationsShareABlock() {
+        MemoryAllocation first = allocator.allocate(100, 16, MEMORY_TYPE, false);
+        MemoryAllocation second = allocator.allocate(100, 16, MEMORY_TYPE, false);
+        assertEquals(first.getMemoryHandle(), second.getMemoryHandle());
+        assertEquals(0, first.getOffset());
+        assertEquals(112, second.getOffset());
+        assertEquals(1, backend.getAllocateCount());
+        assertEquals(BLOCK_SIZE, backend.sizeOf(first.getMemoryHandle()));
+    }
+
+    @Test
+    void fullBlockStartsANewOne() {
+        MemoryAllocation first = allocator.allocate(400, 1, MEMORY_TYPE, false);
+        allocator.allocate(400, 1, MEMORY_TYPE, false);
+        MemoryAllocation third = allocator.allocate(400, 1, MEMORY_TYPE, false);
+        assertNotEquals(first.getMemoryHandle(), third.getMemoryHandle());
+        assertEquals(0, third.getOffset());
+        assertEquals(2, backend.liveAllocations());
+    }
+
+    @Test
+    void hostVisibleAndDeviceLocalDoNotShareBlocks() {
+        MemoryAllocation deviceLocal = allocator.allocate(100, 1, MEMORY_TYPE, false);
+        MemoryAllocation hostVisible = allocator.allocate(100, 1, MEMORY_TYPE, true);
+        assertNotEquals(deviceLocal.getMemoryHandle(), hostVisible.getMemoryHandle());
+        assertFalse(deviceLocal.isMapped());
+        assertTrue(hostVisible.isMapped());
+        assertTrue(backend.isMapped(hostVisible.getMemoryHandle()));
+        assertThrows(IllegalStateException.class, deviceLocal::getMappedAddress);
+    }
+
+    @Test
+    void moreThanHalfABlockGetsADedicatedBlock() {
+        MemoryAllocation shared = allocator.allocate(100, 1, MEMORY_TYPE, false);
+        MemoryAllocation dedicated = allocator.allocate(BLOCK_SIZE / 2 + 1, 1, MEMORY_TYPE, false);
+        assertNotEquals(shared.getMemoryHandle(), dedicated.getMemoryHandle());
+        assertEquals(BLOCK_SIZE / 2 + 1, backend.sizeOf(dedicated.getMemoryHandle()));
+        //Nothing else is placed in a dedicated block even when it has room.
+        MemoryAllocation next = allocator.allocate(100, 1, MEMORY_TYPE, false);
+        assertEquals(shared.getMemoryHandle(), next.getMemoryHandle());
+        allocator.free(dedicated);
+        assertEquals(1, backend.liveAllocations());
+    }
+
+    @Test
+    void emptySharedBlocksAreFreedExceptTheLastOne() {
+        MemoryAllocation first = allocator.allocate(300, 1, MEMORY_TYPE, true);
+        MemoryAllocation second = allocator.allocate(500, 1, MEMORY_TYPE, true);
+        //Only 224 bytes left in the first block.
+        MemoryAllocation third = allocator.allocate(500, 1, MEMORY_TYPE, true);
+        assertEquals(2, backend.liveAllocations());
+        allocator.free(third);
+        //Emptied while another shared block exists, so it goes and gets unmapped first.
+        assertEquals(1, backend.liveAllocations());
+        allocator.free(first);
+        allocator.free(second);
+        //The last empty block is kept for the next allocation.
+        assertEquals(1, backend.liveAllocations());
+        MemoryAllocation reused = allocator.allocate(100, 1, MEMORY_TYPE, true);
+        assertEquals(first.getMemoryHandle(), reused.getMemoryHandle());
+        assertEquals(2, backend.getAllocateCount());
+        allocator.free();
+        assertEquals(0, backend.liveAllocations());
+    }
+
+    @Test
+    void statisticsReportFragmentation() {
+        MemoryAllocation[] allocations = new MemoryAllocation[4];
+        for (int i = 0; i < allocations.length; ++i) {
+            allocations[i] = allocator.allocate(256, 1, MEMORY_TYPE, false);
+        }
+        AllocatorStatistics full = allocator.getStatistics();
+        assertEquals(1, full.blockCount());
+        assertEquals(4, full.allocationCount());
+        assertEquals(0, full.totalFreeBytes());
+        assertEquals(0, full.fragmentation());
+        assertEquals(4, full.allocateCalls());
+
+        allocator.free(allocations[0]);
+        allocator.free(allocations[2]);
+        AllocatorStatistics holes = allocator.getStatistics();
+        assertEquals(2, holes.allocationCount());
+        assertEquals(512, holes.allocationBytes());
+        assertEquals(512, holes.totalFreeBytes());
+        assertEquals(256, holes.largestFreeRange());
+        //Half of the free memory is outside the largest range.
+        assertEquals(0.5, holes.fragmentation(), 1e-9);
+
+        allocator.free(allocations[1]);
+        AllocatorStatistics merged = allocator.getStatistics();
+        assertEquals(768, merged.largestFreeRange());
+        assertEquals(0, merged.fragmentation());
+    }
+}
@@ -0,0 +1,75 @@
+package my.game.init.vulkan.drawing.memory.allocation;
+
+import org.junit.jupiter.api.Test;
+import org.lwjgl.vulkan.VK10;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryBlockTest {
+
+    private static MemoryBlock block(long size) {
+        return new MemoryBlock(1, size, 0, VK10.VK_NULL_HANDLE, false);
+    }
+
+    @Test
+    void firstFitAlignsTheOffset() {
+        MemoryBlock block = block(1024);
+        assertEquals(0, block.allocate(10, 1));
+        assertEquals(64, block.allocate(16, 64));
+        //The padding in front of the aligned allocation is the first range that fits.
+        assertEquals(10, block.allocate(20, 1));
+        assertEquals(46, block.getUsedBytes());
+        assertEquals(3, block.getAllocationCount());
+    }
+
+    @Test
+    void failsWhenNoRangeFitsAfterAlignment() {
+        MemoryBlock block = block(256);
+        assertEquals(0, block.allocate(200, 1));
+        //56 bytes are free but aligning to 128 leaves none of them.
+        assertEquals(-1, block.allocate(40, 128));
+        assertEquals(200, block.allocate(56, 8));
+        assertEquals(-1, block.allocate(1, 1));
+    }
+
+    @Test
+    void freeMergesWithBothNeighbours() {
+        MemoryBlock block = block(1024);
+        long first = block.allocate(100, 1);
+        long second = block.allocate(100, 1);
+        long third = block.allocate(100, 1);
+        block.free(first, 100);
+        block.free(third, 100);
+        //[0, 100) and [200, 1024) are free but not adjacent.
+        assertEquals(824, block.largestFreeRange());
+        block.free(second, 100);
+        assertEquals(1024, block.largestFreeRange());
+        assertEquals(1024, block.freeBytes());
+        assertTrue(block.isEmpty());
+        //Only possible if everything was merged back into one range.
+        assertEquals(0, block.allocate(1024, 1));
+    }
+
+    @Test
+    void freeMergesWithPreviousOnly() {
+        MemoryBlock block = block(300);
+        long first = block.allocate(100, 1);
+        long second = block.allocate(100, 1);
+        block.allocate(100, 1);
+        block.free(first, 100);
+        block.free(second, 100);
+        assertEquals(200, block.largestFreeRange());
+        assertFalse(block.isEmpty());
+    }
+
+    @Test
+    void alignUp() {
+        assertEquals(0, MemoryBlock.alignUp(0, 256));
+        assertEquals(256, MemoryBlock.alignUp(1, 256));
+        assertEquals(256, MemoryBlock.alignUp(256, 256));
+        assertEquals(7, MemoryBlock.alignUp(7, 1));
+        assertEquals(7, MemoryBlock.alignUp(7, 0));
+    }
+}
@@ -0,0 +1,66 @@
+package my.game.init.vulkan.drawing.memory.upload;
+
+import my.game.init.vulkan.drawing.memory.allocation.AllocatorStatistics;
+import my.game.init.vulkan.drawing.memory.allocation.BufferAllocation;
+import my.game.init.vulkan.drawing.memory.allocation.BufferAllocator;
+import my.game.init.vulkan.drawing.memory.allocation.MemoryUsage;
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//Backs every buffer with plain host memory, so FakeUploadSubmitter can do the gpu's copies with memCopy.
+class FakeBufferAllocator implements BufferAllocator {
+    private final Map<Long, Long> addresses = new HashMap<>();
+    private long nextHandle = 1;
+
+    @Override
+    public synchronized BufferAllocation createBuffer(long size, int bufferUsageFlags, MemoryUsage memoryUsage) {
+        long handle = nextHandle++;
+        long address = MemoryUtil.nmemCalloc(1, size);
+        addresses.put(handle, address);
+        return new BufferAllocation() {
+            @Override
+            public long getBufferHandle() {
+                return handle;
+            }
+
+            @Override
+            public long getSize() {
+                return size;
+            }
+
+            @Override
+            public long getMappedAddress() {
+                return address;
+            }
+        };
+    }
+
+    synchronized long addressOf(long bufferHandle) {
+        return addresses.get(bufferHandle);
+    }
+
+    @Override
+    public synchronized void destroyBuffer(BufferAllocation bufferAllocation) {
+        MemoryUtil.nmemFree(addresses.remove(bufferAllocation.getBufferHandle()));
+    }
+
+    @Override
+    public void flush(BufferAllocation bufferAllocation, long offset, long size) {
+    }
+
+    @Override
+    public AllocatorStatistics getStatistics() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getName() {
+        return "fake";
+    }
+
+    @Override
+    public void free() {
+    }
+}
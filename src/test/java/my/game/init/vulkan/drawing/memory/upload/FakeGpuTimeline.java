@@ -0,0 +1,68 @@
+package my.game.init.vulkan.drawing.memory.upload;
+
+import my.game.init.vulkan.devices.logical.queue.VulkanQueue;
+import my.game.init.vulkan.sync.GpuTimeline;
+import org.lwjgl.vulkan.VkSubmitInfo;
+
+//The test plays the gpu and decides when work finishes with complete(). Waiting releases the monitor, so
+// completedValue() keeps answering while another thread waits, like it does on the real timelines.
+class FakeGpuTimeline implements GpuTimeline {
+    //Finishes everything as soon as somebody waits for it, for tests that do not care about timing.
+    private final boolean completesOnWait;
+    private long lastSubmittedValue = 0;
+    private long completedValue = 0;
+    private int waiters = 0;
+
+    FakeGpuTimeline(boolean completesOnWait) {
+        this.completesOnWait = completesOnWait;
+    }
+
+    synchronized long nextValue() {
+        return ++lastSubmittedValue;
+    }
+
+    synchronized void complete(long value) {
+        completedValue = Math.max(completedValue, value);
+        notifyAll();
+    }
+
+    synchronized void awaitWaiter() throws InterruptedException {
+        while (waiters == 0) {
+            wait();
+        }
+    }
+
+    @Override
+    public long submit(VulkanQueue queue, VkSubmitInfo submitInfo) {
+        throw new UnsupportedOperationException("FakeUploadSubmitter hands out the values");
+    }
+
+    @Override
+    public synchronized long completedValue() {
+        return completedValue;
+    }
+
+    @Override
+    public synchronized void waitForValue(long value) {
+        if (completesOnWait) {
+            complete(value);
+            return;
+        }
+        ++waiters;
+        notifyAll();
+        try {
+            while (completedValue < value) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            --waiters;
+        }
+    }
+
+    @Override
+    public void free() {
+    }
+}
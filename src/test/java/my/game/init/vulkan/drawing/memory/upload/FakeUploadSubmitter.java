@@ -0,0 +1,64 @@
+package my.game.init.vulkan.drawing.memory.upload;
+
+import my.game.init.vulkan.drawing.memory.buffer.StagingRingBuffer;
+import my.game.init.vulkan.drawing.memory.buffer.VulkanBuffer;
+import my.game.init.vulkan.sync.GpuTimeline;
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+//Does the gpu's copies with memCopy as soon as they are submitted. When they count as finished is still up to the test,
+// through FakeGpuTimeline.
+class FakeUploadSubmitter implements UploadSubmitter {
+    private final FakeBufferAllocator bufferAllocator;
+    private final boolean ownershipTransferRequired;
+    private final List<UploadService.StagedCopy> copies = new ArrayList<>();
+    private int copySubmissions = 0;
+    private int acquireSubmissions = 0;
+
+    FakeUploadSubmitter(FakeBufferAllocator bufferAllocator, boolean ownershipTransferRequired) {
+        this.bufferAllocator = bufferAllocator;
+        this.ownershipTransferRequired = ownershipTransferRequired;
+    }
+
+    @Override
+    public synchronized long submitCopies(StagingRingBuffer stagingRingBuffer, GpuTimeline transferTimeline,
+                                          Map<VulkanBuffer, List<UploadService.StagedCopy>> stagedCopies,
+                                          List<UploadService.UploadTarget> targets) {
+        long stagingAddress = bufferAllocator.addressOf(stagingRingBuffer.getVulkanBuffer().getVulkanBufferHandle());
+        for (Map.Entry<VulkanBuffer, List<UploadService.StagedCopy>> entry : stagedCopies.entrySet()) {
+            long destinationAddress = bufferAllocator.addressOf(entry.getKey().getVulkanBufferHandle());
+            for (UploadService.StagedCopy copy : entry.getValue()) {
+                MemoryUtil.memCopy(stagingAddress + copy.stagingOffset(), destinationAddress + copy.destinationOffset(), copy.size());
+                copies.add(copy);
+            }
+        }
+        ++copySubmissions;
+        return ((FakeGpuTimeline) transferTimeline).nextValue();
+    }
+
+    @Override
+    public synchronized long submitAcquire(GpuTimeline acquireTimeline, List<UploadService.UploadTarget> targets) {
+        ++acquireSubmissions;
+        return ((FakeGpuTimeline) acquireTimeline).nextValue();
+    }
+
+    @Override
+    public boolean isOwnershipTransferRequired() {
+        return ownershipTransferRequired;
+    }
+
+    synchronized List<UploadService.StagedCopy> getCopies() {
+        return new ArrayList<>(copies);
+    }
+
+    synchronized int getCopySubmissions() {
+        return copySubmissions;
+    }
+
+    synchronized int getAcquireSubmissions() {
+        return acquireSubmissions;
+    }
+}
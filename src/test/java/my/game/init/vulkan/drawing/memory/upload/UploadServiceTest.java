@@ -0,0 +1,143 @@
+package my.game.init.vulkan.drawing.memory.upload;
+
+import my.game.init.vulkan.drawing.memory.allocation.MemoryUsage;
+import my.game.init.vulkan.drawing.memory.buffer.VulkanBuffer;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UploadServiceTest {
+    private static final int RING_SIZE = 1024;
+
+    private final FakeBufferAllocator bufferAllocator = new FakeBufferAllocator();
+
+    private VulkanBuffer destination(int size) {
+        return new VulkanBuffer(size, bufferAllocator, 0, MemoryUsage.GPU_ONLY);
+    }
+
+    private ByteBuffer contents(VulkanBuffer buffer, int size) {
+        return MemoryUtil.memByteBuffer(bufferAllocator.addressOf(buffer.getVulkanBufferHandle()), size);
+    }
+
+    private static VulkanBuffer.MemoryMapActon fill(byte value) {
+        return (stagingDataByteBuffer) -> {
+            while (stagingDataByteBuffer.hasRemaining()) {
+                stagingDataByteBuffer.put(value);
+            }
+        };
+    }
+
+    @Test
+    void pollReturnsWhileABatchWaitsForRoomInTheRing() throws Exception {
+        FakeGpuTimeline transferTimeline = new FakeGpuTimeline(false);
+        FakeUploadSubmitter submitter = new FakeUploadSubmitter(bufferAllocator, false);
+        UploadService uploadService = new UploadService(submitter, transferTimeline, new FakeGpuTimeline(false), bufferAllocator, RING_SIZE);
+        VulkanBuffer first = destination(RING_SIZE);
+        VulkanBuffer second = destination(RING_SIZE / 2);
+        CompletableFuture<VulkanBuffer> firstUpload = uploadService.upload(first, RING_SIZE, fill((byte) 1), 0, 0);
+
+        //The first upload still owns the whole ring, so this one has to wait for the gpu.
+        CompletableFuture<CompletableFuture<VulkanBuffer>> secondUpload = CompletableFuture.supplyAsync(
+                () -> uploadService.upload(second, RING_SIZE / 2, fill((byte) 2), 0, 0));
+        transferTimeline.awaitWaiter();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), uploadService::poll);
+        assertFalse(firstUpload.isDone());
+        assertFalse(secondUpload.isDone());
+
+        transferTimeline.complete(1);
+        CompletableFuture<VulkanBuffer> secondFuture = secondUpload.get(5, TimeUnit.SECONDS);
+        uploadService.poll();
+        assertSame(first, firstUpload.getNow(null));
+        assertFalse(secondFuture.isDone());
+
+        transferTimeline.complete(2);
+        uploadService.poll();
+        assertSame(second, secondFuture.getNow(null));
+        assertEquals(2, contents(second, RING_SIZE / 2).get(0));
+
+        uploadService.free();
+        first.free();
+        second.free();
+    }
+
+    @Test
+    void uploadsBiggerThanTheRingAreWrittenChunkByChunk() {
+        FakeGpuTimeline transferTimeline = new FakeGpuTimeline(true);
+        FakeUploadSubmitter submitter = new FakeUploadSubmitter(bufferAllocator, false);
+        UploadService uploadService = new UploadService(submitter, transferTimeline, new FakeGpuTimeline(true), bufferAllocator, RING_SIZE);
+        int size = RING_SIZE * 2 + 100;
+        VulkanBuffer buffer = destination(size);
+        List<Integer> chunkOffsets = new ArrayList<>();
+        UploadBatch uploadBatch = uploadService.beginBatch();
+        CompletableFuture<VulkanBuffer> future = uploadBatch.addChunked(buffer, size, (stagingChunk, uploadOffset) -> {
+            assertTrue(stagingChunk.remaining() <= RING_SIZE / 2);
+            chunkOffsets.add(uploadOffset);
+            for (int i = 0; stagingChunk.hasRemaining(); ++i) {
+                stagingChunk.put((byte) (uploadOffset + i));
+            }
+        }, 0, 0);
+        uploadBatch.submit();
+
+        assertEquals(List.of(0, 512, 1024, 1536, 2048), chunkOffsets);
+        ByteBuffer contents = contents(buffer, size);
+        for (int i = 0; i < size; ++i) {
+            assertEquals((byte) i, contents.get(i), "byte " + i);
+        }
+        transferTimeline.complete(Long.MAX_VALUE);
+        uploadService.poll();
+        assertSame(buffer, future.getNow(null));
+
+        uploadService.free();
+        buffer.free();
+    }
+
+    @Test
+    void plainWritersHaveToFitInTheRing() {
+        FakeUploadSubmitter submitter = new FakeUploadSubmitter(bufferAllocator, false);
+        UploadService uploadService = new UploadService(submitter, new FakeGpuTimeline(true), new FakeGpuTimeline(true), bufferAllocator, RING_SIZE);
+        VulkanBuffer buffer = destination(RING_SIZE * 2);
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.beginBatch().add(buffer, RING_SIZE * 2, fill((byte) 1), 0, 0));
+        assertEquals(0, submitter.getCopySubmissions());
+
+        uploadService.free();
+        buffer.free();
+    }
+
+    @Test
+    void ownershipTransfersCompleteOnceTheAcquireIsDone() {
+        FakeGpuTimeline transferTimeline = new FakeGpuTimeline(false);
+        FakeGpuTimeline acquireTimeline = new FakeGpuTimeline(false);
+        FakeUploadSubmitter submitter = new FakeUploadSubmitter(bufferAllocator, true);
+        UploadService uploadService = new UploadService(submitter, transferTimeline, acquireTimeline, bufferAllocator, RING_SIZE);
+        VulkanBuffer buffer = destination(64);
+        CompletableFuture<VulkanBuffer> future = uploadService.upload(buffer, 64, fill((byte) 3), 0, 0);
+
+        transferTimeline.complete(1);
+        uploadService.poll();
+        assertEquals(1, submitter.getAcquireSubmissions());
+        assertFalse(future.isDone());
+
+        acquireTimeline.complete(1);
+        uploadService.poll();
+        assertSame(buffer, future.getNow(null));
+        assertEquals(1, submitter.getAcquireSubmissions());
+
+        uploadService.free();
+        buffer.free();
+    }
+}
@@ -0,0 +1,86 @@
+package my.game.init.vulkan.drawing.mesh;
+
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.VK10;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MeshBuilderTest {
+    private static final float[] TRIANGLE = {
+            -0.5f, -0.5f, 1.0f, 0.0f, 0.0f,
+            0.5f, -0.5f, 0.0f, 1.0f, 0.0f,
+            0.5f, 0.5f, 0.0f, 0.0f, 1.0f
+    };
+
+    @Test
+    void heapAndDirectBuffersWriteTheSameVertices() {
+        FloatBuffer direct = MemoryUtil.memAllocFloat(TRIANGLE.length).put(TRIANGLE).flip();
+        MeshBuilder fromHeap = new MeshBuilder(1, 1);
+        MeshBuilder fromDirect = new MeshBuilder(1, 1);
+        try {
+            FloatBuffer heap = FloatBuffer.wrap(TRIANGLE);
+            fromHeap.putVertices(heap);
+            fromDirect.putVertices(direct);
+            assertEquals(0, heap.position());
+            assertEquals(0, direct.position());
+            assertArrayEquals(TRIANGLE, writtenVertices(fromHeap));
+            assertArrayEquals(TRIANGLE, writtenVertices(fromDirect));
+        } finally {
+            fromHeap.free();
+            fromDirect.free();
+            MemoryUtil.memFree(direct);
+        }
+    }
+
+    @Test
+    void heapIndicesAreWrittenAs16Bit() {
+        MeshBuilder meshBuilder = new MeshBuilder(1, 1);
+        ByteBuffer destination = null;
+        try {
+            meshBuilder.putVertices(TRIANGLE);
+            meshBuilder.putIndices(IntBuffer.wrap(new int[]{2, 1, 0}));
+            assertEquals(VK10.VK_INDEX_TYPE_UINT16, meshBuilder.getIndexType());
+            destination = MemoryUtil.memAlloc(meshBuilder.getIndexBytes());
+            meshBuilder.writeIndices(destination);
+            assertEquals(2, destination.getShort(0));
+            assertEquals(1, destination.getShort(2));
+            assertEquals(0, destination.getShort(4));
+        } finally {
+            meshBuilder.free();
+            MemoryUtil.memFree(destination);
+        }
+    }
+
+    @Test
+    void indexPastTheLastVertexIsRejected() {
+        MeshBuilder meshBuilder = new MeshBuilder(1, 1);
+        ByteBuffer destination = MemoryUtil.memAlloc(3 * Integer.BYTES);
+        try {
+            meshBuilder.putVertices(TRIANGLE);
+            meshBuilder.triangle(0, 1, 3);
+            assertThrows(IllegalStateException.class, () -> meshBuilder.writeIndices(destination));
+        } finally {
+            meshBuilder.free();
+            MemoryUtil.memFree(destination);
+        }
+    }
+
+    private static float[] writtenVertices(MeshBuilder meshBuilder) {
+        ByteBuffer destination = MemoryUtil.memAlloc(meshBuilder.getVertexBytes());
+        try {
+            meshBuilder.writeVertices(destination);
+            float[] vertices = new float[meshBuilder.getVertexCount() * MeshBuilder.FLOATS_PER_VERTEX];
+            destination.asFloatBuffer().get(vertices);
+            return vertices;
+        } finally {
+            MemoryUtil.memFree(destination);
+        }
+    }
+}
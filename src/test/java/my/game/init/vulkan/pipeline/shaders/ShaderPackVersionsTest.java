@@ -0,0 +1,72 @@
+package my.game.init.vulkan.pipeline.shaders;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShaderPackVersionsTest {
+    @TempDir
+    Path directory;
+
+    private static List<ShaderPack.Entry> entries(byte code) {
+        return List.of(new ShaderPack.Entry("basic.vert", new byte[ShaderPack.SOURCE_HASH_SIZE], ByteBuffer.wrap(new byte[]{code, 0, 0, 0})));
+    }
+
+    @Test
+    void everyWriteGetsItsOwnFile() throws IOException {
+        ShaderPackVersions versions = new ShaderPackVersions(directory.resolve("shaders.pack"));
+        assertNull(versions.openLatest());
+        assertEquals(directory.resolve("shaders.1.pack"), versions.next());
+
+        ShaderPack.write(versions.next(), entries((byte) 1));
+        ShaderPack first = versions.openLatest();
+        ShaderPack.write(versions.next(), entries((byte) 2));
+        ShaderPack second = versions.openLatest();
+
+        assertEquals(directory.resolve("shaders.2.pack"), second.getPath());
+        assertEquals(2, second.getCode("basic.vert").get(0));
+        //The first pack is still mapped and untouched.
+        assertEquals(1, first.getCode("basic.vert").get(0));
+        assertTrue(Files.exists(first.getPath()));
+    }
+
+    @Test
+    void packsAreNeverWrittenOver() throws IOException {
+        Path path = directory.resolve("shaders.1.pack");
+        ShaderPack.write(path, entries((byte) 1));
+        ShaderPack shaderPack = ShaderPack.open(path);
+        assertThrows(IOException.class, () -> ShaderPack.write(path, entries((byte) 2)));
+        assertEquals(1, shaderPack.getCode("basic.vert").get(0));
+    }
+
+    @Test
+    void startupKeepsOnlyTheNewestPack() throws IOException {
+        ShaderPackVersions versions = new ShaderPackVersions(directory.resolve("shaders.pack"));
+        Files.write(directory.resolve("shaders.pack"), new byte[]{1});
+        ShaderPack.write(versions.next(), entries((byte) 1));
+        ShaderPack.write(versions.next(), entries((byte) 2));
+        //Not a valid pack, the newest one that opens wins.
+        Files.write(directory.resolve("shaders.3.pack"), new byte[]{1});
+        Files.write(directory.resolve("shaders.notes.pack"), new byte[]{1});
+
+        ShaderPack latest = versions.openLatest();
+        assertEquals(directory.resolve("shaders.2.pack"), latest.getPath());
+        versions.deleteAllBut(latest);
+
+        assertEquals(List.of(directory.resolve("shaders.2.pack")), versions.list());
+        assertFalse(Files.exists(directory.resolve("shaders.pack")));
+        assertTrue(Files.exists(directory.resolve("shaders.notes.pack")));
+        assertEquals(directory.resolve("shaders.3.pack"), versions.next());
+    }
+}
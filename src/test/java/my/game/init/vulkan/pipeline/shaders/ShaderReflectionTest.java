@@ -0,0 +1,47 @@
+package my.game.init.vulkan.pipeline.shaders;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShaderReflectionTest {
+
+    //Packs the string the way SPIR-V stores literal strings, after a leading operand that is not part of it.
+    private static int[] encode(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + (bytes.length / 4 + 1) * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(7).put(bytes);
+        buffer.flip().limit(buffer.capacity());
+        int[] operands = new int[buffer.capacity() / 4];
+        buffer.asIntBuffer().get(operands);
+        return operands;
+    }
+
+    @Test
+    void decodesAsciiNames() {
+        assertEquals("ubo", ShaderReflection.decodeString(encode("ubo"), 1));
+        //Exactly one word of characters, the terminator gets a word of its own.
+        assertEquals("main", ShaderReflection.decodeString(encode("main"), 1));
+    }
+
+    @Test
+    void decodesMultiByteUtf8() {
+        assertEquals("gr\u00f6\u00dfe_\u4f4d\u7f6e", ShaderReflection.decodeString(encode("gr\u00f6\u00dfe_\u4f4d\u7f6e"), 1));
+    }
+
+    @Test
+    void stopsAtTheFirstNull() {
+        int[] operands = {7, 'a' | 'b' << 8, 'c'};
+        assertEquals("ab", ShaderReflection.decodeString(operands, 1));
+    }
+
+    @Test
+    void unterminatedStringsUseEveryWord() {
+        int[] operands = {'a' | 'b' << 8 | 'c' << 16 | 'd' << 24};
+        assertEquals("abcd", ShaderReflection.decodeString(operands, 0));
+    }
+}
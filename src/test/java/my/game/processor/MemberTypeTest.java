@@ -0,0 +1,37 @@
+package my.game.processor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MemberTypeTest {
+
+    @Test
+    void scalarMatricesAlignToTheirScalarSize() {
+        assertEquals(4, MemberType.MAT2.alignment(GpuStruct.Layout.SCALAR));
+        assertEquals(4, MemberType.MAT4.alignment(GpuStruct.Layout.SCALAR));
+        assertEquals(16, MemberType.MAT2.size(GpuStruct.Layout.SCALAR));
+        assertEquals(64, MemberType.MAT4.size(GpuStruct.Layout.SCALAR));
+    }
+
+    @Test
+    void std430MatricesAlignToTheirColumn() {
+        assertEquals(8, MemberType.MAT2.alignment(GpuStruct.Layout.STD430));
+        assertEquals(16, MemberType.MAT2.size(GpuStruct.Layout.STD430));
+        assertEquals(16, MemberType.MAT4.alignment(GpuStruct.Layout.STD430));
+    }
+
+    @Test
+    void std140MatrixColumnsArePaddedTo16Bytes() {
+        assertEquals(16, MemberType.MAT2.alignment(GpuStruct.Layout.STD140));
+        assertEquals(32, MemberType.MAT2.size(GpuStruct.Layout.STD140));
+    }
+
+    @Test
+    void vec3IsOnlyPackedInTheScalarLayout() {
+        assertEquals(4, MemberType.VEC3.alignment(GpuStruct.Layout.SCALAR));
+        assertEquals(16, MemberType.VEC3.alignment(GpuStruct.Layout.STD430));
+        assertEquals(16, MemberType.VEC3.alignment(GpuStruct.Layout.STD140));
+        assertEquals(12, MemberType.VEC3.size(GpuStruct.Layout.STD430));
+    }
+}
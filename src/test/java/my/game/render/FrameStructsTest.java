@@ -0,0 +1,119 @@
+package my.game.render;
+
+import com.sun.management.ThreadMXBean;
+import my.game.init.vulkan.struct.DrawPushConstants;
+import org.joml.Matrix2f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.vulkan.KHRSwapchain;
+import org.lwjgl.vulkan.VK10;
+import org.lwjgl.vulkan.VkExtent2D;
+import org.lwjgl.vulkan.VkSubmitInfo;
+import org.lwjgl.vulkan.VkTimelineSemaphoreSubmitInfo;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+//Patches the per frame structs the way drawFrame does, with made up handles since none of it needs a device, and
+// checks that once warmed up it does not allocate on the java heap.
+class FrameStructsTest {
+    private static final int WARM_UP_FRAMES = 20_000;
+    private static final int MEASURED_FRAMES = 10_000;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final Matrix2f transform = new Matrix2f();
+    private VkExtent2D extent;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported(), "Needs per thread allocation counters");
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        extent = VkExtent2D.calloc().width(800).height(600);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (extent != null) {
+            extent.free();
+        }
+    }
+
+    @Test
+    void fencePathDoesNotAllocate() {
+        assertFramesDoNotAllocate(new FrameStructs(1, 2, VK10.VK_NULL_HANDLE));
+    }
+
+    @Test
+    void timelinePathDoesNotAllocate() {
+        assertFramesDoNotAllocate(new FrameStructs(1, 2, 3));
+    }
+
+    @Test
+    void patchedValuesReachTheStructs() {
+        FrameStructs frame = new FrameStructs(1, 2, 3);
+        try {
+            VkSubmitInfo submitInfo = frame.getSubmitInfo(0x1000, 41);
+            assertEquals(0x1000, submitInfo.pCommandBuffers().get(0));
+            assertEquals(2, submitInfo.signalSemaphoreCount());
+            assertEquals(3, submitInfo.pSignalSemaphores().get(1));
+            assertEquals(41, VkTimelineSemaphoreSubmitInfo.create(submitInfo.pNext()).pSignalSemaphoreValues().get(1));
+            assertEquals(99, frame.getPresentInfo(99).pSwapchains().get(0));
+            assertEquals(600, frame.getRenderPassBeginInfo(5, 6, extent).renderArea().extent().height());
+            assertEquals(800, frame.getViewport(extent).get(0).width());
+            assertEquals(KHRSwapchain.VK_IMAGE_LAYOUT_PRESENT_SRC_KHR,
+                    frame.getImageBarrier(7, VK10.VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL, KHRSwapchain.VK_IMAGE_LAYOUT_PRESENT_SRC_KHR, 0, 0).get(0).newLayout());
+            assertEquals(8, frame.getRenderingInfo(8, extent).pColorAttachments().get(0).imageView());
+        } finally {
+            frame.free();
+        }
+    }
+
+    private void assertFramesDoNotAllocate(FrameStructs frame) {
+        try {
+            for (int i = 0; i < WARM_UP_FRAMES; ++i) {
+                patchFrame(frame, i);
+            }
+            //A round can catch a one off allocation, like the jit swapping in freshly compiled code. Something that
+            // allocates every frame shows up in all of them.
+            long leastAllocated = Long.MAX_VALUE;
+            for (int round = 0; round < MEASURED_ROUNDS && leastAllocated > 0; ++round) {
+                long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < MEASURED_FRAMES; ++i) {
+                    patchFrame(frame, i);
+                }
+                leastAllocated = Math.min(leastAllocated, threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore);
+            }
+            assertEquals(0, leastAllocated, String.format("%d frames allocated %d bytes", MEASURED_FRAMES, leastAllocated));
+        } finally {
+            frame.free();
+        }
+    }
+
+    //Everything drawFrame and recordCommandBuffer ask of FrameStructs, with both render paths.
+    private void patchFrame(FrameStructs frame, int frameNumber) {
+        frame.getImageIndex().put(0, frameNumber % 3);
+        frame.getCommandBufferBeginInfo();
+        frame.getRenderPassBeginInfo(10 + frameNumber, 20 + frameNumber, extent);
+        frame.getImageBarrier(30 + frameNumber, VK10.VK_IMAGE_LAYOUT_UNDEFINED, VK10.VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL,
+                0, VK10.VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT);
+        frame.getRenderingInfo(40 + frameNumber, extent);
+        frame.getViewport(extent);
+        frame.getScissor(extent);
+        frame.getVertexBuffers(50 + frameNumber);
+        frame.getVertexOffsets();
+        frame.getDescriptorSets(60 + frameNumber);
+        frame.getDynamicOffsets().put(0, frameNumber * 256);
+        ByteBuffer pushConstants = frame.getPushConstants();
+        pushConstants.clear();
+        transform.identity().rotate(frameNumber * 0.01f);
+        transform.get(DrawPushConstants.MODEL_OFFSET, pushConstants);
+        pushConstants.putInt(DrawPushConstants.MATERIAL_INDEX_OFFSET, frameNumber);
+        frame.getSubmitInfo(0x1000L + frameNumber, frameNumber);
+        frame.getPresentInfo(70 + frameNumber);
+    }
+}
@@ -0,0 +1,53 @@
+package my.game.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InterpolatedStateTest {
+    private static final double EPSILON = 1e-9;
+
+    private final TripleBuffer<SimulationState> snapshots = new TripleBuffer<>(SimulationState::new);
+    private final InterpolatedState interpolatedState = new InterpolatedState(snapshots);
+
+    private void publish(long tick, long tickNanos, double rotation) {
+        snapshots.getWriteSlot().set(tick, tickNanos, rotation);
+        snapshots.publish();
+    }
+
+    @Test
+    void showsTheFirstSnapshotAsIs() {
+        publish(1, 1_000, 1.0);
+        interpolatedState.update(1_500);
+        assertEquals(1.0, interpolatedState.getRotation(), EPSILON);
+        assertEquals(1, interpolatedState.getTick());
+    }
+
+    @Test
+    void blendsBetweenTheTwoNewestSnapshots() {
+        publish(1, 1_000, 1.0);
+        interpolatedState.update(1_000);
+        publish(2, 2_000, 2.0);
+        interpolatedState.update(2_250);
+        assertEquals(1.25, interpolatedState.getRotation(), EPSILON);
+        //No new snapshot, the same pair keeps being blended.
+        interpolatedState.update(2_750);
+        assertEquals(1.75, interpolatedState.getRotation(), EPSILON);
+        //And never past the newest one.
+        interpolatedState.update(10_000);
+        assertEquals(2.0, interpolatedState.getRotation(), EPSILON);
+    }
+
+    //From 3 to -3 radians is 0.28 radians forward across pi, not 6 radians back through 0.
+    @Test
+    void blendsAcrossThePiWrap() {
+        publish(1, 1_000, 3.0);
+        interpolatedState.update(1_000);
+        publish(2, 2_000, -3.0);
+        interpolatedState.update(2_500);
+        double shortWay = 2 * Math.PI - 6.0;
+        assertEquals(3.0 + shortWay / 2, interpolatedState.getRotation(), EPSILON);
+        interpolatedState.update(3_000);
+        assertEquals(-3.0, Math.IEEEremainder(interpolatedState.getRotation(), 2 * Math.PI), EPSILON);
+    }
+}
@@ -0,0 +1,88 @@
+package my.game.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TripleBufferTest {
+    private static final int STRESS_TICKS = 2_000_000;
+
+    private static void publish(TripleBuffer<long[]> buffer, long tick) {
+        long[] slot = buffer.getWriteSlot();
+        slot[0] = tick;
+        //Torn or overwritten slots show up as a check value that does not match the tick.
+        slot[1] = ~tick;
+        buffer.publish();
+    }
+
+    @Test
+    void acquireLatestIsNullWhenNothingNewWasPublished() {
+        TripleBuffer<long[]> buffer = new TripleBuffer<>(() -> new long[2]);
+        assertNull(buffer.acquireLatest());
+        publish(buffer, 1);
+        assertNotNull(buffer.acquireLatest());
+        assertNull(buffer.acquireLatest());
+    }
+
+    @Test
+    void readerGetsTheNewestOfSeveralPublishes() {
+        TripleBuffer<long[]> buffer = new TripleBuffer<>(() -> new long[2]);
+        publish(buffer, 1);
+        publish(buffer, 2);
+        publish(buffer, 3);
+        assertEquals(3, buffer.acquireLatest()[0]);
+        assertNull(buffer.acquireLatest());
+        publish(buffer, 4);
+        publish(buffer, 5);
+        assertEquals(5, buffer.acquireLatest()[0]);
+    }
+
+    //If the writer were ever handed the reader's slot, the reader would see the tick change under it or go backwards.
+    @Test
+    void writerNeverGetsTheReadersSlot() {
+        TripleBuffer<long[]> buffer = new TripleBuffer<>(() -> new long[2]);
+        AtomicReference<Throwable> writerError = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (long tick = 1; tick <= STRESS_TICKS; ++tick) {
+                    publish(buffer, tick);
+                }
+            } catch (Throwable e) {
+                writerError.set(e);
+            }
+        }, "triple-buffer-writer");
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            writer.start();
+            long lastTick = 0;
+            int acquired = 0;
+            while (lastTick < STRESS_TICKS) {
+                long[] slot = buffer.acquireLatest();
+                if (slot == null) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                long tick = slot[0];
+                assertTrue(tick > lastTick, String.format("tick went from %d to %d", lastTick, tick));
+                assertEquals(~tick, slot[1], "slot was torn");
+                //Give the writer time to scribble over the slot if it could.
+                for (int i = 0; i < 100; ++i) {
+                    Thread.onSpinWait();
+                }
+                assertEquals(tick, slot[0], "writer changed the reader's slot");
+                assertEquals(~tick, slot[1], "writer changed the reader's slot");
+                lastTick = tick;
+                ++acquired;
+            }
+            writer.join();
+            assertNull(writerError.get());
+            assertTrue(acquired > 1);
+        });
+    }
+}